@@ -24,6 +24,7 @@ import java.util.List;
 import com.eharmony.matching.seeking.query.Query;
 import com.eharmony.matching.seeking.query.QueryImpl;
 import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionInterner;
 import com.eharmony.matching.seeking.query.criterion.Orderings;
 import com.eharmony.matching.seeking.query.criterion.Restrictions;
 
@@ -85,7 +86,8 @@ public class Seeking<T, R> {
     
     
     /**
-     * Compound all the restrictions and create the query
+     * Compound all the restrictions and create the query. The criteria of the
+     * query are frozen and interned (see {@link CriterionInterner}).
      * 
      * @return the query
      */
@@ -98,7 +100,8 @@ public class Seeking<T, R> {
             rootCriterion = Restrictions.and(criteria
                     .toArray(new Criterion[criteria.size()]));
         }
-        return new QueryImpl<T, R>(entityClass, returnType, rootCriterion,
+        return new QueryImpl<T, R>(entityClass, returnType,
+                CriterionInterner.intern(rootCriterion),
                 orderings, maxResults, returnFields);
     }
 
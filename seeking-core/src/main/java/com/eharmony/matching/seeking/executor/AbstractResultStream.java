@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Base class for result streams. Subclasses read the results and release
+ * their resources, this class makes sure they are released exactly once:
+ * when the stream is exhausted or when it is closed, whichever comes first.
+ * Streams are not thread safe.
+ * 
+ * @param <R>
+ *            the result type
+ */
+public abstract class AbstractResultStream<R> implements ResultStream<R> {
+
+    private boolean closed = false;
+
+    /**
+     * @return whether the underlying results have another element
+     */
+    protected abstract boolean hasMore();
+
+    /**
+     * @return the next element of the underlying results
+     */
+    protected abstract R read();
+
+    /**
+     * Release the resources held by the underlying results.
+     */
+    protected abstract void release();
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (hasMore()) {
+            return true;
+        }
+        close();
+        return false;
+    }
+
+    @Override
+    public R next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return read();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            release();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+}
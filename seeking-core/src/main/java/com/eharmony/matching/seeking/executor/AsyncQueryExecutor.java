@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor;
+
+import java.util.List;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A query executor that runs queries off the calling thread. The returned
+ * futures can be combined (see
+ * {@link com.google.common.util.concurrent.Futures}) so that a caller can
+ * query several data stores concurrently and wait once for all of them.
+ * 
+ * Failures of the underlying executor, such as {@link DataStoreException},
+ * are reported by the futures.
+ */
+public interface AsyncQueryExecutor {
+
+    /**
+     * Find records that satisfy the provided query. The results are read
+     * completely before the future completes; use
+     * {@link QueryExecutor#stream(Query)} for large result sets.
+     * 
+     * @return a future {@link Iterable} of entity type T
+     */
+    <T, R> ListenableFuture<Iterable<R>> findAsync(Query<T, R> query);
+
+    /**
+     * Find one record that satisfies the provided query.
+     * 
+     * @return a future object of entity type T, which may be null
+     */
+    <T, R> ListenableFuture<R> findOneAsync(Query<T, R> query);
+
+    /**
+     * Find the records that satisfy each of the provided queries. Lookups are
+     * merged (see {@link QueryBatch}) and the remaining queries run
+     * concurrently.
+     * 
+     * @return the future results of each query
+     */
+    ListenableFuture<BatchResults> findAllAsync(
+            List<? extends Query<?, ?>> queries);
+
+    /**
+     * Persist the entity to the datastore.
+     * 
+     * @return a future of the saved entity
+     */
+    <T> ListenableFuture<T> saveAsync(T entity);
+
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.eharmony.matching.seeking.query.Query;
+
+/**
+ * The results of a batch of queries, in the order of the queries.
+ */
+public class BatchResults {
+
+    private final List<Query<?, ?>> queries;
+    private final List<Iterable<?>> results;
+
+    public BatchResults(List<? extends Query<?, ?>> queries,
+            List<? extends Iterable<?>> results) {
+        if (queries.size() != results.size()) {
+            throw new IllegalArgumentException("The number of results ("
+                    + results.size() + ") must match the number of queries ("
+                    + queries.size() + ")");
+        }
+        this.queries = Collections.unmodifiableList(new ArrayList<Query<?, ?>>(queries));
+        this.results = Collections.unmodifiableList(new ArrayList<Iterable<?>>(results));
+    }
+
+    public int size() {
+        return queries.size();
+    }
+
+    public List<Query<?, ?>> getQueries() {
+        return queries;
+    }
+
+    /**
+     * @return the results of the query at the index of the batch
+     */
+    public Iterable<?> get(int index) {
+        return results.get(index);
+    }
+
+    /**
+     * @param query
+     *            one of the queries of the batch (the same instance)
+     * @return the results of the query
+     * @throws IllegalArgumentException
+     *             if the query is not part of the batch
+     */
+    @SuppressWarnings("unchecked")
+    public <T, R> Iterable<R> get(Query<T, R> query) {
+        for (int i = 0; i < queries.size(); i++) {
+            if (queries.get(i) == query) {
+                return (Iterable<R>) results.get(i);
+            }
+        }
+        throw new IllegalArgumentException("query is not part of the batch: "
+                + query);
+    }
+
+}
@@ -0,0 +1,438 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+import com.eharmony.matching.seeking.query.update.Updates;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Weigher;
+
+/**
+ * A QueryExecutor that caches the results of find and findOne of the
+ * underlying executor, by query. Queries are equal when they have the same
+ * entity class, return type, criteria, orderings, maximum results, return
+ * fields and page token (see {@link com.eharmony.matching.seeking.query.QueryImpl#equals(Object)}).
+ * 
+ * The cache is bounded by a number of entries and by an estimate of the bytes
+ * of the results, evicting the least recently used entries, and entries
+ * expire some time after they were cached. Saving, deleting or updating
+ * entities through the executor invalidates the entries of their class, its
+ * superclasses and its subclasses. Writes that do not go through it are seen
+ * when the entries expire or after {@link #invalidate(Class)}.
+ * 
+ * Results are cached by reference: they should not be changed by the
+ * callers. The other methods are passed to the underlying executor.
+ */
+public class CachingQueryExecutor implements QueryExecutor {
+
+    /**
+     * The default estimate of the bytes of a result
+     */
+    public static final int ESTIMATED_RESULT_BYTES = 512;
+
+    // the default estimate of the bytes of an entry, without its results
+    private static final int ESTIMATED_ENTRY_BYTES = 128;
+
+    private static final Weigher<Query<?, ?>, List<?>> ESTIMATED_BYTES = new Weigher<Query<?, ?>, List<?>>() {
+        @Override
+        public int weigh(Query<?, ?> query, List<?> results) {
+            return ESTIMATED_ENTRY_BYTES + ESTIMATED_RESULT_BYTES
+                    * results.size();
+        }
+    };
+
+    private static class Key {
+        private final Query<?, ?> query;
+        // findOne or find
+        private final boolean one;
+
+        private Key(Query<?, ?> query, boolean one) {
+            this.query = query;
+            this.one = one;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * query.hashCode() + (one ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return one == other.one && query.equals(other.query);
+        }
+    }
+
+    private static class Entry {
+        private final List<?> results;
+        private final int bytes;
+        private final long expires;
+        private final long generation;
+
+        private Entry(List<?> results, int bytes, long expires,
+                long generation) {
+            this.results = results;
+            this.bytes = bytes;
+            this.expires = expires;
+            this.generation = generation;
+        }
+    }
+
+    private final QueryExecutor queryExecutor;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final Weigher<Query<?, ?>, List<?>> weigher;
+    private final Ticker ticker;
+
+    // least recently used first, guarded by itself
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(
+            16, 0.75f, true);
+    private long bytes;
+    // incremented when the entities of a class are written
+    private final ConcurrentMap<Class<?>, AtomicLong> generations = new ConcurrentHashMap<Class<?>, AtomicLong>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param queryExecutor
+     *            the underlying executor
+     * @param maxEntries
+     *            the maximum number of cached results
+     * @param maxBytes
+     *            the maximum estimated bytes of the cached results
+     * @param ttl
+     *            the time the results are cached for
+     * @param unit
+     *            the unit of the ttl
+     * @param weigher
+     *            estimates the bytes of the results of a query
+     * @param ticker
+     *            the source of time
+     */
+    public CachingQueryExecutor(QueryExecutor queryExecutor, int maxEntries,
+            long maxBytes, long ttl, TimeUnit unit,
+            Weigher<Query<?, ?>, List<?>> weigher, Ticker ticker) {
+        if (maxEntries < 0 || maxBytes < 0 || ttl < 0) {
+            throw new IllegalArgumentException(
+                    "the bounds and ttl of the cache cannot be negative");
+        }
+        this.queryExecutor = queryExecutor;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.weigher = weigher;
+        this.ticker = ticker;
+    }
+
+    public CachingQueryExecutor(QueryExecutor queryExecutor, int maxEntries,
+            long maxBytes, long ttl, TimeUnit unit) {
+        this(queryExecutor, maxEntries, maxBytes, ttl, unit, ESTIMATED_BYTES,
+                Ticker.systemTicker());
+    }
+
+    private AtomicLong generation(Class<?> entityClass) {
+        AtomicLong generation = generations.get(entityClass);
+        if (generation == null) {
+            generation = new AtomicLong();
+            AtomicLong existing = generations.putIfAbsent(entityClass,
+                    generation);
+            generation = existing != null ? existing : generation;
+        }
+        return generation;
+    }
+
+    /**
+     * @return the cached results, null if there are none
+     */
+    private List<?> get(Key key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null
+                    && (ticker.read() - entry.expires >= 0 || entry.generation != generation(
+                            key.query.getEntityClass()).get())) {
+                remove(key);
+                entry = null;
+            }
+        }
+        (entry != null ? hits : misses).incrementAndGet();
+        return entry != null ? entry.results : null;
+    }
+
+    private void put(Key key, List<?> results, long generation) {
+        int weight = weigher.weigh(key.query, results);
+        if (weight > maxBytes || maxEntries == 0) {
+            return;
+        }
+        Entry entry = new Entry(results, weight, ticker.read() + ttlNanos,
+                generation);
+        synchronized (entries) {
+            // entities written since the query ran
+            if (generation != generation(key.query.getEntityClass()).get()) {
+                return;
+            }
+            remove(key);
+            entries.put(key, entry);
+            bytes += weight;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries || bytes > maxBytes) {
+                bytes -= eldest.next().bytes;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    // with the lock held
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.bytes;
+        }
+    }
+
+    /**
+     * Invalidate the cached results of the class, its superclasses and its
+     * subclasses, after a write that did not go through the executor.
+     */
+    public void invalidate(Class<?> entityClass) {
+        generation(entityClass).incrementAndGet();
+        for (Map.Entry<Class<?>, AtomicLong> generation : generations
+                .entrySet()) {
+            Class<?> c = generation.getKey();
+            if (c != entityClass
+                    && (c.isAssignableFrom(entityClass) || entityClass
+                            .isAssignableFrom(c))) {
+                generation.getValue().incrementAndGet();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of cached results, including those invalidated or
+     *         expired but not yet removed
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the estimated bytes of the cached results
+     */
+    public long getBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#find(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T, R> Iterable<R> find(Query<T, R> query) {
+        Key key = new Key(query, false);
+        List<R> results = (List<R>) get(key);
+        if (results == null) {
+            long generation = generation(query.getEntityClass()).get();
+            List<R> found = new ArrayList<R>();
+            for (R result : queryExecutor.find(query)) {
+                found.add(result);
+            }
+            results = Collections.unmodifiableList(found);
+            put(key, results, generation);
+        }
+        return results;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findOne(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T, R> R findOne(Query<T, R> query) {
+        Key key = new Key(query, true);
+        // a single element list, so that null results are cached too
+        List<R> results = (List<R>) get(key);
+        if (results == null) {
+            long generation = generation(query.getEntityClass()).get();
+            results = Collections.singletonList(queryExecutor.findOne(query));
+            put(key, results, generation);
+        }
+        return results.get(0);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#count(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> long count(Query<T, R> query) {
+        return queryExecutor.count(query);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#exists(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> boolean exists(Query<T, R> query) {
+        return queryExecutor.exists(query);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findPage(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> Page<R> findPage(Query<T, R> query) {
+        return queryExecutor.findPage(query);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#aggregate(com.eharmony.matching.seeking.query.aggregate.Aggregation)
+     */
+    @Override
+    public <T> List<AggregateResult> aggregate(Aggregation<T> aggregation) {
+        return queryExecutor.aggregate(aggregation);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#stream(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> ResultStream<R> stream(Query<T, R> query) {
+        return queryExecutor.stream(query);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findAll(java.util.List)
+     */
+    @Override
+    public BatchResults findAll(List<? extends Query<?, ?>> queries) {
+        return queryExecutor.findAll(queries);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#save(java.lang.Object)
+     */
+    @Override
+    public <T> T save(T entity) {
+        try {
+            return queryExecutor.save(entity);
+        } finally {
+            invalidate(entity.getClass());
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#save(java.lang.Iterable)
+     */
+    @Override
+    public <T> Iterable<T> save(Iterable<T> entities) {
+        // read once, the entities may not be iterable twice
+        List<T> list = new ArrayList<T>();
+        Set<Class<?>> classes = new HashSet<Class<?>>();
+        for (T entity : entities) {
+            list.add(entity);
+            classes.add(entity.getClass());
+        }
+        try {
+            return queryExecutor.save(list);
+        } finally {
+            for (Class<?> entityClass : classes) {
+                invalidate(entityClass);
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#delete(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> void delete(Query<T, R> query) {
+        try {
+            queryExecutor.delete(query);
+        } finally {
+            invalidate(query.getEntityClass());
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#update(com.eharmony.matching.seeking.query.Query, com.eharmony.matching.seeking.query.update.Updates)
+     */
+    @Override
+    public <T, R> void update(Query<T, R> query, Updates updates) {
+        try {
+            queryExecutor.update(query, updates);
+        } finally {
+            invalidate(query.getEntityClass());
+        }
+    }
+
+}
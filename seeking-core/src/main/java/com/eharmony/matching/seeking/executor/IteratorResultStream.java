@@ -0,0 +1,59 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * A result stream over an iterator. Subclasses that hold resources release
+ * them in {@link #release()}.
+ * 
+ * @param <R>
+ *            the result type
+ */
+public class IteratorResultStream<R> extends AbstractResultStream<R> {
+
+    private final Iterator<? extends R> iterator;
+
+    public IteratorResultStream(Iterator<? extends R> iterator) {
+        this.iterator = iterator;
+    }
+
+    /**
+     * @return a stream without results
+     */
+    public static <R> ResultStream<R> empty() {
+        return new IteratorResultStream<R>(Collections.<R> emptyList()
+                .iterator());
+    }
+
+    @Override
+    protected boolean hasMore() {
+        return iterator.hasNext();
+    }
+
+    @Override
+    protected R read() {
+        return iterator.next();
+    }
+
+    @Override
+    protected void release() {
+    }
+
+}
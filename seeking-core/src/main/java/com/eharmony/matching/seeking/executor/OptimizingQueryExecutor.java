@@ -0,0 +1,210 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.QueryImpl;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+import com.eharmony.matching.seeking.query.criterion.Orderings;
+import com.eharmony.matching.seeking.query.optimizer.QueryOptimizer;
+import com.eharmony.matching.seeking.query.update.Updates;
+import com.google.common.base.Optional;
+
+/**
+ * A QueryExecutor that runs every query through a QueryOptimizer before
+ * handing it to the underlying executor. Queries that the optimizer proves
+ * can match nothing are answered without a round trip to the data store.
+ */
+public class OptimizingQueryExecutor implements QueryExecutor {
+
+    private final QueryExecutor queryExecutor;
+    private final QueryOptimizer queryOptimizer;
+
+    public OptimizingQueryExecutor(QueryExecutor queryExecutor,
+            QueryOptimizer queryOptimizer) {
+        this.queryExecutor = queryExecutor;
+        this.queryOptimizer = queryOptimizer;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#find(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> Iterable<R> find(Query<T, R> query) {
+        Optional<Query<T, R>> optimized = queryOptimizer.optimize(query);
+        return optimized.isPresent()
+                ? queryExecutor.find(optimized.get())
+                : Collections.<R> emptyList();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findOne(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> R findOne(Query<T, R> query) {
+        Optional<Query<T, R>> optimized = queryOptimizer.optimize(query);
+        return optimized.isPresent()
+                ? queryExecutor.findOne(optimized.get())
+                : null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#count(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> long count(Query<T, R> query) {
+        Optional<Query<T, R>> optimized = queryOptimizer.optimize(query);
+        return optimized.isPresent()
+                ? queryExecutor.count(optimized.get())
+                : 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#exists(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> boolean exists(Query<T, R> query) {
+        Optional<Query<T, R>> optimized = queryOptimizer.optimize(query);
+        return optimized.isPresent()
+                ? queryExecutor.exists(optimized.get())
+                : false;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findPage(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> Page<R> findPage(Query<T, R> query) {
+        Optional<Query<T, R>> optimized = queryOptimizer.optimize(query);
+        return optimized.isPresent()
+                ? queryExecutor.findPage(optimized.get())
+                : Page.<R> empty();
+    }
+
+    /**
+     * The criteria of the aggregation are optimized as those of a query for
+     * the aggregated records.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#aggregate(com.eharmony.matching.seeking.query.aggregate.Aggregation)
+     */
+    @Override
+    public <T> List<AggregateResult> aggregate(Aggregation<T> aggregation) {
+        Class<T> entityClass = aggregation.getEntityClass();
+        Optional<Query<T, T>> optimized = queryOptimizer
+                .optimize(new QueryImpl<T, T>(entityClass, entityClass,
+                        aggregation.getCriteria(), new Orderings(), null,
+                        Collections.<String> emptyList()));
+        return optimized.isPresent()
+                ? queryExecutor.aggregate(aggregation.withCriteria(optimized
+                        .get().getCriteria()))
+                : AggregateResult.none(aggregation);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#stream(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> ResultStream<R> stream(Query<T, R> query) {
+        Optional<Query<T, R>> optimized = queryOptimizer.optimize(query);
+        return optimized.isPresent()
+                ? queryExecutor.stream(optimized.get())
+                : IteratorResultStream.<R> empty();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findAll(java.util.List)
+     */
+    @Override
+    public BatchResults findAll(List<? extends Query<?, ?>> queries) {
+        List<Query<?, ?>> optimized = new ArrayList<Query<?, ?>>();
+        int[] positions = new int[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            Query<?, ?> query = optimize(queries.get(i));
+            if (query != null) {
+                optimized.add(query);
+            }
+            positions[i] = query != null ? optimized.size() - 1 : -1;
+        }
+        BatchResults found = optimized.isEmpty() ? null : queryExecutor
+                .findAll(optimized);
+        List<Iterable<?>> results = new ArrayList<Iterable<?>>();
+        for (int position : positions) {
+            results.add(position < 0 ? Collections.emptyList() : found
+                    .get(position));
+        }
+        return new BatchResults(queries, results);
+    }
+
+    private <T, R> Query<T, R> optimize(Query<T, R> query) {
+        return queryOptimizer.optimize(query).orNull();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#save(java.lang.Object)
+     */
+    @Override
+    public <T> T save(T entity) {
+        return queryExecutor.save(entity);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#save(java.lang.Iterable)
+     */
+    @Override
+    public <T> Iterable<T> save(Iterable<T> entities) {
+        return queryExecutor.save(entities);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#delete(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> void delete(Query<T, R> query) {
+        Optional<Query<T, R>> optimized = queryOptimizer.optimize(query);
+        if (optimized.isPresent()) {
+            queryExecutor.delete(optimized.get());
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#update(com.eharmony.matching.seeking.query.Query, com.eharmony.matching.seeking.query.update.Updates)
+     */
+    @Override
+    public <T, R> void update(Query<T, R> query, Updates updates) {
+        Optional<Query<T, R>> optimized = queryOptimizer.optimize(query);
+        if (optimized.isPresent()) {
+            queryExecutor.update(optimized.get(), updates);
+        }
+    }
+
+}
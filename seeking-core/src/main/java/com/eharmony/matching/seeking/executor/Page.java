@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of results along with the total number of records that satisfy the
+ * query, regardless of its maximum number of results.
+ * 
+ * @param <R>
+ *            the result type
+ */
+public class Page<R> {
+
+    private final List<R> results;
+    private final long total;
+
+    public Page(List<R> results, long total) {
+        this.results = Collections.unmodifiableList(results);
+        this.total = total;
+    }
+
+    public static <R> Page<R> empty() {
+        return new Page<R>(Collections.<R> emptyList(), 0);
+    }
+
+    public List<R> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the number of records that satisfy the query
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return whether more records satisfy the query than this page holds
+     */
+    public boolean hasMore() {
+        return total > results.size();
+    }
+
+    @Override
+    public String toString() {
+        return "Page [results=" + results + ", total=" + total + "]";
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.executor;
+
+import java.util.Map;
+
+import com.eharmony.matching.seeking.query.Query;
+
+/**
+ * A query that has been translated once into its data store specific form and
+ * can be executed many times with different values bound to its
+ * {@link com.eharmony.matching.seeking.query.criterion.Parameter}s.
+ * 
+ * @param <T>
+ *            the entity type being queried
+ * @param <R>
+ *            the desired return type
+ */
+public interface PreparedQuery<T, R> {
+
+    /**
+     * @return the parameterized query this was prepared from
+     */
+    Query<T, R> getQuery();
+
+    /**
+     * Find records that satisfy the query with the provided parameter values.
+     * 
+     * @param parameters
+     *            the values bound to each parameter name
+     * @return an {@link Iterable} of return type R
+     * 
+     * @throws IllegalArgumentException
+     *             if a parameter of the query has no bound value
+     * @throws DataStoreException
+     *             if an error occurs accessing the underlying data store
+     */
+    Iterable<R> find(Map<String, ?> parameters);
+
+    /**
+     * Find one record that satisfies the query with the provided parameter
+     * values.
+     * 
+     * @param parameters
+     *            the values bound to each parameter name
+     * @return an object of return type R
+     * 
+     * @throws IllegalArgumentException
+     *             if a parameter of the query has no bound value
+     * @throws DataStoreException
+     *             if an error occurs accessing the underlying data store
+     */
+    R findOne(Map<String, ?> parameters);
+
+}
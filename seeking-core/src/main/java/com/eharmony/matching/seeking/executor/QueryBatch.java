@@ -0,0 +1,346 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.eharmony.matching.seeking.mapper.PropertyReader;
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.eharmony.matching.seeking.query.criterion.Parameter;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
+import com.eharmony.matching.seeking.query.criterion.expression.EqualityExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.SetExpression;
+
+/**
+ * Plans the execution of a batch of queries with as few round trips as
+ * possible. Lookups, queries that only select the entities whose key property
+ * equals one of a few values (<code>eq</code> or <code>in</code>), are merged
+ * per entity type, return type and property into a single <code>in</code>
+ * query whose results are split back per query on the value of the property.
+ * The other queries are executed as they are.
+ * 
+ * Only lookups on key properties are merged: properties that identify the
+ * entities and that the data store matches exactly, as the results are split
+ * by Java equality. A merged lookup is limited to the number of its values,
+ * so that data stores with a default limit (Solr's rows) return them all.
+ * 
+ * <pre>
+ * QueryBatch batch = new QueryBatch(queries);
+ * List&lt;Iterable&lt;?&gt;&gt; results = ... // the results of batch.getQueries()
+ * BatchResults batchResults = batch.split(results);
+ * </pre>
+ */
+public class QueryBatch {
+
+    public static final String DEFAULT_KEY_PROPERTY = "id";
+
+    private final List<Query<?, ?>> queries;
+    private final List<Query<?, ?>> executed = new ArrayList<Query<?, ?>>();
+    // per query: the index of the executed query that answers it and, for
+    // merged lookups, the lookup that selects its results
+    private final int[] sources;
+    private final Lookup[] lookups;
+
+    /**
+     * @param queries
+     *            the batch of queries
+     * @param keyProperties
+     *            the properties that lookups are merged on: unique,
+     *            exactly matched properties such as the id
+     */
+    public QueryBatch(List<? extends Query<?, ?>> queries,
+            Collection<String> keyProperties) {
+        this.queries = new ArrayList<Query<?, ?>>(queries);
+        this.sources = new int[queries.size()];
+        this.lookups = new Lookup[queries.size()];
+        Map<List<Object>, List<Integer>> groups = new LinkedHashMap<List<Object>, List<Integer>>();
+        for (int i = 0; i < queries.size(); i++) {
+            Lookup lookup = Lookup.of(queries.get(i), keyProperties);
+            if (lookup == null) {
+                sources[i] = execute(queries.get(i));
+            } else {
+                List<Integer> group = groups.get(lookup.key);
+                if (group == null) {
+                    group = new ArrayList<Integer>();
+                    groups.put(lookup.key, group);
+                }
+                group.add(i);
+                lookups[i] = lookup;
+            }
+        }
+        for (List<Integer> group : groups.values()) {
+            if (group.size() == 1) {
+                int i = group.get(0);
+                lookups[i] = null;
+                sources[i] = execute(queries.get(i));
+            } else {
+                int source = execute(merge(group));
+                for (int i : group) {
+                    sources[i] = source;
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge the lookups on the {@link #DEFAULT_KEY_PROPERTY}
+     * 
+     * @param queries
+     *            the batch of queries
+     */
+    public QueryBatch(List<? extends Query<?, ?>> queries) {
+        this(queries, Collections.singleton(DEFAULT_KEY_PROPERTY));
+    }
+
+    /**
+     * Execute the queries one after the other, merging the lookups on the
+     * {@link #DEFAULT_KEY_PROPERTY}.
+     * 
+     * @param queryExecutor
+     *            the executor of the queries
+     * @param queries
+     *            the batch of queries
+     * @return the results of the queries
+     */
+    public static BatchResults findAll(QueryExecutor queryExecutor,
+            List<? extends Query<?, ?>> queries) {
+        return findAll(queryExecutor, queries,
+                Collections.singleton(DEFAULT_KEY_PROPERTY));
+    }
+
+    /**
+     * Execute the queries one after the other.
+     * 
+     * @param queryExecutor
+     *            the executor of the queries
+     * @param queries
+     *            the batch of queries
+     * @param keyProperties
+     *            the properties that lookups are merged on
+     * @return the results of the queries
+     */
+    public static BatchResults findAll(QueryExecutor queryExecutor,
+            List<? extends Query<?, ?>> queries,
+            Collection<String> keyProperties) {
+        QueryBatch batch = new QueryBatch(queries, keyProperties);
+        List<Iterable<?>> results = new ArrayList<Iterable<?>>();
+        for (Query<?, ?> query : batch.getQueries()) {
+            results.add(find(queryExecutor, query));
+        }
+        return batch.split(results);
+    }
+
+    private static <T, R> Iterable<R> find(QueryExecutor queryExecutor,
+            Query<T, R> query) {
+        return queryExecutor.find(query);
+    }
+
+    /**
+     * @return the queries to execute, fewer than the queries of the batch if
+     *         lookups were merged
+     */
+    public List<Query<?, ?>> getQueries() {
+        return Collections.unmodifiableList(executed);
+    }
+
+    /**
+     * Split the results of the executed queries back into the results of the
+     * queries of the batch.
+     * 
+     * @param results
+     *            the results of the queries returned by {@link #getQueries()},
+     *            in the same order
+     * @return the results of the batch
+     */
+    public BatchResults split(List<? extends Iterable<?>> results) {
+        if (results.size() != executed.size()) {
+            throw new IllegalArgumentException("The number of results ("
+                    + results.size() + ") must match the number of queries ("
+                    + executed.size() + ")");
+        }
+        // merged results are read once, they may not be iterable twice
+        Map<Integer, List<?>> read = new LinkedHashMap<Integer, List<?>>();
+        List<Iterable<?>> split = new ArrayList<Iterable<?>>();
+        for (int i = 0; i < queries.size(); i++) {
+            Iterable<?> result = results.get(sources[i]);
+            if (lookups[i] == null) {
+                split.add(result);
+                continue;
+            }
+            List<?> all = read.get(sources[i]);
+            if (all == null) {
+                all = toList(result);
+                read.put(sources[i], all);
+            }
+            List<Object> selected = new ArrayList<Object>();
+            for (Object o : all) {
+                if (lookups[i].selects(o)) {
+                    selected.add(o);
+                }
+            }
+            split.add(selected);
+        }
+        return new BatchResults(queries, split);
+    }
+
+    private int execute(Query<?, ?> query) {
+        executed.add(query);
+        return executed.size() - 1;
+    }
+
+    private Query<?, ?> merge(List<Integer> group) {
+        Set<Object> values = new LinkedHashSet<Object>();
+        for (int i : group) {
+            values.addAll(lookups[i].values);
+        }
+        Query<?, ?> first = queries.get(group.get(0));
+        return merge(first, Restrictions.in(lookups[group.get(0)].propertyName,
+                values.toArray()), values.size());
+    }
+
+    private static <T, R> Query<T, R> merge(Query<T, R> query,
+            Criterion criterion, int maxResults) {
+        List<String> returnFields = query.getReturnFields();
+        QueryBuilder<T, R> builder = QueryBuilder.builderFor(
+                query.getEntityClass(), query.getReturnType(),
+                returnFields.toArray(new String[returnFields.size()]))
+                .add(criterion).setMaxResults(maxResults);
+        for (Map.Entry<String, Object> hint : query.getHints().asMap()
+                .entrySet()) {
+            builder.addHint(hint.getKey(), hint.getValue());
+        }
+        return builder.build();
+    }
+
+    private static List<?> toList(Iterable<?> iterable) {
+        if (iterable instanceof List) {
+            return (List<?>) iterable;
+        }
+        List<Object> list = new ArrayList<Object>();
+        for (Object o : iterable) {
+            list.add(o);
+        }
+        return list;
+    }
+
+    /*
+     * Numbers of different types are compared by value: the values of a query
+     * need not have the type of the property.
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Number) {
+            try {
+                return new BigDecimal(value.toString()).stripTrailingZeros();
+            } catch (NumberFormatException e) {
+                // NaN or infinite
+                return value;
+            }
+        }
+        return value;
+    }
+
+    private static class Lookup {
+
+        private final String propertyName;
+        private final List<Object> values;
+        private final Set<Object> normalized = new HashSet<Object>();
+        // the results are the values of the property rather than entities
+        private final boolean valueResults;
+        private final List<Object> key;
+
+        private Lookup(Query<?, ?> query, String propertyName,
+                List<Object> values, boolean valueResults) {
+            this.propertyName = propertyName;
+            this.values = values;
+            this.valueResults = valueResults;
+            for (Object value : values) {
+                normalized.add(normalize(value));
+            }
+            this.key = Arrays.<Object> asList(query.getEntityClass(),
+                    query.getReturnType(), query.getReturnFields(),
+                    query.getHints(), propertyName);
+        }
+
+        private static Lookup of(Query<?, ?> query,
+                Collection<String> keyProperties) {
+            if (query.getMaxResults() != null || query.getPageToken() != null
+                    || !query.getOrder().get().isEmpty()) {
+                return null;
+            }
+            Criterion c = query.getCriteria();
+            String propertyName;
+            List<Object> values;
+            if (c instanceof EqualityExpression
+                    && ((EqualityExpression) c).getOperator() == Operator.EQUAL) {
+                propertyName = ((EqualityExpression) c).getPropertyName();
+                values = Collections.singletonList(((EqualityExpression) c).getValue());
+            } else if (c instanceof SetExpression
+                    && ((SetExpression) c).getOperator() == Operator.IN) {
+                propertyName = ((SetExpression) c).getPropertyName();
+                values = Arrays.asList(((SetExpression) c).getValues());
+            } else {
+                return null;
+            }
+            if (!keyProperties.contains(propertyName)) {
+                return null;
+            }
+            for (Object value : values) {
+                if (value == null || value instanceof Parameter) {
+                    return null;
+                }
+            }
+            List<String> returnFields = query.getReturnFields();
+            if (query.getEntityClass().equals(query.getReturnType())
+                    && (returnFields.isEmpty() || returnFields.contains(propertyName))) {
+                return new Lookup(query, propertyName, values, false);
+            }
+            if (returnFields.size() == 1 && returnFields.contains(propertyName)) {
+                return new Lookup(query, propertyName, values, true);
+            }
+            return null;
+        }
+
+        private boolean selects(Object result) {
+            Object value = valueResults ? result : PropertyReader.read(result,
+                    propertyName);
+            if (value instanceof Iterable) {
+                // multi-valued properties match if any of their values does
+                for (Object element : (Iterable<?>) value) {
+                    if (normalized.contains(normalize(element))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return normalized.contains(normalize(value));
+        }
+    }
+
+}
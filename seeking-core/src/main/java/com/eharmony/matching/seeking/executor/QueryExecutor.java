@@ -17,8 +17,12 @@
 package com.eharmony.matching.seeking.executor;
 
 import java.util.Collection;
+import java.util.List;
 
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+import com.eharmony.matching.seeking.query.update.Updates;
 
 /**
  * An object oriented representation of a generic query executor that runs data
@@ -54,6 +58,75 @@ public interface QueryExecutor {
      */
     <T, R> R findOne(Query<T, R> query);
     
+    /**
+     * Count the records that satisfy the provided query, regardless of its
+     * maximum number of results.
+     *
+     * @return the number of records
+     *
+     * @throws DataStoreException if an error occurs accessing the underlying
+     *         data store
+     */
+    <T, R> long count(Query<T, R> query);
+    
+    /**
+     * Check whether any record satisfies the provided query, without reading
+     * it.
+     *
+     * @return whether a record satisfies the query
+     *
+     * @throws DataStoreException if an error occurs accessing the underlying
+     *         data store
+     */
+    <T, R> boolean exists(Query<T, R> query);
+    
+    /**
+     * Find the records that satisfy the provided query, up to its maximum
+     * number of results, along with the total number of records that
+     * satisfy it. Data stores that can count in the same round trip do so.
+     *
+     * @return the page of results
+     *
+     * @throws DataStoreException if an error occurs accessing the underlying
+     *         data store
+     */
+    <T, R> Page<R> findPage(Query<T, R> query);
+    
+    /**
+     * Compute the aggregates of the records that satisfy the criteria of the
+     * aggregation in the data store, one result per group. Without group by
+     * properties there is exactly one result, even when no record matches.
+     *
+     * @return the {@link AggregateResult}s
+     *
+     * @throws DataStoreException if an error occurs accessing the underlying
+     *         data store
+     */
+    <T> List<AggregateResult> aggregate(Aggregation<T> aggregation);
+    
+    /**
+     * Stream the records that satisfy the provided query. The records are
+     * fetched in batches of the query's fetch size and the stream holds the
+     * data store resources until it is exhausted or closed.
+     *
+     * @return a {@link ResultStream} of entity type T
+     *
+     * @throws DataStoreException if an error occurs accessing the underlying
+     *         data store
+     */
+    <T, R> ResultStream<R> stream(Query<T, R> query);
+    
+    /**
+     * Find the records that satisfy each of the provided queries, with as few
+     * round trips as the data store allows (see {@link QueryBatch}).
+     *
+     * @return the results of each query
+     *
+     * @throws DataStoreException if an error occurs accessing the underlying
+     *         data store
+     */
+    BatchResults findAll(List<? extends Query<?, ?>> queries);
+    
     /**
      * Persist the entity to the datastore.
      *
@@ -77,4 +150,24 @@ public interface QueryExecutor {
      */
     <T> Iterable<T> save(Iterable<T> entities);
 
+    /**
+     * Delete every record that satisfies the provided query, in the data store
+     * rather than by fetching and removing each entity. The query's ordering,
+     * maximum results and projection are ignored.
+     *
+     * @throws DataStoreException if an error occurs accessing the underlying
+     *         data store
+     */
+    <T, R> void delete(Query<T, R> query);
+    
+    /**
+     * Apply the updates to every record that satisfies the provided query, in
+     * the data store rather than by fetching and saving each entity. The
+     * query's ordering, maximum results and projection are ignored.
+     *
+     * @throws DataStoreException if an error occurs accessing the underlying
+     *         data store
+     */
+    <T, R> void update(Query<T, R> query, Updates updates);
+
 }
@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An iterator over the results of a query that fetches them from the data
+ * store in bounded batches as it is iterated and holds the server side
+ * resources (cursors, scrollable result sets) until it is closed.
+ * 
+ * A stream closes itself once it is exhausted. Callers that may stop early
+ * must close it, preferably in a finally block:
+ * 
+ * <pre>
+ * ResultStream&lt;User&gt; users = queryExecutor.stream(query);
+ * try {
+ *     while (users.hasNext()) {
+ *         ...
+ *     }
+ * } finally {
+ *     users.close();
+ * }
+ * </pre>
+ * 
+ * @param <R>
+ *            the result type
+ */
+public interface ResultStream<R> extends Iterator<R>, Closeable {
+
+    /**
+     * Release the resources held by the stream. Closing a closed stream has no
+     * effect and a closed stream has no more results.
+     * 
+     * @throws DataStoreException
+     *             if an error occurs releasing the resources
+     */
+    @Override
+    void close();
+
+}
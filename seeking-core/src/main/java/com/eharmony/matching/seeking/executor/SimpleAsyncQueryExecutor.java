@@ -0,0 +1,169 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * An AsyncQueryExecutor that runs the operations of a QueryExecutor on an
+ * executor service. Give each data store its own bounded pool (see
+ * {@link #newBoundedExecutor(String, int, int)}) so that a slow data store
+ * cannot starve the others; when the pool and its queue are full, further
+ * operations are rejected with a
+ * {@link java.util.concurrent.RejectedExecutionException} rather than queued
+ * without bound.
+ */
+public class SimpleAsyncQueryExecutor implements AsyncQueryExecutor {
+
+    private final QueryExecutor queryExecutor;
+    private final ListeningExecutorService executorService;
+
+    public SimpleAsyncQueryExecutor(QueryExecutor queryExecutor,
+            ExecutorService executorService) {
+        this.queryExecutor = queryExecutor;
+        this.executorService = MoreExecutors
+                .listeningDecorator(executorService);
+    }
+
+    /**
+     * Create a fixed size pool of daemon threads with a bounded queue.
+     * 
+     * @param name
+     *            the prefix of the thread names, for example the data store
+     * @param threads
+     *            the number of threads
+     * @param queueCapacity
+     *            the number of operations that may wait for a thread
+     * @return the executor service
+     */
+    public static ExecutorService newBoundedExecutor(String name, int threads,
+            int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+                        queueCapacity), new ThreadFactoryBuilder()
+                        .setNameFormat(name + "-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public QueryExecutor getQueryExecutor() {
+        return queryExecutor;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.AsyncQueryExecutor#findAsync(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> ListenableFuture<Iterable<R>> findAsync(final Query<T, R> query) {
+        return submit(new Callable<Iterable<R>>() {
+            @Override
+            public Iterable<R> call() {
+                // read the results here: lazy results would otherwise make
+                // their round trips on the thread that iterates them
+                List<R> results = new ArrayList<R>();
+                for (R result : queryExecutor.find(query)) {
+                    results.add(result);
+                }
+                return results;
+            }
+        });
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.AsyncQueryExecutor#findOneAsync(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> ListenableFuture<R> findOneAsync(final Query<T, R> query) {
+        return submit(new Callable<R>() {
+            @Override
+            public R call() {
+                return queryExecutor.findOne(query);
+            }
+        });
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.AsyncQueryExecutor#findAllAsync(java.util.List)
+     */
+    @Override
+    public ListenableFuture<BatchResults> findAllAsync(
+            List<? extends Query<?, ?>> queries) {
+        final QueryBatch batch = new QueryBatch(queries);
+        List<ListenableFuture<? extends Iterable<?>>> results = new ArrayList<ListenableFuture<? extends Iterable<?>>>();
+        for (Query<?, ?> query : batch.getQueries()) {
+            results.add(findAsync(query));
+        }
+        return Futures.transform(Futures.allAsList(results),
+                new Function<List<Iterable<?>>, BatchResults>() {
+                    @Override
+                    public BatchResults apply(List<Iterable<?>> found) {
+                        return batch.split(found);
+                    }
+                });
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.AsyncQueryExecutor#saveAsync(java.lang.Object)
+     */
+    @Override
+    public <T> ListenableFuture<T> saveAsync(final T entity) {
+        return submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return queryExecutor.save(entity);
+            }
+        });
+    }
+
+    /**
+     * Submit an operation to the executor service. Subclasses can override
+     * this to set up the context the operation runs in.
+     * 
+     * @param task
+     *            the operation
+     * @return the future result of the operation
+     */
+    protected <V> ListenableFuture<V> submit(Callable<V> task) {
+        return executorService.submit(task);
+    }
+
+    /**
+     * Stop accepting operations. Operations that were already submitted still
+     * complete.
+     */
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+}
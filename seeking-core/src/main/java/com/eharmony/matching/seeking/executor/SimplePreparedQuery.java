@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.executor;
+
+import java.util.Map;
+
+import com.eharmony.matching.seeking.query.ParameterBinder;
+import com.eharmony.matching.seeking.query.Query;
+
+/**
+ * A PreparedQuery for executors that cannot bind values to a translated query.
+ * The parameters are substituted into the generic query, which is then handed
+ * to the executor and translated on every execution.
+ * 
+ * @param <T>
+ *            the entity type being queried
+ * @param <R>
+ *            the desired return type
+ */
+public class SimplePreparedQuery<T, R> implements PreparedQuery<T, R> {
+
+    private final QueryExecutor queryExecutor;
+    private final Query<T, R> query;
+
+    public SimplePreparedQuery(QueryExecutor queryExecutor, Query<T, R> query) {
+        this.queryExecutor = queryExecutor;
+        this.query = query;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.PreparedQuery#getQuery()
+     */
+    @Override
+    public Query<T, R> getQuery() {
+        return query;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.PreparedQuery#find(java.util.Map)
+     */
+    @Override
+    public Iterable<R> find(Map<String, ?> parameters) {
+        return queryExecutor.find(ParameterBinder.bind(query, parameters));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.PreparedQuery#findOne(java.util.Map)
+     */
+    @Override
+    public R findOne(Map<String, ?> parameters) {
+        return queryExecutor.findOne(ParameterBinder.bind(query, parameters));
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.mapper;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+/**
+ * Read the value of a property from a result, following dotted paths into
+ * nested objects. Properties are read from the fields of objects and the
+ * entries of maps.
+ */
+public class PropertyReader {
+
+    private PropertyReader() {
+    }
+
+    /**
+     * @param object
+     *            the result to read from
+     * @param path
+     *            the dotted property path
+     * @return the value, or null if the value or one of the objects on its
+     *         path is null
+     * @throws IllegalArgumentException
+     *             if an object on the path has no such property
+     */
+    public static Object read(Object object, String path) {
+        Object value = object;
+        for (String name : path.split("\\.")) {
+            if (value == null) {
+                break;
+            }
+            value = value instanceof Map ? ((Map<?, ?>) value).get(name)
+                    : field(value, name);
+        }
+        return value;
+    }
+
+    private static Object field(Object object, String name) {
+        for (Class<?> c = object.getClass(); c != null; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(name);
+                field.setAccessible(true);
+                return field.get(object);
+            } catch (NoSuchFieldException e) {
+                // try the superclass
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("cannot read " + name
+                        + " of " + object, e);
+            }
+        }
+        throw new IllegalArgumentException("no property " + name + " in "
+                + object.getClass().getName());
+    }
+
+}
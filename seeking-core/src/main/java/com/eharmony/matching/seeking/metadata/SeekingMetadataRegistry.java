@@ -0,0 +1,197 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.metadata;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
+import com.eharmony.matching.seeking.query.geometry.XField;
+import com.eharmony.matching.seeking.query.geometry.YField;
+
+/**
+ * The entity classes an application queries, known at startup. The registry
+ * discovers the property paths and geometric properties of each class and
+ * hands itself to {@link Warmable} components (property resolvers, query
+ * translators and executors) so that they can resolve names, register
+ * mappings and warm up translation before the first request.
+ * 
+ * <pre>
+ * new SeekingMetadataRegistry(entityClasses).warmUp(propertyResolver,
+ *         queryTranslator, queryExecutor);
+ * </pre>
+ */
+public class SeekingMetadataRegistry {
+
+    public static final int DEFAULT_WARM_UP_ITERATIONS = 10000;
+    // how deep to follow nested (embedded) types when listing property paths
+    private static final int MAX_PATH_DEPTH = 3;
+
+    private final Map<Class<?>, List<String>> propertyPaths = new LinkedHashMap<Class<?>, List<String>>();
+    private final Map<Class<?>, List<String>> geometricProperties = new LinkedHashMap<Class<?>, List<String>>();
+    private final int warmUpIterations;
+
+    public SeekingMetadataRegistry(Collection<Class<?>> entityClasses,
+            int warmUpIterations) {
+        for (Class<?> entityClass : entityClasses) {
+            List<String> paths = new ArrayList<String>();
+            List<String> geometric = new ArrayList<String>();
+            Set<Class<?>> visiting = new HashSet<Class<?>>();
+            visiting.add(entityClass);
+            findPaths(entityClass, "", 1, visiting, paths, geometric);
+            propertyPaths.put(entityClass, Collections.unmodifiableList(paths));
+            geometricProperties.put(entityClass, Collections.unmodifiableList(geometric));
+        }
+        this.warmUpIterations = warmUpIterations;
+    }
+
+    public SeekingMetadataRegistry(Collection<Class<?>> entityClasses) {
+        this(entityClasses, DEFAULT_WARM_UP_ITERATIONS);
+    }
+
+    public Set<Class<?>> getEntityClasses() {
+        return Collections.unmodifiableSet(propertyPaths.keySet());
+    }
+
+    /**
+     * @return the dotted property paths of the entity class, including those
+     *         of nested types
+     */
+    public List<String> getPropertyPaths(Class<?> entityClass) {
+        List<String> paths = propertyPaths.get(entityClass);
+        return paths != null ? paths : Collections.<String> emptyList();
+    }
+
+    /**
+     * @return the property paths whose type has {@link XField} and
+     *         {@link YField} coordinates
+     */
+    public List<String> getGeometricProperties(Class<?> entityClass) {
+        List<String> paths = geometricProperties.get(entityClass);
+        return paths != null ? paths : Collections.<String> emptyList();
+    }
+
+    /**
+     * @return how many times translators should run the representative query
+     *         of each entity class while warming up
+     */
+    public int getWarmUpIterations() {
+        return warmUpIterations;
+    }
+
+    /**
+     * A query that constrains, orders by and returns every property of the
+     * entity class, and applies a "within" constraint to its geometric
+     * properties. Translating it exercises every property resolution and the
+     * common translation paths.
+     */
+    public <T> Query<T, T> getRepresentativeQuery(Class<T> entityClass) {
+        List<String> paths = getPropertyPaths(entityClass);
+        QueryBuilder<T, T> builder = QueryBuilder.builderFor(entityClass,
+                entityClass, paths.toArray(new String[paths.size()]));
+        for (String path : paths) {
+            builder.add(Restrictions.eq(path, 0));
+        }
+        if (!paths.isEmpty()) {
+            builder.add(Restrictions.or(
+                    Restrictions.in(paths.get(0), new Object[] { 0, 1 }),
+                    Restrictions.between(paths.get(0), 0, 1),
+                    Restrictions.isNull(paths.get(0))));
+            builder.addOrder(Ordering.asc(paths.get(0)));
+        }
+        for (String path : getGeometricProperties(entityClass)) {
+            builder.add(Restrictions.within(path, 0, 0, 1));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Warm up the components, in order. Components that others depend upon,
+     * such as property resolvers, should come first.
+     * 
+     * @param components
+     *            the components to warm up
+     */
+    public void warmUp(Warmable... components) {
+        for (Warmable component : components) {
+            component.warmUp(this);
+        }
+    }
+
+    private void findPaths(Class<?> type, String prefix, int depth,
+            Set<Class<?>> visiting, List<String> paths, List<String> geometric) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers)
+                        || Modifier.isTransient(modifiers)
+                        || field.isSynthetic()) {
+                    continue;
+                }
+                String path = prefix + field.getName();
+                paths.add(path);
+                Class<?> fieldType = field.getType();
+                if (isGeometric(fieldType)) {
+                    geometric.add(path);
+                }
+                if (depth < MAX_PATH_DEPTH && isNested(fieldType)
+                        && visiting.add(fieldType)) {
+                    findPaths(fieldType, path + ".", depth + 1, visiting,
+                            paths, geometric);
+                    visiting.remove(fieldType);
+                }
+            }
+        }
+    }
+
+    /*
+     * Application types may be embedded and have properties of their own,
+     * values, collections and library types are treated as leaves.
+     */
+    protected boolean isNested(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isEnum()
+                || type.isInterface()) {
+            return false;
+        }
+        String name = type.getName();
+        return !(name.startsWith("java.") || name.startsWith("javax.")
+                || name.startsWith("org.joda."));
+    }
+
+    protected boolean isGeometric(Class<?> type) {
+        boolean x = false;
+        boolean y = false;
+        for (Field field : type.getDeclaredFields()) {
+            x |= field.isAnnotationPresent(XField.class);
+            y |= field.isAnnotationPresent(YField.class);
+        }
+        return x && y;
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.metadata;
+
+/**
+ * A component that can resolve, register or compile what it needs for the
+ * entity classes of a {@link SeekingMetadataRegistry} ahead of the first
+ * query.
+ */
+public interface Warmable {
+
+    /**
+     * Prepare for queries against the entity classes of the registry.
+     * 
+     * @param registry
+     *            the registry of entity classes
+     */
+    void warmUp(SeekingMetadataRegistry registry);
+
+}
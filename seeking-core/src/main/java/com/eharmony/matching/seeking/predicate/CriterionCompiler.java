@@ -0,0 +1,794 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.predicate;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
+import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
+import com.eharmony.matching.seeking.query.criterion.Ordering.Order;
+import com.eharmony.matching.seeking.query.criterion.Parameter;
+import com.eharmony.matching.seeking.query.criterion.VisitableCriterion;
+import com.eharmony.matching.seeking.query.criterion.expression.Distance2dExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.EqualityExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.Expression;
+import com.eharmony.matching.seeking.query.criterion.expression.NativeExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.RangeExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.SetExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.UnaryExpression;
+import com.eharmony.matching.seeking.query.criterion.junction.Conjunction;
+import com.eharmony.matching.seeking.query.criterion.junction.Disjunction;
+import com.eharmony.matching.seeking.query.criterion.junction.Junction;
+import com.eharmony.matching.seeking.query.geometry.Point;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.primitives.Primitives;
+
+/**
+ * Compiles a Criterion tree into a {@link Predicate} of the entities of a
+ * class, to evaluate queries in process.
+ * 
+ * The tree is visited once. Properties are resolved to their fields (see
+ * {@link PropertyAccessor}) and each expression becomes a predicate
+ * specialized for the declared type of its property: primitive numbers are
+ * read and compared without boxing, <code>in</code> over integral numbers is
+ * a binary search and over strings and enums a hash lookup, and enum names
+ * are converted to their constants. Properties of other types are compared
+ * with {@link Values}.
+ * 
+ * The semantics follow MongoDB's: the values of multi-valued properties
+ * (collections and arrays) match an equality, range or <code>in</code>
+ * constraint if any of them does, <code>ne</code> and <code>notIn</code> are
+ * the negations of <code>eq</code> and <code>in</code> and so match missing
+ * values, empty means null or an empty string, collection, array or map and
+ * <code>within</code> is a flat, inclusive distance between the
+ * {@link Locations} of the property and the point. Native expressions are
+ * supported when they are Guava {@link Predicate}s of the entity.
+ */
+public class CriterionCompiler {
+
+    private static final int MAX_CACHED_PREDICATES = 1000;
+
+    // weakly keyed by interned criteria, like AbstractQueryTranslator's plans
+    private final Cache<Criterion, Compiled> predicates = CacheBuilder
+            .newBuilder().weakKeys().maximumSize(MAX_CACHED_PREDICATES)
+            .build();
+
+    private static class Compiled {
+        private final Class<?> entityClass;
+        private final Predicate<Object> predicate;
+
+        private Compiled(Class<?> entityClass, Predicate<Object> predicate) {
+            this.entityClass = entityClass;
+            this.predicate = predicate;
+        }
+    }
+
+    /**
+     * @param c
+     *            the criterion, null matches everything
+     * @param entityClass
+     *            the class of the entities the predicate is applied to
+     * @return the predicate
+     * @throws UnsupportedOperationException
+     *             if the criterion contains an unsupported criterion type or
+     *             operator
+     * @throws IllegalArgumentException
+     *             if a value is an unbound {@link Parameter}, or when the
+     *             predicate is applied, if a property cannot be read or
+     *             compared
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Predicate<T> compile(Criterion c, Class<T> entityClass) {
+        if (c == null) {
+            return Predicates.alwaysTrue();
+        }
+        // mutable junctions are compiled every time
+        if (c instanceof Junction && !((Junction) c).isFrozen()) {
+            return (Predicate<T>) new Visitor(entityClass).compile(c);
+        }
+        Compiled compiled = predicates.getIfPresent(c);
+        if (compiled == null || compiled.entityClass != entityClass) {
+            compiled = new Compiled(entityClass,
+                    new Visitor(entityClass).compile(c));
+            predicates.put(c, compiled);
+        }
+        return (Predicate<T>) compiled.predicate;
+    }
+
+    /**
+     * @param orderings
+     *            the orderings, by precedence
+     * @param entityClass
+     *            the class of the entities compared
+     * @return a comparator of the entities, null values first
+     */
+    public <T> Comparator<T> comparator(List<Ordering> orderings,
+            Class<T> entityClass) {
+        final PropertyAccessor[] accessors = new PropertyAccessor[orderings
+                .size()];
+        final boolean[] descending = new boolean[accessors.length];
+        for (int i = 0; i < accessors.length; i++) {
+            Ordering ordering = orderings.get(i);
+            accessors[i] = PropertyAccessor.of(entityClass,
+                    ordering.getPropertyName());
+            descending[i] = ordering.getOrder() == Order.DESCENDING;
+        }
+        return new Comparator<T>() {
+            @Override
+            public int compare(T a, T b) {
+                for (int i = 0; i < accessors.length; i++) {
+                    int comparison = Values.compare(accessors[i].get(a),
+                            accessors[i].get(b));
+                    if (comparison != 0) {
+                        return descending[i] ? -comparison : comparison;
+                    }
+                }
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * @param e
+     *            the distance expression
+     * @param entityClass
+     *            the class of the entities compared
+     * @return a comparator of the entities by the distance of their location
+     *         from the point of the expression, nearest first and those
+     *         without a location last
+     */
+    public <T> Comparator<T> nearest(Distance2dExpression<?> e,
+            Class<T> entityClass) {
+        final PropertyAccessor accessor = PropertyAccessor.of(entityClass,
+                e.getPropertyName());
+        final double x = e.getX().doubleValue();
+        final double y = e.getY().doubleValue();
+        return new Comparator<T>() {
+            @Override
+            public int compare(T a, T b) {
+                // NaN sorts after every distance
+                return Double.compare(
+                        Locations.distance(accessor.get(a), x, y),
+                        Locations.distance(accessor.get(b), x, y));
+            }
+        };
+    }
+
+    /*
+     * How the values of a property are compared, decided from its declared
+     * type
+     */
+    private static enum Kind {
+        // byte, short, int and long
+        INTEGRAL,
+        // float and double
+        FLOATING,
+        // a single value of another type
+        SCALAR,
+        // possibly multi-valued
+        ANY;
+
+        static Kind of(Class<?> type) {
+            if (type == long.class || type == int.class
+                    || type == short.class || type == byte.class) {
+                return INTEGRAL;
+            } else if (type == double.class || type == float.class) {
+                return FLOATING;
+            } else if (type.isPrimitive() || type.isEnum()
+                    || Number.class.isAssignableFrom(type)
+                    || CharSequence.class.isAssignableFrom(type)
+                    || Date.class.isAssignableFrom(type)
+                    || type == Boolean.class || type == Character.class) {
+                return SCALAR;
+            }
+            return ANY;
+        }
+    }
+
+    private class Visitor implements CriterionVisitor<Predicate<Object>> {
+
+        private final Class<?> entityClass;
+
+        private Visitor(Class<?> entityClass) {
+            this.entityClass = entityClass;
+        }
+
+        private Predicate<Object> compile(Criterion c) {
+            if (c instanceof VisitableCriterion) {
+                return ((VisitableCriterion) c).accept(this);
+            }
+            return visitOther(c);
+        }
+
+        private PropertyAccessor accessor(Expression e) {
+            return PropertyAccessor.of(entityClass, e.getPropertyName());
+        }
+
+        @Override
+        public Predicate<Object> visit(EqualityExpression e) {
+            PropertyAccessor accessor = accessor(e);
+            Object value = bound(e.getValue());
+            switch (e.getOperator()) {
+            case NOT_EQUAL:
+                return Predicates.not(comparison(accessor, Operator.EQUAL,
+                        value));
+            case EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL:
+            case LESS_THAN:
+            case LESS_THAN_OR_EQUAL:
+                return comparison(accessor, e.getOperator(), value);
+            default:
+                throw unsupported(e.getOperator(), EqualityExpression.class);
+            }
+        }
+
+        @Override
+        public Predicate<Object> visit(RangeExpression e) {
+            if (e.getOperator() != Operator.BETWEEN) {
+                throw unsupported(e.getOperator(), RangeExpression.class);
+            }
+            PropertyAccessor accessor = accessor(e);
+            Object from = bound(e.getFrom());
+            Object to = bound(e.getTo());
+            if (Kind.of(accessor.getType()) == Kind.ANY) {
+                // a single element has to be in the range
+                return new AnyBetween(accessor, from, to);
+            }
+            return Predicates.and(
+                    comparison(accessor, Operator.GREATER_THAN_OR_EQUAL, from),
+                    comparison(accessor, Operator.LESS_THAN_OR_EQUAL, to));
+        }
+
+        @Override
+        public Predicate<Object> visit(SetExpression e) {
+            PropertyAccessor accessor = accessor(e);
+            Object[] values = e.getValues();
+            for (Object value : values) {
+                bound(value);
+            }
+            switch (e.getOperator()) {
+            case IN:
+                return in(accessor, values);
+            case NOT_IN:
+                return Predicates.not(in(accessor, values));
+            case CONTAINS:
+                List<Predicate<Object>> all = new ArrayList<Predicate<Object>>(
+                        values.length);
+                for (Object value : values) {
+                    all.add(comparison(accessor, Operator.EQUAL, value));
+                }
+                return Predicates.and(all);
+            default:
+                throw unsupported(e.getOperator(), SetExpression.class);
+            }
+        }
+
+        @Override
+        public Predicate<Object> visit(UnaryExpression e) {
+            PropertyAccessor accessor = accessor(e);
+            switch (e.getOperator()) {
+            case NULL:
+                return new IsNull(accessor);
+            case NOT_NULL:
+                return Predicates.not(new IsNull(accessor));
+            case EMPTY:
+                return new IsEmpty(accessor);
+            case NOT_EMPTY:
+                return Predicates.not(new IsEmpty(accessor));
+            default:
+                throw unsupported(e.getOperator(), UnaryExpression.class);
+            }
+        }
+
+        @Override
+        public Predicate<Object> visit(Distance2dExpression<?> e) {
+            // the nearest are ordered and limited by the executor
+            if (e.getOperator() != Operator.WITHIN
+                    && e.getOperator() != Operator.NEAR) {
+                throw unsupported(e.getOperator(), Distance2dExpression.class);
+            }
+            PropertyAccessor accessor = accessor(e);
+            double x = e.getX().doubleValue();
+            double y = e.getY().doubleValue();
+            double distance = e.getDistance().doubleValue();
+            Class<?> type = accessor.getType();
+            Field[] fields = type.isPrimitive() || type.isArray()
+                    || Point.class.isAssignableFrom(type)
+                    || Collection.class.isAssignableFrom(type) ? null
+                    : Locations.coordinateFields(type);
+            if (fields != null) {
+                return new FieldsWithin(accessor, fields, x, y, distance);
+            }
+            return new Within(accessor, x, y, distance);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Predicate<Object> visit(NativeExpression e) {
+            if (e.getExpression() instanceof Predicate) {
+                return (Predicate<Object>) e.getExpression();
+            }
+            throw new UnsupportedOperationException("Native Expression ("
+                    + e.getExpression() + ") of type "
+                    + e.getExpressionClass() + " not supported.");
+        }
+
+        @Override
+        public Predicate<Object> visit(Conjunction j) {
+            return Predicates.and(compile(j.getCriteria()));
+        }
+
+        @Override
+        public Predicate<Object> visit(Disjunction j) {
+            // an empty disjunction does not constrain, as when translated
+            return j.getCriteria().isEmpty() ? Predicates.alwaysTrue()
+                    : Predicates.or(compile(j.getCriteria()));
+        }
+
+        private List<Predicate<Object>> compile(List<Criterion> criteria) {
+            List<Predicate<Object>> compiled = new ArrayList<Predicate<Object>>(
+                    criteria.size());
+            for (Criterion c : criteria) {
+                compiled.add(compile(c));
+            }
+            return compiled;
+        }
+
+        @Override
+        public Predicate<Object> visitOther(Criterion c) {
+            throw new UnsupportedOperationException(c.getClass()
+                    .getSimpleName() + " type not supported.");
+        }
+
+    }
+
+    /*
+     * The comparison of a property to a value, for EQUAL and the ordered
+     * operators
+     */
+    private static Predicate<Object> comparison(PropertyAccessor accessor,
+            Operator operator, Object value) {
+        Class<?> type = accessor.getType();
+        switch (Kind.of(type)) {
+        case INTEGRAL:
+            if (value instanceof Number && Values.isIntegral((Number) value)) {
+                return new LongComparison(accessor, operator,
+                        ((Number) value).longValue());
+            }
+            // a fractional value is compared as a double
+            if (value instanceof Number) {
+                return new DoubleComparison(accessor, operator,
+                        ((Number) value).doubleValue());
+            }
+            return new ScalarComparison(accessor, operator, value);
+        case FLOATING:
+            if (value instanceof Number) {
+                return new DoubleComparison(accessor, operator,
+                        ((Number) value).doubleValue());
+            }
+            return new ScalarComparison(accessor, operator, value);
+        case SCALAR:
+            Object constant = operator == Operator.EQUAL ? constant(type,
+                    value) : value;
+            if (constant != null && isNatural(type, constant)) {
+                return new NaturalComparison(accessor, operator,
+                        (Comparable<?>) constant);
+            }
+            return new ScalarComparison(accessor, operator, value);
+        default:
+            return new AnyComparison(accessor, operator, value);
+        }
+    }
+
+    private static Predicate<Object> in(PropertyAccessor accessor,
+            Object[] values) {
+        Class<?> type = accessor.getType();
+        Kind kind = Kind.of(type);
+        if (kind == Kind.INTEGRAL) {
+            long[] longs = new long[values.length];
+            int i = 0;
+            for (Object value : values) {
+                if (!(value instanceof Number)
+                        || !Values.isIntegral((Number) value)) {
+                    return new AnyIn(accessor, values);
+                }
+                longs[i++] = ((Number) value).longValue();
+            }
+            Arrays.sort(longs);
+            return new LongIn(accessor, longs);
+        } else if (kind == Kind.SCALAR) {
+            Set<Object> constants = new HashSet<Object>();
+            for (Object value : values) {
+                Object constant = constant(type, value);
+                if (constant == null || !isNatural(type, constant)) {
+                    return new AnyIn(accessor, values);
+                }
+                constants.add(constant);
+            }
+            return new HashIn(accessor, constants);
+        }
+        return new AnyIn(accessor, values);
+    }
+
+    /*
+     * Whether equals and compareTo agree with Values for values of the type,
+     * as they do for the same final type other than floating point numbers
+     * (for which equals tells 0.0 from -0.0)
+     */
+    private static boolean isNatural(Class<?> type, Object value) {
+        type = Primitives.wrap(type);
+        if (type.isEnum()) {
+            return type.isInstance(value);
+        }
+        return value.getClass() == type
+                && Modifier.isFinal(type.getModifiers())
+                && value instanceof Comparable && type != Double.class
+                && type != Float.class;
+    }
+
+    /*
+     * The enum constant named by the value when the type is an enum, the
+     * value otherwise. Names of no constant are kept to never match.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object constant(Class<?> type, Object value) {
+        if (type.isEnum() && value instanceof String) {
+            try {
+                return Enum.valueOf((Class<Enum>) type, (String) value);
+            } catch (IllegalArgumentException e) {
+                return value;
+            }
+        }
+        return value;
+    }
+
+    private static Object bound(Object value) {
+        if (value instanceof Parameter) {
+            throw new IllegalArgumentException("unbound parameter "
+                    + ((Parameter) value).getName());
+        }
+        return value;
+    }
+
+    private static UnsupportedOperationException unsupported(
+            Operator operator, Class<? extends Expression> expressionType) {
+        return new UnsupportedOperationException(operator
+                + " not supported for " + expressionType.getSimpleName());
+    }
+
+    private static boolean matches(Operator operator, int comparison) {
+        switch (operator) {
+        case EQUAL:
+            return comparison == 0;
+        case GREATER_THAN:
+            return comparison > 0;
+        case GREATER_THAN_OR_EQUAL:
+            return comparison >= 0;
+        case LESS_THAN:
+            return comparison < 0;
+        case LESS_THAN_OR_EQUAL:
+            return comparison <= 0;
+        default:
+            throw unsupported(operator, EqualityExpression.class);
+        }
+    }
+
+    /*
+     * The compiled expressions
+     */
+
+    private static abstract class PropertyPredicate implements
+            Predicate<Object> {
+        protected final PropertyAccessor accessor;
+
+        PropertyPredicate(PropertyAccessor accessor) {
+            this.accessor = accessor;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(" + accessor.getPath() + ")";
+        }
+    }
+
+    private static class LongComparison extends PropertyPredicate {
+        private final Operator operator;
+        private final long value;
+
+        LongComparison(PropertyAccessor accessor, Operator operator, long value) {
+            super(accessor);
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            if (accessor.isMissing(entity)) {
+                return false;
+            }
+            long v = accessor.getLong(entity);
+            return matches(operator, v < value ? -1 : v == value ? 0 : 1);
+        }
+    }
+
+    private static class DoubleComparison extends PropertyPredicate {
+        private final Operator operator;
+        private final double value;
+
+        DoubleComparison(PropertyAccessor accessor, Operator operator,
+                double value) {
+            super(accessor);
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            if (accessor.isMissing(entity)) {
+                return false;
+            }
+            return matches(operator,
+                    Double.compare(accessor.getDouble(entity), value));
+        }
+    }
+
+    private static class NaturalComparison extends PropertyPredicate {
+        private final Operator operator;
+        private final Comparable<Object> value;
+
+        @SuppressWarnings("unchecked")
+        NaturalComparison(PropertyAccessor accessor, Operator operator,
+                Comparable<?> value) {
+            super(accessor);
+            this.operator = operator;
+            this.value = (Comparable<Object>) value;
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            Object v = accessor.get(entity);
+            if (v == null) {
+                return false;
+            } else if (operator == Operator.EQUAL) {
+                return value.equals(v);
+            }
+            return matches(operator, -value.compareTo(v));
+        }
+    }
+
+    private static class ScalarComparison extends PropertyPredicate {
+        private final Operator operator;
+        private final Object value;
+
+        ScalarComparison(PropertyAccessor accessor, Operator operator,
+                Object value) {
+            super(accessor);
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            return compare(operator, accessor.get(entity), value);
+        }
+    }
+
+    private static boolean compare(Operator operator, Object v, Object value) {
+        if (operator == Operator.EQUAL) {
+            return Values.equal(v, value);
+        }
+        // ordered comparisons never match missing values
+        return v != null && value != null
+                && matches(operator, Values.compare(v, value));
+    }
+
+    private static class AnyComparison extends PropertyPredicate {
+        private final Operator operator;
+        private final Object value;
+
+        AnyComparison(PropertyAccessor accessor, Operator operator,
+                Object value) {
+            super(accessor);
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            for (Object element : Values.elements(accessor.get(entity))) {
+                if (compare(operator, element, value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class AnyBetween extends PropertyPredicate {
+        private final Object from;
+        private final Object to;
+
+        AnyBetween(PropertyAccessor accessor, Object from, Object to) {
+            super(accessor);
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            for (Object element : Values.elements(accessor.get(entity))) {
+                if (element != null && Values.compare(element, from) >= 0
+                        && Values.compare(element, to) <= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class LongIn extends PropertyPredicate {
+        private final long[] values;
+
+        LongIn(PropertyAccessor accessor, long[] values) {
+            super(accessor);
+            this.values = values;
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            return !accessor.isMissing(entity)
+                    && Arrays.binarySearch(values, accessor.getLong(entity)) >= 0;
+        }
+    }
+
+    private static class HashIn extends PropertyPredicate {
+        private final Set<Object> values;
+
+        HashIn(PropertyAccessor accessor, Set<Object> values) {
+            super(accessor);
+            this.values = values;
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            Object v = accessor.get(entity);
+            return v != null && values.contains(v);
+        }
+    }
+
+    private static class AnyIn extends PropertyPredicate {
+        private final Object[] values;
+
+        AnyIn(PropertyAccessor accessor, Object[] values) {
+            super(accessor);
+            this.values = values;
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            for (Object element : Values.elements(accessor.get(entity))) {
+                for (Object value : values) {
+                    if (Values.equal(element, value)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class IsNull extends PropertyPredicate {
+        IsNull(PropertyAccessor accessor) {
+            super(accessor);
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            return accessor.get(entity) == null;
+        }
+    }
+
+    private static class IsEmpty extends PropertyPredicate {
+        IsEmpty(PropertyAccessor accessor) {
+            super(accessor);
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            return Values.isEmpty(accessor.get(entity));
+        }
+    }
+
+    private static abstract class AbstractWithin extends PropertyPredicate {
+        private final double x;
+        private final double y;
+        private final double squaredDistance;
+
+        AbstractWithin(PropertyAccessor accessor, double x, double y,
+                double distance) {
+            super(accessor);
+            this.x = x;
+            this.y = y;
+            this.squaredDistance = distance * distance;
+        }
+
+        protected boolean within(double lx, double ly) {
+            double dx = lx - x;
+            double dy = ly - y;
+            return dx * dx + dy * dy <= squaredDistance;
+        }
+    }
+
+    /*
+     * Reads the coordinates of the location through its fields
+     */
+    private static class FieldsWithin extends AbstractWithin {
+        private final Field xField;
+        private final Field yField;
+
+        FieldsWithin(PropertyAccessor accessor, Field[] fields, double x,
+                double y, double distance) {
+            super(accessor, x, y, distance);
+            this.xField = fields[0];
+            this.yField = fields[1];
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            Object location = accessor.get(entity);
+            if (location == null) {
+                return false;
+            }
+            double lx = Locations.coordinate(xField, location);
+            double ly = Locations.coordinate(yField, location);
+            // NaN for missing coordinates, which are never within
+            return within(lx, ly);
+        }
+    }
+
+    /*
+     * Finds the coordinates of the location by its type
+     */
+    private static class Within extends AbstractWithin {
+
+        Within(PropertyAccessor accessor, double x, double y, double distance) {
+            super(accessor, x, y, distance);
+        }
+
+        @Override
+        public boolean apply(Object entity) {
+            double[] location = Locations.coordinates(accessor.get(entity));
+            return location != null && within(location[0], location[1]);
+        }
+    }
+
+}
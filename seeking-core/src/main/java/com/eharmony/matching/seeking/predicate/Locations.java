@@ -0,0 +1,160 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.predicate;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.eharmony.matching.seeking.query.criterion.expression.Distance2dExpression;
+import com.eharmony.matching.seeking.query.geometry.Point;
+import com.eharmony.matching.seeking.query.geometry.XField;
+import com.eharmony.matching.seeking.query.geometry.YField;
+
+/**
+ * Reads the coordinates of locations: {@link Point}s, two element arrays or
+ * lists, or objects with {@link XField} and {@link YField} coordinates.
+ */
+public final class Locations {
+
+    // the coordinate fields of location classes, an empty array for classes
+    // without
+    private static final ConcurrentMap<Class<?>, Field[]> COORDINATES = new ConcurrentHashMap<Class<?>, Field[]>();
+
+    private Locations() {
+    }
+
+    /**
+     * @return the x and y coordinates of the location, null if it has none
+     * @throws IllegalArgumentException
+     *             if the location is of a type that has no coordinates
+     */
+    public static double[] coordinates(Object location) {
+        Object x;
+        Object y;
+        if (location == null) {
+            return null;
+        } else if (location instanceof Point) {
+            x = ((Point<?>) location).getX();
+            y = ((Point<?>) location).getY();
+        } else if (location instanceof List) {
+            List<?> list = (List<?>) location;
+            if (list.size() < 2) {
+                return null;
+            }
+            x = list.get(0);
+            y = list.get(1);
+        } else if (location.getClass().isArray()) {
+            if (Array.getLength(location) < 2) {
+                return null;
+            }
+            x = Array.get(location, 0);
+            y = Array.get(location, 1);
+        } else {
+            Field[] fields = coordinateFields(location.getClass());
+            if (fields == null) {
+                throw new IllegalArgumentException(location.getClass()
+                        .getName() + " has no @XField and @YField coordinates");
+            }
+            double[] coordinates = { coordinate(fields[0], location),
+                    coordinate(fields[1], location) };
+            return Double.isNaN(coordinates[0]) || Double.isNaN(coordinates[1])
+                    ? null : coordinates;
+        }
+        if (!(x instanceof Number) || !(y instanceof Number)) {
+            return null;
+        }
+        return new double[] { ((Number) x).doubleValue(),
+                ((Number) y).doubleValue() };
+    }
+
+    /**
+     * @return the planar distance of the location from (x,y), NaN if it has
+     *         no coordinates
+     * @throws IllegalArgumentException
+     *             if the location is of a type that has no coordinates
+     */
+    public static double distance(Object location, double x, double y) {
+        double[] coordinates = coordinates(location);
+        if (coordinates == null) {
+            return Double.NaN;
+        }
+        double dx = coordinates[0] - x;
+        double dy = coordinates[1] - y;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * @return the planar distance of the location property of the entity
+     *         from the point of the expression, NaN if it has no location,
+     *         as the distance of a result of a near query
+     * @throws IllegalArgumentException
+     *             if the property cannot be read or has no coordinates
+     */
+    public static double distance(Object entity, Distance2dExpression<?> e) {
+        Object location = PropertyAccessor.of(entity.getClass(),
+                e.getPropertyName()).get(entity);
+        return distance(location, e.getX().doubleValue(), e.getY()
+                .doubleValue());
+    }
+
+    /**
+     * @return the fields annotated with {@link XField} and {@link YField}, in
+     *         that order, or null if the type has not both
+     */
+    public static Field[] coordinateFields(Class<?> type) {
+        Field[] fields = COORDINATES.get(type);
+        if (fields == null) {
+            fields = new Field[2];
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int i = field.isAnnotationPresent(XField.class) ? 0
+                            : field.isAnnotationPresent(YField.class) ? 1 : -1;
+                    if (i >= 0 && fields[i] == null) {
+                        field.setAccessible(true);
+                        fields[i] = field;
+                    }
+                }
+            }
+            if (fields[0] == null || fields[1] == null) {
+                fields = new Field[0];
+            }
+            COORDINATES.putIfAbsent(type, fields);
+        }
+        return fields.length > 0 ? fields : null;
+    }
+
+    /**
+     * @return the value of a coordinate field, NaN if it is null
+     */
+    public static double coordinate(Field field, Object location) {
+        try {
+            if (field.getType().isPrimitive()) {
+                return field.getDouble(location);
+            }
+            Object value = field.get(location);
+            return value instanceof Number ? ((Number) value).doubleValue()
+                    : Double.NaN;
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(
+                    "cannot read the coordinates of " + location, e);
+        }
+    }
+
+}
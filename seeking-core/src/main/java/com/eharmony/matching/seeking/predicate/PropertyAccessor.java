@@ -0,0 +1,171 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.predicate;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import com.eharmony.matching.seeking.mapper.PropertyReader;
+
+/**
+ * Reads a dotted property path of an entity class through the fields it
+ * resolves to, looked up once from the declared types of the path rather
+ * than on every read. Paths that go through a map, or whose fields are not
+ * declared by the static types (a property of a subclass), are read with the
+ * {@link PropertyReader} instead.
+ * 
+ * Primitive properties can be read without boxing through
+ * {@link #getLong(Object)} and {@link #getDouble(Object)}, after checking
+ * {@link #isMissing(Object)}.
+ */
+public class PropertyAccessor {
+
+    private final String path;
+    // null when the path is read dynamically
+    private final Field[] fields;
+    private final Class<?> type;
+
+    private PropertyAccessor(String path, Field[] fields, Class<?> type) {
+        this.path = path;
+        this.fields = fields;
+        this.type = type;
+    }
+
+    /**
+     * @param entityClass
+     *            the class the path starts from
+     * @param path
+     *            the dotted property path
+     * @return the accessor
+     */
+    public static PropertyAccessor of(Class<?> entityClass, String path) {
+        String[] names = path.split("\\.");
+        Field[] fields = new Field[names.length];
+        Class<?> type = entityClass;
+        for (int i = 0; i < names.length; i++) {
+            Field field = Map.class.isAssignableFrom(type) ? null : field(type,
+                    names[i]);
+            if (field == null) {
+                return new PropertyAccessor(path, null, Object.class);
+            }
+            fields[i] = field;
+            type = field.getType();
+        }
+        return new PropertyAccessor(path, fields, type);
+    }
+
+    private static Field field(Class<?> type, String name) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                // try the superclass
+            }
+        }
+        return null;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the declared type of the property, Object if it is read
+     *         dynamically
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return the value, null if it or an object on its path is null
+     * @throws IllegalArgumentException
+     *             if the property cannot be read
+     */
+    public Object get(Object entity) {
+        if (fields == null) {
+            return PropertyReader.read(entity, path);
+        }
+        Object value = entity;
+        try {
+            for (Field field : fields) {
+                if (value == null) {
+                    return null;
+                }
+                value = field.get(value);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("cannot read " + path + " of "
+                    + entity, e);
+        }
+        return value;
+    }
+
+    /**
+     * @return whether an object on the path to the property is null, the
+     *         value itself may still be null
+     */
+    public boolean isMissing(Object entity) {
+        return owner(entity) == null;
+    }
+
+    /**
+     * Read an integral primitive property
+     */
+    public long getLong(Object entity) {
+        try {
+            return fields[fields.length - 1].getLong(owner(entity));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("cannot read " + path + " of "
+                    + entity, e);
+        }
+    }
+
+    /**
+     * Read a numeric primitive property
+     */
+    public double getDouble(Object entity) {
+        try {
+            return fields[fields.length - 1].getDouble(owner(entity));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("cannot read " + path + " of "
+                    + entity, e);
+        }
+    }
+
+    private Object owner(Object entity) {
+        Object owner = entity;
+        try {
+            for (int i = 0; i < fields.length - 1 && owner != null; i++) {
+                owner = fields[i].get(owner);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("cannot read " + path + " of "
+                    + entity, e);
+        }
+        return owner;
+    }
+
+    @Override
+    public String toString() {
+        return "PropertyAccessor [path=" + path + ", type=" + type.getName()
+                + "]";
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.predicate;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Comparison and arithmetic of property values the way the data stores see
+ * them: numbers compare by value whatever their type and enums compare to
+ * their names.
+ */
+public final class Values {
+
+    private Values() {
+    }
+
+    public static boolean equal(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return compareNumbers((Number) a, (Number) b) == 0;
+        }
+        if (a instanceof Enum<?> && b instanceof String) {
+            return ((Enum<?>) a).name().equals(b);
+        }
+        if (b instanceof Enum<?> && a instanceof String) {
+            return ((Enum<?>) b).name().equals(a);
+        }
+        return a.equals(b);
+    }
+
+    /**
+     * Compare two values, nulls first
+     * 
+     * @throws IllegalArgumentException
+     *             if the values cannot be compared
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static int compare(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == b ? 0 : a == null ? -1 : 1;
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return compareNumbers((Number) a, (Number) b);
+        }
+        if (a instanceof Enum<?> && b instanceof String) {
+            return ((Enum<?>) a).name().compareTo((String) b);
+        }
+        if (b instanceof Enum<?> && a instanceof String) {
+            return ((String) a).compareTo(((Enum<?>) b).name());
+        }
+        if (a instanceof Comparable && a.getClass().isInstance(b)) {
+            return ((Comparable) a).compareTo(b);
+        }
+        if (b instanceof Comparable && b.getClass().isInstance(a)) {
+            return -((Comparable) b).compareTo(a);
+        }
+        throw new IllegalArgumentException("cannot compare " + a + " ("
+                + a.getClass().getName() + ") to " + b + " ("
+                + b.getClass().getName() + ")");
+    }
+
+    public static int compareNumbers(Number a, Number b) {
+        if (isIntegral(a) && isIntegral(b)) {
+            long x = a.longValue();
+            long y = b.longValue();
+            return x < y ? -1 : x > y ? 1 : 0;
+        }
+        if (isBig(a) || isBig(b)) {
+            return decimal(a).compareTo(decimal(b));
+        }
+        return Double.compare(a.doubleValue(), b.doubleValue());
+    }
+
+    public static boolean isIntegral(Number n) {
+        return n instanceof Integer || n instanceof Long || n instanceof Short
+                || n instanceof Byte || n instanceof AtomicInteger
+                || n instanceof AtomicLong;
+    }
+
+    private static boolean isBig(Number n) {
+        return n instanceof BigDecimal || n instanceof BigInteger;
+    }
+
+    private static BigDecimal decimal(Number n) {
+        if (n instanceof BigDecimal) {
+            return (BigDecimal) n;
+        } else if (n instanceof BigInteger) {
+            return new BigDecimal((BigInteger) n);
+        } else if (isIntegral(n)) {
+            return BigDecimal.valueOf(n.longValue());
+        }
+        return BigDecimal.valueOf(n.doubleValue());
+    }
+
+    /**
+     * @return the sum, integral if both numbers are
+     */
+    public static Number add(Number a, Number b) {
+        if (isIntegral(a) && isIntegral(b)) {
+            return a.longValue() + b.longValue();
+        }
+        if (isBig(a) || isBig(b)) {
+            return decimal(a).add(decimal(b));
+        }
+        return a.doubleValue() + b.doubleValue();
+    }
+
+    /**
+     * Convert a number to a numeric property type
+     * 
+     * @throws IllegalArgumentException
+     *             if the type is not numeric
+     */
+    public static Object convert(Number n, Class<?> type) {
+        if (type.isInstance(n)) {
+            return n;
+        } else if (type == Integer.class || type == int.class) {
+            return n.intValue();
+        } else if (type == Long.class || type == long.class) {
+            return n.longValue();
+        } else if (type == Double.class || type == double.class) {
+            return n.doubleValue();
+        } else if (type == Float.class || type == float.class) {
+            return n.floatValue();
+        } else if (type == Short.class || type == short.class) {
+            return n.shortValue();
+        } else if (type == Byte.class || type == byte.class) {
+            return n.byteValue();
+        } else if (type == BigDecimal.class) {
+            return decimal(n);
+        } else if (type == BigInteger.class) {
+            return decimal(n).toBigInteger();
+        } else if (type.isAssignableFrom(n.getClass())) {
+            return n;
+        }
+        throw new IllegalArgumentException("cannot convert " + n + " to "
+                + type.getName());
+    }
+
+    /**
+     * @return the elements of a multi-valued value (a collection or an
+     *         array), or the value itself
+     */
+    public static Iterable<?> elements(Object value) {
+        if (value instanceof Collection) {
+            return (Collection<?>) value;
+        } else if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object[] elements = new Object[length];
+            for (int i = 0; i < length; i++) {
+                elements[i] = Array.get(value, i);
+            }
+            return Arrays.asList(elements);
+        }
+        return Collections.singletonList(value);
+    }
+
+    /**
+     * @return whether the value is null or an empty string, collection, array
+     *         or map
+     */
+    public static boolean isEmpty(Object value) {
+        if (value == null) {
+            return true;
+        } else if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() == 0;
+        } else if (value instanceof Collection) {
+            return ((Collection<?>) value).isEmpty();
+        } else if (value instanceof Map) {
+            return ((Map<?, ?>) value).isEmpty();
+        } else if (value.getClass().isArray()) {
+            return Array.getLength(value) == 0;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.query;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.eharmony.matching.seeking.mapper.PropertyReader;
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
+import com.eharmony.matching.seeking.query.criterion.Ordering.Order;
+import com.eharmony.matching.seeking.query.criterion.Orderings;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
+
+/**
+ * The position after which the next page of a query starts: the values of the
+ * ordering properties of the last row of the previous page, in the order of
+ * the orderings. Rather than skipping the rows of the previous pages, the
+ * next page is restricted to the rows that sort after that last row (keyset
+ * or "seek" pagination), so every page costs the same no matter how deep it
+ * is.
+ * 
+ * The orderings must identify a row uniquely (end them with the id) and their
+ * properties must not be null, otherwise rows may be skipped or repeated.
+ */
+public class PageToken {
+
+    private final List<Object> values;
+
+    public PageToken(Object... values) {
+        for (Object value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException(
+                        "page token values must not be null");
+            }
+        }
+        this.values = Collections.unmodifiableList(Arrays.asList(values.clone()));
+    }
+
+    /**
+     * Create the token for the page that follows the row. The values of the
+     * ordering properties are read from the fields of the row (or the entries
+     * of a Map row), following dotted paths into nested objects.
+     * 
+     * @param query
+     *            the query of the page the row belongs to
+     * @param lastRow
+     *            the last row of the page
+     * @return the token of the next page
+     * @throws IllegalArgumentException
+     *             if the query is not ordered or a property cannot be read
+     */
+    public static PageToken after(Query<?, ?> query, Object lastRow) {
+        List<Ordering> orderings = query.getOrder().get();
+        if (orderings.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "keyset pagination requires an ordered query");
+        }
+        Object[] values = new Object[orderings.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = read(lastRow, orderings.get(i).getPropertyName());
+        }
+        return new PageToken(values);
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+
+    /**
+     * The restriction to the rows that sort after this token. For orderings
+     * (a asc, b desc) and values (x, y) that is
+     * <code>a &gt; x or (a = x and b &lt; y)</code>, which each data store
+     * answers with range scans on its sort keys.
+     * 
+     * @param orderings
+     *            the orderings of the query
+     * @return the restriction
+     * @throws IllegalArgumentException
+     *             if there is not exactly one value per ordering
+     */
+    public Criterion toCriterion(Orderings orderings) {
+        List<Ordering> order = orderings.get();
+        if (order.isEmpty() || order.size() != values.size()) {
+            throw new IllegalArgumentException("page token " + values
+                    + " does not match the orderings " + order);
+        }
+        Criterion[] alternatives = new Criterion[order.size()];
+        for (int i = 0; i < alternatives.length; i++) {
+            Criterion[] terms = new Criterion[i + 1];
+            for (int j = 0; j < i; j++) {
+                terms[j] = Restrictions.eq(order.get(j).getPropertyName(),
+                        values.get(j));
+            }
+            terms[i] = after(order.get(i), values.get(i));
+            alternatives[i] = i == 0 ? terms[0] : Restrictions.and(terms);
+        }
+        return alternatives.length == 1 ? alternatives[0] : Restrictions
+                .or(alternatives);
+    }
+
+    /**
+     * The criteria of the query restricted to the rows after its page token,
+     * if any.
+     * 
+     * @param query
+     *            the query
+     * @return the criteria to translate, may be null
+     */
+    public static Criterion criteria(Query<?, ?> query) {
+        PageToken token = query.getPageToken();
+        if (token == null) {
+            return query.getCriteria();
+        }
+        Criterion keyset = token.toCriterion(query.getOrder());
+        return query.getCriteria() == null ? keyset : Restrictions.and(
+                query.getCriteria(), keyset);
+    }
+
+    private static Criterion after(Ordering ordering, Object value) {
+        return ordering.getOrder() == Order.DESCENDING ? Restrictions.lt(
+                ordering.getPropertyName(), value) : Restrictions.gt(
+                ordering.getPropertyName(), value);
+    }
+
+    private static Object read(Object row, String path) {
+        Object value = PropertyReader.read(row, path);
+        if (value == null) {
+            throw new IllegalArgumentException("null value for ordering "
+                    + path + " of " + row);
+        }
+        return value;
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        return values.equals(((PageToken) obj).values);
+    }
+
+    @Override
+    public String toString() {
+        return "PageToken " + values;
+    }
+}
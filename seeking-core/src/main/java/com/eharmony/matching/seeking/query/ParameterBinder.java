@@ -0,0 +1,142 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.query;
+
+import java.util.List;
+import java.util.Map;
+
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.Parameter;
+import com.eharmony.matching.seeking.query.criterion.expression.EqualityExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.RangeExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.SetExpression;
+import com.eharmony.matching.seeking.query.criterion.junction.Conjunction;
+import com.eharmony.matching.seeking.query.criterion.junction.Disjunction;
+import com.eharmony.matching.seeking.query.criterion.junction.Junction;
+
+/**
+ * Substitutes bound values for the {@link Parameter}s of a query. This is the
+ * generic fallback for data stores that cannot bind parameters to an already
+ * translated query: the bound query is translated like any other.
+ * 
+ * Subtrees without parameters are shared with the original query.
+ */
+public class ParameterBinder {
+
+    private ParameterBinder() {
+    }
+
+    /**
+     * Bind the parameters of the query
+     * 
+     * @param query
+     *            the parameterized query
+     * @param parameters
+     *            the values bound to each parameter name
+     * @return a query with every parameter replaced by its value
+     * @throws IllegalArgumentException
+     *             if a parameter of the query has no bound value
+     */
+    public static <T, R> Query<T, R> bind(Query<T, R> query,
+            Map<String, ?> parameters) {
+        Criterion criteria = query.getCriteria();
+        Criterion bound = bind(criteria, parameters);
+        if (bound == criteria) {
+            return query;
+        }
+        return new QueryImpl<T, R>(query, bound);
+    }
+
+    /**
+     * Bind the parameters of the criterion
+     * 
+     * @param criterion
+     *            the parameterized criterion, may be null
+     * @param parameters
+     *            the values bound to each parameter name
+     * @return the criterion with every parameter replaced by its value, the
+     *         same instance if it has no parameters
+     * @throws IllegalArgumentException
+     *             if a parameter has no bound value
+     */
+    public static Criterion bind(Criterion criterion, Map<String, ?> parameters) {
+        if (criterion instanceof EqualityExpression) {
+            EqualityExpression e = (EqualityExpression) criterion;
+            Object value = Parameter.resolve(e.getValue(), parameters);
+            return value == e.getValue() ? e : new EqualityExpression(
+                    e.getOperator(), e.getPropertyName(), value);
+        } else if (criterion instanceof RangeExpression) {
+            RangeExpression e = (RangeExpression) criterion;
+            Object from = Parameter.resolve(e.getFrom(), parameters);
+            Object to = Parameter.resolve(e.getTo(), parameters);
+            return from == e.getFrom() && to == e.getTo() ? e
+                    : new RangeExpression(e.getOperator(), e.getPropertyName(),
+                            from, to);
+        } else if (criterion instanceof SetExpression) {
+            SetExpression e = (SetExpression) criterion;
+            Object[] values = bind(e.getValues(), parameters);
+            return values == e.getValues() ? e : new SetExpression(
+                    e.getOperator(), e.getPropertyName(), values);
+        } else if (criterion instanceof Junction) {
+            return bind((Junction) criterion, parameters);
+        } else {
+            // unary, spatial and native expressions carry no parameters
+            return criterion;
+        }
+    }
+
+    private static Object[] bind(Object[] values, Map<String, ?> parameters) {
+        Object[] bound = values;
+        for (int i = 0; i < values.length; i++) {
+            Object value = Parameter.resolve(values[i], parameters);
+            if (value != values[i]) {
+                if (bound == values) {
+                    bound = values.clone();
+                }
+                bound[i] = value;
+            }
+        }
+        return bound;
+    }
+
+    private static Criterion bind(Junction j, Map<String, ?> parameters) {
+        List<Criterion> criteria = j.getCriteria();
+        Criterion[] bound = null;
+        for (int i = 0; i < criteria.size(); i++) {
+            Criterion c = criteria.get(i);
+            Criterion b = bind(c, parameters);
+            if (b != c && bound == null) {
+                bound = criteria.toArray(new Criterion[criteria.size()]);
+            }
+            if (bound != null) {
+                bound[i] = b;
+            }
+        }
+        if (bound == null) {
+            return j;
+        } else if (j instanceof Conjunction) {
+            return new Conjunction(bound);
+        } else if (j instanceof Disjunction) {
+            return new Disjunction(bound);
+        } else {
+            throw new UnsupportedOperationException(j.getClass()
+                    .getSimpleName() + " type not supported.");
+        }
+    }
+
+}
@@ -76,4 +76,27 @@ public interface Query<T, R> {
      *         TODO: use Optional<Integer> rather than rely on null?
      */
     public Integer getMaxResults();
+
+    /**
+     * Get the page token: the ordering values of the last row of the previous
+     * page. Null signifies the first page.
+     * 
+     * @return the page token or null for the first page
+     */
+    public PageToken getPageToken();
+
+    /**
+     * Get the number of results to fetch per round trip when the results are
+     * streamed. Null signifies the data store default.
+     * 
+     * @return the fetch size or null for the default
+     */
+    public Integer getFetchSize();
+
+    /**
+     * Get the hints on how the data store should run the query.
+     * 
+     * @return the hints, empty rather than null
+     */
+    public QueryHints getHints();
 }
@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.query;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hints on how a data store should run a query, which the executors apply
+ * natively. The hints a data store does not support are ignored. Apart from
+ * {@link #MAX_SCAN}, which stops the scan early, hints only change how the
+ * results of a query are found, not which:
+ * 
+ * <ul>
+ * <li>{@link #INDEX}: the name of the index to use (MongoDB, which also
+ * takes the key pattern of the index)</li>
+ * <li>{@link #COMMENT}: a comment logged with the query (MongoDB, Hibernate)</li>
+ * <li>{@link #CACHE}: whether to cache the results (Solr, Hibernate)</li>
+ * <li>{@link #COST}: the cost of the filters, the costly ones run last (Solr)</li>
+ * <li>{@link #MAX_SCAN}: the maximum number of documents scanned (MongoDB),
+ * the query returns only the matches among them</li>
+ * </ul>
+ * 
+ * Hints are immutable, adding one returns a copy.
+ */
+public class QueryHints {
+
+    // a String
+    public static final String INDEX = "index";
+    // a String
+    public static final String COMMENT = "comment";
+    // a Boolean
+    public static final String CACHE = "cache";
+    // an Integer
+    public static final String COST = "cost";
+    // an Integer, limits the results to the matches among the documents scanned
+    public static final String MAX_SCAN = "maxScan";
+
+    private static final QueryHints NONE = new QueryHints(
+            Collections.<String, Object> emptyMap());
+
+    private final Map<String, Object> hints;
+
+    private QueryHints(Map<String, Object> hints) {
+        this.hints = hints;
+    }
+
+    /**
+     * @return the empty hints
+     */
+    public static QueryHints none() {
+        return NONE;
+    }
+
+    /**
+     * Copy the hints, adding or replacing a hint
+     * 
+     * @param hint
+     *            the name of the hint
+     * @param value
+     *            its value
+     * @return the copy
+     */
+    public QueryHints with(String hint, Object value) {
+        if (hint == null || value == null) {
+            throw new IllegalArgumentException("null hint or value");
+        }
+        Map<String, Object> copy = new LinkedHashMap<String, Object>(hints);
+        copy.put(hint, value);
+        return new QueryHints(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * @param hint
+     *            the name of the hint
+     * @return its value or null if the hint is not set
+     */
+    public Object get(String hint) {
+        return hints.get(hint);
+    }
+
+    /**
+     * @param hint
+     *            the name of the hint
+     * @param type
+     *            the type of its value
+     * @return its value or null if the hint is not set
+     * @throws IllegalArgumentException
+     *             if the value is not of the type
+     */
+    public <V> V get(String hint, Class<V> type) {
+        Object value = hints.get(hint);
+        if (value != null && !type.isInstance(value)) {
+            throw new IllegalArgumentException("the " + hint
+                    + " hint must be a " + type.getSimpleName() + ": " + value);
+        }
+        return type.cast(value);
+    }
+
+    public boolean isEmpty() {
+        return hints.isEmpty();
+    }
+
+    /**
+     * @return the hints by name, in the order they were added
+     */
+    public Map<String, Object> asMap() {
+        return hints;
+    }
+
+    @Override
+    public int hashCode() {
+        return hints.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        QueryHints other = (QueryHints) obj;
+        return hints.equals(other.hints);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryHints " + hints;
+    }
+
+}
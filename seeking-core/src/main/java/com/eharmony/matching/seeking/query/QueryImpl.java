@@ -37,16 +37,58 @@ public class QueryImpl<T, R> implements Query<T, R> {
     private final Orderings orderings;
     private final Integer maxResults;
     private final List<String> returnFields;
+    private final PageToken pageToken;
+    private final Integer fetchSize;
+    private final QueryHints hints;
 
     public QueryImpl(Class<T> entityClass, Class<R> returnType,
             Criterion criteria, Orderings orderings, Integer maxResults,
-            List<String> returnFields) {
+            List<String> returnFields, PageToken pageToken, Integer fetchSize,
+            QueryHints hints) {
         this.entityClass = entityClass;
         this.returnType = returnType;
         this.criteria = criteria;
         this.returnFields = returnFields;
         this.orderings = orderings;
         this.maxResults = maxResults;
+        this.pageToken = pageToken;
+        this.fetchSize = fetchSize;
+        this.hints = hints != null ? hints : QueryHints.none();
+    }
+
+    public QueryImpl(Class<T> entityClass, Class<R> returnType,
+            Criterion criteria, Orderings orderings, Integer maxResults,
+            List<String> returnFields, PageToken pageToken, Integer fetchSize) {
+        this(entityClass, returnType, criteria, orderings, maxResults,
+                returnFields, pageToken, fetchSize, null);
+    }
+
+    public QueryImpl(Class<T> entityClass, Class<R> returnType,
+            Criterion criteria, Orderings orderings, Integer maxResults,
+            List<String> returnFields, PageToken pageToken) {
+        this(entityClass, returnType, criteria, orderings, maxResults,
+                returnFields, pageToken, null);
+    }
+
+    public QueryImpl(Class<T> entityClass, Class<R> returnType,
+            Criterion criteria, Orderings orderings, Integer maxResults,
+            List<String> returnFields) {
+        this(entityClass, returnType, criteria, orderings, maxResults,
+                returnFields, null);
+    }
+
+    /**
+     * Copy the query, replacing its criteria
+     * 
+     * @param query
+     *            the query to copy
+     * @param criteria
+     *            the criteria of the copy
+     */
+    public QueryImpl(Query<T, R> query, Criterion criteria) {
+        this(query.getEntityClass(), query.getReturnType(), criteria, query
+                .getOrder(), query.getMaxResults(), query.getReturnFields(),
+                query.getPageToken(), query.getFetchSize(), query.getHints());
     }
 
     /*
@@ -103,6 +145,33 @@ public class QueryImpl<T, R> implements Query<T, R> {
         return maxResults;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.query.Query#getPageToken()
+     */
+    @Override
+    public PageToken getPageToken() {
+        return pageToken;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.query.Query#getFetchSize()
+     */
+    @Override
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.query.Query#getHints()
+     */
+    @Override
+    public QueryHints getHints() {
+        return hints;
+    }
+
     /*
      * (non-Javadoc)
      * @see java.lang.Object#toString()
@@ -111,6 +180,88 @@ public class QueryImpl<T, R> implements Query<T, R> {
     public String toString() {
         return "QueryImpl [entityClass=" + entityClass + ", criteria="
                 + criteria + ", orderings=" + orderings + ", maxResults="
-                + maxResults + "]";
+                + maxResults + ", pageToken=" + pageToken + "]";
+    }
+
+    /*
+     * Queries are equal when they select the same results the same way, for
+     * use as keys, see CachingQueryExecutor
+     */
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result
+                + ((entityClass == null) ? 0 : entityClass.hashCode());
+        result = prime * result
+                + ((returnType == null) ? 0 : returnType.hashCode());
+        result = prime * result
+                + ((criteria == null) ? 0 : criteria.hashCode());
+        result = prime * result
+                + ((orderings == null) ? 0 : orderings.hashCode());
+        result = prime * result
+                + ((maxResults == null) ? 0 : maxResults.hashCode());
+        result = prime * result
+                + ((returnFields == null) ? 0 : returnFields.hashCode());
+        result = prime * result
+                + ((pageToken == null) ? 0 : pageToken.hashCode());
+        result = prime * result
+                + ((fetchSize == null) ? 0 : fetchSize.hashCode());
+        result = prime * result + hints.hashCode();
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        QueryImpl<?, ?> other = (QueryImpl<?, ?>) obj;
+        if (entityClass == null) {
+            if (other.entityClass != null)
+                return false;
+        } else if (!entityClass.equals(other.entityClass))
+            return false;
+        if (returnType == null) {
+            if (other.returnType != null)
+                return false;
+        } else if (!returnType.equals(other.returnType))
+            return false;
+        if (criteria == null) {
+            if (other.criteria != null)
+                return false;
+        } else if (!criteria.equals(other.criteria))
+            return false;
+        if (orderings == null) {
+            if (other.orderings != null)
+                return false;
+        } else if (!orderings.equals(other.orderings))
+            return false;
+        if (maxResults == null) {
+            if (other.maxResults != null)
+                return false;
+        } else if (!maxResults.equals(other.maxResults))
+            return false;
+        if (returnFields == null) {
+            if (other.returnFields != null)
+                return false;
+        } else if (!returnFields.equals(other.returnFields))
+            return false;
+        if (pageToken == null) {
+            if (other.pageToken != null)
+                return false;
+        } else if (!pageToken.equals(other.pageToken))
+            return false;
+        if (fetchSize == null) {
+            if (other.fetchSize != null)
+                return false;
+        } else if (!fetchSize.equals(other.fetchSize))
+            return false;
+        if (!hints.equals(other.hints))
+            return false;
+        return true;
     }
 }
@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.query.aggregate;
+
+/**
+ * An aggregate function computed over the records of an aggregation
+ */
+public class Aggregate {
+
+    public static enum Function {
+        COUNT, SUM, MIN, MAX, AVG
+    }
+
+    private final Function function;
+    private final String propertyName;
+
+    /**
+     * @return the number of records
+     */
+    public static Aggregate count() {
+        return new Aggregate(Function.COUNT, null);
+    }
+
+    public static Aggregate sum(String propertyName) {
+        return new Aggregate(Function.SUM, propertyName);
+    }
+
+    public static Aggregate min(String propertyName) {
+        return new Aggregate(Function.MIN, propertyName);
+    }
+
+    public static Aggregate max(String propertyName) {
+        return new Aggregate(Function.MAX, propertyName);
+    }
+
+    public static Aggregate avg(String propertyName) {
+        return new Aggregate(Function.AVG, propertyName);
+    }
+
+    /**
+     * @param function
+     *            the aggregate function
+     * @param propertyName
+     *            the property aggregated, null for (and only for) a count
+     */
+    public Aggregate(Function function, String propertyName) {
+        if (function == null) {
+            throw new IllegalArgumentException("function is required");
+        }
+        if ((function == Function.COUNT) != (propertyName == null)) {
+            throw new IllegalArgumentException(function
+                    + (propertyName == null ? " requires" : " does not take")
+                    + " a property");
+        }
+        this.function = function;
+        this.propertyName = propertyName;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * @return the name of the aggregate in the results, e.g. "count" or
+     *         "sum(amount)"
+     */
+    public String getAlias() {
+        String name = function.name().toLowerCase();
+        return propertyName == null ? name : name + "(" + propertyName + ")";
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result
+                + ((function == null) ? 0 : function.hashCode());
+        result = prime * result
+                + ((propertyName == null) ? 0 : propertyName.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        Aggregate other = (Aggregate) obj;
+        if (function != other.function)
+            return false;
+        if (propertyName == null) {
+            if (other.propertyName != null)
+                return false;
+        } else if (!propertyName.equals(other.propertyName))
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return getAlias();
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.query.aggregate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The aggregates of one group of an aggregation. Counts are Longs; the other
+ * values are whatever the data store computes them as, and are null when no
+ * record has a value for the property.
+ */
+public class AggregateResult {
+
+    private final Map<String, Object> group;
+    private final Map<String, Object> values;
+
+    /**
+     * @param group
+     *            the values of the group by properties, by property name
+     * @param values
+     *            the aggregates, by alias (see {@link Aggregate#getAlias()})
+     */
+    public AggregateResult(Map<String, Object> group, Map<String, Object> values) {
+        this.group = Collections.unmodifiableMap(new LinkedHashMap<String, Object>(group));
+        this.values = Collections.unmodifiableMap(new LinkedHashMap<String, Object>(values));
+    }
+
+    /**
+     * The results of an aggregation over no records: none when grouped, a
+     * single result with counts of 0 otherwise.
+     */
+    public static List<AggregateResult> none(Aggregation<?> aggregation) {
+        if (!aggregation.getGroupBy().isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        for (Aggregate aggregate : aggregation.getAggregates()) {
+            values.put(aggregate.getAlias(),
+                    aggregate.getFunction() == Aggregate.Function.COUNT ? 0L : null);
+        }
+        return Collections.singletonList(new AggregateResult(
+                Collections.<String, Object> emptyMap(), values));
+    }
+
+    public Map<String, Object> getGroup() {
+        return group;
+    }
+
+    /**
+     * @return the value of a group by property shared by the group
+     */
+    public Object getGroup(String propertyName) {
+        return group.get(propertyName);
+    }
+
+    public Map<String, Object> getValues() {
+        return values;
+    }
+
+    public Object getValue(Aggregate aggregate) {
+        return values.get(aggregate.getAlias());
+    }
+
+    public Object getValue(String alias) {
+        return values.get(alias);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * group.hashCode() + values.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof AggregateResult))
+            return false;
+        AggregateResult other = (AggregateResult) obj;
+        return group.equals(other.group) && values.equals(other.values);
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateResult [group=" + group + ", values=" + values + "]";
+    }
+
+}
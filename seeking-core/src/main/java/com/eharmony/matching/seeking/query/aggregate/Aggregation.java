@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.query.aggregate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+
+/**
+ * Aggregates computed by the data store over the records of an entity type
+ * that satisfy the criteria, for each group of records sharing the values of
+ * the group by properties, or over all of them when there are none.
+ * 
+ * @param <T>
+ *            the entity type being aggregated
+ */
+public class Aggregation<T> {
+
+    private final Class<T> entityClass;
+    private final Criterion criteria;
+    private final List<String> groupBy;
+    private final List<Aggregate> aggregates;
+
+    public Aggregation(Class<T> entityClass, Criterion criteria,
+            List<String> groupBy, List<Aggregate> aggregates) {
+        if (groupBy.isEmpty() && aggregates.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "nothing to group by or aggregate");
+        }
+        this.entityClass = entityClass;
+        this.criteria = criteria;
+        this.groupBy = Collections.unmodifiableList(new ArrayList<String>(
+                groupBy));
+        this.aggregates = Collections
+                .unmodifiableList(new ArrayList<Aggregate>(aggregates));
+    }
+
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return the criteria restricting the aggregated records, may be null
+     */
+    public Criterion getCriteria() {
+        return criteria;
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    public List<Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * @return the same aggregation over the records that satisfy the criteria
+     */
+    public Aggregation<T> withCriteria(Criterion criteria) {
+        return new Aggregation<T>(entityClass, criteria, groupBy, aggregates);
+    }
+
+    @Override
+    public String toString() {
+        return "Aggregation [entityClass=" + entityClass + ", criteria="
+                + criteria + ", groupBy=" + groupBy + ", aggregates="
+                + aggregates + "]";
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.query.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionInterner;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
+
+/**
+ * Builder for Aggregation objects
+ * 
+ * @param <T>
+ *            the entity type being aggregated
+ */
+public class AggregationBuilder<T> {
+
+    private final Class<T> entityClass;
+    private List<Criterion> criteria = new ArrayList<Criterion>();
+    private List<String> groupBy = new ArrayList<String>();
+    private List<Aggregate> aggregates = new ArrayList<Aggregate>();
+
+    public AggregationBuilder(Class<T> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    public static <T> AggregationBuilder<T> builderFor(Class<T> entityClass) {
+        return new AggregationBuilder<T>(entityClass);
+    }
+
+    /**
+     * Add a restriction to constrain the records to be aggregated
+     * 
+     * @param criterion
+     * @return the builder
+     */
+    public AggregationBuilder<T> add(Criterion criterion) {
+        criteria.add(criterion);
+        return this;
+    }
+
+    /**
+     * Group the records by the values of these properties
+     * 
+     * @param propertyNames
+     * @return the builder
+     */
+    public AggregationBuilder<T> groupBy(String... propertyNames) {
+        Collections.addAll(groupBy, propertyNames);
+        return this;
+    }
+
+    /**
+     * Compute these aggregates for every group
+     * 
+     * @param aggregates
+     * @return the builder
+     */
+    public AggregationBuilder<T> aggregate(Aggregate... aggregates) {
+        Collections.addAll(this.aggregates, aggregates);
+        return this;
+    }
+
+    /**
+     * Compound all the restrictions and create the aggregation
+     * 
+     * @return the aggregation
+     */
+    public Aggregation<T> build() {
+        Criterion rootCriterion = null;
+        if (criteria.size() == 1) {
+            rootCriterion = criteria.get(0);
+        } else if (criteria.size() > 1) {
+            rootCriterion = Restrictions.and(criteria
+                    .toArray(new Criterion[criteria.size()]));
+        }
+        return new Aggregation<T>(entityClass,
+                CriterionInterner.intern(rootCriterion), groupBy, aggregates);
+    }
+
+    @Override
+    public String toString() {
+        return "AggregationBuilder [entityClass=" + entityClass
+                + ", criteria=" + criteria + ", groupBy=" + groupBy
+                + ", aggregates=" + aggregates + "]";
+    }
+
+}
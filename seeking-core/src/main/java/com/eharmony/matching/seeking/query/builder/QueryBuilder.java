@@ -21,9 +21,12 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import com.eharmony.matching.seeking.query.PageToken;
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.QueryHints;
 import com.eharmony.matching.seeking.query.QueryImpl;
 import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionInterner;
 import com.eharmony.matching.seeking.query.criterion.Ordering;
 import com.eharmony.matching.seeking.query.criterion.Orderings;
 import com.eharmony.matching.seeking.query.criterion.Restrictions;
@@ -44,6 +47,9 @@ public class QueryBuilder<T, R> {
     private Orderings orderings = new Orderings();
     private Integer maxResults;
     private List<String> returnFields = Collections.emptyList();
+    private PageToken pageToken;
+    private Integer fetchSize;
+    private QueryHints hints = QueryHints.none();
 
     public QueryBuilder(Class<T> entityClass, Class<R> returnType) {
         this.entityClass = entityClass;
@@ -107,7 +113,56 @@ public class QueryBuilder<T, R> {
     }
 
     /**
-     * Compound all the restrictions and create the query
+     * Set the number of results to fetch per round trip when the results are
+     * streamed
+     * 
+     * @param fetchSize
+     * @return the builder
+     */
+    public QueryBuilder<T, R> setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Add a hint on how the data store should run the query (see
+     * {@link QueryHints})
+     * 
+     * @param hint
+     * @param value
+     * @return the builder
+     */
+    public QueryBuilder<T, R> addHint(String hint, Object value) {
+        this.hints = hints.with(hint, value);
+        return this;
+    }
+
+    /**
+     * Start the results after the position of the page token (see
+     * {@link PageToken#after(Query, Object)}). The query must be ordered.
+     * 
+     * @param pageToken
+     * @return the builder
+     */
+    public QueryBuilder<T, R> setPageToken(PageToken pageToken) {
+        this.pageToken = pageToken;
+        return this;
+    }
+
+    /**
+     * Start the results after the row with these values of the ordering
+     * properties
+     * 
+     * @param orderingValues
+     * @return the builder
+     */
+    public QueryBuilder<T, R> after(Object... orderingValues) {
+        return setPageToken(new PageToken(orderingValues));
+    }
+
+    /**
+     * Compound all the restrictions and create the query. The criteria of the
+     * query are frozen and interned (see {@link CriterionInterner}).
      * 
      * @return the query
      */
@@ -120,8 +175,10 @@ public class QueryBuilder<T, R> {
             rootCriterion = Restrictions.and(criteria
                     .toArray(new Criterion[criteria.size()]));
         }
-        return new QueryImpl<T, R>(entityClass, returnType, rootCriterion,
-                orderings, maxResults, returnFields);
+        return new QueryImpl<T, R>(entityClass, returnType,
+                CriterionInterner.intern(rootCriterion),
+                orderings, maxResults, returnFields, pageToken, fetchSize,
+                hints);
     }
 
     @Override
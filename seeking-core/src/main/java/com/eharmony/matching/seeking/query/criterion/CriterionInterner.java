@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.query.criterion;
+
+import com.eharmony.matching.seeking.query.criterion.junction.Junction;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Hash-conses Criterion trees. Junctions are frozen and every node of the tree
+ * is replaced with a canonical instance so that identical subtrees built by
+ * different queries share a single object and equality checks between them
+ * reduce to a reference comparison.
+ * 
+ * Canonical instances are weakly held and are collected once no query refers
+ * to them.
+ */
+public class CriterionInterner {
+
+    private static final Interner<Criterion> interner = Interners.newWeakInterner();
+
+    private CriterionInterner() {
+    }
+
+    /**
+     * Get the canonical, immutable instance of the provided criterion.
+     * 
+     * @param criterion
+     *            the criterion to intern, may be null
+     * @return the canonical instance or null if the criterion was null
+     */
+    public static Criterion intern(Criterion criterion) {
+        if (criterion == null) {
+            return null;
+        }
+        if (criterion instanceof Junction) {
+            Junction frozen = ((Junction) criterion).freeze();
+            if (!frozen.isFrozen()) {
+                // mutable junctions must not be shared
+                return frozen;
+            }
+            criterion = frozen;
+        }
+        return interner.intern(criterion);
+    }
+
+}
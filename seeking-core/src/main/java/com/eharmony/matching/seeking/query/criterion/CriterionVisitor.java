@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.query.criterion;
+
+import com.eharmony.matching.seeking.query.criterion.expression.Distance2dExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.EqualityExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.NativeExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.RangeExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.SetExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.UnaryExpression;
+import com.eharmony.matching.seeking.query.criterion.junction.Conjunction;
+import com.eharmony.matching.seeking.query.criterion.junction.Disjunction;
+
+/**
+ * Double dispatch over the concrete Criterion types, see
+ * {@link VisitableCriterion#accept(CriterionVisitor)}.
+ * 
+ * @param <R>
+ *            the result type of a visit
+ */
+public interface CriterionVisitor<R> {
+
+    R visit(EqualityExpression e);
+
+    R visit(RangeExpression e);
+
+    R visit(SetExpression e);
+
+    R visit(UnaryExpression e);
+
+    R visit(Distance2dExpression<?> e);
+
+    R visit(NativeExpression e);
+
+    R visit(Conjunction j);
+
+    R visit(Disjunction j);
+
+    /**
+     * Visit a criterion of a type this visitor has no method for, such as a
+     * user defined Expression or Junction subclass.
+     */
+    R visitOther(Criterion c);
+
+}
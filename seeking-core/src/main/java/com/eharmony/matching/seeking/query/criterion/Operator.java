@@ -41,6 +41,7 @@ public enum Operator implements Symbolic {
     CONTAINS("contains"),
     
     WITHIN("within"),
+    NEAR("near"),
     
     AND("and"),
     OR("or");
@@ -33,4 +33,20 @@ public class Orderings {
     public String toString() {
         return "Orderings [" + orderings + "]";
     }
+
+    @Override
+    public int hashCode() {
+        return orderings.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        return orderings.equals(((Orderings) obj).orderings);
+    }
 }
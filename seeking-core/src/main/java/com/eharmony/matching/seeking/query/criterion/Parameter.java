@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.query.criterion;
+
+import java.util.Map;
+
+/**
+ * A named placeholder for a value in an expression. Queries built with
+ * parameters describe a fixed shape that can be translated once and then
+ * executed many times with different values bound to the parameters.
+ * 
+ * Parameters stand in for a single scalar value, including a single element
+ * of an "in" or "not in" expression.
+ */
+public class Parameter {
+
+    private final String name;
+
+    public Parameter(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("parameter name must not be null");
+        }
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Resolve a value against the bound parameters. Parameters are replaced
+     * by their bound value, any other value is returned as is.
+     * 
+     * @param value
+     *            the value or parameter to resolve
+     * @param parameters
+     *            the values bound to each parameter name
+     * @return the resolved value
+     * @throws IllegalArgumentException
+     *             if no value was bound for the parameter
+     */
+    public static Object resolve(Object value, Map<String, ?> parameters) {
+        if (!(value instanceof Parameter)) {
+            return value;
+        }
+        String name = ((Parameter) value).getName();
+        if (!parameters.containsKey(name)) {
+            throw new IllegalArgumentException("No value bound for parameter "
+                    + name);
+        }
+        return parameters.get(name);
+    }
+
+    @Override
+    public String toString() {
+        return ":" + name;
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        Parameter other = (Parameter) obj;
+        return name.equals(other.name);
+    }
+
+}
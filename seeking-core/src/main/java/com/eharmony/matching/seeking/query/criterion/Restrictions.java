@@ -19,6 +19,7 @@ package com.eharmony.matching.seeking.query.criterion;
 import java.util.Collection;
 
 import com.eharmony.matching.seeking.query.criterion.expression.Distance2dExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.NearExpression;
 import com.eharmony.matching.seeking.query.criterion.expression.EqualityExpression;
 import com.eharmony.matching.seeking.query.criterion.expression.NativeExpression;
 import com.eharmony.matching.seeking.query.criterion.expression.RangeExpression;
@@ -35,6 +36,16 @@ public class Restrictions {
     private Restrictions() {
     }
 
+    /**
+     * Create a named parameter to be used in place of a value and bound when
+     * the query is executed
+     * @param name
+     * @return Parameter
+     */
+    public static Parameter param(String name) {
+        return new Parameter(name);
+    }
+    
     /**
      * Apply an "equal" constraint to the named property
      * @param propertyName
@@ -273,4 +284,21 @@ public class Restrictions {
         return new Distance2dExpression<N>(Operator.WITHIN, propertyName, x, y,
                 distance);
     }
+
+    /**
+     * Apply a "near" constraint to the property: the limit closest results
+     * to x,y within the max distance, sorted by distance (see
+     * {@link NearExpression})
+     * 
+     * @param propertyName
+     * @param x
+     * @param y
+     * @param limit
+     * @param maxDistance
+     * @return
+     */
+    public static <N extends Number & Comparable<N>> NearExpression<N> near(
+            String propertyName, N x, N y, int limit, N maxDistance) {
+        return new NearExpression<N>(propertyName, x, y, limit, maxDistance);
+    }
 }
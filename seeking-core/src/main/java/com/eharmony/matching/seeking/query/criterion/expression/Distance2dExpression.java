@@ -16,6 +16,7 @@
 
 package com.eharmony.matching.seeking.query.criterion.expression;
 
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
 import com.eharmony.matching.seeking.query.criterion.Operator;
 
 /**
@@ -55,6 +56,11 @@ public class Distance2dExpression<N extends Number & Comparable<N>> extends
         return distance;
     }
 
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
     @Override
     public String toString() {
         return "Distance2dExpression [x=" + x + ", y=" + y + ", distance="
@@ -62,9 +68,9 @@ public class Distance2dExpression<N extends Number & Comparable<N>> extends
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         final int prime = 31;
-        int result = super.hashCode();
+        int result = super.computeHashCode();
         result = prime * result
                 + ((distance == null) ? 0 : distance.hashCode());
         result = prime * result + ((x == null) ? 0 : x.hashCode());
@@ -16,6 +16,7 @@
 
 package com.eharmony.matching.seeking.query.criterion.expression;
 
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
 import com.eharmony.matching.seeking.query.criterion.Operator;
 
 /**
@@ -35,15 +36,20 @@ public class EqualityExpression extends Expression {
         return value;
     }
     
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
     @Override
     public String toString() {
         return getPropertyName() + " " + getOperator() + " " + value;
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         final int prime = 31;
-        int result = super.hashCode();
+        int result = super.computeHashCode();
         result = prime * result + ((value == null) ? 0 : value.hashCode());
         return result;
     }
@@ -16,18 +16,22 @@
 
 package com.eharmony.matching.seeking.query.criterion.expression;
 
-import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
 import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.eharmony.matching.seeking.query.criterion.VisitableCriterion;
 import com.eharmony.matching.seeking.query.criterion.WithOperator;
 import com.eharmony.matching.seeking.query.criterion.WithProperty;
 
 /**
  * An abstract expression with an operator that acts on a property name.
+ * 
+ * Expressions are immutable so the hash code is computed once, on first use.
  */
-public abstract class Expression implements Criterion, WithOperator, WithProperty {
+public abstract class Expression implements VisitableCriterion, WithOperator, WithProperty {
 
     private final Operator operator;
     private final String propertyName;
+    private int hash;
 
     protected Expression(Operator operator, String propertyName) {
         this.operator = operator;
@@ -44,8 +48,27 @@ public abstract class Expression implements Criterion, WithOperator, WithPropert
         return propertyName;
     }
 
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visitOther(this);
+    }
+
     @Override
     public int hashCode() {
+        // racy single-check, as in String.hashCode()
+        int h = hash;
+        if (h == 0) {
+            h = computeHashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Compute the hash code. Subclasses with additional state extend this
+     * rather than overriding {@link #hashCode()}.
+     */
+    protected int computeHashCode() {
         final int prime = 31;
         int result = 1;
         result = prime * result
@@ -64,6 +87,9 @@ public abstract class Expression implements Criterion, WithOperator, WithPropert
         if (getClass() != obj.getClass())
             return false;
         Expression other = (Expression) obj;
+        // cheap rejection, the hash codes are cached
+        if (hashCode() != other.hashCode())
+            return false;
         if (operator != other.operator)
             return false;
         if (propertyName == null) {
@@ -16,12 +16,13 @@
 
 package com.eharmony.matching.seeking.query.criterion.expression;
 
-import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
+import com.eharmony.matching.seeking.query.criterion.VisitableCriterion;
 
 /**
  * A typed, native datastore query component.
  */
-public class NativeExpression implements Criterion {
+public class NativeExpression implements VisitableCriterion {
 
     private final Class<?> expressionClass;
     private final Object expression;
@@ -39,6 +40,11 @@ public class NativeExpression implements Criterion {
         return expression;
     }
 
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
     @Override
     public String toString() {
         return "NativeExpression [" + expression + "]";
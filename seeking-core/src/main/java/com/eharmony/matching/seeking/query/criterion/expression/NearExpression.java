@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.query.criterion.expression;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.eharmony.matching.seeking.query.criterion.junction.Junction;
+
+/**
+ * Representation of a nearest neighbour expression: the closest results to
+ * (x,y), at most a limit of them and no further than the max distance. The
+ * results of a query with a near expression are sorted by their distance
+ * from (x,y), closest first.
+ * 
+ * A near expression must be one of the conjuncts of the criteria of a query,
+ * and a query can only have one, as the data stores sort and limit on it.
+ * 
+ * @param <N>
+ *            the numeric type
+ */
+public class NearExpression<N extends Number & Comparable<N>> extends
+        Distance2dExpression<N> {
+
+    private final int limit;
+
+    public NearExpression(String propertyName, N x, N y, int limit,
+            N maxDistance) {
+        super(Operator.NEAR, propertyName, x, y, maxDistance);
+        if (limit < 1) {
+            throw new IllegalArgumentException("the limit must be positive: "
+                    + limit);
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * @return the maximum number of closest results
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param query
+     *            the query of the expression
+     * @return the maximum number of results of the query: the limit of the
+     *         expression or the max results of the query if fewer
+     */
+    public int getLimit(Query<?, ?> query) {
+        Integer maxResults = query.getMaxResults();
+        return maxResults != null && maxResults < limit ? maxResults : limit;
+    }
+
+    /**
+     * Find the near expression of the query
+     * 
+     * @param query
+     *            the query
+     * @return its near expression or null if it has none
+     * @throws IllegalArgumentException
+     *             if the near expression is not a conjunct of the criteria
+     *             of the query, the query has more than one, or the query
+     *             is ordered
+     */
+    public static NearExpression<?> of(Query<?, ?> query) {
+        NearExpression<?> near = find(query.getCriteria(), null, true);
+        if (near != null && !query.getOrder().get().isEmpty()) {
+            throw new IllegalArgumentException(
+                    "a near query is ordered by distance: " + query);
+        }
+        return near;
+    }
+
+    private static NearExpression<?> find(Criterion c, NearExpression<?> found,
+            boolean conjunct) {
+        if (c instanceof NearExpression) {
+            if (!conjunct) {
+                throw new IllegalArgumentException(
+                        "a near restriction must be a conjunct: " + c);
+            }
+            if (found != null) {
+                throw new IllegalArgumentException(
+                        "a query can only have one near restriction: " + c);
+            }
+            return (NearExpression<?>) c;
+        } else if (c instanceof Junction) {
+            boolean and = conjunct
+                    && ((Junction) c).getOperator() == Operator.AND;
+            for (Criterion child : ((Junction) c).getCriteria()) {
+                found = find(child, found, and);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public String toString() {
+        return "NearExpression [x=" + getX() + ", y=" + getY() + ", limit="
+                + limit + ", maxDistance=" + getDistance() + "]";
+    }
+
+    @Override
+    protected int computeHashCode() {
+        return 31 * super.computeHashCode() + limit;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!super.equals(obj))
+            return false;
+        NearExpression<?> other = (NearExpression<?>) obj;
+        return limit == other.limit;
+    }
+
+}
@@ -16,6 +16,7 @@
 
 package com.eharmony.matching.seeking.query.criterion.expression;
 
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
 import com.eharmony.matching.seeking.query.criterion.Operator;
 
 /**
@@ -41,15 +42,20 @@ public class RangeExpression extends Expression {
         return to;
     }
 
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
     @Override
     public String toString() {
         return getPropertyName() + " " + getOperator() + " " + from + "," + to;
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         final int prime = 31;
-        int result = super.hashCode();
+        int result = super.computeHashCode();
         result = prime * result + ((from == null) ? 0 : from.hashCode());
         result = prime * result + ((to == null) ? 0 : to.hashCode());
         return result;
@@ -18,11 +18,16 @@ package com.eharmony.matching.seeking.query.criterion.expression;
 
 import java.util.Arrays;
 
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
 import com.eharmony.matching.seeking.query.criterion.Operator;
 import com.google.common.base.Joiner;
 
 /**
  * A set expression (in, contains, etc.).
+ * 
+ * The values are copied: interned expressions are shared between queries, so
+ * the caller may reuse its array. The array returned by {@link #getValues()}
+ * must not be modified.
  */
 public class SetExpression extends Expression {
 
@@ -31,13 +36,18 @@ public class SetExpression extends Expression {
     public SetExpression(Operator operator, String propertyName,
             final Object[] values) {
         super(operator, propertyName);
-        this.values = values;
+        this.values = values != null ? values.clone() : null;
     }
 
     public Object[] getValues() {
         return values;
     }
 
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
     @Override
     public String toString() {
         return getPropertyName() + " " + getOperator() + " ["
@@ -45,9 +55,9 @@ public class SetExpression extends Expression {
     }
 
     @Override
-    public int hashCode() {
+    protected int computeHashCode() {
         final int prime = 31;
-        int result = super.hashCode();
+        int result = super.computeHashCode();
         result = prime * result + Arrays.hashCode(values);
         return result;
     }
@@ -16,6 +16,7 @@
 
 package com.eharmony.matching.seeking.query.criterion.expression;
 
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
 import com.eharmony.matching.seeking.query.criterion.Operator;
 
 /**
@@ -27,6 +28,11 @@ public class UnaryExpression extends Expression {
         super(operator, propertyName);
     }
 
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+
     @Override
     public String toString() {
         return getPropertyName() + " " + getOperator();
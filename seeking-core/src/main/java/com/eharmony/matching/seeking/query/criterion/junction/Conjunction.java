@@ -17,7 +17,9 @@
 package com.eharmony.matching.seeking.query.criterion.junction;
 
 import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
 import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.google.common.collect.ImmutableList;
 
 /**
  * And
@@ -32,4 +34,18 @@ public class Conjunction extends Junction {
         this();
         addAll(criteria);
     }
+    
+    private Conjunction(ImmutableList<Criterion> criteria) {
+        super(Operator.AND, criteria);
+    }
+
+    @Override
+    protected Conjunction freeze(ImmutableList<Criterion> criteria) {
+        return new Conjunction(criteria);
+    }
+
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -17,7 +17,9 @@
 package com.eharmony.matching.seeking.query.criterion.junction;
 
 import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
 import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Or
@@ -32,5 +34,18 @@ public class Disjunction extends Junction {
         this();
         addAll(criteria);
     }
+    
+    private Disjunction(ImmutableList<Criterion> criteria) {
+        super(Operator.OR, criteria);
+    }
 
-}
\ No newline at end of file
+    @Override
+    protected Disjunction freeze(ImmutableList<Criterion> criteria) {
+        return new Disjunction(criteria);
+    }
+
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -20,28 +20,50 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionInterner;
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
 import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.eharmony.matching.seeking.query.criterion.VisitableCriterion;
 import com.eharmony.matching.seeking.query.criterion.WithOperator;
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 
 /**
  * and / or
+ * 
+ * A junction is mutable while it is being built. A frozen junction (see
+ * {@link #freeze()}) is immutable: its criteria are shared rather than copied
+ * on access and its hash code is computed once.
  */
-public abstract class Junction implements Criterion, WithOperator {
+public abstract class Junction implements VisitableCriterion, WithOperator {
 
-    private final List<Criterion> criteria = new ArrayList<Criterion>();
+    private final List<Criterion> criteria;
     private final Operator operator;
+    private final boolean frozen;
+    private final int hash;
     
     protected Junction(Operator operator) {
         this.operator = operator;
+        this.criteria = new ArrayList<Criterion>();
+        this.frozen = false;
+        this.hash = 0;
+    }
+    
+    protected Junction(Operator operator, ImmutableList<Criterion> criteria) {
+        this.operator = operator;
+        this.criteria = criteria;
+        this.frozen = true;
+        this.hash = computeHashCode();
     }
     
     public Junction add(Criterion criterion) {
+        checkNotFrozen();
         criteria.add(criterion);
         return this;
     }
     
     public Junction addAll(Criterion... criterions) {
+        checkNotFrozen();
         for (Criterion criterion : criterions) {
             if (criterion != null) {
                 criteria.add(criterion);
@@ -49,15 +71,65 @@ public abstract class Junction implements Criterion, WithOperator {
         }
         return this;
     }
+    
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Cannot modify a frozen "
+                    + getClass().getSimpleName());
+        }
+    }
+    
+    public boolean isFrozen() {
+        return frozen;
+    }
+    
+    /**
+     * Get an immutable copy of this junction whose nested criteria have been
+     * interned.
+     * 
+     * @return this junction if it is already frozen or cannot be frozen,
+     *         otherwise a frozen copy
+     */
+    public Junction freeze() {
+        if (frozen) {
+            return this;
+        }
+        ImmutableList.Builder<Criterion> builder = ImmutableList.builder();
+        for (Criterion criterion : criteria) {
+            builder.add(CriterionInterner.intern(criterion));
+        }
+        return freeze(builder.build());
+    }
+    
+    /**
+     * Create a frozen junction of the same type holding the provided criteria.
+     * Junction types that can be frozen override this; by default the junction
+     * is left as is.
+     * 
+     * @param criteria
+     *            the already interned criteria
+     * @return the frozen junction
+     */
+    protected Junction freeze(ImmutableList<Criterion> criteria) {
+        return this;
+    }
+
+    @Override
+    public <R> R accept(CriterionVisitor<R> visitor) {
+        return visitor.visitOther(this);
+    }
 
     @Override
     public Operator getOperator() {
         return operator;
     }
     
+    /**
+     * @return the criteria: a copy while the junction is mutable, the shared
+     *         immutable list once it is frozen
+     */
     public List<Criterion> getCriteria() {
-        // TODO : immutable list?
-        return new ArrayList<Criterion>(criteria);
+        return frozen ? criteria : new ArrayList<Criterion>(criteria);
     }
 
     @Override
@@ -67,6 +139,10 @@ public abstract class Junction implements Criterion, WithOperator {
 
     @Override
     public int hashCode() {
+        return frozen ? hash : computeHashCode();
+    }
+
+    private int computeHashCode() {
         final int prime = 31;
         int result = 1;
         result = prime * result
@@ -85,6 +161,8 @@ public abstract class Junction implements Criterion, WithOperator {
         if (getClass() != obj.getClass())
             return false;
         Junction other = (Junction) obj;
+        if (frozen && other.frozen && hash != other.hash)
+            return false;
         if (criteria == null) {
             if (other.criteria != null)
                 return false;
@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.query.optimizer;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.google.common.base.Optional;
+
+/**
+ * Description of a stage that rewrites a Query into a cheaper, equivalent
+ * Query before it is translated into a datastore specific query.
+ */
+public interface QueryOptimizer {
+
+    /**
+     * Optimize the provided query
+     * 
+     * @param query
+     *            the query to optimize
+     * @return an equivalent query, or absent if the query can be proven to
+     *         match nothing and need not be executed at all
+     */
+    public <T, R> Optional<Query<T, R>> optimize(Query<T, R> query);
+
+}
@@ -0,0 +1,486 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.query.optimizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.QueryImpl;
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionInterner;
+import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
+import com.eharmony.matching.seeking.query.criterion.expression.EqualityExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.Expression;
+import com.eharmony.matching.seeking.query.criterion.expression.RangeExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.SetExpression;
+import com.eharmony.matching.seeking.query.criterion.junction.Conjunction;
+import com.eharmony.matching.seeking.query.criterion.junction.Disjunction;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A rule based QueryOptimizer. The criteria are rewritten bottom up:
+ * <ul>
+ * <li>nested conjunctions and disjunctions are flattened</li>
+ * <li>duplicate clauses are dropped</li>
+ * <li>"equal" and "in" clauses on one property of a disjunction are folded
+ * into a single "in"</li>
+ * <li>"equal", "in", "between" and greater / less than clauses on one
+ * property of a conjunction are intersected into the tightest equivalent
+ * clause</li>
+ * <li>conjunctions that can never be satisfied, such as
+ * <code>eq(a,1) and eq(a,2)</code>, are short-circuited</li>
+ * </ul>
+ * 
+ * Values are only reasoned about when they are numbers, dates, booleans or
+ * enums of the same class: string comparisons depend on the collation of the
+ * data store. The rules assume single valued properties; collection valued
+ * properties should be queried with contains.
+ */
+public class SimpleQueryOptimizer implements QueryOptimizer {
+
+    // a criterion that can never be satisfied
+    private static final Criterion NOTHING = new Criterion() {
+        @Override
+        public String toString() {
+            return "NOTHING";
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<?>> orderedTypes = ImmutableSet.<Class<?>> of(
+            Byte.class, Short.class, Integer.class, Long.class, Float.class,
+            Double.class, Date.class);
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.query.optimizer.QueryOptimizer#optimize(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> Optional<Query<T, R>> optimize(Query<T, R> query) {
+        Criterion criteria = query.getCriteria();
+        if (criteria == null) {
+            return Optional.of(query);
+        }
+        Criterion optimized = optimize(criteria);
+        if (optimized == NOTHING) {
+            return Optional.absent();
+        }
+        optimized = CriterionInterner.intern(optimized);
+        if (criteria.equals(optimized)) {
+            return Optional.of(query);
+        }
+        Query<T, R> rewritten = new QueryImpl<T, R>(query, optimized);
+        return Optional.of(rewritten);
+    }
+
+    /**
+     * Optimize a criterion
+     * 
+     * @param c
+     *            the criterion
+     * @return the optimized criterion, null if it matches everything or
+     *         NOTHING if it matches nothing
+     */
+    private Criterion optimize(Criterion c) {
+        if (c instanceof Conjunction) {
+            return optimize((Conjunction) c);
+        } else if (c instanceof Disjunction) {
+            return optimize((Disjunction) c);
+        } else if (isConstraint(c)) {
+            // a lone clause can still be unsatisfiable, ex. between(a,2,1)
+            return intersect(Collections.singleton(c)) == null ? NOTHING : c;
+        } else {
+            return c;
+        }
+    }
+
+    private Criterion optimize(Conjunction j) {
+        Set<Criterion> flattened = new LinkedHashSet<Criterion>();
+        for (Criterion c : j.getCriteria()) {
+            Criterion optimized = optimize(c);
+            if (optimized == NOTHING) {
+                return NOTHING;
+            } else if (optimized instanceof Conjunction) {
+                flattened.addAll(((Conjunction) optimized).getCriteria());
+            } else if (optimized != null) {
+                flattened.add(optimized);
+            }
+        }
+        List<Criterion> intersected = intersect(flattened);
+        if (intersected == null) {
+            return NOTHING;
+        } else if (intersected.isEmpty()) {
+            return null;
+        } else if (intersected.size() == 1) {
+            return intersected.get(0);
+        } else {
+            return Restrictions.and(intersected
+                    .toArray(new Criterion[intersected.size()]));
+        }
+    }
+
+    private Criterion optimize(Disjunction j) {
+        Set<Criterion> flattened = new LinkedHashSet<Criterion>();
+        for (Criterion c : j.getCriteria()) {
+            Criterion optimized = optimize(c);
+            if (optimized == null) {
+                // this branch matches everything
+                return null;
+            } else if (optimized instanceof Disjunction) {
+                flattened.addAll(((Disjunction) optimized).getCriteria());
+            } else if (optimized != NOTHING) {
+                flattened.add(optimized);
+            }
+        }
+        if (flattened.isEmpty()) {
+            return j.getCriteria().isEmpty() ? j : NOTHING;
+        }
+        List<Criterion> folded = fold(flattened);
+        return folded.size() == 1 ? folded.get(0) : Restrictions.or(folded
+                .toArray(new Criterion[folded.size()]));
+    }
+
+    /*
+     * Fold the "equal" and "in" clauses of a disjunction by property
+     */
+    private List<Criterion> fold(Collection<Criterion> criteria) {
+        Map<String, Set<Object>> values = new LinkedHashMap<String, Set<Object>>();
+        Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+        for (Criterion c : criteria) {
+            if (isFoldable(c)) {
+                String property = ((Expression) c).getPropertyName();
+                Set<Object> set = values.get(property);
+                if (set == null) {
+                    set = new LinkedHashSet<Object>();
+                    values.put(property, set);
+                    counts.put(property, 0);
+                }
+                if (c instanceof EqualityExpression) {
+                    set.add(((EqualityExpression) c).getValue());
+                } else {
+                    for (Object value : ((SetExpression) c).getValues()) {
+                        set.add(value);
+                    }
+                }
+                counts.put(property, counts.get(property) + 1);
+            }
+        }
+        List<Criterion> folded = new ArrayList<Criterion>(criteria.size());
+        Set<String> emitted = new LinkedHashSet<String>();
+        for (Criterion c : criteria) {
+            if (isFoldable(c)
+                    && counts.get(((Expression) c).getPropertyName()) > 1) {
+                String property = ((Expression) c).getPropertyName();
+                if (emitted.add(property)) {
+                    folded.add(Restrictions.in(property, values.get(property)));
+                }
+            } else {
+                folded.add(c);
+            }
+        }
+        return folded;
+    }
+
+    private boolean isFoldable(Criterion c) {
+        if (c instanceof EqualityExpression) {
+            EqualityExpression e = (EqualityExpression) c;
+            return e.getOperator() == Operator.EQUAL && isScalar(e.getValue());
+        } else if (c instanceof SetExpression) {
+            SetExpression e = (SetExpression) c;
+            if (e.getOperator() != Operator.IN) {
+                return false;
+            }
+            for (Object value : e.getValues()) {
+                if (!isScalar(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * Intersect the value constraints of a conjunction by property. Returns
+     * null if the constraints contradict each other.
+     */
+    private List<Criterion> intersect(Collection<Criterion> criteria) {
+        Map<String, PropertyConstraint> constraints = new LinkedHashMap<String, PropertyConstraint>();
+        for (Criterion c : criteria) {
+            if (isConstraint(c)) {
+                String property = ((Expression) c).getPropertyName();
+                PropertyConstraint constraint = constraints.get(property);
+                if (constraint == null) {
+                    constraint = new PropertyConstraint(property);
+                    constraints.put(property, constraint);
+                }
+                constraint.add((Expression) c);
+            }
+        }
+        List<Criterion> intersected = new ArrayList<Criterion>(criteria.size());
+        for (Criterion c : criteria) {
+            if (isConstraint(c)) {
+                PropertyConstraint constraint = constraints
+                        .remove(((Expression) c).getPropertyName());
+                if (constraint != null) {
+                    List<Criterion> reduced = constraint.reduce();
+                    if (reduced == null) {
+                        return null;
+                    }
+                    intersected.addAll(reduced);
+                }
+            } else {
+                intersected.add(c);
+            }
+        }
+        return intersected;
+    }
+
+    private boolean isConstraint(Criterion c) {
+        if (c instanceof EqualityExpression) {
+            switch (((EqualityExpression) c).getOperator()) {
+            case EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL:
+            case LESS_THAN:
+            case LESS_THAN_OR_EQUAL:
+                return true;
+            default:
+                return false;
+            }
+        } else if (c instanceof RangeExpression) {
+            return ((RangeExpression) c).getOperator() == Operator.BETWEEN;
+        } else if (c instanceof SetExpression) {
+            return ((SetExpression) c).getOperator() == Operator.IN;
+        }
+        return false;
+    }
+
+    private static boolean isScalar(Object value) {
+        return value != null && !(value instanceof Object[])
+                && !(value instanceof Iterable);
+    }
+
+    private static boolean isExact(Object value) {
+        return value != null
+                && (orderedTypes.contains(value.getClass())
+                        || value instanceof Boolean || value instanceof Enum);
+    }
+
+    private static boolean isOrdered(Object value) {
+        return value != null && orderedTypes.contains(value.getClass());
+    }
+
+    /**
+     * The accumulated constraints on a single property of a conjunction
+     */
+    private static class PropertyConstraint {
+
+        private final String property;
+        private final List<Criterion> clauses = new ArrayList<Criterion>();
+        private Class<?> type;
+        private boolean opaque;
+        private boolean contradiction;
+        private Object eq;
+        private Comparable<Object> lower;
+        private boolean lowerInclusive;
+        private Comparable<Object> upper;
+        private boolean upperInclusive;
+        private Set<Object> in;
+
+        public PropertyConstraint(String property) {
+            this.property = property;
+        }
+
+        public void add(Expression e) {
+            clauses.add(e);
+            if (opaque) {
+                return;
+            }
+            if (e instanceof EqualityExpression) {
+                Object value = ((EqualityExpression) e).getValue();
+                switch (e.getOperator()) {
+                case EQUAL:
+                    if (check(value, false)) {
+                        if (eq != null && !eq.equals(value)) {
+                            contradiction = true;
+                        }
+                        eq = value;
+                    }
+                    break;
+                case GREATER_THAN:
+                    lower(value, false);
+                    break;
+                case GREATER_THAN_OR_EQUAL:
+                    lower(value, true);
+                    break;
+                case LESS_THAN:
+                    upper(value, false);
+                    break;
+                case LESS_THAN_OR_EQUAL:
+                    upper(value, true);
+                    break;
+                default:
+                    opaque = true;
+                }
+            } else if (e instanceof RangeExpression) {
+                RangeExpression r = (RangeExpression) e;
+                lower(r.getFrom(), true);
+                upper(r.getTo(), true);
+            } else if (e instanceof SetExpression) {
+                Set<Object> values = new LinkedHashSet<Object>();
+                for (Object value : ((SetExpression) e).getValues()) {
+                    if (!check(value, false)) {
+                        return;
+                    }
+                    values.add(value);
+                }
+                if (in == null) {
+                    in = values;
+                } else {
+                    in.retainAll(values);
+                }
+            }
+        }
+
+        /*
+         * Check that the value can be reasoned about, marking the property as
+         * opaque if it cannot.
+         */
+        private boolean check(Object value, boolean ordered) {
+            if (opaque) {
+                return false;
+            }
+            if (!(ordered ? isOrdered(value) : isExact(value))
+                    || (type != null && type != value.getClass())) {
+                opaque = true;
+                return false;
+            }
+            type = value.getClass();
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void lower(Object value, boolean inclusive) {
+            if (check(value, true)) {
+                Comparable<Object> bound = (Comparable<Object>) value;
+                int cmp = lower == null ? 1 : bound.compareTo(lower);
+                if (cmp > 0 || (cmp == 0 && !inclusive)) {
+                    lower = bound;
+                    lowerInclusive = inclusive;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void upper(Object value, boolean inclusive) {
+            if (check(value, true)) {
+                Comparable<Object> bound = (Comparable<Object>) value;
+                int cmp = upper == null ? -1 : bound.compareTo(upper);
+                if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                    upper = bound;
+                    upperInclusive = inclusive;
+                }
+            }
+        }
+
+        private boolean isWithinBounds(Object value) {
+            if (lower != null) {
+                int cmp = lower.compareTo(value);
+                if (cmp > 0 || (cmp == 0 && !lowerInclusive)) {
+                    return false;
+                }
+            }
+            if (upper != null) {
+                int cmp = upper.compareTo(value);
+                if (cmp < 0 || (cmp == 0 && !upperInclusive)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Reduce the constraints to the tightest equivalent clauses
+         * 
+         * @return the clauses or null if the constraints can't be satisfied
+         */
+        public List<Criterion> reduce() {
+            if (opaque) {
+                return clauses;
+            }
+            if (contradiction) {
+                return null;
+            }
+            if (lower != null && upper != null) {
+                int cmp = lower.compareTo(upper);
+                if (cmp > 0 || (cmp == 0 && !(lowerInclusive && upperInclusive))) {
+                    return null;
+                } else if (cmp == 0) {
+                    if (eq != null && !eq.equals(lower)) {
+                        return null;
+                    }
+                    eq = lower;
+                }
+            }
+            List<Criterion> reduced = new ArrayList<Criterion>(2);
+            if (eq != null) {
+                if (!isWithinBounds(eq) || (in != null && !in.contains(eq))) {
+                    return null;
+                }
+                reduced.add(Restrictions.eq(property, eq));
+            } else if (in != null) {
+                List<Object> values = new ArrayList<Object>(in.size());
+                for (Object value : in) {
+                    if (isWithinBounds(value)) {
+                        values.add(value);
+                    }
+                }
+                if (values.isEmpty()) {
+                    return null;
+                }
+                reduced.add(values.size() == 1 ? Restrictions.eq(property,
+                        values.get(0)) : Restrictions.in(property, values));
+            } else if (lower != null && upper != null && lowerInclusive
+                    && upperInclusive) {
+                reduced.add(Restrictions.between(property, lower, upper));
+            } else {
+                if (lower != null) {
+                    reduced.add(lowerInclusive ? Restrictions.gte(property,
+                            lower) : Restrictions.gt(property, lower));
+                }
+                if (upper != null) {
+                    reduced.add(upperInclusive ? Restrictions.lte(property,
+                            upper) : Restrictions.lt(property, upper));
+                }
+            }
+            // keep a lone clause as it was written
+            return clauses.size() == 1 ? clauses : reduced;
+        }
+    }
+
+}
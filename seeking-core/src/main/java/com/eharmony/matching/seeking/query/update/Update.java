@@ -0,0 +1,67 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.query.update;
+
+/**
+ * An operation on one property of the records matched by an update
+ */
+public class Update {
+
+    public static enum Operation {
+        SET, INC, UNSET
+    }
+
+    private final Operation operation;
+    private final String propertyName;
+    private final Object value;
+
+    public Update(Operation operation, String propertyName, Object value) {
+        if (operation == null || propertyName == null) {
+            throw new IllegalArgumentException(
+                    "operation and property name are required");
+        }
+        if (operation == Operation.INC && !(value instanceof Number)) {
+            throw new IllegalArgumentException(propertyName
+                    + " can only be incremented by a number, not " + value);
+        }
+        this.operation = operation;
+        this.propertyName = propertyName;
+        this.value = value;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * @return the value set or the increment, null when unset
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "Update [operation=" + operation + ", propertyName="
+                + propertyName + ", value=" + value + "]";
+    }
+
+}
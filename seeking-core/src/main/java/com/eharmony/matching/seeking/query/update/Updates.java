@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.query.update;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.eharmony.matching.seeking.query.update.Update.Operation;
+
+/**
+ * The property updates applied to every record that satisfies a query (see
+ * {@link com.eharmony.matching.seeking.executor.QueryExecutor#update(com.eharmony.matching.seeking.query.Query, Updates)})
+ */
+public class Updates {
+
+    private final List<Update> updates = new ArrayList<Update>();
+
+    /**
+     * Set the property to the value
+     * 
+     * @return the updates
+     */
+    public Updates set(String propertyName, Object value) {
+        updates.add(new Update(Operation.SET, propertyName, value));
+        return this;
+    }
+
+    /**
+     * Increment the numeric property by the amount
+     * 
+     * @return the updates
+     */
+    public Updates inc(String propertyName, Number amount) {
+        updates.add(new Update(Operation.INC, propertyName, amount));
+        return this;
+    }
+
+    /**
+     * Remove the value of the property
+     * 
+     * @return the updates
+     */
+    public Updates unset(String propertyName) {
+        updates.add(new Update(Operation.UNSET, propertyName, null));
+        return this;
+    }
+
+    public List<Update> get() {
+        return Collections.unmodifiableList(updates);
+    }
+
+    public boolean isEmpty() {
+        return updates.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Updates [" + updates + "]";
+    }
+
+}
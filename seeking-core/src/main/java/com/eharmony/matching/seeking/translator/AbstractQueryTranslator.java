@@ -20,7 +20,11 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.eharmony.matching.seeking.metadata.SeekingMetadataRegistry;
+import com.eharmony.matching.seeking.metadata.Warmable;
+import com.eharmony.matching.seeking.query.PageToken;
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
 import com.eharmony.matching.seeking.query.criterion.Criterion;
 import com.eharmony.matching.seeking.query.criterion.Operator;
 import com.eharmony.matching.seeking.query.criterion.Ordering;
@@ -36,6 +40,8 @@ import com.eharmony.matching.seeking.query.criterion.junction.Conjunction;
 import com.eharmony.matching.seeking.query.criterion.junction.Disjunction;
 import com.eharmony.matching.seeking.query.criterion.junction.Junction;
 import com.eharmony.matching.seeking.query.geometry.Point;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 /**
  * Abstract Query Translation. Convert a generic Query with nested criteria to a
@@ -49,11 +55,16 @@ import com.eharmony.matching.seeking.query.geometry.Point;
  * @param <P>
  *            the projected type
  */
-public abstract class AbstractQueryTranslator<Q,O,P> implements QueryTranslator<Q,O,P> {
+public abstract class AbstractQueryTranslator<Q,O,P> implements QueryTranslator<Q,O,P>, Warmable {
+
+    // compiled plans are kept as long as their (interned) criteria are in use
+    private static final int MAX_CACHED_PLANS = 10000;
 
     private final Class<Q> queryClass;
     private final Class<O> orderClass;
     private final PropertyResolver propertyResolver;
+    private final Cache<Criterion, TranslationPlan<Q>> plans = CacheBuilder
+            .newBuilder().weakKeys().maximumSize(MAX_CACHED_PLANS).build();
 
     public AbstractQueryTranslator(Class<Q> queryClass,
             Class<O> orderClass,
@@ -81,12 +92,86 @@ public abstract class AbstractQueryTranslator<Q,O,P> implements QueryTranslator<
      */
     @Override
     public <T,R> Q translate(Query<T,R> query) {
-        Criterion rootCriterion = query.getCriteria();
+        // restricted to the rows after the page token, if any
+        Criterion rootCriterion = PageToken.criteria(query);
         Class<T> entityClass = query.getEntityClass();
-        return translate(rootCriterion, entityClass);
+        return plan(rootCriterion, entityClass).execute();
+    }
+    
+    /**
+     * Translate the criteria of an aggregation
+     * 
+     * @param aggregation
+     * @return the translated criteria, null if there are none
+     */
+    public <T> Q translate(Aggregation<T> aggregation) {
+        return plan(aggregation.getCriteria(), aggregation.getEntityClass())
+                .execute();
+    }
+    
+    /**
+     * Compile the criterion into a plan that translates it for the entity
+     * class without walking the tree again.
+     * 
+     * @param c
+     *            the root criterion, may be null
+     * @param entityClass
+     *            the entity class used to resolve property names
+     * @return the plan
+     * @throws UnsupportedOperationException
+     *             if the criterion contains an unsupported criterion type or
+     *             operator
+     */
+    public <T> TranslationPlan<Q> compile(Criterion c, Class<T> entityClass) {
+        return new TranslationPlanCompiler<Q>(this, entityClass).compile(c);
+    }
+    
+    /**
+     * Translate the representative query of each registered entity class
+     * repeatedly, compiling and caching its plan and giving the JIT a chance
+     * to compile the translation paths before the first real query.
+     */
+    @Override
+    public void warmUp(SeekingMetadataRegistry registry) {
+        for (Class<?> entityClass : registry.getEntityClasses()) {
+            warmUp(registry.getRepresentativeQuery(entityClass),
+                    registry.getWarmUpIterations());
+        }
+    }
+    
+    private <T> void warmUp(Query<T, T> query, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            translate(query);
+            translateOrder(query);
+            translateProjection(query);
+        }
+    }
+    
+    /*
+     * Plans are cached by criterion identity. Queries built by the QueryBuilder
+     * or Seeking share interned, immutable criteria so repeated query shapes
+     * find their plan here. Mutable junctions are compiled every time.
+     */
+    protected <T> TranslationPlan<Q> plan(Criterion c, Class<T> entityClass) {
+        if (c instanceof Junction && !((Junction) c).isFrozen()) {
+            return compile(c, entityClass);
+        }
+        TranslationPlan<Q> plan = c != null ? plans.getIfPresent(c) : null;
+        if (plan == null || plan.getEntityClass() != entityClass) {
+            plan = compile(c, entityClass);
+            if (c != null) {
+                plans.put(c, plan);
+            }
+        }
+        return plan;
     }
     
     /*
+     * Interpret the criterion directly. Queries are translated through
+     * compiled plans (see TranslationPlanCompiler, which visits the tree
+     * instead); this remains for translating single criteria and for
+     * subclasses that extend it.
+     *
      * Notes regarding the abundance of instanceof checks:
      * 
      * A case for considering it the lesser of evils:
@@ -101,9 +186,8 @@ public abstract class AbstractQueryTranslator<Q,O,P> implements QueryTranslator<
      * implementations and a significant increase in the number of classes
      * needed for implementations.
      * 
-     * If this becomes a maintainability or performance issue then we should
-     * look at replacing the current approach with something like the visitor
-     * pattern.
+     * This became a performance issue for queries translated over and over,
+     * hence the visitor based plans above.
      */
     protected <T> Q translate(Criterion c, Class<T> entityClass) {
         // a Criterion can be an Expression or a Junction
@@ -254,6 +338,9 @@ public abstract class AbstractQueryTranslator<Q,O,P> implements QueryTranslator<
              */
             return within(fieldName, new Point<N>(e.getX(), e.getY()),
                     e.getDistance());
+        case NEAR:
+            return near(fieldName, new Point<N>(e.getX(), e.getY()),
+                    e.getDistance());
         default:
             throw unsupported(operator, Distance2dExpression.class);
         }
@@ -442,6 +529,23 @@ public abstract class AbstractQueryTranslator<Q,O,P> implements QueryTranslator<
     public abstract <N extends Number & Comparable<N>> Q within(
             String fieldName, Point<N> center, Number distance);
 
+    /**
+     * Translate a near statement: the restriction to the max distance, the
+     * executor sorts by distance and limits the results (see
+     * {@link com.eharmony.matching.seeking.query.criterion.expression.NearExpression})
+     * 
+     * @param fieldName
+     * @param center
+     * @param maxDistance
+     * @return
+     * @throws UnsupportedOperationException
+     *             unless the data store supports it
+     */
+    public <N extends Number & Comparable<N>> Q near(String fieldName,
+            Point<N> center, Number maxDistance) {
+        throw unsupported(Operator.NEAR, Distance2dExpression.class);
+    }
+
     /**
      * Translate an "and" expression
      */
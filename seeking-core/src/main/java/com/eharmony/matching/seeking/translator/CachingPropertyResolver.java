@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.translator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.eharmony.matching.seeking.metadata.SeekingMetadataRegistry;
+import com.eharmony.matching.seeking.metadata.Warmable;
+
+/**
+ * A PropertyResolver decorator that remembers every resolution in a concurrent
+ * table per entity class. Resolvers that reflect over the entity class or its
+ * mapping pay that cost once per (entity class, property path).
+ * 
+ * Only successful resolutions are cached: if the underlying resolver throws,
+ * the next call for the same property tries again.
+ */
+public class CachingPropertyResolver implements PropertyResolver, Warmable {
+
+    private final PropertyResolver propertyResolver;
+    private final ResolutionTable resolved = new ResolutionTable();
+
+    public CachingPropertyResolver(PropertyResolver propertyResolver) {
+        this.propertyResolver = propertyResolver;
+    }
+
+    protected PropertyResolver getPropertyResolver() {
+        return propertyResolver;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.translator.PropertyResolver#resolve(java.lang.String, java.lang.Class)
+     */
+    @Override
+    public String resolve(String fieldName, Class<?> entityClass) {
+        String name = resolved.get(entityClass, fieldName);
+        if (name == null) {
+            name = propertyResolver.resolve(fieldName, entityClass);
+            resolved.put(entityClass, fieldName, name);
+        }
+        return name;
+    }
+
+    /**
+     * Resolve and cache the provided property paths ahead of the first query.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @param fieldNames
+     *            the property paths to resolve
+     */
+    public void preload(Class<?> entityClass, String... fieldNames) {
+        for (String fieldName : fieldNames) {
+            resolve(fieldName, entityClass);
+        }
+    }
+
+    /**
+     * Resolve and cache every property path of the registered entity classes.
+     */
+    @Override
+    public void warmUp(SeekingMetadataRegistry registry) {
+        for (Class<?> entityClass : registry.getEntityClasses()) {
+            for (String path : registry.getPropertyPaths(entityClass)) {
+                resolve(path, entityClass);
+            }
+        }
+    }
+
+    /**
+     * Forget every cached resolution, for example after the mapping of an
+     * entity class has changed.
+     */
+    public void clear() {
+        resolved.clear();
+    }
+
+    /**
+     * Resolved names by entity class and property path
+     */
+    protected static class ResolutionTable {
+
+        private final ConcurrentMap<Class<?>, ConcurrentMap<String, String>> tables = 
+                new ConcurrentHashMap<Class<?>, ConcurrentMap<String, String>>();
+
+        public ResolutionTable() {
+        }
+
+        /**
+         * @return the resolved name, null if it has not been cached
+         */
+        public String get(Class<?> entityClass, String path) {
+            ConcurrentMap<String, String> table = tables.get(entityClass);
+            return table != null ? table.get(path) : null;
+        }
+
+        public void put(Class<?> entityClass, String path, String name) {
+            if (name == null) {
+                return;
+            }
+            ConcurrentMap<String, String> table = tables.get(entityClass);
+            if (table == null) {
+                ConcurrentMap<String, String> created = new ConcurrentHashMap<String, String>();
+                table = tables.putIfAbsent(entityClass, created);
+                if (table == null) {
+                    table = created;
+                }
+            }
+            table.put(path, name);
+        }
+
+        public void clear() {
+            tables.clear();
+        }
+    }
+
+}
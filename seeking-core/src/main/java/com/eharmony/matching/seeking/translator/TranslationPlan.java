@@ -0,0 +1,140 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.translator;
+
+import java.lang.reflect.Array;
+import java.util.List;
+
+/**
+ * A Criterion tree compiled for one entity class into a flat, postfix list of
+ * steps. Property names are resolved and expressions are dispatched to their
+ * translator method once, when the plan is compiled; executing the plan only
+ * runs the steps.
+ * 
+ * Plans are immutable and can be executed concurrently.
+ * 
+ * @param <Q>
+ *            the query type
+ */
+public class TranslationPlan<Q> {
+
+    private final Class<?> entityClass;
+    private final Step[] steps;
+    private final int depth;
+
+    TranslationPlan(Class<?> entityClass, List<Step> steps, int depth) {
+        this.entityClass = entityClass;
+        this.steps = steps.toArray(new Step[steps.size()]);
+        this.depth = depth;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return the number of steps in the plan
+     */
+    public int size() {
+        return steps.length;
+    }
+
+    /**
+     * Run the plan.
+     * 
+     * @return the translated query, null if the plan is empty or its criteria
+     *         do not translate to a query
+     */
+    @SuppressWarnings("unchecked")
+    public Q execute() {
+        if (steps.length == 0) {
+            return null;
+        }
+        Object[] stack = new Object[depth];
+        int top = 0;
+        for (Step step : steps) {
+            top = step.apply(stack, top);
+        }
+        return (Q) stack[0];
+    }
+
+    /**
+     * A single step of a plan. Steps pop their operands off and push their
+     * result onto the stack, returning the new top of the stack.
+     */
+    abstract static class Step {
+        abstract int apply(Object[] stack, int top);
+    }
+
+    /**
+     * Push the translation of an expression
+     */
+    abstract static class Emit extends Step {
+        @Override
+        final int apply(Object[] stack, int top) {
+            stack[top] = emit();
+            return top + 1;
+        }
+
+        abstract Object emit();
+    }
+
+    /**
+     * Pop the translations of the criteria of a junction and push their
+     * conjunction or disjunction. Criteria that translated to null are left
+     * out, as in {@link AbstractQueryTranslator#subqueries}.
+     */
+    static class Combine<Q> extends Step {
+
+        private final AbstractQueryTranslator<Q, ?, ?> translator;
+        private final boolean conjunction;
+        private final int arity;
+
+        Combine(AbstractQueryTranslator<Q, ?, ?> translator,
+                boolean conjunction, int arity) {
+            this.translator = translator;
+            this.conjunction = conjunction;
+            this.arity = arity;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        int apply(Object[] stack, int top) {
+            int base = top - arity;
+            int n = 0;
+            for (int i = base; i < top; i++) {
+                if (stack[i] != null) {
+                    n++;
+                }
+            }
+            Q[] subqueries = (Q[]) Array.newInstance(
+                    translator.getQueryClass(), n);
+            n = 0;
+            for (int i = base; i < top; i++) {
+                if (stack[i] != null) {
+                    subqueries[n++] = (Q) stack[i];
+                }
+                stack[i] = null;
+            }
+            stack[base] = conjunction ? translator.and(subqueries)
+                    : translator.or(subqueries);
+            return base + 1;
+        }
+    }
+
+}
@@ -0,0 +1,283 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.translator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionVisitor;
+import com.eharmony.matching.seeking.query.criterion.VisitableCriterion;
+import com.eharmony.matching.seeking.query.criterion.expression.Distance2dExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.EqualityExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.NativeExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.RangeExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.SetExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.UnaryExpression;
+import com.eharmony.matching.seeking.query.criterion.junction.Conjunction;
+import com.eharmony.matching.seeking.query.criterion.junction.Disjunction;
+import com.eharmony.matching.seeking.query.criterion.junction.Junction;
+import com.eharmony.matching.seeking.translator.TranslationPlan.Combine;
+import com.eharmony.matching.seeking.translator.TranslationPlan.Emit;
+import com.eharmony.matching.seeking.translator.TranslationPlan.Step;
+
+/**
+ * Compiles a Criterion tree into a {@link TranslationPlan}. Each expression is
+ * visited once and becomes a step that calls the translator method for its
+ * operator with the already resolved field name.
+ * 
+ * Spatial and native expressions are left to
+ * {@link AbstractQueryTranslator#translate(Distance2dExpression, Class)} and
+ * {@link AbstractQueryTranslator#translate(NativeExpression, Class)} so that
+ * translators overriding them behave as they do when interpreted.
+ * 
+ * @param <Q>
+ *            the query type
+ */
+class TranslationPlanCompiler<Q> implements CriterionVisitor<Void> {
+
+    private final AbstractQueryTranslator<Q, ?, ?> translator;
+    private final Class<?> entityClass;
+    private final List<Step> steps = new ArrayList<Step>();
+    private int height;
+    private int depth;
+
+    TranslationPlanCompiler(AbstractQueryTranslator<Q, ?, ?> translator,
+            Class<?> entityClass) {
+        this.translator = translator;
+        this.entityClass = entityClass;
+    }
+
+    TranslationPlan<Q> compile(Criterion c) {
+        if (c != null) {
+            accept(c);
+        }
+        return new TranslationPlan<Q>(entityClass, steps, depth);
+    }
+
+    private void accept(Criterion c) {
+        if (c instanceof VisitableCriterion) {
+            ((VisitableCriterion) c).accept(this);
+        } else {
+            visitOther(c);
+        }
+    }
+
+    private String resolve(String propertyName) {
+        return translator.getPropertyResolver().resolve(propertyName,
+                entityClass);
+    }
+
+    private Void emit(Emit step) {
+        steps.add(step);
+        depth = Math.max(depth, ++height);
+        return null;
+    }
+
+    private Void combine(Junction j, boolean conjunction) {
+        List<Criterion> criteria = j.getCriteria();
+        for (Criterion c : criteria) {
+            accept(c);
+        }
+        steps.add(new Combine<Q>(translator, conjunction, criteria.size()));
+        height -= criteria.size() - 1;
+        depth = Math.max(depth, height);
+        return null;
+    }
+
+    @Override
+    public Void visit(EqualityExpression e) {
+        final String fieldName = resolve(e.getPropertyName());
+        final Object value = e.getValue();
+
+        switch (e.getOperator()) {
+        case EQUAL:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.eq(fieldName, value);
+                }
+            });
+        case NOT_EQUAL:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.ne(fieldName, value);
+                }
+            });
+        case GREATER_THAN:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.gt(fieldName, value);
+                }
+            });
+        case GREATER_THAN_OR_EQUAL:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.gte(fieldName, value);
+                }
+            });
+        case LESS_THAN:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.lt(fieldName, value);
+                }
+            });
+        case LESS_THAN_OR_EQUAL:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.lte(fieldName, value);
+                }
+            });
+        default:
+            throw translator.unsupported(e.getOperator(),
+                    EqualityExpression.class);
+        }
+    }
+
+    @Override
+    public Void visit(RangeExpression e) {
+        final String fieldName = resolve(e.getPropertyName());
+        final Object from = e.getFrom();
+        final Object to = e.getTo();
+
+        switch (e.getOperator()) {
+        case BETWEEN:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.between(fieldName, from, to);
+                }
+            });
+        default:
+            throw translator.unsupported(e.getOperator(),
+                    RangeExpression.class);
+        }
+    }
+
+    @Override
+    public Void visit(SetExpression e) {
+        final String fieldName = resolve(e.getPropertyName());
+        final Object[] values = e.getValues();
+
+        switch (e.getOperator()) {
+        case IN:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.in(fieldName, values);
+                }
+            });
+        case NOT_IN:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.notIn(fieldName, values);
+                }
+            });
+        case CONTAINS:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.contains(fieldName, values);
+                }
+            });
+        default:
+            throw translator.unsupported(e.getOperator(), SetExpression.class);
+        }
+    }
+
+    @Override
+    public Void visit(UnaryExpression e) {
+        final String fieldName = resolve(e.getPropertyName());
+
+        switch (e.getOperator()) {
+        case NULL:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.isNull(fieldName);
+                }
+            });
+        case NOT_NULL:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.notNull(fieldName);
+                }
+            });
+        case EMPTY:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.isEmpty(fieldName);
+                }
+            });
+        case NOT_EMPTY:
+            return emit(new Emit() {
+                @Override
+                Object emit() {
+                    return translator.notEmpty(fieldName);
+                }
+            });
+        default:
+            throw translator.unsupported(e.getOperator(),
+                    UnaryExpression.class);
+        }
+    }
+
+    @Override
+    public Void visit(final Distance2dExpression<?> e) {
+        return emit(new Emit() {
+            @Override
+            Object emit() {
+                return translator.translate(e, entityClass);
+            }
+        });
+    }
+
+    @Override
+    public Void visit(final NativeExpression e) {
+        return emit(new Emit() {
+            @Override
+            Object emit() {
+                return translator.translate(e, entityClass);
+            }
+        });
+    }
+
+    @Override
+    public Void visit(Conjunction j) {
+        return combine(j, true);
+    }
+
+    @Override
+    public Void visit(Disjunction j) {
+        return combine(j, false);
+    }
+
+    @Override
+    public Void visitOther(Criterion c) {
+        throw translator.unsupported(c.getClass());
+    }
+
+}
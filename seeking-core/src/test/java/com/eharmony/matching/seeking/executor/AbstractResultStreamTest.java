@@ -0,0 +1,60 @@
+package com.eharmony.matching.seeking.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+public class AbstractResultStreamTest {
+
+    private static class CountingStream extends IteratorResultStream<String> {
+
+        private int released = 0;
+
+        public CountingStream(String... results) {
+            super(Arrays.asList(results).iterator());
+        }
+
+        @Override
+        protected void release() {
+            released++;
+        }
+    }
+
+    @Test
+    public void releasedWhenExhausted() {
+        CountingStream stream = new CountingStream("a", "b");
+        assertEquals("a", stream.next());
+        assertEquals(0, stream.released);
+        assertEquals("b", stream.next());
+        assertFalse(stream.hasNext());
+        assertTrue(stream.isClosed());
+        assertEquals(1, stream.released);
+    }
+
+    @Test
+    public void releasedOnceWhenClosedEarly() {
+        CountingStream stream = new CountingStream("a", "b");
+        assertEquals("a", stream.next());
+        stream.close();
+        stream.close();
+        assertFalse(stream.hasNext());
+        assertEquals(1, stream.released);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void nextWhenClosed() {
+        CountingStream stream = new CountingStream("a");
+        stream.close();
+        stream.next();
+    }
+
+    @Test
+    public void empty() {
+        assertFalse(IteratorResultStream.empty().hasNext());
+    }
+}
@@ -0,0 +1,197 @@
+package com.eharmony.matching.seeking.executor;
+
+import static com.eharmony.matching.seeking.query.criterion.Restrictions.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
+import com.eharmony.matching.seeking.query.update.Updates;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Lists;
+
+public class CachingQueryExecutorTest {
+
+    public static class Base {
+    }
+
+    public static class Sub extends Base {
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+
+    private static final Weigher<Query<?, ?>, List<?>> SIZE = new Weigher<Query<?, ?>, List<?>>() {
+        @Override
+        public int weigh(Query<?, ?> query, List<?> results) {
+            return results.size();
+        }
+    };
+
+    private final QueryExecutor queryExecutor = mock(QueryExecutor.class);
+    private final FakeTicker ticker = new FakeTicker();
+    private final CachingQueryExecutor executor = new CachingQueryExecutor(
+            queryExecutor, 2, 10, 1, TimeUnit.SECONDS, SIZE, ticker);
+
+    private static Query<String, String> query(int a) {
+        return QueryBuilder.builderFor(String.class).add(eq("a", a)).build();
+    }
+
+    @Test
+    public void find() {
+        when(queryExecutor.find(query(1))).thenReturn(Arrays.asList("found"));
+        assertEquals(Arrays.asList("found"), Lists.newArrayList(executor.find(query(1))));
+        // an equal query
+        assertEquals(Arrays.asList("found"), Lists.newArrayList(executor.find(query(1))));
+        verify(queryExecutor, times(1)).find(query(1));
+        assertEquals(1, executor.getHitCount());
+        assertEquals(1, executor.getMissCount());
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Test
+    public void save_oneShotIterable() {
+        final Iterator<Base> iterator = Arrays.asList(new Base(), new Base())
+                .iterator();
+        executor.save(new Iterable<Base>() {
+            @Override
+            public Iterator<Base> iterator() {
+                return iterator;
+            }
+        });
+        ArgumentCaptor<Iterable> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(queryExecutor).save(saved.capture());
+        assertEquals(2, Lists.newArrayList(saved.getValue()).size());
+    }
+
+    @Test
+    public void find_keyedOnStructure() {
+        when(queryExecutor.find(any(Query.class))).thenReturn(Collections.emptyList());
+        executor.find(query(1));
+        executor.find(query(2));
+        executor.find(QueryBuilder.builderFor(String.class).add(eq("a", 1)).setMaxResults(1).build());
+        executor.find(QueryBuilder.builderFor(String.class).add(eq("a", 1))
+                .addOrder(Ordering.asc("a")).build());
+        executor.find(QueryBuilder.builderFor(String.class, Integer.class, "a").add(eq("a", 1)).build());
+        assertEquals(0, executor.getHitCount());
+        assertEquals(5, executor.getMissCount());
+    }
+
+    @Test
+    public void findOne() {
+        executor.findOne(query(1));
+        assertNull(executor.findOne(query(1)));
+        verify(queryExecutor, times(1)).findOne(query(1));
+        // find and findOne are cached apart
+        when(queryExecutor.find(query(1))).thenReturn(Arrays.asList("found"));
+        assertEquals(Arrays.asList("found"), Lists.newArrayList(executor.find(query(1))));
+    }
+
+    @Test
+    public void ttl() {
+        executor.findOne(query(1));
+        ticker.nanos = TimeUnit.MILLISECONDS.toNanos(999);
+        executor.findOne(query(1));
+        ticker.nanos = TimeUnit.SECONDS.toNanos(1);
+        executor.findOne(query(1));
+        verify(queryExecutor, times(2)).findOne(query(1));
+    }
+
+    @Test
+    public void maxEntries() {
+        executor.findOne(query(1));
+        executor.findOne(query(2));
+        // the least recently used is evicted
+        executor.findOne(query(1));
+        executor.findOne(query(3));
+        assertEquals(1, executor.getEvictionCount());
+        assertEquals(2, executor.size());
+        executor.findOne(query(1));
+        executor.findOne(query(2));
+        verify(queryExecutor, times(1)).findOne(query(1));
+        verify(queryExecutor, times(2)).findOne(query(2));
+    }
+
+    @Test
+    public void maxBytes() {
+        when(queryExecutor.find(query(1))).thenReturn(Collections.nCopies(6, "a"));
+        when(queryExecutor.find(query(2))).thenReturn(Collections.nCopies(6, "b"));
+        when(queryExecutor.find(query(3))).thenReturn(Collections.nCopies(11, "c"));
+        executor.find(query(1));
+        executor.find(query(2));
+        assertEquals(1, executor.size());
+        assertEquals(6, executor.getBytes());
+        // larger than the cache
+        executor.find(query(3));
+        assertEquals(1, executor.size());
+        executor.find(query(2));
+        executor.find(query(3));
+        verify(queryExecutor, times(1)).find(query(2));
+        verify(queryExecutor, times(2)).find(query(3));
+    }
+
+    @Test
+    public void invalidatedByWrites() {
+        CachingQueryExecutor executor = new CachingQueryExecutor(
+                queryExecutor, 10, 10, 1, TimeUnit.SECONDS, SIZE, ticker);
+        Query<Base, Base> base = QueryBuilder.builderFor(Base.class).build();
+        Query<Sub, Sub> sub = QueryBuilder.builderFor(Sub.class).build();
+        executor.findOne(query(1));
+        executor.findOne(base);
+        executor.findOne(sub);
+        executor.save(new Sub());
+        executor.findOne(base);
+        executor.findOne(sub);
+        executor.delete(base);
+        executor.findOne(base);
+        executor.findOne(sub);
+        executor.update(sub, new Updates().set("a", 1));
+        executor.findOne(base);
+        executor.findOne(sub);
+        executor.save(Arrays.asList(new Base()));
+        executor.findOne(base);
+        executor.findOne(sub);
+        verify(queryExecutor, times(5)).findOne(base);
+        verify(queryExecutor, times(5)).findOne(sub);
+        // unrelated classes are kept
+        executor.findOne(query(1));
+        verify(queryExecutor, times(1)).findOne(query(1));
+        assertEquals(1, executor.getHitCount());
+    }
+
+    @Test
+    public void invalidate() {
+        executor.findOne(query(1));
+        executor.invalidate(String.class);
+        executor.findOne(query(1));
+        executor.invalidateAll();
+        assertEquals(0, executor.size());
+        executor.findOne(query(1));
+        verify(queryExecutor, times(3)).findOne(query(1));
+    }
+
+    @Test
+    public void passedThrough() {
+        executor.count(query(1));
+        executor.count(query(1));
+        verify(queryExecutor, times(2)).count(query(1));
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.eharmony.matching.seeking.executor;
+
+import static com.eharmony.matching.seeking.query.criterion.Restrictions.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+import com.eharmony.matching.seeking.query.builder.AggregationBuilder;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.optimizer.SimpleQueryOptimizer;
+import com.eharmony.matching.seeking.query.update.Updates;
+
+public class OptimizingQueryExecutorTest {
+
+    private final QueryExecutor queryExecutor = mock(QueryExecutor.class);
+    private final OptimizingQueryExecutor executor = new OptimizingQueryExecutor(
+            queryExecutor, new SimpleQueryOptimizer());
+
+    @Test
+    public void find() {
+        Query<String, String> query = QueryBuilder.builderFor(String.class)
+                .add(eq("a", 1)).build();
+        Iterable<String> results = Arrays.asList("found");
+        when(queryExecutor.find(query)).thenReturn(results);
+        assertSame(results, executor.find(query));
+    }
+
+    @Test
+    public void findNothing() {
+        Query<String, String> query = QueryBuilder.builderFor(String.class)
+                .add(eq("a", 1)).add(eq("a", 2)).build();
+        assertFalse(executor.find(query).iterator().hasNext());
+        assertNull(executor.findOne(query));
+        assertFalse(executor.stream(query).hasNext());
+        assertEquals(0, executor.count(query));
+        assertFalse(executor.exists(query));
+        assertEquals(0, executor.findPage(query).getTotal());
+        verifyZeroInteractions(queryExecutor);
+    }
+
+    @Test
+    public void stream() {
+        Query<String, String> query = QueryBuilder.builderFor(String.class)
+                .add(eq("a", 1)).build();
+        ResultStream<String> results = new IteratorResultStream<String>(
+                Arrays.asList("found").iterator());
+        when(queryExecutor.stream(query)).thenReturn(results);
+        assertSame(results, executor.stream(query));
+    }
+
+    @Test
+    public void aggregateNothing() {
+        Aggregation<String> aggregation = AggregationBuilder
+                .builderFor(String.class).add(eq("a", 1)).add(eq("a", 2))
+                .aggregate(Aggregate.count()).build();
+        List<AggregateResult> results = executor.aggregate(aggregation);
+        assertEquals(1, results.size());
+        assertEquals(0L, results.get(0).getValue(Aggregate.count()));
+        verifyZeroInteractions(queryExecutor);
+    }
+
+    @Test
+    public void updateNothing() {
+        Query<String, String> query = QueryBuilder.builderFor(String.class)
+                .add(eq("a", 1)).add(eq("a", 2)).build();
+        executor.update(query, new Updates().set("b", 1));
+        executor.delete(query);
+        verifyZeroInteractions(queryExecutor);
+    }
+
+    @Test
+    public void delete() {
+        Query<String, String> query = QueryBuilder.builderFor(String.class)
+                .add(eq("a", 1)).build();
+        executor.delete(query);
+        verify(queryExecutor).delete(query);
+    }
+
+    @Test
+    public void findAll() {
+        Query<String, String> query = QueryBuilder.builderFor(String.class)
+                .add(eq("a", 1)).build();
+        Query<String, String> nothing = QueryBuilder.builderFor(String.class)
+                .add(eq("a", 1)).add(eq("a", 2)).build();
+        List<Query<String, String>> delegated = Collections.singletonList(query);
+        Iterable<String> results = Arrays.asList("found");
+        when(queryExecutor.findAll(delegated)).thenReturn(
+                new BatchResults(delegated, Collections.singletonList(results)));
+        BatchResults found = executor.findAll(Arrays.asList(nothing, query));
+        assertFalse(found.get(nothing).iterator().hasNext());
+        assertSame(results, found.get(query));
+    }
+
+    @Test
+    public void save() {
+        executor.save("entity");
+        verify(queryExecutor).save("entity");
+    }
+
+}
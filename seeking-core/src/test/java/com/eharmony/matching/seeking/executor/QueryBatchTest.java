@@ -0,0 +1,124 @@
+package com.eharmony.matching.seeking.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
+
+public class QueryBatchTest {
+
+    public static class User {
+        private final long id;
+        private final List<String> tags;
+
+        public User(long id, String... tags) {
+            this.id = id;
+            this.tags = Arrays.asList(tags);
+        }
+    }
+
+    private final User u1 = new User(1, "a");
+    private final User u2 = new User(2, "a", "b");
+    private final User u3 = new User(3);
+
+    private final Query<User, User> byId1 = QueryBuilder.builderFor(User.class)
+            .add(Restrictions.eq("id", 1)).build();
+    private final Query<User, User> byIds = QueryBuilder.builderFor(User.class)
+            .add(Restrictions.in("id", new Object[] { 2L, 3L })).build();
+    private final Query<User, User> ordered = QueryBuilder.builderFor(User.class)
+            .add(Restrictions.eq("id", 1)).addOrder(Ordering.asc("id")).build();
+
+    @Test
+    public void mergesLookups() {
+        QueryBatch batch = new QueryBatch(Arrays.asList(byId1, ordered, byIds));
+        assertEquals(2, batch.getQueries().size());
+        Query<?, ?> merged = batch.getQueries().get(1);
+        assertEquals(Restrictions.in("id", new Object[] { 1, 2L, 3L }),
+                merged.getCriteria());
+        // all the values are returned whatever the default limit
+        assertEquals(Integer.valueOf(3), merged.getMaxResults());
+        assertSame(ordered, batch.getQueries().get(0));
+
+        List<User> orderedResults = Arrays.asList(u1);
+        BatchResults results = batch.split(Arrays.asList(orderedResults,
+                Arrays.asList(u1, u2, u3)));
+        assertEquals(Arrays.asList(u1), results.get(byId1));
+        assertSame(orderedResults, results.get(ordered));
+        assertEquals(Arrays.asList(u2, u3), results.get(byIds));
+    }
+
+    @Test
+    public void singleLookupNotMerged() {
+        QueryBatch batch = new QueryBatch(Arrays.asList(byId1));
+        assertSame(byId1, batch.getQueries().get(0));
+    }
+
+    @Test
+    public void nonKeyPropertyNotMerged() {
+        Query<User, User> a = QueryBuilder.builderFor(User.class)
+                .add(Restrictions.eq("tags", "a")).build();
+        Query<User, User> b = QueryBuilder.builderFor(User.class)
+                .add(Restrictions.eq("tags", "b")).build();
+        QueryBatch batch = new QueryBatch(Arrays.asList(a, b));
+        assertEquals(Arrays.<Query<?, ?>> asList(a, b), batch.getQueries());
+    }
+
+    @Test
+    public void keyProperties() {
+        Query<User, User> a = QueryBuilder.builderFor(User.class)
+                .add(Restrictions.eq("key", 1)).build();
+        Query<User, User> b = QueryBuilder.builderFor(User.class)
+                .add(Restrictions.eq("key", 2)).build();
+        assertEquals(2, new QueryBatch(Arrays.asList(a, b)).getQueries()
+                .size());
+        assertEquals(1, new QueryBatch(Arrays.asList(a, b),
+                Collections.singleton("key")).getQueries().size());
+    }
+
+    @Test
+    public void valueResults() {
+        Query<User, Long> a = QueryBuilder.builderFor(User.class, Long.class,
+                "id").add(Restrictions.eq("id", 1)).build();
+        Query<User, Long> b = QueryBuilder.builderFor(User.class, Long.class,
+                "id").add(Restrictions.eq("id", 2)).build();
+        QueryBatch batch = new QueryBatch(Arrays.asList(a, b));
+        assertEquals(1, batch.getQueries().size());
+        BatchResults results = batch.split(Collections.singletonList(
+                Arrays.asList(1L, 2L)));
+        assertEquals(Arrays.asList(1L), results.get(a));
+        assertEquals(Arrays.asList(2L), results.get(b));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void findAll() {
+        QueryExecutor queryExecutor = mock(QueryExecutor.class);
+        when(queryExecutor.find(any(Query.class))).thenReturn(
+                Arrays.asList(u1, u2, u3));
+        BatchResults results = QueryBatch.findAll(queryExecutor,
+                Arrays.asList(byId1, byIds));
+        assertEquals(Arrays.asList(u1), results.get(byId1));
+        assertEquals(Arrays.asList(u2, u3), results.get(byIds));
+        verify(queryExecutor, times(1)).find(any(Query.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownQuery() {
+        new QueryBatch(Arrays.asList(byId1)).split(
+                Collections.singletonList(Arrays.asList(u1))).get(byIds);
+    }
+}
@@ -0,0 +1,104 @@
+package com.eharmony.matching.seeking.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class SimpleAsyncQueryExecutorTest {
+
+    private final QueryExecutor queryExecutor = mock(QueryExecutor.class);
+    private final SimpleAsyncQueryExecutor executor = new SimpleAsyncQueryExecutor(
+            queryExecutor, MoreExecutors.sameThreadExecutor());
+    private final Query<String, String> query = QueryBuilder.builderFor(
+            String.class).build();
+
+    @Test
+    public void findAsync() throws Exception {
+        when(queryExecutor.find(query)).thenReturn(Arrays.asList("a", "b"));
+        assertEquals(Arrays.asList("a", "b"), executor.findAsync(query).get());
+    }
+
+    @Test
+    public void findOneAsync() throws Exception {
+        when(queryExecutor.findOne(query)).thenReturn("a");
+        assertEquals("a", executor.findOneAsync(query).get());
+    }
+
+    @Test
+    public void findAllAsync() throws Exception {
+        Query<String, String> other = QueryBuilder.builderFor(String.class)
+                .setMaxResults(1).build();
+        when(queryExecutor.find(query)).thenReturn(Arrays.asList("a"));
+        when(queryExecutor.find(other)).thenReturn(Arrays.asList("b"));
+        BatchResults results = executor.findAllAsync(
+                Arrays.asList(query, other)).get();
+        assertEquals(Arrays.asList("a"), results.get(query));
+        assertEquals(Arrays.asList("b"), results.get(other));
+    }
+
+    @Test
+    public void saveAsync() throws Exception {
+        when(queryExecutor.save("a")).thenReturn("a");
+        assertEquals("a", executor.saveAsync("a").get());
+    }
+
+    @Test
+    public void failure() throws Exception {
+        DataStoreException failure = new DataStoreException("failed");
+        when(queryExecutor.findOne(query)).thenThrow(failure);
+        try {
+            executor.findOneAsync(query).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void boundedExecutor() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = SimpleAsyncQueryExecutor
+                .newBoundedExecutor("test", 1, 1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try {
+            executorService.execute(blocking);
+            running.await();
+            // one waits in the queue, the next one is rejected
+            executorService.execute(blocking);
+            try {
+                executorService.execute(blocking);
+                fail();
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+        } finally {
+            release.countDown();
+            executorService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.eharmony.matching.seeking.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.criterion.junction.Junction;
+import com.eharmony.matching.seeking.query.geometry.XField;
+import com.eharmony.matching.seeking.query.geometry.YField;
+import com.eharmony.matching.seeking.translator.CachingPropertyResolver;
+import com.eharmony.matching.seeking.translator.PropertyResolver;
+
+public class SeekingMetadataRegistryTest {
+
+    public static class Location {
+        @XField
+        private double x;
+        @YField
+        private double y;
+    }
+
+    public static class Address {
+        private String city;
+        private Location location;
+    }
+
+    public static class Base {
+        private long id;
+    }
+
+    public static class User extends Base {
+        public static final String CONSTANT = "ignored";
+        private transient int ignored;
+        private String name;
+        private Date created;
+        private Address address;
+        private User friend;
+    }
+
+    private final SeekingMetadataRegistry registry = new SeekingMetadataRegistry(
+            Collections.<Class<?>> singletonList(User.class), 1);
+
+    @Test
+    public void getPropertyPaths() {
+        assertEquals(Arrays.asList("name", "created", "address",
+                "address.city", "address.location", "address.location.x",
+                "address.location.y", "friend", "id"),
+                registry.getPropertyPaths(User.class));
+    }
+
+    @Test
+    public void getPropertyPaths_unregistered() {
+        assertTrue(registry.getPropertyPaths(String.class).isEmpty());
+    }
+
+    @Test
+    public void getGeometricProperties() {
+        assertEquals(Arrays.asList("address.location"),
+                registry.getGeometricProperties(User.class));
+    }
+
+    @Test
+    public void getRepresentativeQuery() {
+        Query<User, User> query = registry.getRepresentativeQuery(User.class);
+        assertEquals(User.class, query.getEntityClass());
+        assertEquals(registry.getPropertyPaths(User.class),
+                query.getReturnFields());
+        // one equality per path, the disjunction and the geometric constraint
+        assertEquals(registry.getPropertyPaths(User.class).size() + 2,
+                ((Junction) query.getCriteria()).getCriteria().size());
+        assertEquals(1, query.getOrder().get().size());
+    }
+
+    @Test
+    public void warmUp_inOrder() {
+        Warmable first = mock(Warmable.class);
+        Warmable second = mock(Warmable.class);
+        registry.warmUp(first, second);
+        InOrder inOrder = inOrder(first, second);
+        inOrder.verify(first).warmUp(registry);
+        inOrder.verify(second).warmUp(registry);
+    }
+
+    @Test
+    public void warmUp_propertyResolver() {
+        PropertyResolver delegate = mock(PropertyResolver.class);
+        when(delegate.resolve("name", User.class)).thenReturn("n");
+        CachingPropertyResolver resolver = new CachingPropertyResolver(delegate);
+        registry.warmUp(resolver);
+        assertEquals("n", resolver.resolve("name", User.class));
+        List<String> paths = registry.getPropertyPaths(User.class);
+        for (String path : paths) {
+            verify(delegate, times(1)).resolve(path, User.class);
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.eharmony.matching.seeking.predicate;
+
+import static com.eharmony.matching.seeking.query.criterion.Restrictions.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
+import com.eharmony.matching.seeking.query.criterion.junction.Conjunction;
+import com.eharmony.matching.seeking.query.geometry.XField;
+import com.eharmony.matching.seeking.query.geometry.YField;
+import com.google.common.base.Predicate;
+
+public class CriterionCompilerTest {
+
+    public enum Status {
+        ACTIVE, CLOSED
+    }
+
+    public static class Location {
+        @XField
+        private double x;
+        @YField
+        private double y;
+
+        public Location(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public static class Account {
+        private long balance;
+        private Integer rank;
+
+        public Account(long balance, Integer rank) {
+            this.balance = balance;
+            this.rank = rank;
+        }
+    }
+
+    public static class Entity {
+        private String name;
+        private int number;
+        private double score;
+        private Status status = Status.ACTIVE;
+        private List<String> tags = Collections.emptyList();
+        private Object anything;
+        private Location location;
+        private Account account;
+
+        public Entity(String name, int number, String... tags) {
+            this.name = name;
+            this.number = number;
+            this.score = number / 2.0;
+            this.tags = Arrays.asList(tags);
+        }
+
+        public int getNumber() {
+            return number;
+        }
+    }
+
+    private final CriterionCompiler compiler = new CriterionCompiler();
+    private final Entity entity = new Entity("one", 5, "a", "b");
+    {
+        entity.location = new Location(3, 4);
+        entity.account = new Account(100, 2);
+        entity.anything = new int[] { 7, 8 };
+    }
+
+    private boolean matches(Criterion c, Entity e) {
+        return compiler.compile(c, Entity.class).apply(e);
+    }
+
+    private boolean matches(Criterion c) {
+        return matches(c, entity);
+    }
+
+    @Test
+    public void equality() {
+        assertTrue(matches(eq("name", "one")));
+        assertFalse(matches(eq("name", "two")));
+        assertTrue(matches(ne("name", "two")));
+        assertTrue(matches(gt("name", "a")));
+        // numbers compare by value whatever their type
+        assertTrue(matches(eq("number", 5L)));
+        assertTrue(matches(gt("number", 4.5)));
+        assertFalse(matches(lt("number", 5)));
+        assertTrue(matches(lte("number", 5)));
+        assertTrue(matches(eq("score", 2.5f)));
+        assertTrue(matches(eq("account.rank", 2L)));
+        assertFalse(matches(eq("number", "5")));
+        // enums compare to their names
+        assertTrue(matches(eq("status", "ACTIVE")));
+        assertTrue(matches(eq("status", Status.ACTIVE)));
+        assertFalse(matches(eq("status", "UNKNOWN")));
+        assertTrue(matches(lt("status", "B")));
+    }
+
+    @Test
+    public void nestedPrimitives() {
+        assertTrue(matches(gte("account.balance", 100)));
+        assertFalse(matches(gt("account.balance", 100)));
+        Entity noAccount = new Entity("two", 1);
+        // a missing value only matches the negations
+        assertFalse(matches(eq("account.balance", 0), noAccount));
+        assertTrue(matches(ne("account.balance", 0), noAccount));
+        assertTrue(matches(isNull("account.balance"), noAccount));
+        assertFalse(matches(in("account.balance", new Object[] { 0 }), noAccount));
+    }
+
+    @Test
+    public void range() {
+        assertTrue(matches(between("number", 5, 6)));
+        assertFalse(matches(between("number", 6, 7)));
+        // one element of a multi-valued property has to be in the range
+        assertTrue(matches(between("anything", 8, 9)));
+        assertFalse(matches(between("tags", "aa", "ab")));
+    }
+
+    @Test
+    public void set() {
+        assertTrue(matches(in("number", new Object[] { 4, 5 })));
+        assertFalse(matches(in("number", new Object[] { 4, 6L })));
+        assertTrue(matches(in("number", new Object[] { 4.5, 5.0 })));
+        assertTrue(matches(in("status", new Object[] { "CLOSED", "ACTIVE" })));
+        assertTrue(matches(notIn("name", new Object[] { "two" })));
+        assertTrue(matches(contains("tags", new Object[] { "a", "b" })));
+        assertFalse(matches(contains("tags", new Object[] { "a", "c" })));
+        // multi-valued properties match if any of their values does
+        assertTrue(matches(eq("tags", "b")));
+        assertTrue(matches(eq("anything", 8L)));
+        assertTrue(matches(in("tags", new Object[] { "c", "a" })));
+    }
+
+    @Test
+    public void unary() {
+        assertTrue(matches(isNull("name"), new Entity(null, 0)));
+        assertTrue(matches(isNotNull("name")));
+        assertTrue(matches(isEmpty("tags"), new Entity("two", 0)));
+        assertTrue(matches(isEmpty("name"), new Entity("", 0)));
+        assertTrue(matches(isNotEmpty("tags")));
+    }
+
+    @Test
+    public void within() {
+        assertTrue(matches(Restrictions.within("location", 0.0, 0.0, 5.0)));
+        assertFalse(matches(Restrictions.within("location", 0.0, 0.0, 4.9)));
+        assertFalse(matches(Restrictions.within("location", 0.0, 0.0, 5.0),
+                new Entity("two", 0)));
+        // locations found by their type
+        assertTrue(matches(Restrictions.within("anything", 7.0, 8.0, 0.0)));
+        entity.anything = new Location(1, 1);
+        assertTrue(matches(Restrictions.within("anything", 0.0, 0.0, 2.0)));
+    }
+
+    @Test
+    public void near() {
+        // the nearest are selected by the executor
+        assertTrue(matches(Restrictions.near("location", 0.0, 0.0, 1, 5.0)));
+        assertFalse(matches(Restrictions.near("location", 0.0, 0.0, 1, 4.9)));
+    }
+
+    @Test
+    public void junctions() {
+        assertTrue(matches(and(eq("name", "one"), gt("number", 1))));
+        assertFalse(matches(and(eq("name", "one"), gt("number", 5))));
+        assertTrue(matches(or(eq("name", "two"), gt("number", 1))));
+        assertTrue(matches(or()));
+        assertTrue(matches((Criterion) null));
+    }
+
+    @Test
+    public void nativePredicate() {
+        assertTrue(matches(nativeQuery(Predicate.class, new Predicate<Entity>() {
+            @Override
+            public boolean apply(Entity input) {
+                return input.getNumber() % 5 == 0;
+            }
+        })));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void nativeUnsupported() {
+        compiler.compile(nativeQuery(String.class, "number > 1"), Entity.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unboundParameter() {
+        compiler.compile(eq("name", param("name")), Entity.class);
+    }
+
+    @Test
+    public void cached() {
+        Criterion c = eq("name", "one");
+        assertSame(compiler.compile(c, Entity.class),
+                compiler.compile(c, Entity.class));
+        // mutable junctions are compiled every time
+        Conjunction j = and(eq("name", "one"));
+        assertNotSame(compiler.compile(j, Entity.class),
+                compiler.compile(j, Entity.class));
+    }
+
+    @Test
+    public void comparator() {
+        Entity other = new Entity("one", 6);
+        Entity none = new Entity(null, 7);
+        List<Entity> entities = Arrays.asList(entity, other, none);
+        Collections.sort(entities, compiler.comparator(
+                Arrays.asList(Ordering.asc("name"), Ordering.desc("number")),
+                Entity.class));
+        assertEquals(Arrays.asList(none, other, entity), entities);
+    }
+
+    @Test
+    public void nearest() {
+        Entity near = new Entity("two", 0);
+        near.location = new Location(1, 1);
+        Entity none = new Entity("three", 0);
+        List<Entity> entities = Arrays.asList(none, entity, near);
+        Collections.sort(entities, compiler.nearest(
+                Restrictions.near("location", 0.0, 0.0, 3, 10.0),
+                Entity.class));
+        assertEquals(Arrays.asList(near, entity, none), entities);
+        assertEquals(5.0, Locations.distance(entity,
+                Restrictions.near("location", 0.0, 0.0, 3, 10.0)), 0);
+        assertTrue(Double.isNaN(Locations.distance(none,
+                Restrictions.near("location", 0.0, 0.0, 3, 10.0))));
+    }
+
+}
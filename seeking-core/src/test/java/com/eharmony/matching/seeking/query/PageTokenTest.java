@@ -0,0 +1,117 @@
+package com.eharmony.matching.seeking.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
+import com.eharmony.matching.seeking.query.criterion.Orderings;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
+
+public class PageTokenTest {
+
+    public static class Name {
+        private String last = "Smith";
+    }
+
+    public static class Base {
+        private long id = 7;
+    }
+
+    public static class Person extends Base {
+        private Name name = new Name();
+        private Integer age = null;
+    }
+
+    @Test
+    public void toCriterion_single() {
+        assertEquals(Restrictions.gt("a", 1),
+                new PageToken(1).toCriterion(new Orderings(Ordering.asc("a"))));
+    }
+
+    @Test
+    public void toCriterion_multiple() {
+        assertEquals(Restrictions.or(
+                Restrictions.lt("a", 1),
+                Restrictions.and(Restrictions.eq("a", 1), Restrictions.gt("b", 2)),
+                Restrictions.and(Restrictions.eq("a", 1), Restrictions.eq("b", 2),
+                        Restrictions.gt("c", 3))),
+                new PageToken(1, 2, 3).toCriterion(new Orderings(
+                        Ordering.desc("a"), Ordering.asc("b"), Ordering.asc("c"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toCriterion_mismatch() {
+        new PageToken(1).toCriterion(new Orderings(Ordering.asc("a"),
+                Ordering.asc("b")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullValue() {
+        new PageToken(1, null);
+    }
+
+    @Test
+    public void criteria() {
+        Query<Person, Person> query = QueryBuilder.builderFor(Person.class)
+                .add(Restrictions.eq("x", 0))
+                .addOrder(Ordering.asc("id"))
+                .after(7L)
+                .build();
+        assertEquals(Restrictions.and(Restrictions.eq("x", 0),
+                Restrictions.gt("id", 7L)), PageToken.criteria(query));
+    }
+
+    @Test
+    public void criteria_onlyPageToken() {
+        Query<Person, Person> query = QueryBuilder.builderFor(Person.class)
+                .addOrder(Ordering.asc("id"))
+                .after(7L)
+                .build();
+        assertEquals(Restrictions.gt("id", 7L), PageToken.criteria(query));
+    }
+
+    @Test
+    public void criteria_firstPage() {
+        Query<Person, Person> query = QueryBuilder.builderFor(Person.class)
+                .add(Restrictions.eq("x", 0))
+                .addOrder(Ordering.asc("id"))
+                .build();
+        assertSame(query.getCriteria(), PageToken.criteria(query));
+    }
+
+    @Test
+    public void after() {
+        Query<Person, Person> query = QueryBuilder.builderFor(Person.class)
+                .addOrder(Ordering.asc("name.last"), Ordering.asc("id"))
+                .build();
+        assertEquals(Arrays.<Object> asList("Smith", 7L),
+                PageToken.after(query, new Person()).getValues());
+    }
+
+    @Test
+    public void after_map() {
+        Query<Person, Person> query = QueryBuilder.builderFor(Person.class)
+                .addOrder(Ordering.asc("id"))
+                .build();
+        assertEquals(new PageToken(3),
+                PageToken.after(query, Collections.singletonMap("id", 3)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void after_nullValue() {
+        PageToken.after(QueryBuilder.builderFor(Person.class)
+                .addOrder(Ordering.asc("age")).build(), new Person());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void after_unordered() {
+        PageToken.after(QueryBuilder.builderFor(Person.class).build(),
+                new Person());
+    }
+}
@@ -0,0 +1,73 @@
+package com.eharmony.matching.seeking.query;
+
+import static com.eharmony.matching.seeking.query.criterion.Restrictions.*;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.junction.Junction;
+
+public class ParameterBinderTest {
+
+    private final Map<String, Object> parameters = new HashMap<String, Object>();
+
+    public ParameterBinderTest() {
+        parameters.put("a", 1);
+        parameters.put("b", "two");
+        parameters.put("c", 3L);
+    }
+
+    @Test
+    public void bindExpressions() {
+        assertEquals(eq("x", 1), ParameterBinder.bind(eq("x", param("a")), parameters));
+        assertEquals(between("x", 1, 3L),
+                ParameterBinder.bind(between("x", param("a"), param("c")), parameters));
+        assertEquals(in("x", new Object[] { 0, "two" }), ParameterBinder.bind(
+                in("x", new Object[] { 0, param("b") }), parameters));
+    }
+
+    @Test
+    public void bindNull() {
+        parameters.put("n", null);
+        assertEquals(eq("x", null), ParameterBinder.bind(eq("x", param("n")), parameters));
+    }
+
+    @Test
+    public void bindSharesUnparameterizedSubtrees() {
+        Criterion unchanged = or(eq("y", 1), eq("y", 2));
+        Junction bound = (Junction) ParameterBinder.bind(
+                and(eq("x", param("a")), unchanged), parameters);
+        assertEquals(and(eq("x", 1), unchanged), bound);
+        assertSame(unchanged, bound.getCriteria().get(1));
+    }
+
+    @Test
+    public void bindWithoutParameters() {
+        Query<String, String> query = QueryBuilder.builderFor(String.class)
+                .add(eq("x", 1)).build();
+        assertSame(query, ParameterBinder.bind(query,
+                Collections.<String, Object> emptyMap()));
+    }
+
+    @Test
+    public void bindQuery() {
+        Query<String, String> query = QueryBuilder.builderFor(String.class)
+                .add(eq("x", param("a"))).setMaxResults(5).build();
+        Query<String, String> bound = ParameterBinder.bind(query, parameters);
+        assertEquals(eq("x", 1), bound.getCriteria());
+        assertEquals(query.getMaxResults(), bound.getMaxResults());
+        assertEquals(query.getEntityClass(), bound.getEntityClass());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bindUnbound() {
+        ParameterBinder.bind(eq("x", param("missing")), parameters);
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.eharmony.matching.seeking.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+
+public class QueryHintsTest {
+
+    @Test
+    public void with() {
+        QueryHints hints = QueryHints.none().with(QueryHints.INDEX, "name_1");
+        assertTrue(QueryHints.none().isEmpty());
+        assertFalse(hints.isEmpty());
+        assertEquals("name_1", hints.get(QueryHints.INDEX));
+        assertEquals("name_1", hints.get(QueryHints.INDEX, String.class));
+        assertNull(hints.get(QueryHints.COMMENT, String.class));
+        assertEquals("other", hints.with(QueryHints.INDEX, "other").get(
+                QueryHints.INDEX));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void get_wrongType() {
+        QueryHints.none().with(QueryHints.COST, "high").get(QueryHints.COST,
+                Integer.class);
+    }
+
+    @Test
+    public void queryBuilder() {
+        Query<String, String> query = QueryBuilder.builderFor(String.class)
+                .addHint(QueryHints.CACHE, false)
+                .addHint(QueryHints.COMMENT, "nightly").build();
+        assertEquals(false, query.getHints().get(QueryHints.CACHE));
+        assertEquals("nightly", query.getHints().get(QueryHints.COMMENT));
+        assertTrue(QueryBuilder.builderFor(String.class).build().getHints()
+                .isEmpty());
+        // hints distinguish otherwise equal queries
+        assertFalse(query.equals(QueryBuilder.builderFor(String.class).build()));
+        assertEquals(query, QueryBuilder.builderFor(String.class)
+                .addHint(QueryHints.CACHE, false)
+                .addHint(QueryHints.COMMENT, "nightly").build());
+    }
+
+}
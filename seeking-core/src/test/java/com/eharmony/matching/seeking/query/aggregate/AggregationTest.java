@@ -0,0 +1,80 @@
+package com.eharmony.matching.seeking.query.aggregate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.builder.AggregationBuilder;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
+import com.eharmony.matching.seeking.query.criterion.junction.Conjunction;
+
+public class AggregationTest {
+
+    @Test
+    public void build() {
+        Aggregation<String> aggregation = AggregationBuilder
+                .builderFor(String.class)
+                .add(Restrictions.eq("a", 1))
+                .add(Restrictions.gt("b", 2))
+                .groupBy("c")
+                .aggregate(Aggregate.count(), Aggregate.sum("d"))
+                .build();
+        assertEquals(String.class, aggregation.getEntityClass());
+        assertEquals(2, ((Conjunction) aggregation.getCriteria()).getCriteria().size());
+        assertEquals(Arrays.asList("c"), aggregation.getGroupBy());
+        assertEquals(Arrays.asList(Aggregate.count(), Aggregate.sum("d")),
+                aggregation.getAggregates());
+    }
+
+    @Test
+    public void build_interned() {
+        Aggregation<String> a = AggregationBuilder.builderFor(String.class)
+                .add(Restrictions.eq("a", 1)).aggregate(Aggregate.count())
+                .build();
+        Aggregation<String> b = AggregationBuilder.builderFor(String.class)
+                .add(Restrictions.eq("a", 1)).aggregate(Aggregate.count())
+                .build();
+        assertSame(a.getCriteria(), b.getCriteria());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void build_nothing() {
+        AggregationBuilder.builderFor(String.class).build();
+    }
+
+    @Test
+    public void alias() {
+        assertEquals("count", Aggregate.count().getAlias());
+        assertEquals("avg(a.b)", Aggregate.avg("a.b").getAlias());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aggregate_noProperty() {
+        Aggregate.max(null);
+    }
+
+    @Test
+    public void none_grouped() {
+        assertTrue(AggregateResult.none(AggregationBuilder
+                .builderFor(String.class).groupBy("a")
+                .aggregate(Aggregate.count()).build()).isEmpty());
+    }
+
+    @Test
+    public void none_ungrouped() {
+        List<AggregateResult> results = AggregateResult.none(AggregationBuilder
+                .builderFor(String.class)
+                .aggregate(Aggregate.count(), Aggregate.min("a")).build());
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).getGroup().isEmpty());
+        assertEquals(0L, results.get(0).getValue(Aggregate.count()));
+        assertNull(results.get(0).getValue(Aggregate.min("a")));
+    }
+
+}
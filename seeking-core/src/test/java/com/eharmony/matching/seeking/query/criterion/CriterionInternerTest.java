@@ -0,0 +1,73 @@
+package com.eharmony.matching.seeking.query.criterion;
+
+import static com.eharmony.matching.seeking.query.criterion.Restrictions.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.criterion.junction.Conjunction;
+import com.eharmony.matching.seeking.query.criterion.junction.Junction;
+
+public class CriterionInternerTest {
+
+    private Criterion tree() {
+        return and(eq("a", 1), or(in("b", new Object[] { 1, 2, 3 }),
+                between("c", 4, 5)), isNull("d"));
+    }
+
+    @Test
+    public void internNull() {
+        assertNull(CriterionInterner.intern(null));
+    }
+
+    @Test
+    public void internIdenticalTrees() {
+        Criterion a = CriterionInterner.intern(tree());
+        Criterion b = CriterionInterner.intern(tree());
+        assertSame(a, b);
+    }
+
+    @Test
+    public void internSharesSubtrees() {
+        Junction a = (Junction) CriterionInterner.intern(tree());
+        Junction b = (Junction) CriterionInterner.intern(and(eq("x", 0),
+                or(in("b", new Object[] { 1, 2, 3 }), between("c", 4, 5))));
+        assertSame(a.getCriteria().get(1), b.getCriteria().get(1));
+    }
+
+    @Test
+    public void internFreezesJunctions() {
+        Conjunction and = and(eq("a", 1), or(eq("b", 2), eq("b", 3)));
+        Junction interned = (Junction) CriterionInterner.intern(and);
+        assertFalse(and.isFrozen());
+        assertTrue(interned.isFrozen());
+        assertTrue(((Junction) interned.getCriteria().get(1)).isFrozen());
+        assertEquals(and, interned);
+        assertEquals(and.hashCode(), interned.hashCode());
+    }
+
+    @Test
+    public void internCopiesSetValues() {
+        Object[] values = { 1, 2, 3 };
+        Criterion e = CriterionInterner.intern(in("b", values));
+        // the caller reuses its buffer
+        values[0] = 4;
+        assertEquals(in("b", new Object[] { 1, 2, 3 }), e);
+        assertSame(e, CriterionInterner.intern(in("b", new Object[] { 1, 2, 3 })));
+    }
+
+    @Test
+    public void mutableJunctionCriteriaCopied() {
+        Conjunction and = and(eq("a", 1));
+        and.getCriteria().add(eq("b", 2));
+        assertEquals(1, and.getCriteria().size());
+    }
+
+    @Test
+    public void internExpression() {
+        Criterion e = CriterionInterner.intern(eq("name", "value"));
+        assertSame(e, CriterionInterner.intern(eq("name", "value")));
+        assertNotSame(e, CriterionInterner.intern(ne("name", "value")));
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.eharmony.matching.seeking.query.criterion.expression;
+
+import static com.eharmony.matching.seeking.query.criterion.Restrictions.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
+
+public class NearExpressionTest {
+
+    private final NearExpression<Double> e = near("location", 1.0, 2.0, 10,
+            3.0);
+
+    private static Query<String, String> query(Criterion... criteria) {
+        QueryBuilder<String, String> builder = QueryBuilder
+                .builderFor(String.class);
+        for (Criterion c : criteria) {
+            builder.add(c);
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void getters() {
+        assertEquals(Operator.NEAR, e.getOperator());
+        assertEquals("location", e.getPropertyName());
+        assertEquals(Double.valueOf(3.0), e.getDistance());
+        assertEquals(10, e.getLimit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void limit_notPositive() {
+        near("location", 1.0, 2.0, 0, 3.0);
+    }
+
+    @Test
+    public void equality() {
+        assertEquals(e, near("location", 1.0, 2.0, 10, 3.0));
+        assertEquals(e.hashCode(), near("location", 1.0, 2.0, 10, 3.0)
+                .hashCode());
+        assertFalse(e.equals(near("location", 1.0, 2.0, 5, 3.0)));
+        assertFalse(e.equals(within("location", 1.0, 2.0, 3.0)));
+    }
+
+    @Test
+    public void getLimit_query() {
+        assertEquals(10, e.getLimit(query(e)));
+        assertEquals(5, e.getLimit(QueryBuilder.builderFor(String.class)
+                .add(e).setMaxResults(5).build()));
+    }
+
+    @Test
+    public void of() {
+        assertEquals(e, NearExpression.of(query(eq("name", "a"), e)));
+        assertEquals(e, NearExpression.of(query(and(eq("name", "a"), e))));
+        assertNull(NearExpression.of(query(within("location", 1.0, 2.0,
+                3.0))));
+        assertNull(NearExpression.of(query()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_disjunct() {
+        NearExpression.of(query(or(eq("name", "a"), e)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_many() {
+        NearExpression.of(query(e, near("other", 1.0, 2.0, 10, 3.0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_ordered() {
+        NearExpression.of(QueryBuilder.builderFor(String.class).add(e)
+                .addOrder(Ordering.asc("name")).build());
+    }
+
+}
@@ -50,4 +50,19 @@ public class ConjunctionTest {
         assertEquals(newCriterion, criteria.get(criteria.size() - 1));
     }
 
+    @Test
+    public void freeze() {
+        Junction frozen = and.freeze();
+        assertTrue(frozen instanceof Conjunction);
+        assertTrue(frozen.isFrozen());
+        assertSame(frozen, frozen.freeze());
+        assertEquals(and, frozen);
+        assertEquals(and.hashCode(), frozen.hashCode());
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void addFrozen() {
+        and.freeze().add(left);
+    }
+
 }
@@ -1,6 +1,8 @@
 package com.eharmony.matching.seeking.query.criterion.junction;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
@@ -50,4 +52,19 @@ public class DisjunctionTest {
         assertEquals(newCriterion, criteria.get(criteria.size() - 1));
     }
     
+    @Test
+    public void freeze() {
+        Junction frozen = and.freeze();
+        assertTrue(frozen instanceof Disjunction);
+        assertTrue(frozen.isFrozen());
+        assertSame(frozen, frozen.freeze());
+        assertEquals(and, frozen);
+        assertEquals(and.hashCode(), frozen.hashCode());
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void addFrozen() {
+        and.freeze().add(left);
+    }
+
 }
@@ -0,0 +1,144 @@
+package com.eharmony.matching.seeking.query.optimizer;
+
+import static com.eharmony.matching.seeking.query.criterion.Restrictions.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.CriterionInterner;
+import com.eharmony.matching.seeking.query.criterion.expression.SetExpression;
+import com.google.common.base.Optional;
+
+public class SimpleQueryOptimizerTest {
+
+    private final SimpleQueryOptimizer optimizer = new SimpleQueryOptimizer();
+
+    private Query<Object, Object> query(Criterion... criteria) {
+        QueryBuilder<Object, Object> builder = QueryBuilder
+                .builderFor(Object.class).setMaxResults(10);
+        for (Criterion c : criteria) {
+            builder.add(c);
+        }
+        return builder.build();
+    }
+
+    private Criterion optimize(Criterion... criteria) {
+        Optional<Query<Object, Object>> optimized = optimizer
+                .optimize(query(criteria));
+        assertTrue(optimized.isPresent());
+        return optimized.get().getCriteria();
+    }
+
+    private void assertNothing(Criterion... criteria) {
+        assertFalse(optimizer.optimize(query(criteria)).isPresent());
+    }
+
+    private void assertOptimized(Criterion expected, Criterion... criteria) {
+        assertEquals(CriterionInterner.intern(expected), optimize(criteria));
+    }
+
+    @Test
+    public void noCriteria() {
+        Query<Object, Object> query = query();
+        assertSame(query, optimizer.optimize(query).get());
+    }
+
+    @Test
+    public void unchanged() {
+        Query<Object, Object> query = query(eq("a", 1), ne("b", 2));
+        assertSame(query, optimizer.optimize(query).get());
+    }
+
+    @Test
+    public void rewrittenQueryKeepsEverythingElse() {
+        Query<Object, Object> query = query(and(eq("a", 1), eq("a", 1)));
+        Query<Object, Object> optimized = optimizer.optimize(query).get();
+        assertEquals(eq("a", 1), optimized.getCriteria());
+        assertEquals(query.getEntityClass(), optimized.getEntityClass());
+        assertEquals(query.getReturnType(), optimized.getReturnType());
+        assertEquals(query.getMaxResults(), optimized.getMaxResults());
+        assertSame(query.getOrder(), optimized.getOrder());
+        assertSame(query.getReturnFields(), optimized.getReturnFields());
+    }
+
+    @Test
+    public void flatten() {
+        assertOptimized(and(eq("a", 1), ne("b", 2), ne("c", 3)),
+                eq("a", 1), and(ne("b", 2), and(ne("c", 3))));
+        assertOptimized(or(ne("a", 1), ne("b", 2), ne("c", 3)),
+                or(ne("a", 1), or(ne("b", 2), or(ne("c", 3)))));
+    }
+
+    @Test
+    public void dropDuplicates() {
+        assertOptimized(and(ne("a", 1), isNull("b")),
+                ne("a", 1), isNull("b"), ne("a", 1), isNull("b"));
+        assertOptimized(ne("a", 1), or(ne("a", 1), ne("a", 1)));
+    }
+
+    @Test
+    public void foldEqualsIntoIn() {
+        Criterion optimized = optimize(or(eq("a", 1), ne("b", 2), eq("a", 2),
+                in("a", new Object[] { 2, 3 })));
+        assertEquals(or(in("a", new Object[] { 1, 2, 3 }), ne("b", 2)),
+                optimized);
+    }
+
+    @Test
+    public void foldSkipsNulls() {
+        assertOptimized(or(eq("a", null), eq("a", 1)),
+                or(eq("a", null), eq("a", 1)));
+    }
+
+    @Test
+    public void intersectBounds() {
+        assertOptimized(between("a", 5, 8),
+                gt("a", 1), gte("a", 5), lt("a", 10), lte("a", 8));
+        assertOptimized(and(gt("a", 5), lte("a", 8)),
+                between("a", 1, 8), gte("a", 5), gt("a", 5));
+        assertOptimized(eq("a", 5), gte("a", 5), lte("a", 5));
+    }
+
+    @Test
+    public void intersectIn() {
+        Criterion optimized = optimize(in("a", new Object[] { 1, 2, 3, 4 }),
+                in("a", new Object[] { 2, 3, 4, 5 }), lt("a", 4));
+        assertTrue(optimized instanceof SetExpression);
+        assertEquals(Arrays.asList(2, 3),
+                Arrays.asList(((SetExpression) optimized).getValues()));
+        assertOptimized(eq("a", 3), in("a", new Object[] { 1, 3 }), gt("a", 1));
+        assertOptimized(eq("a", 3), in("a", new Object[] { 1, 3 }), eq("a", 3));
+    }
+
+    @Test
+    public void contradictions() {
+        assertNothing(eq("a", 1), eq("a", 2));
+        assertNothing(gt("a", 5), lt("a", 5));
+        assertNothing(gte("a", 5), lt("a", 5));
+        assertNothing(between("a", 8, 1));
+        assertNothing(eq("a", 1), gt("a", 1));
+        assertNothing(in("a", new Object[] { 1, 2 }), eq("a", 3));
+        assertNothing(in("a", new Object[] { 1, 2 }), in("a", new Object[] { 3 }));
+        assertNothing(ne("b", 1), or(and(eq("a", 1), eq("a", 2)),
+                and(eq("c", 1), eq("c", 2))));
+    }
+
+    @Test
+    public void contradictoryBranchIsDropped() {
+        assertOptimized(ne("b", 1),
+                or(and(eq("a", 1), eq("a", 2)), ne("b", 1)));
+    }
+
+    @Test
+    public void mixedTypesAreLeftAlone() {
+        assertOptimized(and(eq("a", 1), eq("a", 2L)), eq("a", 1), eq("a", 2L));
+        assertOptimized(and(eq("a", "x"), eq("a", "X")),
+                eq("a", "x"), eq("a", "X"));
+    }
+
+}
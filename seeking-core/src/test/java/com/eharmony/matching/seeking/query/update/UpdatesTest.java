@@ -0,0 +1,32 @@
+package com.eharmony.matching.seeking.query.update;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.update.Update.Operation;
+
+public class UpdatesTest {
+
+    @Test
+    public void updates() {
+        List<Update> updates = new Updates().set("name", "n").inc("visits", 1)
+                .unset("email").get();
+        assertEquals(3, updates.size());
+        assertEquals(Operation.SET, updates.get(0).getOperation());
+        assertEquals("n", updates.get(0).getValue());
+        assertEquals(Operation.INC, updates.get(1).getOperation());
+        assertEquals(1, updates.get(1).getValue());
+        assertEquals(Operation.UNSET, updates.get(2).getOperation());
+        assertEquals("email", updates.get(2).getPropertyName());
+        assertNull(updates.get(2).getValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void inc_notNumber() {
+        new Update(Operation.INC, "visits", "1");
+    }
+
+}
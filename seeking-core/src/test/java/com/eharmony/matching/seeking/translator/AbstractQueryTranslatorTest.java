@@ -1,8 +1,12 @@
 package com.eharmony.matching.seeking.translator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
@@ -158,7 +162,13 @@ public class AbstractQueryTranslatorTest {
     };
     
     private String join(Object... parts) {
-        return Joiner.on(" ").join(parts);
+        // arrays by their contents, set expressions copy their values
+        List<Object> strings = new ArrayList<Object>();
+        for (Object part : parts) {
+            strings.add(part instanceof Object[] ? Arrays
+                    .toString((Object[]) part) : part);
+        }
+        return Joiner.on(" ").join(strings);
     }
     
     private String join(Iterable<?> parts) {
@@ -491,4 +501,58 @@ public class AbstractQueryTranslatorTest {
                 translator.translateProjection(QueryBuilder.builderFor(
                         String.class, String.class, "a", "b", "c").build()));
     }
+    
+    /*--------------------------------------------------------------------------
+     * Translation Plan Tests
+     */
+    private Criterion tree() {
+        return Restrictions.and(
+                Restrictions.eq(property, testValue),
+                Restrictions.or(
+                        Restrictions.in(property, testValues),
+                        Restrictions.between("other", testFrom, testTo),
+                        Restrictions.and(Restrictions.isNull(property),
+                                Restrictions.gt("other", testFrom))),
+                Restrictions.within(property, x, y, distance),
+                Restrictions.nativeQuery(String.class, "property & 4 > 0"));
+    }
+    
+    @Test
+    public void compile() {
+        TranslationPlan<String> plan = translator.compile(tree(), entityClass);
+        assertEquals(translator.translate(tree(), entityClass), plan.execute());
+        // seven expressions and three junctions
+        assertEquals(10, plan.size());
+    }
+    
+    @Test
+    public void compile_null() {
+        TranslationPlan<String> plan = translator.compile(null, entityClass);
+        assertEquals(0, plan.size());
+        assertNull(plan.execute());
+    }
+    
+    @Test
+    public void plan_cachedForInternedCriteria() {
+        Query<Test, Test> q = query(tree());
+        TranslationPlan<String> plan = translator.plan(q.getCriteria(), entityClass);
+        assertSame(plan, translator.plan(query(tree()).getCriteria(), entityClass));
+        assertNotSame(plan, translator.plan(q.getCriteria(), String.class));
+    }
+    
+    @Test
+    public void plan_notCachedForMutableJunctions() {
+        Criterion c = tree();
+        assertNotSame(translator.plan(c, entityClass), translator.plan(c, entityClass));
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void compile_unexpected_Criterion() {
+        translator.compile(Restrictions.and(new Criterion(){}), entityClass);
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void compile_unexpected_EqualityExpression() {
+        translator.compile(new EqualityExpression(Operator.BETWEEN, property, testValue), entityClass);
+    }
 }
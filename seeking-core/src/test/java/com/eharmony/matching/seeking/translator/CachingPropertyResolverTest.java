@@ -0,0 +1,66 @@
+package com.eharmony.matching.seeking.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+public class CachingPropertyResolverTest {
+
+    private final PropertyResolver delegate = mock(PropertyResolver.class);
+    private final CachingPropertyResolver resolver = new CachingPropertyResolver(delegate);
+
+    @Test
+    public void resolve() {
+        when(delegate.resolve("a.b", String.class)).thenReturn("x.y");
+        assertEquals("x.y", resolver.resolve("a.b", String.class));
+        assertEquals("x.y", resolver.resolve("a.b", String.class));
+        verify(delegate, times(1)).resolve("a.b", String.class);
+    }
+
+    @Test
+    public void resolvePerEntityClass() {
+        when(delegate.resolve("a", String.class)).thenReturn("s");
+        when(delegate.resolve("a", Integer.class)).thenReturn("i");
+        assertEquals("s", resolver.resolve("a", String.class));
+        assertEquals("i", resolver.resolve("a", Integer.class));
+        assertEquals("s", resolver.resolve("a", String.class));
+    }
+
+    @Test
+    public void preload() {
+        when(delegate.resolve("a", String.class)).thenReturn("x");
+        when(delegate.resolve("b", String.class)).thenReturn("y");
+        resolver.preload(String.class, "a", "b");
+        assertEquals("x", resolver.resolve("a", String.class));
+        assertEquals("y", resolver.resolve("b", String.class));
+        verify(delegate, times(1)).resolve("a", String.class);
+        verify(delegate, times(1)).resolve("b", String.class);
+    }
+
+    @Test
+    public void failuresAreNotCached() {
+        when(delegate.resolve("a", String.class))
+                .thenThrow(new IllegalArgumentException())
+                .thenReturn("x");
+        try {
+            resolver.resolve("a", String.class);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals("x", resolver.resolve("a", String.class));
+    }
+
+    @Test
+    public void clear() {
+        when(delegate.resolve("a", String.class)).thenReturn("x");
+        resolver.resolve("a", String.class);
+        resolver.clear();
+        resolver.resolve("a", String.class);
+        verify(delegate, times(2)).resolve("a", String.class);
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.eharmony.matching.seeking.translator;
+
+import static com.eharmony.matching.seeking.query.criterion.Restrictions.*;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.Ordering.Order;
+import com.eharmony.matching.seeking.query.geometry.Point;
+import com.google.common.base.Joiner;
+
+/**
+ * Compares interpreting a criterion tree on every translation with running
+ * its cached, compiled plan. This is not a unit test, run its main method with
+ * the test classpath.
+ */
+public class TranslationPlanBenchmark {
+
+    private static final int WARMUP = 200000;
+    private static final int ITERATIONS = 1000000;
+
+    @SuppressWarnings("unused")
+    private static class Entity {
+        private int age;
+        private String name;
+        private String city;
+        private long created;
+        private double latitude;
+    }
+
+    /*
+     * resolves through reflection, as the solrj resolver does
+     */
+    private static class ReflectivePropertyResolver implements PropertyResolver {
+        @Override
+        public String resolve(String fieldName, Class<?> entityClass) {
+            try {
+                return entityClass.getDeclaredField(fieldName).getName();
+            } catch (Exception e) {
+                return fieldName;
+            }
+        }
+    }
+
+    private static class StringQueryTranslator extends
+            AbstractQueryTranslator<String, String, String> {
+
+        public StringQueryTranslator(PropertyResolver propertyResolver) {
+            super(String.class, String.class, propertyResolver);
+        }
+
+        private String join(String fieldName, String op, Object value) {
+            return fieldName + op + value;
+        }
+
+        @Override
+        protected <T> String translate(
+                com.eharmony.matching.seeking.query.criterion.expression.NativeExpression e,
+                Class<T> entityClass) {
+            return e.getExpression().toString();
+        }
+
+        @Override public String eq(String f, Object v) { return join(f, "=", v); }
+        @Override public String ne(String f, Object v) { return join(f, "!=", v); }
+        @Override public String lt(String f, Object v) { return join(f, "<", v); }
+        @Override public String lte(String f, Object v) { return join(f, "<=", v); }
+        @Override public String gt(String f, Object v) { return join(f, ">", v); }
+        @Override public String gte(String f, Object v) { return join(f, ">=", v); }
+        @Override public String between(String f, Object from, Object to) { return join(f, "~", from + ".." + to); }
+        @Override public String in(String f, Object[] v) { return join(f, " in ", v.length); }
+        @Override public String notIn(String f, Object[] v) { return join(f, " not in ", v.length); }
+        @Override public String contains(String f, Object[] v) { return join(f, " has ", v.length); }
+        @Override public String isNull(String f) { return f + " null"; }
+        @Override public String notNull(String f) { return f + " not null"; }
+        @Override public String isEmpty(String f) { return f + " empty"; }
+        @Override public String notEmpty(String f) { return f + " not empty"; }
+        @Override public <N extends Number & Comparable<N>> String within(String f, Point<N> c, Number d) { return f + " near " + d; }
+        @Override public String and(String... q) { return Joiner.on(" and ").join(q); }
+        @Override public String or(String... q) { return Joiner.on(" or ").join(q); }
+        @Override public String order(String f, Order o) { return f; }
+        @Override public String order(String... o) { return Joiner.on(",").join(o); }
+        @Override public <T, R> String translateProjection(Query<T, R> query) { return null; }
+    }
+
+    private static Query<Entity, Entity> query() {
+        return QueryBuilder.builderFor(Entity.class)
+                .add(between("age", 25, 35))
+                .add(eq("city", "Los Angeles"))
+                .add(or(eq("name", "a"), eq("name", "b"), isNull("name")))
+                .add(in("created", new Object[] { 1L, 2L, 3L }))
+                .add(gte("latitude", 30.0))
+                .build();
+    }
+
+    private static long interpreted(StringQueryTranslator translator,
+            Query<Entity, Entity> query, int n) {
+        long hash = 0;
+        Criterion criteria = query.getCriteria();
+        for (int i = 0; i < n; i++) {
+            hash += translator.translate(criteria, Entity.class).length();
+        }
+        return hash;
+    }
+
+    private static long compiled(StringQueryTranslator translator,
+            Query<Entity, Entity> query, int n) {
+        long hash = 0;
+        for (int i = 0; i < n; i++) {
+            hash += translator.translate(query).length();
+        }
+        return hash;
+    }
+
+    private static void run(String name, PropertyResolver resolver) {
+        StringQueryTranslator translator = new StringQueryTranslator(resolver);
+        Query<Entity, Entity> query = query();
+        interpreted(translator, query, WARMUP);
+        compiled(translator, query, WARMUP);
+
+        long start = System.nanoTime();
+        long a = interpreted(translator, query, ITERATIONS);
+        long interpreted = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long b = compiled(translator, query, ITERATIONS);
+        long compiled = System.nanoTime() - start;
+
+        if (a != b) {
+            throw new IllegalStateException("translations differ");
+        }
+        System.out.printf("%-12s interpreted %6d ns/op, compiled %6d ns/op (%.1fx)%n",
+                name, interpreted / ITERATIONS, compiled / ITERATIONS,
+                (double) interpreted / compiled);
+    }
+
+    public static void main(String[] args) {
+        for (int i = 0; i < 3; i++) {
+            run("simple", new SimplePropertyResolver());
+            run("reflective", new ReflectivePropertyResolver());
+        }
+    }
+
+}
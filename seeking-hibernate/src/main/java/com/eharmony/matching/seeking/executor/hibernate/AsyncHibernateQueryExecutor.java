@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.hibernate;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import com.eharmony.matching.seeking.executor.DataStoreException;
+import com.eharmony.matching.seeking.executor.SimpleAsyncQueryExecutor;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * An AsyncQueryExecutor for Hibernate. Sessions are not thread safe and the
+ * current session of the calling thread is not available to the pool, so each
+ * operation opens a session of its own and runs in a transaction of that
+ * session. Entities returned by an operation are detached: their lazy
+ * associations cannot be loaded once the operation is complete.
+ */
+public class AsyncHibernateQueryExecutor extends SimpleAsyncQueryExecutor {
+
+    private final HibernateQueryExecutor queryExecutor;
+
+    public AsyncHibernateQueryExecutor(HibernateQueryExecutor queryExecutor,
+            ExecutorService executorService) {
+        super(queryExecutor, executorService);
+        this.queryExecutor = queryExecutor;
+    }
+
+    @Override
+    protected <V> ListenableFuture<V> submit(final Callable<V> task) {
+        return super.submit(new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                return inSession(task);
+            }
+        });
+    }
+
+    private <V> V inSession(Callable<V> task) throws Exception {
+        final Session session = queryExecutor.getSessionFactory().openSession();
+        queryExecutor.bindSession(session);
+        try {
+            final Transaction transaction = session.beginTransaction();
+            try {
+                final V result = task.call();
+                transaction.commit();
+                return result;
+            } catch (final Exception e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        } catch (final HibernateException hx) {
+            throw new DataStoreException(hx.getMessage(), hx);
+        } finally {
+            queryExecutor.unbindSession();
+            session.close();
+        }
+    }
+
+}
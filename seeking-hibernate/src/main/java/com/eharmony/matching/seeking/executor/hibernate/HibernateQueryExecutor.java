@@ -17,7 +17,9 @@
 package com.eharmony.matching.seeking.executor.hibernate;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.impl.LogFactoryImpl;
@@ -26,18 +28,34 @@ import org.springframework.transaction.annotation.Transactional;
 
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projection;
+import org.hibernate.criterion.Projections;
 
+import com.eharmony.matching.seeking.executor.BatchResults;
 import com.eharmony.matching.seeking.executor.DataStoreException;
+import com.eharmony.matching.seeking.executor.Page;
+import com.eharmony.matching.seeking.executor.PreparedQuery;
+import com.eharmony.matching.seeking.executor.QueryBatch;
 import com.eharmony.matching.seeking.executor.QueryExecutor;
+import com.eharmony.matching.seeking.executor.ResultStream;
+import com.eharmony.matching.seeking.executor.SimplePreparedQuery;
 import com.eharmony.matching.seeking.mapper.HibernateProjectedResultMapper;
 import com.eharmony.matching.seeking.mapper.ProjectedResultMapper;
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.QueryHints;
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+import com.eharmony.matching.seeking.query.criterion.Parameter;
+import com.eharmony.matching.seeking.query.criterion.expression.NearExpression;
+import com.eharmony.matching.seeking.query.update.Updates;
 import com.eharmony.matching.seeking.translator.hibernate.HibernateQueryTranslator;
+import com.eharmony.matching.seeking.translator.hibernate.HqlQueryTranslator;
 
 /**
  * A QueryExecutor implementation that uses Hibernate to interact with a SQL Store
@@ -45,16 +63,54 @@ import com.eharmony.matching.seeking.translator.hibernate.HibernateQueryTranslat
 public class HibernateQueryExecutor implements QueryExecutor {
     
     private static final Log log = LogFactoryImpl.getLog(HibernateQueryExecutor.class);
+    
+    // entities saved between flushes when saving many
+    public static final int DEFAULT_SAVE_BATCH_SIZE = 50;
+    
     private final SessionFactory sessionFactory;
     private final HibernateQueryTranslator queryTranslator;
+    private final HqlQueryTranslator hqlQueryTranslator;
     private final HibernateProjectedResultMapper mapper;
+    private final int saveBatchSize;
+    // sessions of operations that run outside the thread's current session
+    private final ThreadLocal<Session> boundSession = new ThreadLocal<Session>();
 
+    /**
+     * @param hqlQueryTranslator
+     *            used to prepare parameterized queries as HQL statements with
+     *            named parameters, may be null in which case prepared queries
+     *            bind their parameters into the criteria on every execution
+     * @param saveBatchSize
+     *            the number of entities saved between flushes when saving
+     *            many, to match hibernate.jdbc.batch_size
+     */
     public HibernateQueryExecutor(SessionFactory sessionFactory,
             HibernateQueryTranslator queryTranslator,
-            ProjectedResultMapper mapper) {
+            HqlQueryTranslator hqlQueryTranslator,
+            ProjectedResultMapper mapper,
+            int saveBatchSize) {
+        if (saveBatchSize < 1) {
+            throw new IllegalArgumentException("save batch size must be positive");
+        }
         this.sessionFactory = sessionFactory;
         this.queryTranslator = queryTranslator;
+        this.hqlQueryTranslator = hqlQueryTranslator;
         this.mapper = new HibernateProjectedResultMapper(mapper);
+        this.saveBatchSize = saveBatchSize;
+    }
+
+    public HibernateQueryExecutor(SessionFactory sessionFactory,
+            HibernateQueryTranslator queryTranslator,
+            HqlQueryTranslator hqlQueryTranslator,
+            ProjectedResultMapper mapper) {
+        this(sessionFactory, queryTranslator, hqlQueryTranslator, mapper,
+                DEFAULT_SAVE_BATCH_SIZE);
+    }
+
+    public HibernateQueryExecutor(SessionFactory sessionFactory,
+            HibernateQueryTranslator queryTranslator,
+            ProjectedResultMapper mapper) {
+        this(sessionFactory, queryTranslator, null, mapper);
     }
     
     public HibernateQueryExecutor(SessionFactory sessionFactory,
@@ -89,6 +145,198 @@ public class HibernateQueryExecutor implements QueryExecutor {
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#count(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> long count(Query<T, R> query) {
+        try {
+            final Number count = (Number) getRestrictedCriteria(query)
+                    .setProjection(Projections.rowCount()).uniqueResult();
+            return count != null ? count.longValue() : 0;
+        } catch (final HibernateException hx) {
+            throw new DataStoreException(hx.getMessage(), hx);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#exists(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> boolean exists(Query<T, R> query) {
+        try {
+            // select the id of at most one row
+            return getRestrictedCriteria(query).setProjection(Projections.id())
+                    .setMaxResults(1).uniqueResult() != null;
+        } catch (final HibernateException hx) {
+            throw new DataStoreException(hx.getMessage(), hx);
+        }
+    }
+
+    /**
+     * The results and the count are two statements in the same session.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findPage(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> Page<R> findPage(Query<T, R> query) {
+        try {
+            final List<R> results = mapper.mapResults(getCriteria(query).list(), query);
+            return new Page<R>(results, count(query));
+        } catch (final HibernateException hx) {
+            throw new DataStoreException(hx.getMessage(), hx);
+        }
+    }
+
+    /**
+     * Group and aggregate in a single statement through projections. Without
+     * group by properties the database returns a single row.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#aggregate(com.eharmony.matching.seeking.query.aggregate.Aggregation)
+     */
+    @Override
+    public <T> List<AggregateResult> aggregate(Aggregation<T> aggregation) {
+        try {
+            final Criteria criteria = getSession().createCriteria(
+                    aggregation.getEntityClass());
+            final Criterion translated = queryTranslator.translate(aggregation);
+            if (translated != null) {
+                criteria.add(translated);
+            }
+            criteria.setProjection(queryTranslator
+                    .translateProjection(aggregation));
+            final List<?> rows = criteria.list();
+            final List<AggregateResult> results = new ArrayList<AggregateResult>(
+                    rows.size());
+            for (final Object row : rows) {
+                results.add(aggregateResult(aggregation, row));
+            }
+            return results;
+        } catch (final HibernateException hx) {
+            throw new DataStoreException(hx.getMessage(), hx);
+        }
+    }
+
+    private <T> AggregateResult aggregateResult(Aggregation<T> aggregation,
+            Object row) {
+        // a single projection is not returned as an array
+        final Object[] columns = row instanceof Object[] ? (Object[]) row
+                : new Object[] { row };
+        final List<String> groupBy = aggregation.getGroupBy();
+        final List<Aggregate> aggregates = aggregation.getAggregates();
+        final Map<String, Object> group = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < groupBy.size(); i++) {
+            group.put(groupBy.get(i), columns[i]);
+        }
+        final Map<String, Object> values = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < aggregates.size(); i++) {
+            final Aggregate aggregate = aggregates.get(i);
+            Object value = columns[groupBy.size() + i];
+            if (aggregate.getFunction() == Aggregate.Function.COUNT) {
+                value = ((Number) value).longValue();
+            }
+            values.put(aggregate.getAlias(), value);
+        }
+        return new AggregateResult(group, values);
+    }
+
+    /**
+     * Lookups on the same entity and property run as a single statement with
+     * an <code>in</code> restriction and are split back per query on the
+     * value of the property. All the queries use the same session.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findAll(java.util.List)
+     */
+    @Override
+    public BatchResults findAll(List<? extends Query<?, ?>> queries) {
+        return QueryBatch.findAll(this, queries);
+    }
+
+    /**
+     * Stream the results through a forward only scrollable result set, which
+     * is closed once the stream is exhausted or closed.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#stream(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> ResultStream<R> stream(Query<T, R> query) {
+        try {
+            return mapper.streamResults(
+                    getCriteria(query).scroll(ScrollMode.FORWARD_ONLY), query);
+        } catch (final HibernateException hx) {
+            throw new DataStoreException(hx.getMessage(), hx);
+        }
+    }
+
+    /**
+     * Prepare a parameterized query. With an HqlQueryTranslator the query is
+     * translated once into an HQL statement, which lets Hibernate reuse its
+     * cached query plan, and executions only bind the named parameters.
+     * 
+     * @param query
+     *            a query with {@link Parameter} values
+     * @return the prepared query
+     */
+    public <T, R> PreparedQuery<T, R> prepare(Query<T, R> query) {
+        return hqlQueryTranslator != null
+                ? new HqlPreparedQuery<T, R>(query)
+                : new SimplePreparedQuery<T, R>(this, query);
+    }
+
+    private class HqlPreparedQuery<T, R> implements PreparedQuery<T, R> {
+
+        private final Query<T, R> query;
+        private final String hql;
+
+        private HqlPreparedQuery(Query<T, R> query) {
+            this.query = query;
+            this.hql = hqlQueryTranslator.translateStatement(query);
+            if (log.isDebugEnabled()) {
+                log.debug(hql);
+            }
+        }
+
+        @Override
+        public Query<T, R> getQuery() {
+            return query;
+        }
+
+        private org.hibernate.Query bind(Map<String, ?> parameters) {
+            final org.hibernate.Query bound = getSession().createQuery(hql);
+            for (final String name : bound.getNamedParameters()) {
+                bound.setParameter(name,
+                        Parameter.resolve(new Parameter(name), parameters));
+            }
+            final Integer maxResults = maxResults(query);
+            if (maxResults != null) {
+                bound.setMaxResults(maxResults);
+            }
+            return bound;
+        }
+
+        @Override
+        public Iterable<R> find(Map<String, ?> parameters) {
+            try {
+                return mapper.mapResults(bind(parameters).list(), query);
+            } catch (final HibernateException hx) {
+                throw new DataStoreException(hx.getMessage(), hx);
+            }
+        }
+
+        @Override
+        public R findOne(Map<String, ?> parameters) {
+            try {
+                return mapper.mapResult(bind(parameters).setMaxResults(1)
+                        .uniqueResult(), query);
+            } catch (final HibernateException hx) {
+                throw new DataStoreException(hx.getMessage(), hx);
+            }
+        }
+
+    }
+
     /*
      * (non-Javadoc)
      * @see com.eharmony.matching.seeking.executor.QueryExecutor#save(java.lang.Object)
@@ -104,17 +352,28 @@ public class HibernateQueryExecutor implements QueryExecutor {
         }
     }
 
-    /*
-     * (non-Javadoc)
+    /**
+     * Save the entities, flushing the inserts to the database and clearing
+     * the session after every save batch size of them so that the session
+     * does not grow with the number of entities. With hibernate.jdbc.batch_size
+     * set to the save batch size each flush is a single JDBC batch. Entities
+     * loaded earlier in the session are detached by the clear.
+     * 
      * @see com.eharmony.matching.seeking.executor.QueryExecutor#save(java.lang.Iterable)
      */
     @Override
     @Transactional
     public <T> Iterable<T> save(Iterable<T> entities) {
         try {
+            final Session session = getSession();
             final List<T> saved = new ArrayList<T>();
             for (final T entity : entities) {
-                saved.add(save(entity));
+                session.save(entity);
+                saved.add(entity);
+                if (saved.size() % saveBatchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
             }
             return saved;
         } catch (final HibernateException hx) {
@@ -122,13 +381,68 @@ public class HibernateQueryExecutor implements QueryExecutor {
         }
     }
 
-    protected <T, R> Criteria getCriteria(Query<T, R> query) {
-        final Criterion translated = queryTranslator.translate(query);
+    /**
+     * Run an HQL bulk delete, which bypasses the session: entities already
+     * loaded are not removed from it and cascades are not applied.
+     * 
+     * @throws UnsupportedOperationException
+     *             without an HqlQueryTranslator
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#delete(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    @Transactional
+    public <T, R> void delete(Query<T, R> query) {
+        try {
+            executeUpdate(hqlQueryTranslator().translateDelete(query),
+                    new LinkedHashMap<String, Object>());
+        } catch (final HibernateException hx) {
+            throw new DataStoreException(hx.getMessage(), hx);
+        }
+    }
+
+    /**
+     * Run an HQL bulk update, which bypasses the session: entities already
+     * loaded keep their previous values.
+     * 
+     * @throws UnsupportedOperationException
+     *             without an HqlQueryTranslator
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#update(com.eharmony.matching.seeking.query.Query, com.eharmony.matching.seeking.query.update.Updates)
+     */
+    @Override
+    @Transactional
+    public <T, R> void update(Query<T, R> query, Updates updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            executeUpdate(hqlQueryTranslator().translateUpdate(query, updates),
+                    hqlQueryTranslator().translateUpdateParameters(updates));
+        } catch (final HibernateException hx) {
+            throw new DataStoreException(hx.getMessage(), hx);
+        }
+    }
+
+    private HqlQueryTranslator hqlQueryTranslator() {
+        if (hqlQueryTranslator == null) {
+            throw new UnsupportedOperationException(
+                    "bulk statements require an HqlQueryTranslator");
+        }
+        return hqlQueryTranslator;
+    }
+
+    private int executeUpdate(String hql, Map<String, Object> parameters) {
         if (log.isDebugEnabled()) {
-            log.debug(translated);
+            log.debug(hql);
         }
-        final Criteria criteria = getSession().createCriteria(query.getEntityClass());
-        criteria.add(translated);
+        final org.hibernate.Query statement = getSession().createQuery(hql);
+        for (final Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            statement.setParameter(parameter.getKey(), parameter.getValue());
+        }
+        return statement.executeUpdate();
+    }
+
+    protected <T, R> Criteria getCriteria(Query<T, R> query) {
+        final Criteria criteria = getRestrictedCriteria(query);
         final List<Order> orders = queryTranslator.translateOrder(query).get();
         for (final Order order : orders) {
             criteria.addOrder(order);
@@ -137,14 +451,71 @@ public class HibernateQueryExecutor implements QueryExecutor {
         if (projection != null) {
             criteria.setProjection(projection);
         }
-        if (query.getMaxResults() != null) {
-            criteria.setMaxResults(query.getMaxResults());
+        final Integer maxResults = maxResults(query);
+        if (maxResults != null) {
+            criteria.setMaxResults(maxResults);
+        }
+        if (query.getFetchSize() != null) {
+            criteria.setFetchSize(query.getFetchSize());
+        }
+        // the other hints do not apply to criteria queries
+        final QueryHints hints = query.getHints();
+        final String comment = hints.get(QueryHints.COMMENT, String.class);
+        if (comment != null) {
+            criteria.setComment(comment);
+        }
+        final Boolean cache = hints.get(QueryHints.CACHE, Boolean.class);
+        if (cache != null) {
+            criteria.setCacheable(cache);
+        }
+        return criteria;
+    }
+
+    /*
+     * The maximum results of the query, the limit of its near restriction if
+     * it has one
+     */
+    private static Integer maxResults(Query<?, ?> query) {
+        final NearExpression<?> near = NearExpression.of(query);
+        return near != null ? Integer.valueOf(near.getLimit(query)) : query
+                .getMaxResults();
+    }
+
+    /**
+     * @return the criteria of the entity restricted by the translated query,
+     *         without ordering, projection or limit
+     */
+    protected <T, R> Criteria getRestrictedCriteria(Query<T, R> query) {
+        final Criterion translated = queryTranslator.translate(query);
+        if (log.isDebugEnabled()) {
+            log.debug(translated);
+        }
+        final Criteria criteria = getSession().createCriteria(query.getEntityClass());
+        if (translated != null) {
+            criteria.add(translated);
         }
         return criteria;
     }
 
     protected Session getSession() {
-        return sessionFactory.getCurrentSession();
+        final Session session = boundSession.get();
+        return session != null ? session : sessionFactory.getCurrentSession();
+    }
+    
+    /**
+     * Use the session for the operations of the current thread, instead of
+     * the current session of the session factory, until it is unbound.
+     */
+    void bindSession(Session session) {
+        boundSession.set(session);
+    }
+    
+    void unbindSession() {
+        boundSession.remove();
+    }
+    
+    protected SessionFactory getSessionFactory() {
+        return sessionFactory;
     }
     
     protected HibernateProjectedResultMapper getMapper() {
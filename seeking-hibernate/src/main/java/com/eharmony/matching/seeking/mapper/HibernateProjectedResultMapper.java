@@ -20,9 +20,12 @@ import java.util.List;
 
 import org.hibernate.ScrollableResults;
 
+import com.eharmony.matching.seeking.executor.IteratorResultStream;
+import com.eharmony.matching.seeking.executor.ResultStream;
 import com.eharmony.matching.seeking.query.Query;
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
 /**
@@ -84,5 +87,27 @@ public class HibernateProjectedResultMapper {
                 });
     }
     
+    /**
+     * Map the scrollable results as they are iterated. Closing the stream
+     * closes the scrollable results.
+     */
+    public <T, R> ResultStream<R> streamResults(ScrollableResults objects,
+            final Query<T, R> query) {
+        final ScrollableResultsIterator iterator = new ScrollableResultsIterator(objects);
+        final String[] returnFields = returnFields(query);
+        return new IteratorResultStream<R>(Iterators.transform(iterator,
+                new Function<Object, R>() {
+                    @Override
+                    public R apply(Object arg0) {
+                        return mapResult(arg0, query, returnFields);
+                    }
+                })) {
+            @Override
+            protected void release() {
+                iterator.close();
+            }
+        };
+    }
+    
 
 }
@@ -23,22 +23,24 @@ import javax.annotation.concurrent.NotThreadSafe;
 import org.hibernate.ScrollableResults;
 
 /**
- * An iterator for Hibernate's scrollable results
+ * An iterator for Hibernate's scrollable results. The results are closed once
+ * they are exhausted, or when the iterator is closed.
  */
 @NotThreadSafe
 public class ScrollableResultsIterator implements Iterator<Object> {
     
     private final ScrollableResults scrollable;
     private Object current = null;
+    private boolean closed = false;
     
     public ScrollableResultsIterator(ScrollableResults scrollableResults) {
         this.scrollable = scrollableResults;
     }
 
     private boolean updateCurrent() {
-        if (!scrollable.next()) {
+        if (closed || !scrollable.next()) {
             current = null;
-            scrollable.close();
+            close();
             return false;
         } else {
             Object[] row = scrollable.get();
@@ -67,4 +69,14 @@ public class ScrollableResultsIterator implements Iterator<Object> {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Close the scrollable results, if they are not closed yet.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            scrollable.close();
+        }
+    }
+
 }
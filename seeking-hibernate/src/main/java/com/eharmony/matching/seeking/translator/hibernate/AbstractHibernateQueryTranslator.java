@@ -17,8 +17,10 @@
 package com.eharmony.matching.seeking.translator.hibernate;
 
 import com.eharmony.matching.seeking.handler.hibernate.ContainsExpressionHandler;
+import com.eharmony.matching.seeking.query.Query;
 import com.eharmony.matching.seeking.query.criterion.Operator;
 import com.eharmony.matching.seeking.query.criterion.expression.Distance2dExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.NearExpression;
 import com.eharmony.matching.seeking.query.criterion.expression.UnaryExpression;
 import com.eharmony.matching.seeking.query.geometry.Box;
 import com.eharmony.matching.seeking.query.geometry.BoxMaker;
@@ -68,6 +70,11 @@ public abstract class AbstractHibernateQueryTranslator<Q, O, P> extends
         if (Operator.WITHIN.equals(operator)) {
             Box<N> box = boxMaker.make(new Point<N>(e.getX(), e.getY()), e.getDistance());
             return within(xFieldName, yFieldName, box);
+        } else if (Operator.NEAR.equals(operator)) {
+            // ordered by distance and limited by the executor
+            Point<N> center = new Point<N>(e.getX(), e.getY());
+            return near(xFieldName, yFieldName, boxMaker.make(center,
+                    e.getDistance()), center, e.getDistance());
         } else {
             throw unsupported(operator, UnaryExpression.class);
         }
@@ -83,6 +90,50 @@ public abstract class AbstractHibernateQueryTranslator<Q, O, P> extends
     public abstract <N extends Number & Comparable<N>> Q within(
             String xFieldName, String yFieldName, Box<N> box);
     
+    /**
+     * Translate the restriction of a near statement: within the box, which
+     * an index on the coordinates can serve, and within the max distance of
+     * the center, so that the results in the corners of the box are excluded
+     * as by the other data stores
+     * 
+     * @param xFieldName
+     * @param yFieldName
+     * @param box
+     *            the box around the circle of the max distance
+     * @param center
+     * @param maxDistance
+     * @return
+     */
+    public abstract <N extends Number & Comparable<N>> Q near(
+            String xFieldName, String yFieldName, Box<N> box,
+            Point<N> center, Number maxDistance);
+    
+    /**
+     * Order a query with a near restriction by distance, closest first (see
+     * {@link NearExpression})
+     * 
+     * @see com.eharmony.matching.seeking.translator.AbstractQueryTranslator#translateOrder(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> O translateOrder(Query<T, R> query) {
+        NearExpression<?> near = NearExpression.of(query);
+        if (near == null) {
+            return super.translateOrder(query);
+        }
+        return nearest(
+                getPropertyResolver().resolveXField(near.getPropertyName(),
+                        query.getEntityClass()),
+                getPropertyResolver().resolveYField(near.getPropertyName(),
+                        query.getEntityClass()), near.getX(), near.getY());
+    }
+    
+    /**
+     * @return the order by distance of the x and y fields from the point,
+     *         closest first
+     */
+    public abstract O nearest(String xFieldName, String yFieldName, Number x,
+            Number y);
+    
     @Override
     public Q contains(String fieldName, Object[] values) {
         return containsExpressionHandler.contains(fieldName, values);
@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.translator.hibernate;
+
+import java.util.List;
+
+import com.eharmony.matching.seeking.metadata.SeekingMetadataRegistry;
+import com.eharmony.matching.seeking.translator.CachingPropertyResolver;
+
+/**
+ * A caching HibernatePropertyResolver decorator. Besides property names, the
+ * 2D coordinate fields resolved from the @XField and @YField annotations are
+ * cached per entity class so that geometric queries do not scan the declared
+ * fields of the coordinate type every time.
+ */
+public class CachingHibernatePropertyResolver extends CachingPropertyResolver
+        implements HibernatePropertyResolver {
+
+    private final ResolutionTable resolvedX = new ResolutionTable();
+    private final ResolutionTable resolvedY = new ResolutionTable();
+
+    public CachingHibernatePropertyResolver(
+            HibernatePropertyResolver propertyResolver) {
+        super(propertyResolver);
+    }
+
+    @Override
+    protected HibernatePropertyResolver getPropertyResolver() {
+        return (HibernatePropertyResolver) super.getPropertyResolver();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.translator.hibernate.HibernatePropertyResolver#resolveXField(java.lang.String, java.lang.Class)
+     */
+    @Override
+    public String resolveXField(String propertyName, Class<?> entityClass) {
+        String name = resolvedX.get(entityClass, propertyName);
+        if (name == null) {
+            name = getPropertyResolver().resolveXField(propertyName, entityClass);
+            resolvedX.put(entityClass, propertyName, name);
+        }
+        return name;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.translator.hibernate.HibernatePropertyResolver#resolveYField(java.lang.String, java.lang.Class)
+     */
+    @Override
+    public String resolveYField(String propertyName, Class<?> entityClass) {
+        String name = resolvedY.get(entityClass, propertyName);
+        if (name == null) {
+            name = getPropertyResolver().resolveYField(propertyName, entityClass);
+            resolvedY.put(entityClass, propertyName, name);
+        }
+        return name;
+    }
+
+    /**
+     * Resolve and cache the coordinate fields of the provided geometric
+     * properties ahead of the first query.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @param propertyNames
+     *            the geometric properties
+     */
+    public void preloadGeometric(Class<?> entityClass, String... propertyNames) {
+        for (String propertyName : propertyNames) {
+            resolveXField(propertyName, entityClass);
+            resolveYField(propertyName, entityClass);
+        }
+    }
+
+    /**
+     * Resolve and cache the property paths and the coordinate fields of the
+     * geometric properties of the registered entity classes.
+     */
+    @Override
+    public void warmUp(SeekingMetadataRegistry registry) {
+        super.warmUp(registry);
+        for (Class<?> entityClass : registry.getEntityClasses()) {
+            List<String> geometric = registry.getGeometricProperties(entityClass);
+            preloadGeometric(entityClass,
+                    geometric.toArray(new String[geometric.size()]));
+        }
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        resolvedX.clear();
+        resolvedY.clear();
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.translator.hibernate;
+
+import java.math.BigDecimal;
+
+import org.hibernate.Criteria;
+import org.hibernate.HibernateException;
+import org.hibernate.criterion.CriteriaQuery;
+import org.hibernate.criterion.Order;
+
+/**
+ * Orders by the distance of the x and y properties from a point, closest
+ * first: the order of the results of a near query. The squared distance is
+ * compared, which orders the same without a square root function.
+ */
+public class DistanceOrder extends Order {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String xPropertyName;
+    private final String yPropertyName;
+    private final Number x;
+    private final Number y;
+
+    public DistanceOrder(String xPropertyName, String yPropertyName, Number x,
+            Number y) {
+        super(xPropertyName, true);
+        this.xPropertyName = xPropertyName;
+        this.yPropertyName = yPropertyName;
+        this.x = x;
+        this.y = y;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.hibernate.criterion.Order#toSqlString(org.hibernate.Criteria, org.hibernate.criterion.CriteriaQuery)
+     */
+    @Override
+    public String toSqlString(Criteria criteria, CriteriaQuery criteriaQuery)
+            throws HibernateException {
+        return squaredDistance(
+                criteriaQuery.getColumnsUsingProjection(criteria,
+                        xPropertyName)[0],
+                criteriaQuery.getColumnsUsingProjection(criteria,
+                        yPropertyName)[0], x, y)
+                + " asc";
+    }
+
+    /**
+     * @return the SQL or HQL expression of the squared distance of the x and
+     *         y columns or properties from the point, with its coordinates
+     *         inlined
+     */
+    public static String squaredDistance(String xColumn, String yColumn,
+            Number x, Number y) {
+        return square(xColumn, x) + " + " + square(yColumn, y);
+    }
+
+    /**
+     * @return the SQL or HQL literal of the number
+     */
+    public static String literal(Number value) {
+        return BigDecimal.valueOf(value.doubleValue()).toPlainString();
+    }
+
+    private static String square(String column, Number value) {
+        String difference = "(" + column + " - " + literal(value) + ")";
+        return difference + " * " + difference;
+    }
+
+    @Override
+    public String toString() {
+        return "distance(" + xPropertyName + ", " + yPropertyName + ") from ("
+                + x + ", " + y + ") asc";
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.translator.hibernate;
+
+import org.hibernate.Criteria;
+import org.hibernate.HibernateException;
+import org.hibernate.criterion.CriteriaQuery;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.engine.spi.TypedValue;
+
+/**
+ * Restricts the x and y properties to the max distance of a point, comparing
+ * their squared distance (see {@link DistanceOrder}) to the squared max
+ * distance.
+ */
+public class DistanceRestriction implements Criterion {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final TypedValue[] NO_VALUES = new TypedValue[0];
+
+    private final String xPropertyName;
+    private final String yPropertyName;
+    private final Number x;
+    private final Number y;
+    private final Number maxDistance;
+
+    public DistanceRestriction(String xPropertyName, String yPropertyName,
+            Number x, Number y, Number maxDistance) {
+        this.xPropertyName = xPropertyName;
+        this.yPropertyName = yPropertyName;
+        this.x = x;
+        this.y = y;
+        this.maxDistance = maxDistance;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.hibernate.criterion.Criterion#toSqlString(org.hibernate.Criteria, org.hibernate.criterion.CriteriaQuery)
+     */
+    @Override
+    public String toSqlString(Criteria criteria, CriteriaQuery criteriaQuery)
+            throws HibernateException {
+        double distance = maxDistance.doubleValue();
+        return DistanceOrder.squaredDistance(
+                criteriaQuery.getColumnsUsingProjection(criteria,
+                        xPropertyName)[0],
+                criteriaQuery.getColumnsUsingProjection(criteria,
+                        yPropertyName)[0], x, y)
+                + " <= " + DistanceOrder.literal(distance * distance);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.hibernate.criterion.Criterion#getTypedValues(org.hibernate.Criteria, org.hibernate.criterion.CriteriaQuery)
+     */
+    @Override
+    public TypedValue[] getTypedValues(Criteria criteria,
+            CriteriaQuery criteriaQuery) throws HibernateException {
+        // the values are inlined
+        return NO_VALUES;
+    }
+
+    @Override
+    public String toString() {
+        return "distance(" + xPropertyName + ", " + yPropertyName + ") from ("
+                + x + ", " + y + ") <= " + maxDistance;
+    }
+
+}
@@ -28,10 +28,13 @@ import org.hibernate.criterion.Restrictions;
 import com.eharmony.matching.seeking.handler.hibernate.ContainsExpressionHandler;
 import com.eharmony.matching.seeking.handler.hibernate.ContainsExpressionNonHandler;
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
 import com.eharmony.matching.seeking.query.criterion.Ordering;
 import com.eharmony.matching.seeking.query.criterion.expression.NativeExpression;
 import com.eharmony.matching.seeking.query.geometry.Box;
 import com.eharmony.matching.seeking.query.geometry.BoxMaker;
+import com.eharmony.matching.seeking.query.geometry.Point;
 import com.eharmony.matching.seeking.query.geometry.SimpleBoxMaker;
 import com.eharmony.matching.seeking.translator.QueryTranslator;
 
@@ -149,6 +152,15 @@ public class HibernateQueryTranslator extends
         );
     }
 
+    @Override
+    public <N extends Number & Comparable<N>> Criterion near(
+            String xFieldName, String yFieldName, Box<N> box,
+            Point<N> center, Number maxDistance) {
+        return and(within(xFieldName, yFieldName, box),
+                new DistanceRestriction(xFieldName, yFieldName,
+                        center.getX(), center.getY(), maxDistance));
+    }
+
     @Override
     public Criterion and(Criterion... subqueries) {
         Conjunction conjunction = Restrictions.conjunction();
@@ -173,6 +185,12 @@ public class HibernateQueryTranslator extends
                 ? Order.asc(fieldName) : Order.desc(fieldName));
     }
 
+    @Override
+    public Orders nearest(String xFieldName, String yFieldName, Number x,
+            Number y) {
+        return new Orders(new DistanceOrder(xFieldName, yFieldName, x, y));
+    }
+
     @Override
     public Orders order(Orders... orders) {
         Orders merged = new Orders();
@@ -198,4 +216,41 @@ public class HibernateQueryTranslator extends
             return null;
         }
     }
+
+    /**
+     * Translate the group by properties of an aggregation followed by its
+     * aggregates
+     * 
+     * @param aggregation
+     * @return the projections, in that order
+     */
+    public <T> ProjectionList translateProjection(Aggregation<T> aggregation) {
+        ProjectionList projectionList = Projections.projectionList();
+        for (String groupBy : aggregation.getGroupBy()) {
+            projectionList.add(Projections.groupProperty(groupBy));
+        }
+        for (Aggregate aggregate : aggregation.getAggregates()) {
+            projectionList.add(projection(aggregate));
+        }
+        return projectionList;
+    }
+
+    protected Projection projection(Aggregate aggregate) {
+        String propertyName = aggregate.getPropertyName();
+        switch (aggregate.getFunction()) {
+        case COUNT:
+            return Projections.rowCount();
+        case SUM:
+            return Projections.sum(propertyName);
+        case MIN:
+            return Projections.min(propertyName);
+        case MAX:
+            return Projections.max(propertyName);
+        case AVG:
+            return Projections.avg(propertyName);
+        default:
+            throw new UnsupportedOperationException(aggregate.getFunction()
+                    + " not supported");
+        }
+    }
 }
@@ -20,15 +20,22 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.eharmony.matching.seeking.handler.hibernate.ContainsExpressionHandler;
 import com.eharmony.matching.seeking.handler.hibernate.ContainsExpressionNonHandler;
 import com.eharmony.matching.seeking.query.Query;
 import com.eharmony.matching.seeking.query.criterion.Ordering.Order;
+import com.eharmony.matching.seeking.query.criterion.Parameter;
 import com.eharmony.matching.seeking.query.criterion.expression.NativeExpression;
 import com.eharmony.matching.seeking.query.geometry.Box;
 import com.eharmony.matching.seeking.query.geometry.BoxMaker;
+import com.eharmony.matching.seeking.query.geometry.Point;
 import com.eharmony.matching.seeking.query.geometry.SimpleBoxMaker;
+import com.eharmony.matching.seeking.query.update.Update;
+import com.eharmony.matching.seeking.query.update.Updates;
 import com.eharmony.matching.seeking.translator.QueryTranslator;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
@@ -42,6 +49,8 @@ public class HqlQueryTranslator extends
         QueryTranslator<String, String, String> {
 
     public static final String TIMESTAMP_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    // named parameters of the values in an update statement
+    public static final String UPDATE_PARAMETER_PREFIX = "update";
     private final Function<Object, String> toString = new Function<Object, String>() {
         @Override
         public String apply(Object o) {
@@ -69,9 +78,12 @@ public class HqlQueryTranslator extends
 
     protected String string(Object o) {
         if (o instanceof Object[]) {
-            return "[" + Joiner.on(",").join(
+            return "(" + Joiner.on(",").join(
                     Lists.transform(Arrays.asList((Object[])o), toString)
-            ) + "]";
+            ) + ")";
+        } else if (o instanceof Parameter) {
+            // bound as an HQL named parameter
+            return ":" + ((Parameter) o).getName();
         } else if (o instanceof String) {
             return "\"" + ((String)o).replace("\"", "\\\"") + "\"";
         } else if (o instanceof Character) {
@@ -167,6 +179,16 @@ public class HqlQueryTranslator extends
         );
     }
 
+    @Override
+    public <N extends Number & Comparable<N>> String near(String xFieldName,
+            String yFieldName, Box<N> box, Point<N> center, Number maxDistance) {
+        double distance = maxDistance.doubleValue();
+        return and(within(xFieldName, yFieldName, box),
+                DistanceOrder.squaredDistance(xFieldName, yFieldName,
+                        center.getX(), center.getY())
+                        + " <= " + DistanceOrder.literal(distance * distance));
+    }
+
     @Override
     public String and(String... subqueries) {
         return junction(HibernateOperator.AND, subqueries);
@@ -192,11 +214,121 @@ public class HqlQueryTranslator extends
         return fieldName + " " + (Order.ASCENDING.equals(o) ? "asc" : "desc");
     }
 
+    @Override
+    public String nearest(String xFieldName, String yFieldName, Number x,
+            Number y) {
+        return DistanceOrder.squaredDistance(xFieldName, yFieldName, x, y)
+                + " asc";
+    }
+
     @Override
     public String order(String... orders) {
         return Joiner.on(", ").join(orders);
     }
 
+    /**
+     * Translate the query into a complete HQL statement. Parameters of the
+     * query are rendered as HQL named parameters.
+     * 
+     * @param query
+     *            the query to translate
+     * @return the HQL statement
+     */
+    public <T, R> String translateStatement(Query<T, R> query) {
+        StringBuilder hql = new StringBuilder();
+        String projection = translateProjection(query);
+        if (projection != null) {
+            hql.append("select ").append(projection).append(" ");
+        }
+        where(hql.append("from ").append(query.getEntityClass().getName()),
+                query);
+        String order = translateOrder(query);
+        if (!order.isEmpty()) {
+            hql.append(" order by ").append(order);
+        }
+        return hql.toString();
+    }
+
+    /**
+     * Translate the query into an HQL bulk delete statement. Ordering and
+     * projection are ignored.
+     * 
+     * @param query
+     *            the query to translate
+     * @return the HQL statement
+     */
+    public <T, R> String translateDelete(Query<T, R> query) {
+        return where(new StringBuilder("delete from ").append(
+                query.getEntityClass().getName()), query).toString();
+    }
+
+    /**
+     * Translate the query and updates into an HQL bulk update statement. The
+     * values of the updates are rendered as named parameters, see
+     * {@link #translateUpdateParameters(Updates)}.
+     * 
+     * @param query
+     *            the query selecting the records to update
+     * @param updates
+     *            the updates to apply
+     * @return the HQL statement
+     */
+    public <T, R> String translateUpdate(Query<T, R> query, Updates updates) {
+        StringBuilder hql = new StringBuilder("update ").append(
+                query.getEntityClass().getName()).append(" set ");
+        List<Update> list = updates.get();
+        for (int i = 0; i < list.size(); i++) {
+            Update update = list.get(i);
+            String fieldName = getPropertyResolver().resolve(
+                    update.getPropertyName(), query.getEntityClass());
+            if (i > 0) {
+                hql.append(", ");
+            }
+            hql.append(fieldName).append(" = ");
+            switch (update.getOperation()) {
+            case SET:
+                hql.append(":").append(UPDATE_PARAMETER_PREFIX).append(i);
+                break;
+            case INC:
+                hql.append(fieldName).append(" + :")
+                        .append(UPDATE_PARAMETER_PREFIX).append(i);
+                break;
+            case UNSET:
+                hql.append("null");
+                break;
+            default:
+                throw new UnsupportedOperationException(update.getOperation()
+                        + " not supported");
+            }
+        }
+        return where(hql, query).toString();
+    }
+
+    /**
+     * @param updates
+     * @return the named parameters of the statement translated by
+     *         {@link #translateUpdate(Query, Updates)}
+     */
+    public Map<String, Object> translateUpdateParameters(Updates updates) {
+        Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+        List<Update> list = updates.get();
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).getOperation() != Update.Operation.UNSET) {
+                parameters.put(UPDATE_PARAMETER_PREFIX + i, list.get(i)
+                        .getValue());
+            }
+        }
+        return parameters;
+    }
+
+    private <T, R> StringBuilder where(StringBuilder hql, Query<T, R> query) {
+        String where = translate(query);
+        if (where != null && !where.isEmpty()) {
+            hql.append(" where ").append(where);
+        }
+        return hql;
+    }
+
     @Override
     public <T, R> String translateProjection(Query<T, R> query) {
         return query.getReturnFields().size() > 0 
@@ -0,0 +1,74 @@
+package com.eharmony.matching.seeking.executor.hibernate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ExecutionException;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import com.eharmony.matching.seeking.executor.DataStoreException;
+import com.eharmony.matching.seeking.translator.hibernate.HibernateQueryTranslator;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class AsyncHibernateQueryExecutorTest {
+
+    private final SessionFactory sessionFactory = mock(SessionFactory.class);
+    private final Session session = mock(Session.class);
+    private final Transaction transaction = mock(Transaction.class);
+    private final HibernateQueryExecutor queryExecutor = new HibernateQueryExecutor(
+            sessionFactory, mock(HibernateQueryTranslator.class));
+    private final AsyncHibernateQueryExecutor executor = new AsyncHibernateQueryExecutor(
+            queryExecutor, MoreExecutors.sameThreadExecutor());
+
+    public AsyncHibernateQueryExecutorTest() {
+        when(sessionFactory.openSession()).thenReturn(session);
+        when(session.beginTransaction()).thenReturn(transaction);
+    }
+
+    @Test
+    public void saveAsync() throws Exception {
+        assertEquals("entity", executor.saveAsync("entity").get());
+        InOrder inOrder = inOrder(session, transaction);
+        inOrder.verify(session).beginTransaction();
+        inOrder.verify(session).save("entity");
+        inOrder.verify(transaction).commit();
+        inOrder.verify(session).close();
+        verify(sessionFactory, never()).getCurrentSession();
+    }
+
+    @Test
+    public void saveAsync_failure() throws Exception {
+        when(transaction.isActive()).thenReturn(true);
+        doThrow(new HibernateException("failed")).when(session).save("entity");
+        try {
+            executor.saveAsync("entity").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DataStoreException);
+        }
+        verify(transaction).rollback();
+        verify(transaction, never()).commit();
+        verify(session).close();
+    }
+
+    @Test
+    public void sessionUnbound() throws Exception {
+        executor.saveAsync("entity").get();
+        Session current = mock(Session.class);
+        when(sessionFactory.getCurrentSession()).thenReturn(current);
+        assertEquals(current, queryExecutor.getSession());
+    }
+}
@@ -3,6 +3,7 @@ package com.eharmony.matching.seeking.executor.hibernate;
 import static com.eharmony.matching.seeking.query.criterion.Restrictions.between;
 import static com.eharmony.matching.seeking.query.criterion.Restrictions.eq;
 import static com.eharmony.matching.seeking.query.criterion.Restrictions.in;
+import static com.eharmony.matching.seeking.query.criterion.Restrictions.near;
 import static com.eharmony.matching.seeking.query.criterion.Restrictions.within;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -110,5 +111,13 @@ public abstract class BaseHibernateQueryExecutorHsqldbIntegrationTest extends Ba
         assertTrue(list.contains(t5));
         assertTrue(list.contains(t6));
     }
+    
+    @Test
+    public void find_nearLatLon() {
+        Iterable<TestClass> found = executor().find(QueryBuilder
+                .builderFor(entityClass).add(near("latLon", 1.9D, 2.1D, 3, 1.5D))
+                .build());
+        assertEquals(Arrays.asList(t9, t7, t8), Lists.newArrayList(found));
+    }
 
 }
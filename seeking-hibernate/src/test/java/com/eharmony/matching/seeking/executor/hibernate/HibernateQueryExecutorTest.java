@@ -1,15 +1,32 @@
 package com.eharmony.matching.seeking.executor.hibernate;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+import org.hibernate.criterion.Projection;
 import org.junit.Test;
 
 import com.eharmony.matching.seeking.executor.QueryExecutor;
 import com.eharmony.matching.seeking.mapper.ProjectedResultMapper;
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.QueryHints;
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.builder.AggregationBuilder;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
+import com.eharmony.matching.seeking.query.update.Updates;
 import com.eharmony.matching.seeking.test.TestClass;
+import com.eharmony.matching.seeking.translator.hibernate.HqlQueryTranslator;
+import com.eharmony.matching.seeking.translator.hibernate.Orders;
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 
@@ -37,6 +54,88 @@ public class HibernateQueryExecutorTest extends BaseHibernateQueryExecutorTest {
         verify(criteria).list();
     }
     
+    @Test
+    public void find_hints() {
+        Query<TestClass, TestClass> hinted = QueryBuilder
+                .builderFor(TestClass.class)
+                .addHint(QueryHints.COMMENT, "nightly")
+                .addHint(QueryHints.CACHE, true)
+                .addHint(QueryHints.MAX_SCAN, 10).build();
+        when(queryTranslator.translateOrder(hinted)).thenReturn(new Orders());
+        when(criteria.list()).thenReturn(Arrays.asList(tests));
+        executor.find(hinted);
+        verify(criteria).setComment("nightly");
+        verify(criteria).setCacheable(true);
+    }
+    
+    @Test
+    public void find_near() {
+        Query<TestClass, TestClass> near = QueryBuilder
+                .builderFor(TestClass.class)
+                .add(Restrictions.near("latLon", 0D, 0D, 5, 1D))
+                .setMaxResults(10).build();
+        when(queryTranslator.translateOrder(near)).thenReturn(new Orders());
+        when(criteria.list()).thenReturn(Arrays.asList(tests));
+        executor.find(near);
+        verify(criteria).setMaxResults(5);
+    }
+    
+    @Test
+    public void count() {
+        when(criteria.setProjection(any(Projection.class))).thenReturn(criteria);
+        when(criteria.uniqueResult()).thenReturn(3L);
+        assertEquals(3L, executor.count(query));
+        verify(criteria).uniqueResult();
+    }
+    
+    @Test
+    public void aggregate() {
+        when(criteria.setProjection(any(Projection.class))).thenReturn(criteria);
+        when(criteria.list()).thenReturn(Arrays.<Object> asList(
+                new Object[] { "a", 2 }, new Object[] { "b", 1 }));
+        List<AggregateResult> results = executor.aggregate(AggregationBuilder
+                .builderFor(TestClass.class).groupBy("name")
+                .aggregate(Aggregate.count()).build());
+        assertEquals(2, results.size());
+        assertEquals("a", results.get(0).getGroup("name"));
+        assertEquals(2L, results.get(0).getValue(Aggregate.count()));
+        assertEquals("b", results.get(1).getGroup("name"));
+        assertEquals(1L, results.get(1).getValue(Aggregate.count()));
+    }
+    
+    @Test
+    public void save_manyBatched() {
+        HibernateQueryExecutor batched = new HibernateQueryExecutor(
+                sessionFactory, queryTranslator, null,
+                new ProjectedResultMapper(), 4);
+        batched.save(Arrays.asList(tests));
+        verify(session, times(tests.length)).save(any());
+        // flushed and cleared after the first four only
+        verify(session, times(1)).flush();
+        verify(session, times(1)).clear();
+    }
+    
+    @Test
+    public void update() {
+        HqlQueryTranslator hqlQueryTranslator = mock(HqlQueryTranslator.class);
+        Updates updates = new Updates().inc("number", 1);
+        when(hqlQueryTranslator.translateUpdate(query, updates)).thenReturn("update");
+        when(hqlQueryTranslator.translateUpdateParameters(updates)).thenReturn(
+                Collections.<String, Object> singletonMap("update0", 1));
+        org.hibernate.Query statement = mock(org.hibernate.Query.class);
+        when(session.createQuery("update")).thenReturn(statement);
+        new HibernateQueryExecutor(sessionFactory, queryTranslator,
+                hqlQueryTranslator, new ProjectedResultMapper()).update(query,
+                updates);
+        verify(statement).setParameter("update0", 1);
+        verify(statement).executeUpdate();
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void delete_withoutHql() {
+        executor.delete(query);
+    }
+    
     @Test
     public void find_manyIds() {
         when(criteria.list()).thenReturn(Lists.transform(Arrays.asList(tests), new Function<TestClass, Long>() {
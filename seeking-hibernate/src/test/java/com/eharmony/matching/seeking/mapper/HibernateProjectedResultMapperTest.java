@@ -2,6 +2,7 @@ package com.eharmony.matching.seeking.mapper;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.*;
 
@@ -11,8 +12,10 @@ import java.util.List;
 import org.junit.After;
 import org.junit.Test;
 
+import com.eharmony.matching.seeking.executor.ResultStream;
 import com.eharmony.matching.seeking.query.Query;
 import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.test.MockScrollableResults;
 import com.eharmony.matching.seeking.test.TestClass;
 
 public class HibernateProjectedResultMapperTest {
@@ -99,4 +102,25 @@ public class HibernateProjectedResultMapperTest {
     public void mapResults_unprojected() {
         assertEquals(strings, hMapper.mapResults(strings, unprojected));
     }
+    
+    @Test
+    public void streamResults_exhausted() {
+        MockScrollableResults scrollable = spy(new MockScrollableResults("a", "b"));
+        ResultStream<String> results = hMapper.streamResults(scrollable, unprojected);
+        assertEquals("a", results.next());
+        assertEquals("b", results.next());
+        assertFalse(results.hasNext());
+        results.close();
+        verify(scrollable, times(1)).close();
+    }
+    
+    @Test
+    public void streamResults_closedEarly() {
+        MockScrollableResults scrollable = spy(new MockScrollableResults("a", "b"));
+        ResultStream<String> results = hMapper.streamResults(scrollable, unprojected);
+        assertEquals("a", results.next());
+        results.close();
+        assertFalse(results.hasNext());
+        verify(scrollable, times(1)).close();
+    }
 }
@@ -13,6 +13,7 @@ import com.eharmony.matching.seeking.query.criterion.Operator;
 import com.eharmony.matching.seeking.query.criterion.Ordering.Order;
 import com.eharmony.matching.seeking.query.criterion.expression.Distance2dExpression;
 import com.eharmony.matching.seeking.query.criterion.expression.NativeExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.NearExpression;
 import com.eharmony.matching.seeking.query.geometry.Box;
 import com.eharmony.matching.seeking.query.geometry.BoxMaker;
 import com.eharmony.matching.seeking.query.geometry.Point;
@@ -132,6 +133,20 @@ public class AbstractHibernateQueryTranslatorTest {
             return join(Operator.WITHIN, xFieldName, yFieldName, box.toString());
         }
 
+        @Override
+        public <N extends Number & Comparable<N>> String near(
+                String xFieldName, String yFieldName, Box<N> box,
+                Point<N> center, Number maxDistance) {
+            return join(Operator.NEAR, xFieldName, yFieldName, box.toString(),
+                    center.getX(), center.getY(), maxDistance);
+        }
+
+        @Override
+        public String nearest(String xFieldName, String yFieldName,
+                Number x, Number y) {
+            return join(Operator.NEAR, xFieldName, yFieldName, x, y);
+        }
+
         @Override
         public <T, R> String translateProjection(Query<T, R> query) {
             throw new RuntimeException("shouldn't be here");
@@ -168,6 +183,21 @@ public class AbstractHibernateQueryTranslatorTest {
         verify_translate_Distance2dExpression(Operator.WITHIN);
     }
     
+    @Test
+    public void translate_NearExpression() {
+        Query<Test, Test> query = query(new NearExpression<Double>(property,
+                x, y, 10, distance));
+        assertEquals(join(Operator.NEAR,
+                resolver.resolveXField(property, entityClass),
+                resolver.resolveYField(property, entityClass),
+                boxMaker.make(new Point<Double>(x, y), distance), x, y,
+                distance), translator.translate(query));
+        assertEquals(join(Operator.NEAR,
+                resolver.resolveXField(property, entityClass),
+                resolver.resolveYField(property, entityClass), x, y),
+                translator.translateOrder(query));
+    }
+    
     @Test(expected = UnsupportedOperationException.class)
     public void unexpected_Distance2dExpression() {
         translator.translate(new Distance2dExpression<Double>(Operator.EQUAL, property, x, y, distance), entityClass);
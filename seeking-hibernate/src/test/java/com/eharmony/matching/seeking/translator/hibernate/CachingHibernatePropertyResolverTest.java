@@ -0,0 +1,46 @@
+package com.eharmony.matching.seeking.translator.hibernate;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+public class CachingHibernatePropertyResolverTest {
+
+    private final HibernatePropertyResolver delegate = mock(HibernatePropertyResolver.class);
+    private final CachingHibernatePropertyResolver resolver = new CachingHibernatePropertyResolver(delegate);
+
+    @Test
+    public void resolve() {
+        when(delegate.resolve("a", String.class)).thenReturn("x");
+        assertEquals("x", resolver.resolve("a", String.class));
+        assertEquals("x", resolver.resolve("a", String.class));
+        verify(delegate, times(1)).resolve("a", String.class);
+    }
+
+    @Test
+    public void resolveXYFields() {
+        when(delegate.resolveXField("location", String.class)).thenReturn("location.lon");
+        when(delegate.resolveYField("location", String.class)).thenReturn("location.lat");
+        for (int i = 0; i < 2; i++) {
+            assertEquals("location.lon", resolver.resolveXField("location", String.class));
+            assertEquals("location.lat", resolver.resolveYField("location", String.class));
+        }
+        verify(delegate, times(1)).resolveXField("location", String.class);
+        verify(delegate, times(1)).resolveYField("location", String.class);
+    }
+
+    @Test
+    public void preloadGeometric() {
+        when(delegate.resolveXField("location", String.class)).thenReturn("location.lon");
+        when(delegate.resolveYField("location", String.class)).thenReturn("location.lat");
+        resolver.preloadGeometric(String.class, "location");
+        assertEquals("location.lon", resolver.resolveXField("location", String.class));
+        verify(delegate, times(1)).resolveXField("location", String.class);
+        verify(delegate, times(1)).resolveYField("location", String.class);
+    }
+
+}
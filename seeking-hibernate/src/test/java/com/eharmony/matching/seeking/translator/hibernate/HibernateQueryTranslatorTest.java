@@ -16,6 +16,8 @@ import org.mockito.cglib.beans.BeanMap;
 
 import com.eharmony.matching.seeking.handler.hibernate.ContainsExpressionHandler;
 import com.eharmony.matching.seeking.handler.hibernate.ContainsExpressionNonHandler;
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.builder.AggregationBuilder;
 import com.eharmony.matching.seeking.query.builder.QueryBuilder;
 import com.eharmony.matching.seeking.query.criterion.Ordering;
 import com.eharmony.matching.seeking.query.criterion.expression.NativeExpression;
@@ -162,6 +164,17 @@ public class HibernateQueryTranslatorTest {
             ), translator.within(xprop, yprop, box));
     }
     
+    @Test
+    public void near() {
+        String xprop = "property.x";
+        String yprop = "property.y";
+        Point<Integer> center = new Point<Integer>(1, 1);
+        assertEquals(Restrictions.conjunction()
+                .add(translator.within(xprop, yprop, box))
+                .add(new DistanceRestriction(xprop, yprop, 1, 1, 1))
+                .toString(), translator.near(xprop, yprop, box, center, 1).toString());
+    }
+    
     @Test
     public void or() {
         Criterion o1 = Restrictions.eq(property, value);
@@ -226,4 +239,18 @@ public class HibernateQueryTranslatorTest {
                 String.class, String.class, "a", "b", "c").build());
         assertArrayEquals(expected.getAliases(), actual.getAliases());
     }
+    
+    @Test
+    public void translateProjection_aggregation() {
+        ProjectionList expected = Projections.projectionList()
+                .add(Projections.groupProperty("a"))
+                .add(Projections.rowCount())
+                .add(Projections.sum("b"))
+                .add(Projections.avg("c"));
+        Projection actual = translator.translateProjection(AggregationBuilder
+                .builderFor(String.class).groupBy("a")
+                .aggregate(Aggregate.count(), Aggregate.sum("b"), Aggregate.avg("c"))
+                .build());
+        assertEquals(expected.toString(), actual.toString());
+    }
 }
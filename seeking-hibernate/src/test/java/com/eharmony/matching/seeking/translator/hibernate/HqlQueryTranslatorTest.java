@@ -4,17 +4,22 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
 import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.junit.Test;
 
 import com.eharmony.matching.seeking.handler.hibernate.ContainsExpressionHandler;
 import com.eharmony.matching.seeking.handler.hibernate.ContainsExpressionNonHandler;
 import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
 import com.eharmony.matching.seeking.query.criterion.Ordering.Order;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
 import com.eharmony.matching.seeking.query.geometry.Box;
 import com.eharmony.matching.seeking.query.geometry.BoxMaker;
 import com.eharmony.matching.seeking.query.geometry.Point;
 import com.eharmony.matching.seeking.query.geometry.SimpleBoxMaker;
+import com.eharmony.matching.seeking.query.update.Updates;
 import com.eharmony.matching.seeking.test.MockHibernatePropertyResolver;
 import com.google.common.base.Joiner;
 
@@ -247,4 +252,75 @@ public class HqlQueryTranslatorTest {
                 translator.translateProjection(QueryBuilder.builderFor(
                         String.class, String.class, "a", "b", "c").build()));
     }
+    
+    @Test
+    public void string_Parameter() {
+        assertEquals(":age", translator.string(Restrictions.param("age")));
+    }
+    
+    @Test
+    public void translateStatement() {
+        assertEquals("select a,b from java.lang.String where (a = :a) and (b in (1,:b)) order by a desc",
+                translator.translateStatement(QueryBuilder
+                        .builderFor(String.class, String.class, "a", "b")
+                        .add(Restrictions.eq("a", Restrictions.param("a")))
+                        .add(Restrictions.in("b", new Object[] { 1, Restrictions.param("b") }))
+                        .addOrder(Ordering.desc("a"))
+                        .build()));
+    }
+    
+    @Test
+    public void translateStatement_noCriteria() {
+        assertEquals("from java.lang.String",
+                translator.translateStatement(QueryBuilder.builderFor(String.class).build()));
+    }
+    
+    @Test
+    public void translateStatement_pageToken() {
+        assertEquals("from java.lang.String where (a = 1) and ((b < 2) or ((b = 2) and (c > 3))) order by b desc, c asc",
+                translator.translateStatement(QueryBuilder.builderFor(String.class)
+                        .add(Restrictions.eq("a", 1))
+                        .addOrder(Ordering.desc("b"), Ordering.asc("c"))
+                        .after(2, 3)
+                        .build()));
+    }
+    
+    @Test
+    public void translateStatement_near() {
+        assertEquals("from java.lang.String where ((a.x between 0 and 2) and (a.y between 1 and 3))"
+                + " and ((a.x - 1.0) * (a.x - 1.0) + (a.y - 2.0) * (a.y - 2.0) <= 1.0)"
+                + " order by (a.x - 1.0) * (a.x - 1.0) + (a.y - 2.0) * (a.y - 2.0) asc",
+                translator.translateStatement(QueryBuilder.builderFor(String.class)
+                        .add(Restrictions.near("a", 1, 2, 5, 1))
+                        .build()));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void translateStatement_nearOrdered() {
+        translator.translateStatement(QueryBuilder.builderFor(String.class)
+                .add(Restrictions.near("a", 1, 2, 5, 1))
+                .addOrder(Ordering.desc("b"))
+                .build());
+    }
+    
+    @Test
+    public void translateDelete() {
+        assertEquals("delete from java.lang.String where a = 1",
+                translator.translateDelete(QueryBuilder.builderFor(String.class)
+                        .add(Restrictions.eq("a", 1))
+                        .addOrder(Ordering.desc("a"))
+                        .build()));
+    }
+    
+    @Test
+    public void translateUpdate() {
+        Updates updates = new Updates().set("b", "x").inc("c", 2).unset("d");
+        assertEquals("update java.lang.String set b = :update0, c = c + :update1, d = null where a = 1",
+                translator.translateUpdate(QueryBuilder.builderFor(String.class)
+                        .add(Restrictions.eq("a", 1)).build(), updates));
+        Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        expected.put("update0", "x");
+        expected.put("update1", 2);
+        assertEquals(expected, translator.translateUpdateParameters(updates));
+    }
 }
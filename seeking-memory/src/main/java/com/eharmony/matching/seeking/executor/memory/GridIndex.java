@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.memory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.eharmony.matching.seeking.predicate.Locations;
+import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.eharmony.matching.seeking.query.criterion.expression.Distance2dExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.Expression;
+
+/**
+ * Indexes the entities by the cell of a uniform grid their location is in. A
+ * <code>within</code> expression is narrowed to the cells overlapping the
+ * square around its circle, unless that is more than {@link #MAX_CELLS}
+ * cells.
+ */
+class GridIndex extends MemoryIndex {
+
+    static final int MAX_CELLS = 4096;
+
+    private final double cellSize;
+    private final Map<Long, Set<Object>> ids = new HashMap<Long, Set<Object>>();
+
+    GridIndex(Class<?> entityClass, String propertyName, double cellSize) {
+        super(entityClass, propertyName);
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("the cell size must be positive");
+        }
+        this.cellSize = cellSize;
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private static Long cellKey(long x, long y) {
+        return (x << 32) ^ (y & 0xffffffffL);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#keys(java.lang.Object)
+     */
+    @Override
+    protected Collection<?> keys(Object value) {
+        double[] location = Locations.coordinates(value);
+        return location == null ? Collections.emptySet() : Collections
+                .singleton(cellKey(cell(location[0]), cell(location[1])));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#add(java.lang.Object, java.util.Collection)
+     */
+    @Override
+    protected void add(Object id, Collection<?> keys) {
+        for (Object key : keys) {
+            Set<Object> entities = ids.get(key);
+            if (entities == null) {
+                entities = new HashSet<Object>();
+                ids.put((Long) key, entities);
+            }
+            entities.add(id);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#remove(java.lang.Object, java.util.Collection)
+     */
+    @Override
+    protected void remove(Object id, Collection<?> keys) {
+        for (Object key : keys) {
+            Set<Object> entities = ids.get(key);
+            if (entities != null && entities.remove(id) && entities.isEmpty()) {
+                ids.remove(key);
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#lookup(com.eharmony.matching.seeking.query.criterion.expression.Expression)
+     */
+    @Override
+    protected Set<Object> lookup(Expression e) {
+        // the near candidates are those within its max distance
+        if (!(e instanceof Distance2dExpression)
+                || (e.getOperator() != Operator.WITHIN
+                && e.getOperator() != Operator.NEAR)) {
+            return null;
+        }
+        Distance2dExpression<?> within = (Distance2dExpression<?>) e;
+        double x = within.getX().doubleValue();
+        double y = within.getY().doubleValue();
+        double distance = within.getDistance().doubleValue();
+        double width = Math.floor((x + distance) / cellSize)
+                - Math.floor((x - distance) / cellSize) + 1;
+        double height = Math.floor((y + distance) / cellSize)
+                - Math.floor((y - distance) / cellSize) + 1;
+        if (!(distance >= 0) || !(width * height <= MAX_CELLS)) {
+            return null;
+        }
+        long fromX = cell(x - distance);
+        long toX = cell(x + distance);
+        long fromY = cell(y - distance);
+        long toY = cell(y + distance);
+        Set<Object> candidates = new HashSet<Object>();
+        for (long cx = fromX; cx <= toX; cx++) {
+            for (long cy = fromY; cy <= toY; cy++) {
+                Set<Object> entities = ids.get(cellKey(cx, cy));
+                if (entities != null) {
+                    candidates.addAll(entities);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#clear()
+     */
+    @Override
+    protected void clear() {
+        ids.clear();
+    }
+
+}
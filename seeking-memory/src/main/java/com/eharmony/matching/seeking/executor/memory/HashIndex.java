@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.eharmony.matching.seeking.predicate.Values;
+import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.eharmony.matching.seeking.query.criterion.expression.EqualityExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.Expression;
+import com.eharmony.matching.seeking.query.criterion.expression.SetExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.UnaryExpression;
+
+/**
+ * Indexes the entities by each of the values of the property, null included.
+ */
+class HashIndex extends MemoryIndex {
+
+    // the key of null values, which HashMaps do support but the keys of
+    // multi-valued properties are kept in sets
+    private static final Object NULL = new Object();
+
+    private final Map<Object, Set<Object>> ids = new HashMap<Object, Set<Object>>();
+
+    HashIndex(Class<?> entityClass, String propertyName) {
+        super(entityClass, propertyName);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#keys(java.lang.Object)
+     */
+    @Override
+    protected Collection<?> keys(Object value) {
+        Set<Object> keys = new LinkedHashSet<Object>();
+        for (Object element : Values.elements(value)) {
+            keys.add(hashKey(element));
+        }
+        return keys;
+    }
+
+    private static Object hashKey(Object value) {
+        return value == null ? NULL : key(value);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#add(java.lang.Object, java.util.Collection)
+     */
+    @Override
+    protected void add(Object id, Collection<?> keys) {
+        for (Object key : keys) {
+            Set<Object> entities = ids.get(key);
+            if (entities == null) {
+                entities = new HashSet<Object>();
+                ids.put(key, entities);
+            }
+            entities.add(id);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#remove(java.lang.Object, java.util.Collection)
+     */
+    @Override
+    protected void remove(Object id, Collection<?> keys) {
+        for (Object key : keys) {
+            Set<Object> entities = ids.get(key);
+            if (entities != null && entities.remove(id) && entities.isEmpty()) {
+                ids.remove(key);
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#lookup(com.eharmony.matching.seeking.query.criterion.expression.Expression)
+     */
+    @Override
+    protected Set<Object> lookup(Expression e) {
+        if (e instanceof EqualityExpression
+                && e.getOperator() == Operator.EQUAL) {
+            return get(((EqualityExpression) e).getValue());
+        } else if (e instanceof SetExpression) {
+            Object[] values = ((SetExpression) e).getValues();
+            if (e.getOperator() == Operator.IN) {
+                Set<Object> union = new HashSet<Object>();
+                for (Object value : values) {
+                    union.addAll(get(value));
+                }
+                return union;
+            } else if (e.getOperator() == Operator.CONTAINS
+                    && values.length > 0) {
+                List<Set<Object>> all = new ArrayList<Set<Object>>();
+                for (Object value : values) {
+                    all.add(get(value));
+                }
+                return IndexPlanner.intersection(all);
+            }
+        } else if (e instanceof UnaryExpression
+                && e.getOperator() == Operator.NULL) {
+            return get(null);
+        }
+        return null;
+    }
+
+    private Set<Object> get(Object value) {
+        Set<Object> entities = ids.get(hashKey(value));
+        return entities != null ? entities : Collections.<Object> emptySet();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#clear()
+     */
+    @Override
+    protected void clear() {
+        ids.clear();
+    }
+
+}
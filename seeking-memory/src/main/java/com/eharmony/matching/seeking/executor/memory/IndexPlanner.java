@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.expression.Expression;
+import com.eharmony.matching.seeking.query.criterion.junction.Conjunction;
+import com.eharmony.matching.seeking.query.criterion.junction.Disjunction;
+
+/**
+ * Selects the indexes that narrow a Criterion tree down to candidate
+ * entities: an expression is narrowed by the smallest lookup of the indexes
+ * of its property, a conjunction by the intersection of the lookups of the
+ * criteria that can be narrowed and a disjunction by their union, if all of
+ * them can.
+ */
+class IndexPlanner {
+
+    private static final Comparator<Set<?>> BY_SIZE = new Comparator<Set<?>>() {
+        @Override
+        public int compare(Set<?> a, Set<?> b) {
+            return a.size() - b.size();
+        }
+    };
+
+    private final Map<String, List<MemoryIndex>> indexes;
+
+    /**
+     * @param indexes
+     *            the indexes of the entities by property name
+     */
+    IndexPlanner(Map<String, List<MemoryIndex>> indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * @return the ids of the entities that may match the criterion, or null
+     *         if all of them may
+     */
+    Set<Object> candidates(Criterion c) {
+        if (indexes.isEmpty() || c == null) {
+            return null;
+        } else if (c instanceof Expression) {
+            return candidates((Expression) c);
+        } else if (c instanceof Conjunction) {
+            List<Set<Object>> narrowed = new ArrayList<Set<Object>>();
+            for (Criterion criterion : ((Conjunction) c).getCriteria()) {
+                Set<Object> candidates = candidates(criterion);
+                if (candidates != null) {
+                    narrowed.add(candidates);
+                }
+            }
+            return narrowed.isEmpty() ? null : intersection(narrowed);
+        } else if (c instanceof Disjunction) {
+            List<Criterion> criteria = ((Disjunction) c).getCriteria();
+            if (criteria.isEmpty()) {
+                return null;
+            }
+            Set<Object> union = new HashSet<Object>();
+            for (Criterion criterion : criteria) {
+                Set<Object> candidates = candidates(criterion);
+                if (candidates == null) {
+                    return null;
+                }
+                union.addAll(candidates);
+            }
+            return union;
+        }
+        return null;
+    }
+
+    private Set<Object> candidates(Expression e) {
+        List<MemoryIndex> propertyIndexes = indexes.get(e.getPropertyName());
+        if (propertyIndexes == null) {
+            return null;
+        }
+        Set<Object> smallest = null;
+        for (MemoryIndex index : propertyIndexes) {
+            Set<Object> candidates = index.lookup(e);
+            if (candidates != null
+                    && (smallest == null || candidates.size() < smallest
+                            .size())) {
+                smallest = candidates;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * @return the intersection of the sets, which are not modified
+     */
+    static Set<Object> intersection(List<Set<Object>> sets) {
+        List<Set<Object>> bySize = new ArrayList<Set<Object>>(sets);
+        Collections.sort(bySize, BY_SIZE);
+        Set<Object> intersection = new HashSet<Object>(bySize.get(0));
+        for (int i = 1; i < bySize.size() && !intersection.isEmpty(); i++) {
+            intersection.retainAll(bySize.get(i));
+        }
+        return intersection;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.memory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.eharmony.matching.seeking.mapper.PropertyReader;
+import com.eharmony.matching.seeking.predicate.Values;
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+
+/**
+ * Group and aggregate entities in process. As in SQL, null values are
+ * skipped and the sum, minimum, maximum and average of no values are null;
+ * counts are Longs, averages Doubles and sums Longs when all values are
+ * integral.
+ */
+final class MemoryAggregator {
+
+    private MemoryAggregator() {
+    }
+
+    static List<AggregateResult> aggregate(Aggregation<?> aggregation,
+            List<Object> entities) {
+        List<String> groupBy = aggregation.getGroupBy();
+        List<Aggregate> aggregates = aggregation.getAggregates();
+        Map<List<Object>, Accumulator[]> groups = new LinkedHashMap<List<Object>, Accumulator[]>();
+        for (Object entity : entities) {
+            List<Object> key = new ArrayList<Object>(groupBy.size());
+            for (String propertyName : groupBy) {
+                key.add(PropertyReader.read(entity, propertyName));
+            }
+            Accumulator[] accumulators = groups.get(key);
+            if (accumulators == null) {
+                accumulators = new Accumulator[aggregates.size()];
+                for (int i = 0; i < accumulators.length; i++) {
+                    accumulators[i] = new Accumulator(aggregates.get(i));
+                }
+                groups.put(key, accumulators);
+            }
+            for (Accumulator accumulator : accumulators) {
+                accumulator.add(entity);
+            }
+        }
+        if (groups.isEmpty()) {
+            return AggregateResult.none(aggregation);
+        }
+        List<AggregateResult> results = new ArrayList<AggregateResult>(
+                groups.size());
+        for (Map.Entry<List<Object>, Accumulator[]> entry : groups.entrySet()) {
+            Map<String, Object> group = new LinkedHashMap<String, Object>();
+            for (int i = 0; i < groupBy.size(); i++) {
+                group.put(groupBy.get(i), entry.getKey().get(i));
+            }
+            Map<String, Object> values = new LinkedHashMap<String, Object>();
+            for (Accumulator accumulator : entry.getValue()) {
+                values.put(accumulator.aggregate.getAlias(),
+                        accumulator.value());
+            }
+            results.add(new AggregateResult(group, values));
+        }
+        return results;
+    }
+
+    private static class Accumulator {
+
+        private final Aggregate aggregate;
+        private long count;
+        private Object value;
+
+        private Accumulator(Aggregate aggregate) {
+            this.aggregate = aggregate;
+        }
+
+        private void add(Object entity) {
+            if (aggregate.getFunction() == Aggregate.Function.COUNT) {
+                count++;
+                return;
+            }
+            Object v = PropertyReader.read(entity, aggregate.getPropertyName());
+            if (v == null) {
+                return;
+            }
+            switch (aggregate.getFunction()) {
+            case SUM:
+            case AVG:
+                value = value == null ? number(v) : Values.add(
+                        (Number) value, number(v));
+                break;
+            case MIN:
+                value = value == null || Values.compare(v, value) < 0 ? v
+                        : value;
+                break;
+            case MAX:
+                value = value == null || Values.compare(v, value) > 0 ? v
+                        : value;
+                break;
+            default:
+                throw new UnsupportedOperationException(
+                        aggregate.getFunction() + " not supported");
+            }
+            count++;
+        }
+
+        private Number number(Object v) {
+            if (!(v instanceof Number)) {
+                throw new IllegalArgumentException("cannot "
+                        + aggregate.getFunction() + " the "
+                        + v.getClass().getName() + " "
+                        + aggregate.getPropertyName());
+            }
+            return Values.isIntegral((Number) v) ? Long
+                    .valueOf(((Number) v).longValue()) : (Number) v;
+        }
+
+        private Object value() {
+            switch (aggregate.getFunction()) {
+            case COUNT:
+                return count;
+            case AVG:
+                return count > 0 ? ((Number) value).doubleValue() / count
+                        : null;
+            default:
+                return value;
+            }
+        }
+    }
+
+}
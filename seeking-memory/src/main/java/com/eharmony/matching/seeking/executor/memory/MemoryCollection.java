@@ -0,0 +1,261 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.update.Update;
+import com.eharmony.matching.seeking.query.update.Updates;
+import com.google.common.base.Predicate;
+
+/**
+ * The entities of one class by id, in the order they were first saved, and
+ * their secondary indexes. Queries scan the entities, or the candidates the
+ * indexes narrow their criteria to, under a read lock, writes take the write
+ * lock.
+ */
+class MemoryCollection {
+
+    private static final Comparator<Entry> BY_SEQUENCE = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return a.sequence < b.sequence ? -1 : a.sequence == b.sequence ? 0
+                    : 1;
+        }
+    };
+
+    private static class Entry {
+        private final Object id;
+        private final long sequence;
+        private Object entity;
+        // the keys the entity was indexed by, per index
+        private Collection<?>[] keys;
+
+        private Entry(Object id, long sequence) {
+            this.id = id;
+            this.sequence = sequence;
+        }
+    }
+
+    private final Map<Object, Entry> entities = new LinkedHashMap<Object, Entry>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<MemoryIndex> indexes;
+    private final IndexPlanner planner;
+    private long sequence;
+
+    /**
+     * @param indexes
+     *            the indexes of the entities, which are empty
+     */
+    MemoryCollection(List<MemoryIndex> indexes) {
+        this.indexes = new ArrayList<MemoryIndex>(indexes);
+        Map<String, List<MemoryIndex>> byProperty = new HashMap<String, List<MemoryIndex>>();
+        for (MemoryIndex index : indexes) {
+            List<MemoryIndex> propertyIndexes = byProperty.get(index
+                    .getPropertyName());
+            if (propertyIndexes == null) {
+                propertyIndexes = new ArrayList<MemoryIndex>();
+                byProperty.put(index.getPropertyName(), propertyIndexes);
+            }
+            propertyIndexes.add(index);
+        }
+        this.planner = new IndexPlanner(byProperty);
+    }
+
+    /**
+     * @return the entries that may match the criteria, in the order they were
+     *         first saved
+     */
+    private Collection<Entry> candidates(Criterion c) {
+        Set<Object> ids = planner.candidates(c);
+        if (ids == null) {
+            return entities.values();
+        }
+        List<Entry> candidates = new ArrayList<Entry>(ids.size());
+        for (Object id : ids) {
+            candidates.add(entities.get(id));
+        }
+        Collections.sort(candidates, BY_SEQUENCE);
+        return candidates;
+    }
+
+    /**
+     * @param c
+     *            the criteria, may be null
+     * @param predicate
+     *            the compiled criteria
+     * @param limit
+     *            the maximum number of matches, or null
+     * @return the matching entities
+     */
+    List<Object> select(Criterion c, Predicate<Object> predicate, Integer limit) {
+        List<Object> matches = new ArrayList<Object>();
+        lock.readLock().lock();
+        try {
+            for (Entry entry : candidates(c)) {
+                if (limit != null && matches.size() >= limit) {
+                    break;
+                }
+                if (predicate.apply(entry.entity)) {
+                    matches.add(entry.entity);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    long count(Criterion c, Predicate<Object> predicate) {
+        long count = 0;
+        lock.readLock().lock();
+        try {
+            for (Entry entry : candidates(c)) {
+                if (predicate.apply(entry.entity)) {
+                    count++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return count;
+    }
+
+    void put(Map<Object, Object> saved) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Object, Object> e : saved.entrySet()) {
+                Entry entry = entities.get(e.getKey());
+                if (entry == null) {
+                    entry = new Entry(e.getKey(), sequence++);
+                    entities.put(e.getKey(), entry);
+                } else {
+                    unindex(entry);
+                }
+                entry.entity = e.getValue();
+                index(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Entry entry) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        entry.keys = new Collection<?>[indexes.size()];
+        for (int i = 0; i < entry.keys.length; i++) {
+            entry.keys[i] = indexes.get(i).keysOf(entry.entity);
+            indexes.get(i).add(entry.id, entry.keys[i]);
+        }
+    }
+
+    private void unindex(Entry entry) {
+        for (int i = 0; entry.keys != null && i < entry.keys.length; i++) {
+            indexes.get(i).remove(entry.id, entry.keys[i]);
+        }
+        entry.keys = null;
+    }
+
+    int remove(Criterion c, Predicate<Object> predicate) {
+        int removed = 0;
+        lock.writeLock().lock();
+        try {
+            // the candidates are copied as the indexes change
+            for (Entry entry : new ArrayList<Entry>(candidates(c))) {
+                if (predicate.apply(entry.entity)) {
+                    unindex(entry);
+                    entities.remove(entry.id);
+                    removed++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return removed;
+    }
+
+    /**
+     * Apply the updates to the matching entities, in place
+     */
+    int update(Criterion c, Predicate<Object> predicate, Updates updates) {
+        int updated = 0;
+        lock.writeLock().lock();
+        try {
+            for (Entry entry : new ArrayList<Entry>(candidates(c))) {
+                if (predicate.apply(entry.entity)) {
+                    unindex(entry);
+                    try {
+                        for (Update update : updates.get()) {
+                            apply(update, entry.entity);
+                        }
+                    } finally {
+                        index(entry);
+                    }
+                    updated++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return updated;
+    }
+
+    private void apply(Update update, Object entity) {
+        switch (update.getOperation()) {
+        case SET:
+            PropertyWriter.set(entity, update.getPropertyName(),
+                    update.getValue());
+            break;
+        case INC:
+            PropertyWriter.increment(entity, update.getPropertyName(),
+                    (Number) update.getValue());
+            break;
+        case UNSET:
+            PropertyWriter.set(entity, update.getPropertyName(), null);
+            break;
+        default:
+            throw new UnsupportedOperationException(update.getOperation()
+                    + " not supported");
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            entities.clear();
+            for (MemoryIndex index : indexes) {
+                index.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+}
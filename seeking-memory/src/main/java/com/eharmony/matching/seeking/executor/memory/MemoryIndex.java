@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.memory;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Set;
+
+import com.eharmony.matching.seeking.predicate.PropertyAccessor;
+import com.eharmony.matching.seeking.query.criterion.expression.Expression;
+
+/**
+ * A secondary index of a property of the entities of a class kept by a
+ * {@link MemoryQueryExecutor}, from the keys derived from the values of the
+ * property to the ids of the entities.
+ * 
+ * Indexes are maintained when entities are saved, updated or deleted through
+ * the executor: an entity changed in place has to be saved again for the
+ * indexes to see the change. The executor selects the indexes that can
+ * narrow the expressions of a query and evaluates the query's criteria on
+ * the entities they return only, so an index may return more entities than
+ * match but never fewer.
+ * 
+ * The executor calls an index under the lock of the collection it belongs
+ * to, an index belongs to a single executor.
+ */
+public abstract class MemoryIndex {
+
+    private final Class<?> entityClass;
+    private final PropertyAccessor accessor;
+
+    protected MemoryIndex(Class<?> entityClass, String propertyName) {
+        this.entityClass = entityClass;
+        this.accessor = PropertyAccessor.of(entityClass, propertyName);
+    }
+
+    /**
+     * A hash index, for <code>eq</code>, <code>in</code>,
+     * <code>contains</code> and <code>isNull</code>
+     */
+    public static MemoryIndex hash(Class<?> entityClass, String propertyName) {
+        return new HashIndex(entityClass, propertyName);
+    }
+
+    /**
+     * A sorted index, for the ordered comparisons, <code>between</code>,
+     * <code>eq</code> and <code>in</code>. The values of the property have to
+     * be comparable to each other.
+     */
+    public static MemoryIndex sorted(Class<?> entityClass, String propertyName) {
+        return new SortedIndex(entityClass, propertyName);
+    }
+
+    /**
+     * A spatial index of the locations of the property in a uniform grid, for
+     * <code>within</code>
+     * 
+     * @param cellSize
+     *            the width and height of the cells, about the distance of
+     *            the queries
+     */
+    public static MemoryIndex grid(Class<?> entityClass, String propertyName,
+            double cellSize) {
+        return new GridIndex(entityClass, propertyName, cellSize);
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getPropertyName() {
+        return accessor.getPath();
+    }
+
+    /**
+     * @return the keys of the entity in the index, possibly none
+     */
+    Collection<?> keysOf(Object entity) {
+        return keys(accessor.get(entity));
+    }
+
+    /**
+     * @param value
+     *            the value of the property of an entity
+     * @return the keys the entity is indexed by, possibly none
+     */
+    protected abstract Collection<?> keys(Object value);
+
+    /**
+     * Index the entity by the keys
+     */
+    protected abstract void add(Object id, Collection<?> keys);
+
+    /**
+     * Remove the entity from the index, by the keys it was added with
+     */
+    protected abstract void remove(Object id, Collection<?> keys);
+
+    /**
+     * @param e
+     *            an expression of the property of the index
+     * @return the ids of the entities that may match the expression, or null
+     *         if the index cannot narrow it down
+     */
+    protected abstract Set<Object> lookup(Expression e);
+
+    protected abstract void clear();
+
+    /**
+     * @return the value as it is compared by
+     *         {@link com.eharmony.matching.seeking.predicate.Values}: numbers
+     *         by value whatever their type and enums by name
+     */
+    protected static Object key(Object value) {
+        if (value instanceof BigDecimal) {
+            try {
+                return ((BigDecimal) value).longValueExact();
+            } catch (ArithmeticException e) {
+                return ((BigDecimal) value).doubleValue();
+            }
+        } else if (value instanceof BigInteger) {
+            BigInteger n = (BigInteger) value;
+            return n.bitLength() < 64 ? (Object) n.longValue() : (Object) n
+                    .doubleValue();
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return d == Math.rint(d) && Math.abs(d) < 1L << 53 ? (Object) Long
+                    .valueOf((long) d) : (Object) Double.valueOf(d);
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Enum<?>) {
+            return ((Enum<?>) value).name();
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [entityClass="
+                + entityClass.getName() + ", propertyName="
+                + getPropertyName() + "]";
+    }
+
+}
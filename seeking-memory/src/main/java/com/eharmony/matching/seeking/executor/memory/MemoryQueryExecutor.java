@@ -0,0 +1,376 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.eharmony.matching.seeking.executor.BatchResults;
+import com.eharmony.matching.seeking.executor.IteratorResultStream;
+import com.eharmony.matching.seeking.executor.Page;
+import com.eharmony.matching.seeking.executor.PreparedQuery;
+import com.eharmony.matching.seeking.executor.QueryBatch;
+import com.eharmony.matching.seeking.executor.QueryExecutor;
+import com.eharmony.matching.seeking.executor.ResultStream;
+import com.eharmony.matching.seeking.executor.SimplePreparedQuery;
+import com.eharmony.matching.seeking.mapper.ProjectedResultMapper;
+import com.eharmony.matching.seeking.mapper.PropertyReader;
+import com.eharmony.matching.seeking.predicate.CriterionCompiler;
+import com.eharmony.matching.seeking.query.PageToken;
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
+import com.eharmony.matching.seeking.query.criterion.expression.NearExpression;
+import com.eharmony.matching.seeking.query.update.Update;
+import com.eharmony.matching.seeking.query.update.Updates;
+import com.google.common.base.Predicate;
+
+/**
+ * A QueryExecutor that keeps the entities on the heap and evaluates queries
+ * in process, for small reference collections and as a stand-in for the
+ * other data stores in tests.
+ * 
+ * Entities are kept per class by the value of their id property, in the
+ * order they were first saved, and are stored and returned by reference:
+ * changes to a saved entity are seen by later queries. Every query scans the
+ * entities of its class with its criteria compiled to a predicate (see
+ * {@link CriterionCompiler} for their semantics). Ordering puts null values
+ * first.
+ * 
+ * Secondary indexes of the properties of the entities (see
+ * {@link MemoryIndex}) narrow the entities a query scans down to the
+ * candidates of the expressions they can look up.
+ */
+public class MemoryQueryExecutor implements QueryExecutor {
+
+    public static final String DEFAULT_ID_PROPERTY = "id";
+
+    private final ConcurrentMap<Class<?>, MemoryCollection> collections = new ConcurrentHashMap<Class<?>, MemoryCollection>();
+    private final String idProperty;
+    private final CriterionCompiler compiler;
+    private final ProjectedResultMapper mapper;
+    private final List<MemoryIndex> indexes;
+
+    /**
+     * @param idProperty
+     *            the property that identifies the entities
+     * @param compiler
+     *            compiles the criteria of the queries
+     * @param mapper
+     *            maps the properties of projections to the return type
+     * @param indexes
+     *            the secondary indexes, of any entity class
+     */
+    public MemoryQueryExecutor(String idProperty, CriterionCompiler compiler,
+            ProjectedResultMapper mapper, List<MemoryIndex> indexes) {
+        this.idProperty = idProperty;
+        this.compiler = compiler;
+        this.mapper = mapper;
+        this.indexes = new ArrayList<MemoryIndex>(indexes);
+    }
+
+    public MemoryQueryExecutor(String idProperty, CriterionCompiler compiler,
+            ProjectedResultMapper mapper) {
+        this(idProperty, compiler, mapper, Collections
+                .<MemoryIndex> emptyList());
+    }
+
+    public MemoryQueryExecutor(String idProperty, List<MemoryIndex> indexes) {
+        this(idProperty, new CriterionCompiler(), new ProjectedResultMapper(),
+                indexes);
+    }
+
+    public MemoryQueryExecutor(String idProperty) {
+        this(idProperty, new CriterionCompiler(), new ProjectedResultMapper());
+    }
+
+    public MemoryQueryExecutor() {
+        this(DEFAULT_ID_PROPERTY);
+    }
+
+    private MemoryCollection getCollection(Class<?> entityClass) {
+        MemoryCollection collection = collections.get(entityClass);
+        if (collection == null) {
+            List<MemoryIndex> classIndexes = new ArrayList<MemoryIndex>();
+            for (MemoryIndex index : indexes) {
+                if (index.getEntityClass() == entityClass) {
+                    classIndexes.add(index);
+                }
+            }
+            collection = new MemoryCollection(classIndexes);
+            MemoryCollection existing = collections.putIfAbsent(entityClass,
+                    collection);
+            collection = existing != null ? existing : collection;
+        }
+        return collection;
+    }
+
+    private Predicate<Object> predicate(Criterion c, Class<?> entityClass) {
+        @SuppressWarnings("unchecked")
+        Class<Object> type = (Class<Object>) entityClass;
+        return compiler.compile(c, type);
+    }
+
+    /**
+     * @return the matching entities, ordered and limited to the query's
+     *         maximum results or the limit if lower
+     */
+    private <T, R> List<Object> select(Query<T, R> query, Integer limit) {
+        MemoryCollection collection = collections.get(query.getEntityClass());
+        if (collection == null) {
+            return Collections.emptyList();
+        }
+        NearExpression<?> near = NearExpression.of(query);
+        Integer maxResults = near != null ? Integer.valueOf(near
+                .getLimit(query)) : query.getMaxResults();
+        if (limit != null && (maxResults == null || limit < maxResults)) {
+            maxResults = limit;
+        }
+        Criterion criteria = PageToken.criteria(query);
+        Predicate<Object> predicate = predicate(criteria,
+                query.getEntityClass());
+        List<Ordering> orderings = query.getOrder().get();
+        if (orderings.isEmpty() && near == null) {
+            return collection.select(criteria, predicate, maxResults);
+        }
+        List<Object> matches = collection.select(criteria, predicate, null);
+        @SuppressWarnings("unchecked")
+        Class<Object> entityClass = (Class<Object>) query.getEntityClass();
+        Collections.sort(matches, near != null ? compiler.nearest(near,
+                entityClass) : compiler.comparator(orderings, entityClass));
+        return maxResults != null && maxResults < matches.size() ? matches
+                .subList(0, maxResults) : matches;
+    }
+
+    private <T, R> List<R> project(Query<T, R> query, List<Object> entities) {
+        List<R> results = new ArrayList<R>(entities.size());
+        List<String> returnFields = query.getReturnFields();
+        String[] names = returnFields.toArray(new String[returnFields.size()]);
+        for (Object entity : entities) {
+            if (names.length == 0) {
+                results.add(query.getReturnType().cast(entity));
+            } else if (names.length == 1) {
+                results.add(mapper.mapTo(query.getReturnType(),
+                        PropertyReader.read(entity, names[0]), names));
+            } else {
+                Object[] properties = new Object[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    properties[i] = PropertyReader.read(entity, names[i]);
+                }
+                results.add(mapper.mapTo(query.getReturnType(), properties,
+                        names));
+            }
+        }
+        return results;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#find(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> Iterable<R> find(Query<T, R> query) {
+        return project(query, select(query, null));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findOne(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> R findOne(Query<T, R> query) {
+        List<R> results = project(query, select(query, 1));
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#count(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> long count(Query<T, R> query) {
+        MemoryCollection collection = collections.get(query.getEntityClass());
+        if (collection == null) {
+            return 0;
+        }
+        Criterion criteria = PageToken.criteria(query);
+        return collection.count(criteria,
+                predicate(criteria, query.getEntityClass()));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#exists(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> boolean exists(Query<T, R> query) {
+        MemoryCollection collection = collections.get(query.getEntityClass());
+        if (collection == null) {
+            return false;
+        }
+        Criterion criteria = PageToken.criteria(query);
+        return !collection.select(criteria,
+                predicate(criteria, query.getEntityClass()), 1).isEmpty();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findPage(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> Page<R> findPage(Query<T, R> query) {
+        return new Page<R>(project(query, select(query, null)), count(query));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#aggregate(com.eharmony.matching.seeking.query.aggregate.Aggregation)
+     */
+    @Override
+    public <T> List<AggregateResult> aggregate(Aggregation<T> aggregation) {
+        MemoryCollection collection = collections.get(aggregation
+                .getEntityClass());
+        if (collection == null) {
+            return MemoryAggregator.aggregate(aggregation,
+                    Collections.emptyList());
+        }
+        Criterion criteria = aggregation.getCriteria();
+        return MemoryAggregator.aggregate(aggregation, collection.select(
+                criteria, predicate(criteria, aggregation.getEntityClass()),
+                null));
+    }
+
+    /**
+     * The results are selected when the stream is opened.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#stream(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> ResultStream<R> stream(Query<T, R> query) {
+        return new IteratorResultStream<R>(find(query).iterator());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findAll(java.util.List)
+     */
+    @Override
+    public BatchResults findAll(List<? extends Query<?, ?>> queries) {
+        return QueryBatch.findAll(this, queries,
+                Collections.singleton(idProperty));
+    }
+
+    public <T, R> PreparedQuery<T, R> prepare(Query<T, R> query) {
+        return new SimplePreparedQuery<T, R>(this, query);
+    }
+
+    private Object id(Object entity) {
+        Object id = PropertyReader.read(entity, idProperty);
+        if (id == null) {
+            throw new IllegalArgumentException("no " + idProperty + " for "
+                    + entity);
+        }
+        return id;
+    }
+
+    /**
+     * Store the entity, replacing the entity of the same class with the same
+     * id, if any.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#save(java.lang.Object)
+     */
+    @Override
+    public <T> T save(T entity) {
+        getCollection(entity.getClass()).put(
+                Collections.<Object, Object> singletonMap(id(entity), entity));
+        return entity;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#save(java.lang.Iterable)
+     */
+    @Override
+    public <T> Iterable<T> save(Iterable<T> entities) {
+        List<T> saved = new ArrayList<T>();
+        Map<Class<?>, Map<Object, Object>> byClass = new LinkedHashMap<Class<?>, Map<Object, Object>>();
+        for (T entity : entities) {
+            Map<Object, Object> batch = byClass.get(entity.getClass());
+            if (batch == null) {
+                batch = new LinkedHashMap<Object, Object>();
+                byClass.put(entity.getClass(), batch);
+            }
+            batch.put(id(entity), entity);
+            saved.add(entity);
+        }
+        for (Map.Entry<Class<?>, Map<Object, Object>> batch : byClass.entrySet()) {
+            getCollection(batch.getKey()).put(batch.getValue());
+        }
+        return saved;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#delete(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> void delete(Query<T, R> query) {
+        MemoryCollection collection = collections.get(query.getEntityClass());
+        if (collection != null) {
+            collection.remove(query.getCriteria(),
+                    predicate(query.getCriteria(), query.getEntityClass()));
+        }
+    }
+
+    /**
+     * Update the matching entities in place.
+     * 
+     * @throws IllegalArgumentException
+     *             if the updates change the id property
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#update(com.eharmony.matching.seeking.query.Query, com.eharmony.matching.seeking.query.update.Updates)
+     */
+    @Override
+    public <T, R> void update(Query<T, R> query, Updates updates) {
+        for (Update update : updates.get()) {
+            if (update.getPropertyName().equals(idProperty)) {
+                throw new IllegalArgumentException("cannot update the "
+                        + idProperty + " of the entities");
+            }
+        }
+        MemoryCollection collection = collections.get(query.getEntityClass());
+        if (collection != null && !updates.isEmpty()) {
+            collection.update(query.getCriteria(),
+                    predicate(query.getCriteria(), query.getEntityClass()),
+                    updates);
+        }
+    }
+
+    public void removeAll(Class<?> entityClass) {
+        MemoryCollection collection = collections.get(entityClass);
+        if (collection != null) {
+            collection.clear();
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.memory;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import com.eharmony.matching.seeking.mapper.PropertyReader;
+import com.eharmony.matching.seeking.predicate.Values;
+
+/**
+ * Write the value of a property of an entity, the counterpart of the
+ * {@link PropertyReader}: dotted paths are followed into nested objects and
+ * properties are the fields of objects and the entries of maps.
+ */
+final class PropertyWriter {
+
+    private PropertyWriter() {
+    }
+
+    /**
+     * Set the property, converting numbers to the type of the field
+     * 
+     * @throws IllegalArgumentException
+     *             if the property cannot be written
+     */
+    static void set(Object object, String path, Object value) {
+        int dot = path.lastIndexOf('.');
+        Object parent = dot < 0 ? object : PropertyReader.read(object,
+                path.substring(0, dot));
+        String name = path.substring(dot + 1);
+        if (parent == null) {
+            throw new IllegalArgumentException("cannot set " + path + " of "
+                    + object + ", " + path.substring(0, dot) + " is null");
+        }
+        if (parent instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = (Map<String, Object>) parent;
+            map.put(name, value);
+            return;
+        }
+        Field field = field(parent.getClass(), name);
+        if (value instanceof Number) {
+            value = Values.convert((Number) value, field.getType());
+        } else if (value == null && field.getType().isPrimitive()) {
+            throw new IllegalArgumentException("cannot unset the primitive "
+                    + path + " of " + object);
+        }
+        try {
+            field.set(parent, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("cannot set " + path + " of "
+                    + object, e);
+        }
+    }
+
+    /**
+     * Add the amount to the numeric property, a missing value counting as 0
+     * 
+     * @throws IllegalArgumentException
+     *             if the property cannot be written or is not numeric
+     */
+    static void increment(Object object, String path, Number amount) {
+        Object value = PropertyReader.read(object, path);
+        if (value != null && !(value instanceof Number)) {
+            throw new IllegalArgumentException("cannot increment the "
+                    + value.getClass().getName() + " " + path + " of " + object);
+        }
+        set(object, path, Values.add(value == null ? 0 : (Number) value,
+                amount));
+    }
+
+    private static Field field(Class<?> type, String name) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                // try the superclass
+            }
+        }
+        throw new IllegalArgumentException("no property " + name + " in "
+                + type.getName());
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.memory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.eharmony.matching.seeking.predicate.Values;
+import com.eharmony.matching.seeking.query.criterion.Operator;
+import com.eharmony.matching.seeking.query.criterion.expression.EqualityExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.Expression;
+import com.eharmony.matching.seeking.query.criterion.expression.RangeExpression;
+import com.eharmony.matching.seeking.query.criterion.expression.SetExpression;
+
+/**
+ * Indexes the entities by each of the non null values of the property, in
+ * order.
+ * 
+ * Enums are indexed by name. As they compare to each other by ordinal,
+ * ordered comparisons to enum constants are not narrowed.
+ */
+class SortedIndex extends MemoryIndex {
+
+    private static final Comparator<Object> VALUES = new Comparator<Object>() {
+        @Override
+        public int compare(Object a, Object b) {
+            return Values.compare(a, b);
+        }
+    };
+
+    private final NavigableMap<Object, Set<Object>> ids = new TreeMap<Object, Set<Object>>(
+            VALUES);
+
+    SortedIndex(Class<?> entityClass, String propertyName) {
+        super(entityClass, propertyName);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#keys(java.lang.Object)
+     */
+    @Override
+    protected Collection<?> keys(Object value) {
+        Set<Object> keys = new LinkedHashSet<Object>();
+        for (Object element : Values.elements(value)) {
+            if (element != null) {
+                keys.add(key(element));
+            }
+        }
+        return keys;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#add(java.lang.Object, java.util.Collection)
+     */
+    @Override
+    protected void add(Object id, Collection<?> keys) {
+        for (Object key : keys) {
+            Set<Object> entities = ids.get(key);
+            if (entities == null) {
+                entities = new HashSet<Object>();
+                ids.put(key, entities);
+            }
+            entities.add(id);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#remove(java.lang.Object, java.util.Collection)
+     */
+    @Override
+    protected void remove(Object id, Collection<?> keys) {
+        for (Object key : keys) {
+            Set<Object> entities = ids.get(key);
+            if (entities != null && entities.remove(id) && entities.isEmpty()) {
+                ids.remove(key);
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#lookup(com.eharmony.matching.seeking.query.criterion.expression.Expression)
+     */
+    @Override
+    protected Set<Object> lookup(Expression e) {
+        try {
+            return range(e);
+        } catch (IllegalArgumentException incomparable) {
+            // a value the keys do not compare to, left to the criteria
+            return null;
+        }
+    }
+
+    private Set<Object> range(Expression e) {
+        if (e instanceof EqualityExpression) {
+            Object value = ((EqualityExpression) e).getValue();
+            if (value == null) {
+                return null;
+            }
+            Object key = key(value);
+            switch (e.getOperator()) {
+            case EQUAL:
+                Set<Object> entities = ids.get(key);
+                return entities != null ? entities : Collections
+                        .<Object> emptySet();
+            case GREATER_THAN:
+                return value instanceof Enum<?> ? null : union(ids.tailMap(
+                        key, false));
+            case GREATER_THAN_OR_EQUAL:
+                return value instanceof Enum<?> ? null : union(ids.tailMap(
+                        key, true));
+            case LESS_THAN:
+                return value instanceof Enum<?> ? null : union(ids.headMap(
+                        key, false));
+            case LESS_THAN_OR_EQUAL:
+                return value instanceof Enum<?> ? null : union(ids.headMap(
+                        key, true));
+            default:
+                return null;
+            }
+        } else if (e instanceof RangeExpression) {
+            RangeExpression range = (RangeExpression) e;
+            if (range.getFrom() == null || range.getTo() == null
+                    || range.getFrom() instanceof Enum<?>
+                    || range.getTo() instanceof Enum<?>) {
+                return null;
+            }
+            Object from = key(range.getFrom());
+            Object to = key(range.getTo());
+            return VALUES.compare(from, to) > 0 ? Collections
+                    .<Object> emptySet() : union(ids.subMap(from, true, to,
+                    true));
+        } else if (e instanceof SetExpression) {
+            SetExpression set = (SetExpression) e;
+            if (set.getOperator() != Operator.IN) {
+                return null;
+            }
+            Set<Object> union = new HashSet<Object>();
+            for (Object value : set.getValues()) {
+                if (value == null) {
+                    return null;
+                }
+                Set<Object> entities = ids.get(key(value));
+                if (entities != null) {
+                    union.addAll(entities);
+                }
+            }
+            return union;
+        }
+        return null;
+    }
+
+    private static Set<Object> union(NavigableMap<Object, Set<Object>> range) {
+        Set<Object> union = new HashSet<Object>();
+        for (Set<Object> entities : range.values()) {
+            union.addAll(entities);
+        }
+        return union;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.memory.MemoryIndex#clear()
+     */
+    @Override
+    protected void clear() {
+        ids.clear();
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.eharmony.matching.seeking.executor.memory;
+
+import static com.eharmony.matching.seeking.query.criterion.Restrictions.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Criterion;
+import com.eharmony.matching.seeking.query.criterion.expression.Expression;
+import com.eharmony.matching.seeking.query.update.Updates;
+import com.eharmony.matching.seeking.test.TestClass;
+import com.eharmony.matching.seeking.test.TestClass.Status;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class MemoryIndexTest {
+
+    private final TestClass[] tests = {
+            new TestClass(1L, "a", 3, "x").at(0, 0),
+            new TestClass(2L, "b", 1, "x", "y").at(10, 10),
+            new TestClass(3L, "a", 2).at(1, 1),
+            new TestClass(4L, null, 5, "y").at(100, 100),
+    };
+
+    private MemoryIndex index(MemoryIndex index) {
+        for (TestClass test : tests) {
+            index.add(test.getId(), index.keysOf(test));
+        }
+        return index;
+    }
+
+    private static Set<Object> ids(Object... ids) {
+        return new HashSet<Object>(Arrays.asList(ids));
+    }
+
+    private static Set<Object> lookup(MemoryIndex index, Criterion e) {
+        return index.lookup((Expression) e);
+    }
+
+    @Test
+    public void hash() {
+        MemoryIndex index = index(MemoryIndex.hash(TestClass.class, "name"));
+        assertEquals(ids(1L, 3L), lookup(index, eq("name", "a")));
+        assertEquals(ids(1L, 2L, 3L), lookup(index, in("name", new Object[] { "a", "b" })));
+        assertEquals(ids(4L), lookup(index, isNull("name")));
+        assertEquals(ids(), lookup(index, eq("name", "z")));
+        assertNull(lookup(index, ne("name", "a")));
+        assertNull(lookup(index, gt("name", "a")));
+    }
+
+    @Test
+    public void hash_multiValued() {
+        MemoryIndex index = index(MemoryIndex.hash(TestClass.class, "tags"));
+        assertEquals(ids(1L, 2L), lookup(index, eq("tags", "x")));
+        assertEquals(ids(2L), lookup(index, contains("tags", new Object[] { "x", "y" })));
+    }
+
+    @Test
+    public void hash_valuesCompared() {
+        MemoryIndex index = index(MemoryIndex.hash(TestClass.class, "number"));
+        // numbers by value whatever their type
+        assertEquals(ids(1L), lookup(index, eq("number", 3L)));
+        assertEquals(ids(1L), lookup(index, eq("number", 3.0)));
+        assertEquals(ids(), lookup(index, eq("number", 3.5)));
+        // enums by name
+        index = index(MemoryIndex.hash(TestClass.class, "status"));
+        assertEquals(4, lookup(index, eq("status", "ACTIVE")).size());
+        assertEquals(4, lookup(index, eq("status", Status.ACTIVE)).size());
+    }
+
+    @Test
+    public void sorted() {
+        MemoryIndex index = index(MemoryIndex.sorted(TestClass.class, "number"));
+        assertEquals(ids(1L, 4L), lookup(index, gt("number", 2)));
+        assertEquals(ids(3L, 1L, 4L), lookup(index, gte("number", 2)));
+        assertEquals(ids(2L), lookup(index, lt("number", 2)));
+        assertEquals(ids(2L, 3L), lookup(index, lte("number", 2.0)));
+        assertEquals(ids(1L, 3L), lookup(index, between("number", 1.5, 3)));
+        assertEquals(ids(), lookup(index, between("number", 3, 1)));
+        assertEquals(ids(4L), lookup(index, eq("number", 5)));
+        assertEquals(ids(2L, 4L), lookup(index, in("number", new Object[] { 1, 5L })));
+        // values the keys do not compare to are left to the criteria
+        assertNull(lookup(index, eq("number", "5")));
+        assertNull(lookup(index, ne("number", 5)));
+    }
+
+    @Test
+    public void sorted_enums() {
+        MemoryIndex index = index(MemoryIndex.sorted(TestClass.class, "status"));
+        assertEquals(4, lookup(index, eq("status", Status.ACTIVE)).size());
+        assertNull(lookup(index, gt("status", Status.ACTIVE)));
+    }
+
+    @Test
+    public void grid() {
+        MemoryIndex index = index(MemoryIndex.grid(TestClass.class, "location", 5));
+        Set<Object> candidates = lookup(index, within("location", 0.0, 0.0, 2.0));
+        assertTrue(candidates.containsAll(ids(1L, 3L)));
+        assertFalse(candidates.contains(4L));
+        assertEquals(ids(4L), lookup(index, within("location", 100.0, 100.0, 1.0)));
+        assertEquals(ids(4L), lookup(index, near("location", 100.0, 100.0, 1, 1.0)));
+        // too many cells
+        assertNull(lookup(index, within("location", 0.0, 0.0, 1000.0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void grid_cellSize() {
+        MemoryIndex.grid(TestClass.class, "location", 0);
+    }
+
+    @Test
+    public void remove() {
+        MemoryIndex index = index(MemoryIndex.hash(TestClass.class, "name"));
+        index.remove(1L, index.keysOf(tests[0]));
+        assertEquals(ids(3L), lookup(index, eq("name", "a")));
+    }
+
+    @Test
+    public void planner() {
+        Map<String, List<MemoryIndex>> indexes = ImmutableMap.of(
+                "name", Collections.singletonList(index(MemoryIndex.hash(TestClass.class, "name"))),
+                "number", Collections.singletonList(index(MemoryIndex.sorted(TestClass.class, "number"))));
+        IndexPlanner planner = new IndexPlanner(indexes);
+        assertEquals(ids(1L), planner.candidates(and(eq("name", "a"), gt("number", 2))));
+        // unindexed criteria of a conjunction are left to the criteria
+        assertEquals(ids(1L, 3L), planner.candidates(and(eq("name", "a"), eq("tags", "x"))));
+        assertEquals(ids(1L, 3L, 4L), planner.candidates(or(eq("name", "a"), gt("number", 4))));
+        assertNull(planner.candidates(or(eq("name", "a"), eq("tags", "x"))));
+        assertNull(planner.candidates(ne("name", "a")));
+        assertNull(planner.candidates(null));
+    }
+
+    @Test
+    public void executor() {
+        MemoryQueryExecutor executor = new MemoryQueryExecutor("id",
+                Arrays.asList(MemoryIndex.hash(TestClass.class, "name"),
+                        MemoryIndex.sorted(TestClass.class, "number"),
+                        MemoryIndex.grid(TestClass.class, "location", 5)));
+        executor.save(Arrays.asList(tests));
+        Query<TestClass, TestClass> query = QueryBuilder
+                .builderFor(TestClass.class).add(eq("name", "a"))
+                .add(gte("number", 2)).build();
+        // in the order the entities were saved
+        assertEquals(Arrays.asList(tests[0], tests[2]),
+                Lists.newArrayList(executor.find(query)));
+        assertEquals(Arrays.asList(tests[0], tests[2]),
+                Lists.newArrayList(executor.find(QueryBuilder
+                        .builderFor(TestClass.class)
+                        .add(within("location", 0.0, 0.0, 2.0)).build())));
+        // nearest first
+        assertEquals(Arrays.asList(tests[2], tests[0]),
+                Lists.newArrayList(executor.find(QueryBuilder
+                        .builderFor(TestClass.class)
+                        .add(near("location", 1.0, 1.0, 5, 2.0)).build())));
+
+        // maintained on save
+        TestClass replacement = new TestClass(1L, "b", 3);
+        executor.save(replacement);
+        assertEquals(Arrays.asList(tests[2]),
+                Lists.newArrayList(executor.find(query)));
+
+        // on update
+        executor.update(QueryBuilder.builderFor(TestClass.class)
+                .add(eq("name", "b")).build(), new Updates().set("name", "a"));
+        assertEquals(Arrays.asList(replacement, tests[2]),
+                Lists.newArrayList(executor.find(query)));
+
+        // and on delete
+        executor.delete(QueryBuilder.builderFor(TestClass.class)
+                .add(lt("number", 3)).build());
+        assertEquals(Arrays.asList(replacement),
+                Lists.newArrayList(executor.find(query)));
+        assertEquals(2, executor.count(QueryBuilder.builderFor(TestClass.class)
+                .build()));
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.eharmony.matching.seeking.executor.memory;
+
+import static com.eharmony.matching.seeking.query.criterion.Restrictions.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.executor.Page;
+import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.builder.AggregationBuilder;
+import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
+import com.eharmony.matching.seeking.query.update.Updates;
+import com.eharmony.matching.seeking.test.TestClass;
+import com.google.common.collect.Lists;
+
+public class MemoryQueryExecutorTest {
+
+    private final MemoryQueryExecutor executor = new MemoryQueryExecutor();
+    private final TestClass[] tests = {
+            new TestClass(1L, "a", 3),
+            new TestClass(2L, "b", 1),
+            new TestClass(3L, "a", 2),
+            new TestClass(4L, "c", 5),
+    };
+
+    @Before
+    public void before() {
+        executor.save(Arrays.asList(tests));
+    }
+
+    @Test
+    public void find() {
+        assertEquals(Arrays.asList(tests[0], tests[2]), Lists.newArrayList(
+                executor.find(QueryBuilder.builderFor(TestClass.class)
+                        .add(eq("name", "a")).build())));
+    }
+
+    @Test
+    public void find_orderedAndLimited() {
+        Query<TestClass, TestClass> query = QueryBuilder
+                .builderFor(TestClass.class).add(gt("number", 1))
+                .addOrder(Ordering.desc("number")).setMaxResults(2).build();
+        assertEquals(Arrays.asList(tests[3], tests[0]),
+                Lists.newArrayList(executor.find(query)));
+        assertSame(tests[3], executor.findOne(query));
+    }
+
+    @Test
+    public void find_projected() {
+        assertEquals(Arrays.asList(1L, 3L), Lists.newArrayList(executor
+                .find(QueryBuilder.builderFor(TestClass.class, Long.class, "id")
+                        .add(eq("name", "a")).build())));
+    }
+
+    @Test
+    public void countAndPage() {
+        Query<TestClass, TestClass> query = QueryBuilder
+                .builderFor(TestClass.class).add(gte("number", 2))
+                .setMaxResults(1).build();
+        assertEquals(3, executor.count(query));
+        assertTrue(executor.exists(query));
+        Page<TestClass> page = executor.findPage(query);
+        assertEquals(Arrays.asList(tests[0]), page.getResults());
+        assertEquals(3, page.getTotal());
+    }
+
+    @Test
+    public void save_replaces() {
+        TestClass replacement = new TestClass(1L, "z", 0);
+        executor.save(replacement);
+        assertSame(replacement, executor.findOne(QueryBuilder
+                .builderFor(TestClass.class).add(eq("id", 1L)).build()));
+        assertEquals(tests.length, executor.count(QueryBuilder
+                .builderFor(TestClass.class).build()));
+    }
+
+    @Test
+    public void aggregate() {
+        List<AggregateResult> results = executor.aggregate(AggregationBuilder
+                .builderFor(TestClass.class).groupBy("name")
+                .aggregate(Aggregate.count(), Aggregate.sum("number"),
+                        Aggregate.avg("number")).build());
+        assertEquals(3, results.size());
+        AggregateResult a = results.get(0);
+        assertEquals("a", a.getGroup("name"));
+        assertEquals(2L, a.getValue(Aggregate.count()));
+        assertEquals(5L, a.getValue(Aggregate.sum("number")));
+        assertEquals(2.5, a.getValue(Aggregate.avg("number")));
+    }
+
+    @Test
+    public void updateAndDelete() {
+        Query<TestClass, TestClass> query = QueryBuilder
+                .builderFor(TestClass.class).add(eq("name", "a")).build();
+        executor.update(query, new Updates().inc("number", 10));
+        assertEquals(13, tests[0].getNumber());
+        assertEquals(12, tests[2].getNumber());
+        executor.delete(query);
+        assertEquals(2, executor.count(QueryBuilder.builderFor(TestClass.class)
+                .build()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void update_id() {
+        executor.update(QueryBuilder.builderFor(TestClass.class).build(),
+                new Updates().set("id", 5L));
+    }
+
+}
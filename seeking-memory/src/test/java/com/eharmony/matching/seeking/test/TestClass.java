@@ -0,0 +1,71 @@
+package com.eharmony.matching.seeking.test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.eharmony.matching.seeking.query.geometry.XField;
+import com.eharmony.matching.seeking.query.geometry.YField;
+
+public class TestClass {
+
+    public static class Location {
+        @XField
+        private double x;
+        @YField
+        private double y;
+
+        public Location(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public static enum Status {
+        ACTIVE, CLOSED
+    }
+
+    private Long id;
+    private String name;
+    private int number;
+    private Status status = Status.ACTIVE;
+    private List<String> tags;
+    private Location location;
+
+    public TestClass(Long id, String name, int number, String... tags) {
+        this.id = id;
+        this.name = name;
+        this.number = number;
+        this.tags = Arrays.asList(tags);
+    }
+
+    public TestClass at(double x, double y) {
+        this.location = new Location(x, y);
+        return this;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    @Override
+    public String toString() {
+        return "TestClass [id=" + id + ", name=" + name + "]";
+    }
+
+}
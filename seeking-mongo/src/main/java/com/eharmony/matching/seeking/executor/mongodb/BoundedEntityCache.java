@@ -0,0 +1,203 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.mongodb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.code.morphia.Key;
+import com.google.code.morphia.mapping.cache.EntityCache;
+import com.google.code.morphia.mapping.cache.EntityCacheStatistics;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A Morphia entity cache holding at most a number of entities, proxies and
+ * existence flags each, evicting the least recently used, and optionally
+ * expiring them some time after they were cached. It is safe for concurrent
+ * use.
+ * 
+ * Morphia maps a document whose key is cached to the cached entity, so that
+ * the same referenced entity is fetched and mapped once. An entity cache
+ * longer lived than a query returns entities as they were when cached: see
+ * {@link EntityCacheScope}.
+ */
+public class BoundedEntityCache implements EntityCache {
+
+    private final Cache<Key<?>, Object> entities;
+    private final Cache<Key<?>, Object> proxies;
+    private final Cache<Key<?>, Boolean> existence;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    // the statistics of the caches of a scope, kept on flush
+    private final AtomicInteger scopeHits;
+    private final AtomicInteger scopeMisses;
+
+    /**
+     * @param maxEntities
+     *            the maximum number of entities, proxies and existence flags
+     *            each
+     * @param ttl
+     *            the time the entries are cached for, 0 to keep them until
+     *            evicted
+     * @param unit
+     *            the unit of the ttl
+     */
+    public BoundedEntityCache(int maxEntities, long ttl, TimeUnit unit) {
+        this(maxEntities, ttl, unit, new AtomicInteger(), new AtomicInteger());
+    }
+
+    public BoundedEntityCache(int maxEntities) {
+        this(maxEntities, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * The hits and misses are added to those of the caches of a scope as well
+     */
+    BoundedEntityCache(int maxEntities, long ttl, TimeUnit unit,
+            AtomicInteger scopeHits, AtomicInteger scopeMisses) {
+        this.entities = build(maxEntities, ttl, unit);
+        this.proxies = build(maxEntities, ttl, unit);
+        this.existence = build(maxEntities, ttl, unit);
+        this.scopeHits = scopeHits;
+        this.scopeMisses = scopeMisses;
+    }
+
+    private static <V> Cache<Key<?>, V> build(int maxEntities, long ttl,
+            TimeUnit unit) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(maxEntities);
+        if (ttl > 0) {
+            builder.expireAfterWrite(ttl, unit);
+        }
+        return builder.build();
+    }
+
+    private <V> V get(Cache<Key<?>, V> cache, Key<?> key) {
+        V value = cache.getIfPresent(key);
+        if (value != null) {
+            hit();
+        } else {
+            miss();
+        }
+        return value;
+    }
+
+    private void hit() {
+        hits.incrementAndGet();
+        scopeHits.incrementAndGet();
+    }
+
+    private void miss() {
+        misses.incrementAndGet();
+        scopeMisses.incrementAndGet();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.code.morphia.mapping.cache.EntityCache#exists(com.google.code.morphia.Key)
+     */
+    @Override
+    public Boolean exists(Key<?> k) {
+        if (entities.getIfPresent(k) != null) {
+            hit();
+            return true;
+        }
+        return get(existence, k);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.code.morphia.mapping.cache.EntityCache#notifyExists(com.google.code.morphia.Key, boolean)
+     */
+    @Override
+    public void notifyExists(Key<?> k, boolean exists) {
+        existence.put(k, exists);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.code.morphia.mapping.cache.EntityCache#getEntity(com.google.code.morphia.Key)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getEntity(Key<T> k) {
+        return (T) get(entities, k);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.code.morphia.mapping.cache.EntityCache#getProxy(com.google.code.morphia.Key)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getProxy(Key<T> k) {
+        return (T) get(proxies, k);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.code.morphia.mapping.cache.EntityCache#putProxy(com.google.code.morphia.Key, java.lang.Object)
+     */
+    @Override
+    public <T> void putProxy(Key<T> k, T t) {
+        if (t != null) {
+            proxies.put(k, t);
+            existence.put(k, true);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.code.morphia.mapping.cache.EntityCache#putEntity(com.google.code.morphia.Key, java.lang.Object)
+     */
+    @Override
+    public <T> void putEntity(Key<T> k, T t) {
+        if (t != null) {
+            entities.put(k, t);
+            existence.put(k, true);
+        }
+    }
+
+    /**
+     * Empty the cache and reset its statistics, but not those of its scope
+     * 
+     * @see com.google.code.morphia.mapping.cache.EntityCache#flush()
+     */
+    @Override
+    public void flush() {
+        entities.invalidateAll();
+        proxies.invalidateAll();
+        existence.invalidateAll();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * @return a copy of the statistics
+     * @see com.google.code.morphia.mapping.cache.EntityCache#stats()
+     */
+    @Override
+    public EntityCacheStatistics stats() {
+        EntityCacheStatistics stats = new EntityCacheStatistics();
+        stats.entities = (int) entities.size();
+        stats.hits = hits.get();
+        stats.misses = misses.get();
+        return stats;
+    }
+
+}
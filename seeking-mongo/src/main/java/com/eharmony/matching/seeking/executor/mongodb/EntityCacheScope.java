@@ -0,0 +1,99 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.eharmony.matching.seeking.executor.mongodb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.code.morphia.mapping.cache.EntityCache;
+import com.google.code.morphia.mapping.cache.EntityCacheStatistics;
+
+/**
+ * How long the Morphia entity cache of a {@link MongoQueryExecutor} lives,
+ * which decides which queries share the mapped entities:
+ * <ul>
+ * <li>{@link #query(int)}: a cache per query, so the results of a query
+ * refer to one instance per entity,</li>
+ * <li>{@link #executor(int, long, TimeUnit)}: a cache for all the queries of
+ * the executor given the scope, whose entities expire,</li>
+ * <li>{@link #shared(EntityCache)}: a cache shared with other executors, or
+ * other users of Morphia,</li>
+ * <li>{@link #none()}: no cache, every document is mapped.</li>
+ * </ul>
+ */
+public abstract class EntityCacheScope {
+
+    /**
+     * @return the cache for a query
+     */
+    public abstract EntityCache cache();
+
+    /**
+     * @return the statistics of the caches of the scope
+     */
+    public abstract EntityCacheStatistics stats();
+
+    public static EntityCacheScope query(final int maxEntities) {
+        return new EntityCacheScope() {
+            private final AtomicInteger hits = new AtomicInteger();
+            private final AtomicInteger misses = new AtomicInteger();
+
+            @Override
+            public EntityCache cache() {
+                return new BoundedEntityCache(maxEntities, 0,
+                        TimeUnit.MILLISECONDS, hits, misses);
+            }
+
+            /**
+             * @return the hits and misses of all the queries, whether or not
+             *         their caches were flushed, the caches hold no entities
+             *         once their query is done
+             */
+            @Override
+            public EntityCacheStatistics stats() {
+                EntityCacheStatistics stats = new EntityCacheStatistics();
+                stats.hits = hits.get();
+                stats.misses = misses.get();
+                return stats;
+            }
+        };
+    }
+
+    public static EntityCacheScope executor(int maxEntities, long ttl,
+            TimeUnit unit) {
+        return shared(new BoundedEntityCache(maxEntities, ttl, unit));
+    }
+
+    public static EntityCacheScope shared(final EntityCache cache) {
+        return new EntityCacheScope() {
+            @Override
+            public EntityCache cache() {
+                return cache;
+            }
+
+            @Override
+            public EntityCacheStatistics stats() {
+                return cache.stats();
+            }
+        };
+    }
+
+    public static EntityCacheScope none() {
+        return shared(new NonFunctionalEntityCache());
+    }
+
+}
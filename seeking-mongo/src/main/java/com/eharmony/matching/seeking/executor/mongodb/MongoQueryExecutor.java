@@ -16,26 +16,50 @@
 
 package com.eharmony.matching.seeking.executor.mongodb;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.impl.LogFactoryImpl;
 
+import com.eharmony.matching.seeking.executor.BatchResults;
 import com.eharmony.matching.seeking.executor.DataStoreException;
+import com.eharmony.matching.seeking.executor.Page;
+import com.eharmony.matching.seeking.executor.PreparedQuery;
+import com.eharmony.matching.seeking.executor.QueryBatch;
 import com.eharmony.matching.seeking.executor.QueryExecutor;
+import com.eharmony.matching.seeking.executor.ResultStream;
 import com.eharmony.matching.seeking.executor.RetryableDataStoreException;
+import com.eharmony.matching.seeking.metadata.SeekingMetadataRegistry;
+import com.eharmony.matching.seeking.metadata.Warmable;
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.QueryHints;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+import com.eharmony.matching.seeking.query.criterion.expression.NearExpression;
+import com.eharmony.matching.seeking.query.update.Updates;
 import com.eharmony.matching.seeking.translator.EntityResolver;
+import com.eharmony.matching.seeking.translator.mongodb.MongoOperator;
 import com.eharmony.matching.seeking.translator.mongodb.MongoQueryTranslator;
 import com.google.code.morphia.mapping.Mapper;
-import com.google.code.morphia.mapping.cache.EntityCache;
+import com.google.code.morphia.mapping.cache.EntityCacheStatistics;
+import com.google.code.morphia.utils.ReflectionUtils;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
+import com.mongodb.AggregationOutput;
 import com.mongodb.BasicDBObject;
+import com.mongodb.Bytes;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
@@ -48,22 +72,37 @@ import com.mongodb.WriteResult;
 /**
  * A QueryExecutor implementation that interacts with MongoDB
  */
-public class MongoQueryExecutor implements QueryExecutor {
+public class MongoQueryExecutor implements QueryExecutor, Warmable {
 
     private static final Log log = LogFactoryImpl.getLog(MongoQueryExecutor.class);
 
     // a value of 0 will use the server side default (currently 100)
     private static final int DEFAULT_MONGODB_BATCH_SIZE = 0;
 
+    // documents per insert when saving many entities
+    public static final int DEFAULT_SAVE_BATCH_SIZE = 1000;
+
+    // documents per batch of a scan, unless the query has a fetch size
+    public static final int DEFAULT_SCAN_BATCH_SIZE = 10000;
+
+    // entities mapped per query, by default
+    public static final int DEFAULT_MAX_CACHED_ENTITIES = 10000;
+
     private final MongoQueryTranslator queryTranslator;
     private final Mapper mapper;
-    private final EntityCache cache;
+    private final EntityCacheScope entityCacheScope;
     private final DB db;
     private final EntityResolver entityResolver;
-    private final Map<Class<?>,DBCollection> collections;
+    private final ConcurrentMap<Class<?>,DBCollection> collections;
     private final WriteConcern writeConcern;
-    private final Set<Class<?>> mappedClasses = Sets.newHashSet();
+    private final WriteConcern insertConcern;
+    private final Set<Class<?>> mappedClasses = Collections
+            .newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+    // the projection decoders per return type and return fields
+    private final ConcurrentMap<List<Object>, ProjectionDecoder<?>> decoders = Maps
+            .newConcurrentMap();
     private final int batchSize;
+    private final int saveBatchSize;
 
 
     public MongoQueryExecutor(
@@ -71,7 +110,9 @@ public class MongoQueryExecutor implements QueryExecutor {
             WriteConcern writeConcern,
             MongoQueryTranslator queryTranslator,
             EntityResolver entityResolver,
-            final int batchSize) {
+            final int batchSize,
+            final int saveBatchSize,
+            EntityCacheScope entityCacheScope) {
         if (null == db) {
             throw new IllegalArgumentException("null database");
         }
@@ -84,6 +125,8 @@ public class MongoQueryExecutor implements QueryExecutor {
             throw new IllegalArgumentException("null write concern");
         }
         this.writeConcern = writeConcern;
+        // batched inserts go on past the documents that fail
+        this.insertConcern = writeConcern.continueOnErrorForInsert(true);
 
         if (null == queryTranslator) {
             throw new IllegalArgumentException("null query translator");
@@ -97,9 +140,38 @@ public class MongoQueryExecutor implements QueryExecutor {
 
         this.mapper = new Mapper();
         this.collections = Maps.newConcurrentMap();
-        // TODO: fix the entity cache?
-        this.cache = new NonFunctionalEntityCache();
+        if (null == entityCacheScope) {
+            throw new IllegalArgumentException("null entity cache scope");
+        }
+        this.entityCacheScope = entityCacheScope;
         this.batchSize = batchSize;
+
+        if (saveBatchSize < 1) {
+            throw new IllegalArgumentException("save batch size must be positive");
+        }
+        this.saveBatchSize = saveBatchSize;
+    }
+
+    public MongoQueryExecutor(
+            DB db,
+            WriteConcern writeConcern,
+            MongoQueryTranslator queryTranslator,
+            EntityResolver entityResolver,
+            final int batchSize,
+            final int saveBatchSize) {
+        this(db, writeConcern, queryTranslator, entityResolver, batchSize,
+                saveBatchSize, EntityCacheScope
+                        .query(DEFAULT_MAX_CACHED_ENTITIES));
+    }
+    
+    public MongoQueryExecutor(
+            DB db,
+            WriteConcern writeConcern,
+            MongoQueryTranslator queryTranslator,
+            EntityResolver entityResolver,
+            final int batchSize) {
+        this(db, writeConcern, queryTranslator, entityResolver, batchSize,
+                DEFAULT_SAVE_BATCH_SIZE);
     }
     
     public MongoQueryExecutor(
@@ -134,22 +206,49 @@ public class MongoQueryExecutor implements QueryExecutor {
     public DB getDB() {
         return db;
     }
+
+    /**
+     * @return the statistics of the Morphia entity caches of the queries
+     */
+    public EntityCacheStatistics getEntityCacheStatistics() {
+        return entityCacheScope.stats();
+    }
     
     public DBCollection getCollection(Class<?> entityClass) {
-        // we don't need to synchronize because we don't care if this happens
-        // more than once
-        if (!collections.containsKey(entityClass)) {
-            final String collection = this.entityResolver.resolve(entityClass);
-            collections.put(entityClass, db.getCollection(collection));
+        // we don't need to synchronize because we don't care if the
+        // collection is looked up more than once, but every caller must see
+        // the same one
+        DBCollection collection = collections.get(entityClass);
+        if (collection == null) {
+            final String name = this.entityResolver.resolve(entityClass);
+            collection = db.getCollection(name);
+            final DBCollection existing = collections.putIfAbsent(entityClass,
+                    collection);
+            if (existing != null) {
+                collection = existing;
+            }
+        }
+        return collection;
+    }
+
+    /**
+     * Register the Morphia mappings and look up the collections of the
+     * registered entity classes.
+     */
+    @Override
+    public void warmUp(SeekingMetadataRegistry registry) {
+        for (Class<?> entityClass : registry.getEntityClasses()) {
+            mapClasses(entityClass);
+            getCollection(entityClass);
         }
-        return collections.get(entityClass);
     }
 
 
     public <T, R> void remove(Query<T, R> query) {
         try {
+            final DBObject translated = this.queryTranslator.translate(query);
             getCollection(query.getEntityClass()).remove(
-                    this.queryTranslator.translate(query),
+                    translated != null ? translated : new BasicDBObject(),
                     this.writeConcern);
         } catch (final MongoException mx) {
             throw new DataStoreException(mx.getMessage(), mx);
@@ -170,27 +269,62 @@ public class MongoQueryExecutor implements QueryExecutor {
 
     private <T, R> DBCursor translate(Query<T, R> query) {
         mapClasses(query.getEntityClass());
-        final DBObject translated = queryTranslator.translate(query);
+        return cursor(query, queryTranslator.translate(query),
+                queryTranslator.translateProjection(query),
+                queryTranslator.translateOrder(query));
+    }
+
+    private <T, R> DBCursor cursor(Query<T, R> query, DBObject translated,
+            DBObject fields, DBObject order) {
         if (log.isDebugEnabled()) {
             log.debug(translated);
         }
-        final DBObject fields = queryTranslator.translateProjection(query);
         final DBCursor cursor = find(getCollection(query.getEntityClass()),
                 translated, fields);
-        cursor.sort(queryTranslator.translateOrder(query));
-        if (query.getMaxResults() != null) {
+        cursor.sort(order);
+        final NearExpression<?> near = NearExpression.of(query);
+        if (near != null) {
+            // $near sorts by distance
+            cursor.limit(near.getLimit(query));
+        } else if (query.getMaxResults() != null) {
             cursor.limit(query.getMaxResults());
         }
+        hint(cursor, query.getHints());
         return cursor;
     }
 
+    /*
+     * Apply the index, comment and max scan hints, the others do not apply
+     * to MongoDB
+     */
+    private void hint(DBCursor cursor, QueryHints hints) {
+        if (hints.isEmpty()) {
+            return;
+        }
+        final Object index = hints.get(QueryHints.INDEX);
+        if (index instanceof DBObject) {
+            cursor.hint((DBObject) index);
+        } else if (index != null) {
+            cursor.hint(hints.get(QueryHints.INDEX, String.class));
+        }
+        final String comment = hints.get(QueryHints.COMMENT, String.class);
+        if (comment != null) {
+            cursor.addSpecial("$comment", comment);
+        }
+        final Integer maxScan = hints.get(QueryHints.MAX_SCAN, Integer.class);
+        if (maxScan != null) {
+            cursor.addSpecial("$maxScan", maxScan);
+        }
+    }
+
     private void mapClasses(Class<?>... classes) {
         for (final Class<?> clazz : classes) {
             /*
              * Should we synchronize this? The overhead of mapping a class twice
              * (in the unlikely event that it happens) is small compared to the
              * overhead of hitting a synchronize block every time we perform a
-             * query
+             * query. The set is concurrent and a class is only added once it
+             * is mapped, so no thread sees an unmapped class as mapped.
              */
             if (!mappedClasses.contains(clazz)) {
                 mapper.addMappedClass(clazz);
@@ -200,10 +334,79 @@ public class MongoQueryExecutor implements QueryExecutor {
     }
 
     private <T, R> MongoResults<R> fetch(DBCursor cursor, Query<T, R> query) {
-        if (batchSize != DEFAULT_MONGODB_BATCH_SIZE) {
+        return fetch(cursor, query, batchSize);
+    }
+
+    private <T, R> MongoResults<R> fetch(DBCursor cursor, Query<T, R> query,
+            int batchSize) {
+        // the fetch size of the query takes precedence over the batch size
+        if (query.getFetchSize() != null) {
+            cursor = cursor.batchSize(query.getFetchSize());
+        } else if (batchSize != DEFAULT_MONGODB_BATCH_SIZE) {
             cursor = cursor.batchSize(batchSize);
         }
-        return new MongoResults<R>(cursor, mapper, query.getReturnType(), cache);
+        // the documents passed through are never mapped, nor cached
+        return new MongoResults<R>(cursor, mapper, query.getReturnType(),
+                MongoResults.isPassThrough(query.getReturnType()) ? null
+                        : entityCacheScope.cache(), decoder(query));
+    }
+
+    /*
+     * The decoder of the projected documents of the query, compiled once per
+     * return type and return fields. Null for the queries without return
+     * fields and the return types that cannot be decoded directly.
+     */
+    @SuppressWarnings("unchecked")
+    private <T, R> ProjectionDecoder<R> decoder(Query<T, R> query) {
+        final Class<R> returnType = query.getReturnType();
+        if (query.getReturnFields().isEmpty()
+                || MongoResults.isPassThrough(returnType)
+                || ReflectionUtils.isPrimitiveLike(returnType)) {
+            return null;
+        }
+        final List<Object> key = Arrays.<Object> asList(returnType,
+                query.getReturnFields());
+        ProjectionDecoder<?> decoder = decoders.get(key);
+        if (decoder == null) {
+            decoder = ProjectionDecoder.compile(mapper, returnType,
+                    projected(queryTranslator.translateProjection(query)));
+            // the return types that cannot be decoded are not compiled again
+            decoders.putIfAbsent(key, decoder != null ? decoder
+                    : ProjectionDecoder.NONE);
+        }
+        return decoder != ProjectionDecoder.NONE ? (ProjectionDecoder<R>) decoder
+                : null;
+    }
+
+    /*
+     * The keys included by a projection, null when the whole document is
+     */
+    private static Set<String> projected(DBObject fields) {
+        if (fields == null || fields.keySet().isEmpty()) {
+            return null;
+        }
+        final Set<String> projected = new HashSet<String>();
+        boolean inclusive = false;
+        boolean id = true;
+        for (String field : fields.keySet()) {
+            final Object value = fields.get(field);
+            final boolean included = !(value instanceof Number)
+                    || ((Number) value).intValue() != 0;
+            inclusive |= included;
+            if (Mapper.ID_KEY.equals(field)) {
+                id = included;
+            } else if (included) {
+                projected.add(field);
+            }
+        }
+        if (!inclusive) {
+            // only exclusions, the rest of the document is returned
+            return null;
+        }
+        if (id) {
+            projected.add(Mapper.ID_KEY);
+        }
+        return projected;
     }
 
 
@@ -219,6 +422,12 @@ public class MongoQueryExecutor implements QueryExecutor {
         return collection.save(entity, this.writeConcern);
     }
 
+
+    @VisibleForTesting
+    protected WriteResult insert(DBCollection collection, List<DBObject> documents) {
+        return collection.insert(documents, this.insertConcern);
+    }
+
     /*
      * (non-Javadoc)
      * @see com.eharmony.matching.seeking.executor.QueryExecutor#find(com.eharmony.matching.seeking.query.Query)
@@ -240,7 +449,257 @@ public class MongoQueryExecutor implements QueryExecutor {
     public <T, R> R findOne(Query<T, R> query) {
         try {
             final MongoResults<R> results = fetch(translate(query).limit(1), query);
-            return results.hasNext() ? results.next() : null;
+            try {
+                return results.hasNext() ? results.next() : null;
+            } finally {
+                results.close();
+            }
+        } catch (final MongoException mx) {
+            throw new DataStoreException(mx.getMessage(), mx);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#count(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> long count(Query<T, R> query) {
+        try {
+            return getCollection(query.getEntityClass()).count(
+                    queryTranslator.translate(query));
+        } catch (final MongoException mx) {
+            throw new DataStoreException(mx.getMessage(), mx);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#exists(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> boolean exists(Query<T, R> query) {
+        try {
+            // only the id of at most one document is returned
+            final DBCursor cursor = find(getCollection(query.getEntityClass()),
+                    queryTranslator.translate(query),
+                    new BasicDBObject("_id", 1)).limit(1);
+            try {
+                return cursor.hasNext();
+            } finally {
+                cursor.close();
+            }
+        } catch (final MongoException mx) {
+            throw new DataStoreException(mx.getMessage(), mx);
+        }
+    }
+
+    /**
+     * Run the aggregation pipeline translated from the aggregation.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#aggregate(com.eharmony.matching.seeking.query.aggregate.Aggregation)
+     */
+    @Override
+    public <T> List<AggregateResult> aggregate(Aggregation<T> aggregation) {
+        try {
+            final List<DBObject> pipeline = queryTranslator
+                    .translateAggregation(aggregation);
+            final AggregationOutput output = getCollection(
+                    aggregation.getEntityClass()).aggregate(pipeline.get(0),
+                    pipeline.subList(1, pipeline.size()).toArray(
+                            new DBObject[pipeline.size() - 1]));
+            output.getCommandResult().throwOnError();
+            final List<AggregateResult> results = new ArrayList<AggregateResult>();
+            for (DBObject document : output.results()) {
+                results.add(queryTranslator.translateAggregateResult(
+                        aggregation, document));
+            }
+            // $group returns nothing rather than a single empty group
+            return results.isEmpty() ? AggregateResult.none(aggregation) : results;
+        } catch (final MongoException mx) {
+            throw new DataStoreException(mx.getMessage(), mx);
+        }
+    }
+
+    /**
+     * The results and the count are read through the same cursor, MongoDB
+     * answers them in two round trips.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findPage(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> Page<R> findPage(Query<T, R> query) {
+        try {
+            final DBCursor cursor = translate(query);
+            // the count ignores the limit of the cursor
+            final long total = cursor.count();
+            final Iterator<R> results = fetch(cursor, query);
+            return new Page<R>(Lists.newArrayList(results), total);
+        } catch (final MongoException mx) {
+            throw new DataStoreException(mx.getMessage(), mx);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#stream(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> ResultStream<R> stream(Query<T, R> query) {
+        try {
+            return fetch(translate(query), query);
+        } catch (final MongoException mx) {
+            throw new DataStoreException(mx.getMessage(), mx);
+        }
+    }
+
+    /**
+     * Scan the results of a query that reads a whole collection, or a large
+     * part of it, such as a batch job. The results are read in batches of
+     * the fetch size of the query or {@link #DEFAULT_SCAN_BATCH_SIZE}
+     * documents, and the server never times the cursor out, so the results
+     * must be read to the end or closed. (This driver does not let exhaust
+     * cursors be requested.)
+     * 
+     * @param query
+     *            the query
+     * @return the results
+     * @see #scan(Query, boolean)
+     */
+    public <T, R> ResultStream<R> scan(Query<T, R> query) {
+        return scan(query, false);
+    }
+
+    /**
+     * Scan the results of a query, as {@link #scan(Query)}, optionally
+     * snapshotting it so that the documents updated during the scan are
+     * returned at most once.
+     * 
+     * @param query
+     *            the query, which cannot be ordered when snapshotted
+     * @param snapshot
+     *            whether to snapshot the query
+     * @return the results
+     */
+    public <T, R> ResultStream<R> scan(Query<T, R> query, boolean snapshot) {
+        if (snapshot && !query.getOrder().get().isEmpty()) {
+            throw new IllegalArgumentException(
+                    "a snapshot query cannot be ordered");
+        }
+        try {
+            final DBCursor cursor = translate(query);
+            cursor.addOption(Bytes.QUERYOPTION_NOTIMEOUT);
+            if (snapshot) {
+                cursor.snapshot();
+            }
+            return fetch(cursor, query, DEFAULT_SCAN_BATCH_SIZE);
+        } catch (final MongoException mx) {
+            throw new DataStoreException(mx.getMessage(), mx);
+        }
+    }
+
+    /**
+     * Lookups on the same collection and field are sent as a single
+     * <code>$in</code> query and split back per query on the value of the
+     * field; the other queries are sent one after the other.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findAll(java.util.List)
+     */
+    @Override
+    public BatchResults findAll(List<? extends Query<?, ?>> queries) {
+        return QueryBatch.findAll(this, queries);
+    }
+
+    /**
+     * Translate a parameterized query once. Executing the prepared query only
+     * binds the parameter values into the translated DBObject.
+     * 
+     * @param query
+     *            a query with
+     *            {@link com.eharmony.matching.seeking.query.criterion.Parameter}
+     *            values
+     * @return the prepared query
+     */
+    public <T, R> PreparedQuery<T, R> prepare(Query<T, R> query) {
+        mapClasses(query.getEntityClass());
+        return new MongoPreparedQuery<T, R>(query);
+    }
+
+    private class MongoPreparedQuery<T, R> implements PreparedQuery<T, R> {
+
+        private final Query<T, R> query;
+        private final DBObject template;
+        private final DBObject fields;
+        private final DBObject order;
+
+        private MongoPreparedQuery(Query<T, R> query) {
+            this.query = query;
+            this.template = queryTranslator.translate(query);
+            this.fields = queryTranslator.translateProjection(query);
+            this.order = queryTranslator.translateOrder(query);
+        }
+
+        @Override
+        public Query<T, R> getQuery() {
+            return query;
+        }
+
+        private DBCursor cursor(Map<String, ?> parameters) {
+            return MongoQueryExecutor.this.cursor(query,
+                    queryTranslator.bind(template, parameters), fields, order);
+        }
+
+        @Override
+        public Iterable<R> find(Map<String, ?> parameters) {
+            try {
+                return fetch(cursor(parameters), query);
+            } catch (final MongoException mx) {
+                throw new DataStoreException(mx.getMessage(), mx);
+            }
+        }
+
+        @Override
+        public R findOne(Map<String, ?> parameters) {
+            try {
+                final MongoResults<R> results = fetch(cursor(parameters).limit(1), query);
+                try {
+                    return results.hasNext() ? results.next() : null;
+                } finally {
+                    results.close();
+                }
+            } catch (final MongoException mx) {
+                throw new DataStoreException(mx.getMessage(), mx);
+            }
+        }
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#delete(com.eharmony.matching.seeking.query.Query)
+     */
+    @Override
+    public <T, R> void delete(Query<T, R> query) {
+        remove(query);
+    }
+
+    /**
+     * Apply the updates with a single multi-document update.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#update(com.eharmony.matching.seeking.query.Query, com.eharmony.matching.seeking.query.update.Updates)
+     */
+    @Override
+    public <T, R> void update(Query<T, R> query, Updates updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            final DBObject translated = queryTranslator.translate(query);
+            getCollection(query.getEntityClass()).update(
+                    translated != null ? translated : new BasicDBObject(),
+                    queryTranslator.translateUpdates(updates,
+                            query.getEntityClass()), false, true,
+                    this.writeConcern);
         } catch (final MongoException mx) {
             throw new DataStoreException(mx.getMessage(), mx);
         }
@@ -261,8 +720,18 @@ public class MongoQueryExecutor implements QueryExecutor {
         }
     }
 
-    /*
-     * (non-Javadoc)
+    /**
+     * Save the entities in batches of the save batch size, per entity class.
+     * The new documents of a batch are sent in a single insert that goes on
+     * past the documents that fail; the documents whose id is already stored
+     * are saved one at a time, this driver has no bulk upsert. As with one
+     * save per entity, the last of the entities of a batch that share an id
+     * is the one stored. When the insert fails on ids that were stored
+     * meanwhile, its documents are saved one at a time.
+     * 
+     * @throws RetryableDataStoreException
+     *             if any entity was not saved, its retryable status is the
+     *             collection of those entities
      * @see com.eharmony.matching.seeking.executor.QueryExecutor#save(java.lang.Iterable)
      */
     @Override
@@ -271,21 +740,125 @@ public class MongoQueryExecutor implements QueryExecutor {
         MongoException mostRecentMongoException = null;
 
         final Collection<T> saved = Lists.newArrayList();
+        final Map<Class<?>, List<T>> batches = Maps.newLinkedHashMap();
         for (final T entity : entities) {
+            List<T> batch = batches.get(entity.getClass());
+            if (batch == null) {
+                batch = Lists.newArrayListWithCapacity(saveBatchSize);
+                batches.put(entity.getClass(), batch);
+            }
+            batch.add(entity);
+            saved.add(entity);
+            if (batch.size() == saveBatchSize) {
+                final MongoException mx = saveBatch(entity.getClass(), batch, failed);
+                mostRecentMongoException = mx != null ? mx : mostRecentMongoException;
+                batch.clear();
+            }
+        }
+        for (final Map.Entry<Class<?>, List<T>> batch : batches.entrySet()) {
+            if (!batch.getValue().isEmpty()) {
+                final MongoException mx = saveBatch(batch.getKey(), batch.getValue(), failed);
+                mostRecentMongoException = mx != null ? mx : mostRecentMongoException;
+            }
+        }
+
+        if (!failed.isEmpty()) {
+            throw new RetryableDataStoreException(mostRecentMongoException, failed);
+        }
+        return saved;
+    }
+
+    /*
+     * Save a batch of entities of the same class, adding the entities that
+     * were not saved to failed. Returns the last exception, if any.
+     */
+    private <T> MongoException saveBatch(Class<?> entityClass, List<T> batch,
+            Collection<T> failed) {
+        MongoException mostRecentMongoException = null;
+        final DBCollection collection = getCollection(entityClass);
+        final List<DBObject> documents = new ArrayList<DBObject>(batch.size());
+        // the index of the last document of each id, the one that is saved
+        final Map<Object, Integer> last = new HashMap<Object, Integer>();
+        for (final T entity : batch) {
+            final DBObject document = mapper.toDBObject(entity);
+            if (document.get(Mapper.ID_KEY) != null) {
+                last.put(document.get(Mapper.ID_KEY), documents.size());
+            }
+            documents.add(document);
+        }
+        final Set<Object> stored;
+        try {
+            stored = storedIds(collection, new ArrayList<Object>(last.keySet()));
+        } catch (final MongoException mx) {
+            failed.addAll(batch);
+            return mx;
+        }
+        final List<DBObject> inserts = new ArrayList<DBObject>(documents.size());
+        final List<T> inserted = new ArrayList<T>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            final DBObject document = documents.get(i);
+            final Object id = document.get(Mapper.ID_KEY);
+            if (id != null && last.get(id) != i) {
+                // overwritten by a later entity of the batch
+                continue;
+            }
+            if (stored.contains(id)) {
+                mostRecentMongoException = save(collection, document,
+                        batch.get(i), failed, mostRecentMongoException);
+            } else {
+                inserts.add(document);
+                inserted.add(batch.get(i));
+            }
+        }
+        if (!inserts.isEmpty()) {
             try {
-                saved.add(save(entity));
+                insert(collection, inserts);
+            } catch (final MongoException.DuplicateKey mx) {
+                // ids stored meanwhile, the driver only reports the last one
+                for (int i = 0; i < inserts.size(); i++) {
+                    mostRecentMongoException = save(collection, inserts.get(i),
+                            inserted.get(i), failed, mostRecentMongoException);
+                }
             } catch (final MongoException mx) {
                 mostRecentMongoException = mx;
-                failed.add(entity);
+                failed.addAll(inserted);
             }
         }
+        return mostRecentMongoException;
+    }
 
-        if (null != mostRecentMongoException) {
-            assert !failed.isEmpty();
-            throw new RetryableDataStoreException(mostRecentMongoException, failed);
+    /*
+     * Save the document of an entity, adding the entity to failed if it was
+     * not saved. Returns the exception, or the given most recent one.
+     */
+    private <T> MongoException save(DBCollection collection,
+            DBObject document, T entity, Collection<T> failed,
+            MongoException mostRecentMongoException) {
+        try {
+            save(collection, document);
+            return mostRecentMongoException;
+        } catch (final MongoException mx) {
+            failed.add(entity);
+            return mx;
         }
-        assert failed.isEmpty();
-        return saved;
+    }
+
+    private Set<Object> storedIds(DBCollection collection, List<Object> ids) {
+        final Set<Object> stored = new HashSet<Object>();
+        if (ids.isEmpty()) {
+            return stored;
+        }
+        final DBCursor cursor = find(collection, new BasicDBObject(
+                Mapper.ID_KEY, new BasicDBObject(MongoOperator.IN.symbol(), ids)),
+                new BasicDBObject(Mapper.ID_KEY, 1));
+        try {
+            while (cursor.hasNext()) {
+                stored.add(cursor.next().get(Mapper.ID_KEY));
+            }
+        } finally {
+            cursor.close();
+        }
+        return stored;
     }
 
 }
@@ -16,36 +16,140 @@
 
 package com.eharmony.matching.seeking.executor.mongodb;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Iterator;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.impl.LogFactoryImpl;
+import org.bson.BSON;
+import org.bson.BSONObject;
+import org.bson.LazyBSONObject;
 
+import com.eharmony.matching.seeking.executor.DataStoreException;
+import com.eharmony.matching.seeking.executor.ResultStream;
 import com.google.code.morphia.mapping.Mapper;
 import com.google.code.morphia.mapping.cache.EntityCache;
 import com.google.code.morphia.query.MorphiaIterator;
 import com.google.code.morphia.utils.ReflectionUtils;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.LazyDBDecoder;
 
 /**
  * Transform the results returned from MongoDB via Morphia as they are iterated.
+ * The cursor is closed once the results are exhausted or when they are closed.
+ * 
+ * The documents are passed through without Morphia when the return type is
+ * {@link DBObject} (or {@link BasicDBObject}, {@link BSONObject}), or
+ * <code>byte[]</code> for the documents encoded as BSON. The BSON documents
+ * are read lazily from the cursor and copied as they were received, they are
+ * never decoded.
  * 
  * @param <T>
  *            the return type
  */
 public class MongoResults<T> extends MorphiaIterator<T, T> implements
-        Iterable<T>, Iterator<T> {
+        Iterable<T>, Iterator<T>, ResultStream<T> {
 
     private static final Log log = LogFactoryImpl.getLog(MongoResults.class);
     private final Class<T> returnType;
     private final boolean isPrimitiveLike;
+    private final boolean isDocument;
+    private final boolean isBson;
+    private final ProjectionDecoder<T> decoder;
+    private final DBCursor cursor;
+    private boolean closed = false;
 
     public MongoResults(DBCursor cursor, Mapper m, Class<T> clazz,
             EntityCache cache) {
+        this(cursor, m, clazz, cache, null);
+    }
+
+    /**
+     * @param decoder
+     *            the decoder of the projected documents, the documents it
+     *            cannot decode are mapped by Morphia; null to map them all
+     */
+    MongoResults(DBCursor cursor, Mapper m, Class<T> clazz,
+            EntityCache cache, ProjectionDecoder<T> decoder) {
         super(cursor, m, clazz, null, cache);
         this.returnType = clazz;
-        this.isPrimitiveLike = ReflectionUtils.isPrimitiveLike(clazz);
+        this.decoder = decoder;
+        this.isDocument = isDocument(clazz);
+        this.isBson = byte[].class.equals(clazz);
+        this.isPrimitiveLike = !isDocument && !isBson
+                && ReflectionUtils.isPrimitiveLike(clazz);
+        this.cursor = cursor;
+        if (isBson) {
+            cursor.setDecoderFactory(LazyDBDecoder.FACTORY);
+        }
+    }
+
+    /**
+     * @param returnType
+     *            a return type
+     * @return whether the documents of a query are returned as they are
+     *         read, without mapping, for the return type
+     */
+    public static boolean isPassThrough(Class<?> returnType) {
+        return isDocument(returnType) || byte[].class.equals(returnType);
+    }
+
+    private static boolean isDocument(Class<?> returnType) {
+        return BSONObject.class.isAssignableFrom(returnType)
+                && returnType.isAssignableFrom(BasicDBObject.class);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (isDocument || isBson ? cursor.hasNext() : super.hasNext()) {
+            return true;
+        }
+        close();
+        return false;
+    }
+
+    @Override
+    public T next() {
+        if (isDocument) {
+            return returnType.cast(cursor.next());
+        } else if (isBson) {
+            return returnType.cast(bytes(cursor.next()));
+        } else {
+            return super.next();
+        }
+    }
+
+    /*
+     * The document as BSON, copied from the lazy document when the cursor
+     * decoded it lazily
+     */
+    private static byte[] bytes(DBObject document) {
+        if (!(document instanceof LazyBSONObject)) {
+            return BSON.encode(document);
+        }
+        final LazyBSONObject lazy = (LazyBSONObject) document;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(
+                lazy.getBSONSize());
+        try {
+            lazy.pipe(out);
+        } catch (final IOException e) {
+            throw new DataStoreException(e.getMessage(), e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            cursor.close();
+        }
     }
 
     @Override
@@ -60,9 +164,14 @@ public class MongoResults<T> extends MorphiaIterator<T, T> implements
                         + returnType.toString());
                 throw e;
             }
-        } else {
-            return super.processItem(dbObj);
         }
+        if (decoder != null) {
+            final T decoded = decoder.decode(dbObj);
+            if (decoded != null) {
+                return decoded;
+            }
+        }
+        return super.processItem(dbObj);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,239 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.executor.mongodb;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.types.ObjectId;
+
+import com.google.code.morphia.annotations.EntityListeners;
+import com.google.code.morphia.annotations.PostLoad;
+import com.google.code.morphia.annotations.PreLoad;
+import com.google.code.morphia.annotations.Reference;
+import com.google.code.morphia.annotations.Serialized;
+import com.google.code.morphia.mapping.MappedClass;
+import com.google.code.morphia.mapping.MappedField;
+import com.google.code.morphia.mapping.Mapper;
+import com.google.common.primitives.Primitives;
+import com.mongodb.DBObject;
+
+/**
+ * Decode the documents of a projection into the return type by copying the
+ * projected values directly into its fields, without going through the
+ * Morphia mapping of the whole type. The fields are resolved once per return
+ * type and projection.
+ * 
+ * Only return types whose projected fields are simple values (primitives,
+ * their wrappers, strings, dates, object ids and enums) without Morphia
+ * references, serialization or lifecycle callbacks can be decoded, and only
+ * projections whose keys are all top level fields of the return type; the
+ * documents whose values cannot be copied as they are are left to Morphia.
+ * 
+ * @param <R>
+ *            the return type
+ */
+class ProjectionDecoder<R> {
+
+    // the decoder of the return types that cannot be decoded directly
+    static final ProjectionDecoder<Object> NONE = new ProjectionDecoder<Object>(
+            null, new ArrayList<String>(0), new ArrayList<Field>(0));
+
+    private final Constructor<R> constructor;
+    private final String[] keys;
+    private final Field[] fields;
+    private final Class<?>[] types;
+
+    private ProjectionDecoder(Constructor<R> constructor, List<String> keys,
+            List<Field> fields) {
+        this.constructor = constructor;
+        this.keys = keys.toArray(new String[keys.size()]);
+        this.fields = fields.toArray(new Field[fields.size()]);
+        this.types = new Class<?>[this.fields.length];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = Primitives.wrap(this.fields[i].getType());
+        }
+    }
+
+    /**
+     * Resolve the fields of the return type stored under the projected keys.
+     * 
+     * @param mapper
+     *            the Morphia mapper
+     * @param returnType
+     *            the return type
+     * @param projected
+     *            the keys of the projection, or null for the whole document
+     * @return the decoder, or null if the return type cannot be decoded
+     *         directly
+     */
+    static <R> ProjectionDecoder<R> compile(Mapper mapper, Class<R> returnType,
+            Set<String> projected) {
+        if (returnType.isInterface()
+                || Modifier.isAbstract(returnType.getModifiers())
+                || returnType.isAnnotationPresent(EntityListeners.class)) {
+            return null;
+        }
+        final Constructor<R> constructor;
+        try {
+            constructor = returnType.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (SecurityException e) {
+            return null;
+        }
+        final MappedClass mappedClass = mapper.getMappedClass(returnType);
+        if (mappedClass == null) {
+            return null;
+        }
+        if (projected != null) {
+            for (String key : projected) {
+                // the embedded documents of dotted keys are left to Morphia
+                if (key.indexOf('.') >= 0) {
+                    return null;
+                }
+            }
+        }
+        final List<String> keys = new ArrayList<String>();
+        final List<Field> fields = new ArrayList<Field>();
+        for (Class<?> c = returnType; c != null && c != Object.class; c = c
+                .getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(PreLoad.class)
+                        || method.isAnnotationPresent(PostLoad.class)) {
+                    return null;
+                }
+            }
+            for (Field field : c.getDeclaredFields()) {
+                final MappedField mappedField = mappedClass
+                        .getMappedFieldByJavaField(field.getName());
+                if (mappedField == null
+                        || Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                final String key = mappedField.getNameToStore();
+                if (projected != null && !projected.contains(key)) {
+                    continue;
+                }
+                if (!isSimple(field.getType())
+                        || field.isAnnotationPresent(Reference.class)
+                        || field.isAnnotationPresent(Serialized.class)) {
+                    return null;
+                }
+                try {
+                    field.setAccessible(true);
+                } catch (SecurityException e) {
+                    return null;
+                }
+                keys.add(key);
+                fields.add(field);
+            }
+        }
+        if (projected != null) {
+            for (String key : projected) {
+                // a projected value without a field of its own
+                if (!keys.contains(key) && !Mapper.ID_KEY.equals(key)) {
+                    return null;
+                }
+            }
+        }
+        return new ProjectionDecoder<R>(constructor, keys, fields);
+    }
+
+    private static boolean isSimple(Class<?> type) {
+        final Class<?> wrapped = Primitives.wrap(type);
+        return Primitives.isWrapperType(wrapped) && wrapped != Character.class
+                && wrapped != Void.class || type == String.class
+                || type == Date.class || type == ObjectId.class
+                || type.isEnum();
+    }
+
+    /**
+     * @param document
+     *            a document of the projection
+     * @return the decoded value, or null if a value of the document cannot be
+     *         copied into its field
+     */
+    R decode(DBObject document) {
+        final Object className = document.get(Mapper.CLASS_NAME_FIELDNAME);
+        if (className != null
+                && !className.equals(constructor.getDeclaringClass().getName())) {
+            // Morphia maps the documents of subclasses into the subclass
+            return null;
+        }
+        try {
+            final R decoded = constructor.newInstance();
+            for (int i = 0; i < keys.length; i++) {
+                if (!document.containsField(keys[i])) {
+                    continue;
+                }
+                final Object value = convert(document.get(keys[i]), types[i]);
+                if (value == null && fields[i].getType().isPrimitive()) {
+                    return null;
+                }
+                fields[i].set(decoded, value);
+            }
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            return null;
+        } catch (InstantiationException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object convert(Object value, Class<?> type) {
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            final Number number = (Number) value;
+            if (type == Long.class) {
+                return number.longValue();
+            } else if (type == Integer.class) {
+                return number.intValue();
+            } else if (type == Double.class) {
+                return number.doubleValue();
+            } else if (type == Float.class) {
+                return number.floatValue();
+            } else if (type == Short.class) {
+                return number.shortValue();
+            } else if (type == Byte.class) {
+                return number.byteValue();
+            }
+        } else if (value instanceof String && type.isEnum()) {
+            return Enum.valueOf((Class<Enum>) type, (String) value);
+        }
+        // the mismatch is left to Morphia
+        throw new IllegalArgumentException(value.getClass() + " is not a "
+                + type);
+    }
+
+}
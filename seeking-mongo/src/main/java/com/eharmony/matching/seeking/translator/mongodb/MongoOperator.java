@@ -35,9 +35,22 @@ public enum MongoOperator implements Symbolic {
     
     WITHIN("$within"),
     CENTER("$center"),
+    NEAR("$near"),
+    MAX_DISTANCE("$maxDistance"),
 
     OR("$or"),
-    AND("$and");
+    AND("$and"),
+    
+    MATCH("$match"),
+    GROUP("$group"),
+    SUM("$sum"),
+    MIN("$min"),
+    MAX("$max"),
+    AVG("$avg"),
+    
+    SET("$set"),
+    INC("$inc"),
+    UNSET("$unset");
 
     private final String symbol;
 
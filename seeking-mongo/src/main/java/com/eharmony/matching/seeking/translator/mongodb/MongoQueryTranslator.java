@@ -16,25 +16,31 @@
 
 package com.eharmony.matching.seeking.translator.mongodb;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
 import com.eharmony.matching.seeking.query.criterion.Ordering.Order;
+import com.eharmony.matching.seeking.query.criterion.Parameter;
 import com.eharmony.matching.seeking.query.criterion.expression.NativeExpression;
 import com.eharmony.matching.seeking.query.geometry.Point;
+import com.eharmony.matching.seeking.query.update.Update;
+import com.eharmony.matching.seeking.query.update.Updates;
 import com.eharmony.matching.seeking.translator.AbstractQueryTranslator;
 import com.eharmony.matching.seeking.translator.PropertyResolver;
 import com.eharmony.matching.seeking.translator.QueryTranslator;
 import com.google.code.morphia.mapping.Mapper;
-import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
+import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 
@@ -44,6 +50,11 @@ import com.mongodb.DBObject;
 public class MongoQueryTranslator extends
         AbstractQueryTranslator<DBObject, DBObject, DBObject> implements
         QueryTranslator<DBObject, DBObject, DBObject> {
+    
+    // keys of the group by values and of the aggregates in the $group stage,
+    // resolved field names may contain dots, which mongo rejects there
+    protected static final String GROUP_KEY_PREFIX = "g";
+    protected static final String AGGREGATE_KEY_PREFIX = "a";
         
     public MongoQueryTranslator(PropertyResolver propertyResolver) {
         super(DBObject.class, DBObject.class, propertyResolver);
@@ -71,49 +82,231 @@ public class MongoQueryTranslator extends
         return Lists.newArrayList(elements);
     }
     
-    @SuppressWarnings("unchecked")
+    /**
+     * Merge the queries of a conjunction into one. The conditions on a field
+     * go in a single document when they can: operator documents are combined
+     * into one, {field: {$gte: a, $lte: b}}, so that MongoDB bounds an index
+     * by both, and repeated conditions are dropped. Only conditions that
+     * conflict (an equality and an operator, or the same operator with
+     * different values) are kept apart in an $and, as are the contents of the
+     * $ands of the queries that conflict.
+     * 
+     * The queries are left untouched: documents are only combined into
+     * documents the merge created.
+     */
     protected DBObject merge(DBObject[] queries) {
         if (queries.length == 1) {
             return queries[0];
         }
-        DBObject merged = object();
-        Set<DBObject> ands = new LinkedHashSet<DBObject>();
-        String andSymbol = MongoOperator.AND.symbol();
-        // multimap => map<key,Collection<values>> 
-        Map<String, Collection<DBObject>> map = multimap(queries).asMap();
-        for (Entry<String, Collection<DBObject>> entry : map.entrySet()) {
-            String key = entry.getKey();
-            // merge multiple ANDs
-            if (andSymbol.equals(key)) {
-                for (DBObject o : entry.getValue()) {
-                    ands.addAll((Set<DBObject>) o.get(andSymbol));
+        Merge merge = new Merge();
+        for (DBObject query : queries) {
+            merge.add(query);
+        }
+        return merge.finish();
+    }
+
+    /*
+     * The state of a merge
+     */
+    private class Merge {
+        private final String andSymbol = MongoOperator.AND.symbol();
+        private final DBObject merged = object();
+        // the first conditions on the fields that conflict with the merged
+        // ones, which later conditions can still be combined into
+        private DBObject conflicts;
+        // the conditions that conflict with both
+        private Set<DBObject> ands;
+        // the documents created by the merge, which can be changed
+        private List<DBObject> created;
+
+        @SuppressWarnings("unchecked")
+        private void add(DBObject query) {
+            for (String key : query.keySet()) {
+                Object value = query.get(key);
+                if (andSymbol.equals(key)) {
+                    for (DBObject conjunct : (Collection<DBObject>) value) {
+                        add(conjunct);
+                    }
+                } else if (!merged.containsField(key)) {
+                    merged.put(key, value);
+                } else if (!combine(merged, key, value)) {
+                    if (conflicts == null) {
+                        conflicts = object();
+                    }
+                    if (!conflicts.containsField(key)) {
+                        conflicts.put(key, value);
+                    } else if (!combine(conflicts, key, value)) {
+                        if (ands == null) {
+                            ands = new LinkedHashSet<DBObject>();
+                        }
+                        ands.add(object(key, value));
+                    }
+                }
+            }
+        }
+
+        private DBObject finish() {
+            if (conflicts != null) {
+                Set<DBObject> conjuncts = new LinkedHashSet<DBObject>();
+                for (String key : conflicts.keySet()) {
+                    conjuncts.add(object(key, conflicts.get(key)));
+                }
+                if (ands != null) {
+                    conjuncts.addAll(ands);
+                }
+                merged.put(andSymbol, conjuncts);
+            }
+            return merged;
+        }
+
+        /*
+         * Combine the value with the value of the key in the target, if they
+         * are equal or operator documents without conflicting operators
+         */
+        private boolean combine(DBObject target, String key, Object value) {
+            Object existing = target.get(key);
+            if (existing == value || existing != null
+                    && existing.equals(value)) {
+                return true;
+            }
+            if (!isOperators(existing) || !isOperators(value)) {
+                return false;
+            }
+            DBObject operators = (DBObject) existing;
+            DBObject additions = (DBObject) value;
+            for (String operator : additions.keySet()) {
+                if (operators.containsField(operator)) {
+                    Object v = operators.get(operator);
+                    Object w = additions.get(operator);
+                    if (v != w && (v == null || !v.equals(w))) {
+                        return false;
+                    }
                 }
-            } else if (entry.getValue().size() == 1) {
-                DBObject single = entry.getValue().iterator().next();
-                merged.put(key, single.get(key));
-            } else {
-                for (DBObject o : entry.getValue()) {
-                    ands.add(o);
+            }
+            if (!isCreated(operators)) {
+                DBObject copy = object();
+                copy.putAll(operators);
+                operators = copy;
+                if (created == null) {
+                    created = new ArrayList<DBObject>(2);
                 }
+                created.add(copy);
+                target.put(key, copy);
             }
+            operators.putAll(additions);
+            return true;
         }
-        // add ANDs
-        if (ands.size() > 0) {
-            merged.put(andSymbol, ands);
+
+        private boolean isCreated(DBObject o) {
+            if (created != null) {
+                for (DBObject c : created) {
+                    if (c == o) {
+                        return true;
+                    }
+                }
+            }
+            return false;
         }
-        return merged;
+    }
+
+    /*
+     * Whether the value is a document of operators, such as {$gt: 1}, rather
+     * than a value to equal
+     */
+    private static boolean isOperators(Object value) {
+        if (!(value instanceof DBObject) || value instanceof List) {
+            return false;
+        }
+        Set<String> keys = ((DBObject) value).keySet();
+        if (keys.isEmpty()) {
+            return false;
+        }
+        for (String key : keys) {
+            if (!key.startsWith("$")) {
+                return false;
+            }
+        }
+        return true;
     }
     
-    private Multimap<String, DBObject> multimap(DBObject[] objects) {
-        Multimap<String, DBObject> m = LinkedHashMultimap
-                .<String, DBObject> create(objects.length, 8);
-        for (DBObject o : objects) {
-            Set<String> keys = o.keySet();
-            for (String key : keys) {
-                m.put(key, o);
+    /**
+     * Bind values to the parameters of a translated query. Only the parts of
+     * the template that contain parameters are copied, everything else is
+     * shared with the template, which is left untouched and can be bound again.
+     * 
+     * @param template
+     *            a query translated from criteria with parameters
+     * @param parameters
+     *            the values bound to each parameter name
+     * @return the query with every parameter replaced by its value
+     * @throws IllegalArgumentException
+     *             if a parameter has no bound value
+     */
+    public DBObject bind(DBObject template, Map<String, ?> parameters) {
+        return (DBObject) bindValue(template, parameters);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Object bindValue(Object value, Map<String, ?> parameters) {
+        if (value instanceof Parameter) {
+            return Parameter.resolve(value, parameters);
+        } else if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            List<Object> bound = null;
+            for (int i = 0; i < list.size(); i++) {
+                Object v = list.get(i);
+                Object b = bindValue(v, parameters);
+                if (b != v && bound == null) {
+                    bound = value instanceof BasicDBList ? new BasicDBList()
+                            : new ArrayList<Object>(list.size());
+                    bound.addAll(list);
+                }
+                if (bound != null) {
+                    bound.set(i, b);
+                }
+            }
+            return bound == null ? value : bound;
+        } else if (value instanceof DBObject) {
+            DBObject o = (DBObject) value;
+            DBObject bound = null;
+            for (String key : o.keySet()) {
+                Object v = o.get(key);
+                Object b = bindValue(v, parameters);
+                if (b != v && bound == null) {
+                    bound = object();
+                    bound.putAll(o);
+                }
+                if (bound != null) {
+                    bound.put(key, b);
+                }
             }
+            return bound == null ? value : bound;
+        } else if (value instanceof Set) {
+            Set<Object> set = (Set<Object>) value;
+            Set<Object> bound = new LinkedHashSet<Object>(set.size());
+            boolean changed = false;
+            for (Object v : set) {
+                Object b = bindValue(v, parameters);
+                changed |= b != v;
+                bound.add(b);
+            }
+            return changed ? bound : value;
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            Object[] bound = array;
+            for (int i = 0; i < array.length; i++) {
+                Object b = bindValue(array[i], parameters);
+                if (b != array[i]) {
+                    if (bound == array) {
+                        bound = array.clone();
+                    }
+                    bound[i] = b;
+                }
+            }
+            return bound;
+        } else {
+            return value;
         }
-        return m;
     }
     
     /*
@@ -224,6 +417,19 @@ public class MongoQueryTranslator extends
                         list(list(center.getX(), center.getY()), distance))));
     }
 
+    /*
+     * MongoDB returns the matches of $near sorted by distance, the executor
+     * limits them
+     */
+    @Override
+    public <N extends Number & Comparable<N>> DBObject near(String fieldName,
+            Point<N> center, Number maxDistance) {
+        final DBObject near = object(MongoOperator.NEAR,
+                list(center.getX(), center.getY()));
+        near.put(MongoOperator.MAX_DISTANCE.symbol(), maxDistance);
+        return object(fieldName, near);
+    }
+
     @Override
     public DBObject and(DBObject... subqueries) {
         return merge(subqueries);
@@ -250,6 +456,131 @@ public class MongoQueryTranslator extends
         return merged;
     }
 
+    /**
+     * Translate an aggregation into an aggregation pipeline: a $match stage
+     * for the criteria, if any, followed by a $group stage.
+     * 
+     * @param aggregation
+     * @return the pipeline stages
+     */
+    public <T> List<DBObject> translateAggregation(Aggregation<T> aggregation) {
+        Class<T> entityClass = aggregation.getEntityClass();
+        List<DBObject> pipeline = new ArrayList<DBObject>(2);
+        DBObject match = translate(aggregation);
+        if (match != null && !match.keySet().isEmpty()) {
+            pipeline.add(object(MongoOperator.MATCH, match));
+        }
+        List<String> groupBy = aggregation.getGroupBy();
+        DBObject id = null;
+        if (!groupBy.isEmpty()) {
+            id = object();
+            for (int i = 0; i < groupBy.size(); i++) {
+                id.put(GROUP_KEY_PREFIX + i, "$" + getPropertyResolver()
+                        .resolve(groupBy.get(i), entityClass));
+            }
+        }
+        DBObject group = object(Mapper.ID_KEY, id);
+        List<Aggregate> aggregates = aggregation.getAggregates();
+        for (int i = 0; i < aggregates.size(); i++) {
+            group.put(AGGREGATE_KEY_PREFIX + i,
+                    accumulator(aggregates.get(i), entityClass));
+        }
+        pipeline.add(object(MongoOperator.GROUP, group));
+        return pipeline;
+    }
+    
+    protected DBObject accumulator(Aggregate aggregate, Class<?> entityClass) {
+        if (aggregate.getFunction() == Aggregate.Function.COUNT) {
+            return object(MongoOperator.SUM, 1);
+        }
+        String field = "$" + getPropertyResolver().resolve(
+                aggregate.getPropertyName(), entityClass);
+        switch (aggregate.getFunction()) {
+        case SUM:
+            return object(MongoOperator.SUM, field);
+        case MIN:
+            return object(MongoOperator.MIN, field);
+        case MAX:
+            return object(MongoOperator.MAX, field);
+        case AVG:
+            return object(MongoOperator.AVG, field);
+        default:
+            throw new UnsupportedOperationException(aggregate.getFunction()
+                    + " not supported");
+        }
+    }
+    
+    /**
+     * Read a document produced by the pipeline of
+     * {@link #translateAggregation(Aggregation)}
+     * 
+     * @param aggregation
+     * @param document
+     *            one of the aggregation results
+     * @return the aggregate result
+     */
+    public <T> AggregateResult translateAggregateResult(
+            Aggregation<T> aggregation, DBObject document) {
+        Map<String, Object> group = new LinkedHashMap<String, Object>();
+        List<String> groupBy = aggregation.getGroupBy();
+        if (!groupBy.isEmpty()) {
+            DBObject id = (DBObject) document.get(Mapper.ID_KEY);
+            for (int i = 0; i < groupBy.size(); i++) {
+                group.put(groupBy.get(i), id.get(GROUP_KEY_PREFIX + i));
+            }
+        }
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        List<Aggregate> aggregates = aggregation.getAggregates();
+        for (int i = 0; i < aggregates.size(); i++) {
+            Aggregate aggregate = aggregates.get(i);
+            Object value = document.get(AGGREGATE_KEY_PREFIX + i);
+            if (aggregate.getFunction() == Aggregate.Function.COUNT) {
+                value = ((Number) value).longValue();
+            }
+            values.put(aggregate.getAlias(), value);
+        }
+        return new AggregateResult(group, values);
+    }
+
+    /**
+     * Translate updates into an update document of $set, $inc and $unset
+     * modifiers
+     * 
+     * @param updates
+     * @param entityClass
+     * @return the update document
+     */
+    public DBObject translateUpdates(Updates updates, Class<?> entityClass) {
+        DBObject document = object();
+        for (Update update : updates.get()) {
+            MongoOperator operator;
+            Object value = update.getValue();
+            switch (update.getOperation()) {
+            case SET:
+                operator = MongoOperator.SET;
+                break;
+            case INC:
+                operator = MongoOperator.INC;
+                break;
+            case UNSET:
+                operator = MongoOperator.UNSET;
+                value = 1;
+                break;
+            default:
+                throw new UnsupportedOperationException(update.getOperation()
+                        + " not supported");
+            }
+            DBObject modifier = (DBObject) document.get(operator.symbol());
+            if (modifier == null) {
+                modifier = object();
+                document.put(operator.symbol(), modifier);
+            }
+            modifier.put(getPropertyResolver().resolve(
+                    update.getPropertyName(), entityClass), value);
+        }
+        return document;
+    }
+
     /*
      * (non-Javadoc)
      * @see com.eharmony.matching.seeking.translator.QueryTranslator#translateProjection(com.eharmony.matching.seeking.query.Query)
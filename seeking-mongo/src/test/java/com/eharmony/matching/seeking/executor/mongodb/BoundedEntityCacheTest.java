@@ -0,0 +1,112 @@
+package com.eharmony.matching.seeking.executor.mongodb;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.code.morphia.Key;
+import com.google.code.morphia.mapping.cache.EntityCache;
+import com.google.code.morphia.mapping.cache.EntityCacheStatistics;
+
+public class BoundedEntityCacheTest {
+
+    private static Key<String> key(int id) {
+        return new Key<String>(String.class, id);
+    }
+
+    @Test
+    public void entities() {
+        BoundedEntityCache cache = new BoundedEntityCache(10);
+        assertNull(cache.getEntity(key(1)));
+        assertNull(cache.exists(key(1)));
+        cache.putEntity(key(1), "one");
+        assertEquals("one", cache.getEntity(key(1)));
+        assertTrue(cache.exists(key(1)));
+        cache.notifyExists(key(2), false);
+        assertFalse(cache.exists(key(2)));
+
+        EntityCacheStatistics stats = cache.stats();
+        assertEquals(1, stats.entities);
+        assertEquals(3, stats.hits);
+        assertEquals(2, stats.misses);
+
+        cache.flush();
+        assertNull(cache.getEntity(key(1)));
+        assertEquals(0, cache.stats().entities);
+        assertEquals(1, cache.stats().misses);
+    }
+
+    @Test
+    public void proxies() {
+        BoundedEntityCache cache = new BoundedEntityCache(10);
+        cache.putProxy(key(1), "proxy");
+        assertEquals("proxy", cache.getProxy(key(1)));
+        assertNull(cache.getEntity(key(1)));
+        assertTrue(cache.exists(key(1)));
+    }
+
+    @Test
+    public void bounded() {
+        BoundedEntityCache cache = new BoundedEntityCache(5);
+        for (int i = 0; i < 100; i++) {
+            cache.putEntity(key(i), "entity");
+        }
+        assertTrue(cache.stats().entities <= 5);
+    }
+
+    @Test
+    public void ttl() throws InterruptedException {
+        BoundedEntityCache cache = new BoundedEntityCache(10, 1,
+                TimeUnit.MILLISECONDS);
+        cache.putEntity(key(1), "one");
+        Thread.sleep(5);
+        assertNull(cache.getEntity(key(1)));
+    }
+
+    @Test
+    public void queryScope() {
+        EntityCacheScope scope = EntityCacheScope.query(10);
+        EntityCache first = scope.cache();
+        first.putEntity(key(1), "one");
+        assertEquals("one", first.getEntity(key(1)));
+        EntityCache second = scope.cache();
+        assertNotSame(first, second);
+        assertNull(second.getEntity(key(1)));
+        // the statistics of all the queries
+        assertEquals(1, scope.stats().hits);
+        assertEquals(1, scope.stats().misses);
+    }
+
+    @Test
+    public void queryScopeFlush() {
+        EntityCacheScope scope = EntityCacheScope.query(10);
+        EntityCache first = scope.cache();
+        first.putEntity(key(1), "one");
+        assertEquals("one", first.getEntity(key(1)));
+        assertNull(scope.cache().getEntity(key(1)));
+        first.flush();
+        // flushing a query's cache leaves the statistics of the others
+        assertEquals(0, first.stats().hits);
+        assertEquals(1, scope.stats().hits);
+        assertEquals(1, scope.stats().misses);
+    }
+
+    @Test
+    public void sharedScope() {
+        EntityCacheScope scope = EntityCacheScope.executor(10, 1,
+                TimeUnit.MINUTES);
+        scope.cache().putEntity(key(1), "one");
+        assertEquals("one", scope.cache().getEntity(key(1)));
+        assertEquals(1, scope.stats().entities);
+    }
+
+    @Test
+    public void none() {
+        EntityCache cache = EntityCacheScope.none().cache();
+        cache.putEntity(key(1), "one");
+        assertNull(cache.getEntity(key(1)));
+    }
+
+}
@@ -1,33 +1,48 @@
 package com.eharmony.matching.seeking.executor.mongodb;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import com.google.code.morphia.DatastoreImpl;
 import com.google.code.morphia.mapping.Mapper;
 
+import org.bson.BSON;
+
 import com.mongodb.BasicDBObject;
+import com.mongodb.Bytes;
 import com.mongodb.CommandResult;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBDecoderFactory;
 import com.mongodb.DBObject;
+import com.mongodb.LazyDBDecoder;
+import com.mongodb.MongoException;
 import com.mongodb.WriteConcern;
 import com.mongodb.WriteResult;
 
+import com.eharmony.matching.seeking.executor.ResultStream;
+import com.eharmony.matching.seeking.executor.RetryableDataStoreException;
 import com.eharmony.matching.seeking.executor.mongodb.mock.MockDBCursor;
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.QueryHints;
 import com.eharmony.matching.seeking.query.builder.QueryBuilder;
+import com.eharmony.matching.seeking.query.criterion.Ordering;
 import com.eharmony.matching.seeking.query.criterion.Restrictions;
 import com.eharmony.matching.seeking.test.TestClass;
 import com.eharmony.matching.seeking.test.TestClass.TestEmbeddedClass;
@@ -55,6 +70,9 @@ public class MongoQueryExecutorTest {
             super(db, WriteConcern.SAFE, queryTranslator, resolver, batchSize);
         }
         public DBCursor cursor;
+        public final List<DBObject> saved = new ArrayList<DBObject>();
+        public final List<List<DBObject>> inserted = new ArrayList<List<DBObject>>();
+        public MongoException insertException;
         @Override
         protected DBCursor find(DBCollection collection, DBObject query, DBObject fields) {
             // collection.find is final and therefore cannot be mocked
@@ -63,6 +81,15 @@ public class MongoQueryExecutorTest {
         @Override
         protected WriteResult save(DBCollection collection, DBObject entity) {
             // collection.save is final and therefore cannot be mocked
+            saved.add(entity);
+            return writeResult;
+        }
+        @Override
+        protected WriteResult insert(DBCollection collection, List<DBObject> documents) {
+            inserted.add(documents);
+            if (insertException != null) {
+                throw insertException;
+            }
             return writeResult;
         }
     }
@@ -243,6 +270,85 @@ public class MongoQueryExecutorTest {
         }
         verify(queryTranslator).translate(tuple2Query);
     }
+
+    @Test
+    public void find_hints() {
+        final Query<TestClass, TestClass> hinted = QueryBuilder
+                .builderFor(entityClass)
+                .addHint(QueryHints.INDEX, "name_1")
+                .addHint(QueryHints.COMMENT, "nightly")
+                .addHint(QueryHints.MAX_SCAN, 10)
+                .addHint(QueryHints.CACHE, false).build();
+        when(queryTranslator.translate(hinted)).thenReturn(queryObject);
+        executor.cursor = mock(DBCursor.class);
+
+        executor.find(hinted);
+        verify(executor.cursor).hint("name_1");
+        verify(executor.cursor).addSpecial("$comment", "nightly");
+        verify(executor.cursor).addSpecial("$maxScan", 10);
+    }
+
+    @Test
+    public void find_near() {
+        final Query<TestClass, TestClass> near = QueryBuilder
+                .builderFor(entityClass)
+                .add(Restrictions.near("location", 1.0, 2.0, 5, 3.0))
+                .setMaxResults(10).build();
+        when(queryTranslator.translate(near)).thenReturn(queryObject);
+        executor.cursor = mock(DBCursor.class);
+
+        executor.find(near);
+        verify(executor.cursor).limit(5);
+    }
+
+    @Test
+    public void scan() {
+        executor.cursor = new MockDBCursor(collection, toDBObjectArray(tests));
+
+        final ResultStream<TestClass> found = executor.scan(query);
+        assertEquals(Bytes.QUERYOPTION_NOTIMEOUT, executor.cursor.getOptions());
+        for (int i = 0; i < tests.length; i++) {
+            assertEquals(tests[i], found.next());
+        }
+        assertFalse(found.hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scan_snapshotOrdered() {
+        executor.scan(QueryBuilder.builderFor(entityClass)
+                .addOrder(Ordering.asc(NAME_PROPERTY_NAME)).build(), true);
+    }
+
+    @Test
+    public void find_many_asDBObject() {
+        final DBObject[] documents = toDBObjectArray(tests);
+        executor.cursor = new MockDBCursor(collection, documents);
+        final Query<TestClass, DBObject> documentQuery = QueryBuilder
+                .builderFor(entityClass, DBObject.class).build();
+        when(queryTranslator.translate(documentQuery)).thenReturn(queryObject);
+
+        final Iterator<DBObject> found = executor.find(documentQuery).iterator();
+        for (int i = 0; i < tests.length; i++) {
+            assertSame(documents[i], found.next());
+        }
+        assertFalse(found.hasNext());
+    }
+
+    @Test
+    public void find_many_asBson() {
+        final DBObject[] documents = toDBObjectArray(tests);
+        executor.cursor = new MockDBCursor(collection, documents);
+        final Query<TestClass, byte[]> bsonQuery = QueryBuilder
+                .builderFor(entityClass, byte[].class).build();
+        when(queryTranslator.translate(bsonQuery)).thenReturn(queryObject);
+
+        final Iterator<byte[]> found = executor.find(bsonQuery).iterator();
+        for (int i = 0; i < tests.length; i++) {
+            assertArrayEquals(BSON.encode(documents[i]), found.next());
+        }
+        assertFalse(found.hasNext());
+        assertSame(LazyDBDecoder.FACTORY, executor.cursor.getDecoderFactory());
+    }
     
     @Test
     public void findOne() {
@@ -273,6 +379,14 @@ public class MongoQueryExecutorTest {
     }
 
 
+    @Test
+    public void delete_unrestricted() {
+        // an unrestricted query translates to null and deletes everything
+        executor.delete(QueryBuilder.builderFor(entityClass).build());
+        verify(collection).remove(new BasicDBObject(), WriteConcern.SAFE);
+    }
+
+
     @Test
     public void removeAll() {
         final DBCursor cursor = new MockDBCursor(this.collection, toDBObjectArray(this.tests));
@@ -297,11 +411,70 @@ public class MongoQueryExecutorTest {
     
     @Test
     public void save_many() {
+        // none of the ids is stored yet
+        executor.cursor = new MockDBCursor(collection);
         final Iterable<TestClass> saved = executor.save(Arrays.asList(tests));
         final Iterator<TestClass> iterator = saved.iterator();
         for (int i = 0; i < tests.length; i++) {
             assertEquals(tests[i], iterator.next());
         }
+        // a single insert for the batch
+        assertEquals(1, executor.inserted.size());
+        assertEquals(tests.length, executor.inserted.get(0).size());
+        assertTrue(executor.saved.isEmpty());
+    }
+    
+    @Test
+    public void save_manyStored() {
+        executor.cursor = new MockDBCursor(collection, toDBObjectArray(ids[0]));
+        executor.save(Arrays.asList(tests));
+        // the stored document is updated, the others are inserted together
+        assertEquals(1, executor.saved.size());
+        assertEquals(ids[0], executor.saved.get(0).get("_id"));
+        assertEquals(1, executor.inserted.size());
+        assertEquals(tests.length - 1, executor.inserted.get(0).size());
+    }
+    
+    @Test
+    public void save_manyInsertFailed() {
+        executor.cursor = new MockDBCursor(collection, toDBObjectArray(ids[0]));
+        executor.insertException = new MongoException("insert failed");
+        try {
+            executor.save(Arrays.asList(tests));
+            fail();
+        } catch (final RetryableDataStoreException e) {
+            assertSame(executor.insertException, e.getCause());
+            // the stored document is updated, the inserted ones are retried
+            assertEquals(1, executor.saved.size());
+            assertEquals(Arrays.asList(tests).subList(1, tests.length),
+                    new ArrayList<Object>((Collection<?>) e.getRetryableStatus().get()));
+        }
+    }
+    
+    @Test
+    public void save_manyInsertDuplicateKey() {
+        // another writer stored one of the ids after it was looked up
+        executor.cursor = new MockDBCursor(collection);
+        executor.insertException = new MongoException.DuplicateKey(11000,
+                "duplicate key");
+        executor.save(Arrays.asList(tests));
+        // the documents are saved again, overwriting the other writer
+        assertEquals(1, executor.inserted.size());
+        assertEquals(executor.inserted.get(0), executor.saved);
+    }
+    
+    @Test
+    public void save_manyDuplicateIds() {
+        executor.cursor = new MockDBCursor(collection);
+        final List<TestClass> entities = new ArrayList<TestClass>(Arrays.asList(tests));
+        entities.add(new TestClass(ids[0], "test1 updated", 1, 2));
+        executor.save(entities);
+        // the last entity of an id is the one inserted
+        assertEquals(1, executor.inserted.size());
+        final List<DBObject> documents = executor.inserted.get(0);
+        assertEquals(tests.length, documents.size());
+        assertEquals(ids[0], documents.get(tests.length - 1).get("_id"));
+        assertEquals("test1 updated", documents.get(tests.length - 1).get("name"));
     }
     
 }
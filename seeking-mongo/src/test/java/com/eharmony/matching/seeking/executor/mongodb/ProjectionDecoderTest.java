@@ -0,0 +1,109 @@
+package com.eharmony.matching.seeking.executor.mongodb;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.eharmony.matching.seeking.test.TestClass;
+import com.eharmony.matching.seeking.test.TestClassTuple2;
+import com.google.code.morphia.annotations.PostLoad;
+import com.google.code.morphia.mapping.Mapper;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+public class ProjectionDecoderTest {
+
+    public enum Status {
+        ACTIVE, CLOSED
+    }
+
+    public static class Score {
+        private long candidateId;
+        private double score;
+        private Status status;
+    }
+
+    public static class Loaded {
+        private String name;
+        @PostLoad
+        void loaded() {
+        }
+    }
+
+    private final Mapper mapper = new Mapper();
+
+    private static DBObject document(Object... keysAndValues) {
+        final DBObject document = new BasicDBObject();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            document.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return document;
+    }
+
+    @Test
+    public void decode() {
+        final ProjectionDecoder<TestClassTuple2> decoder = ProjectionDecoder
+                .compile(mapper, TestClassTuple2.class, null);
+        final TestClassTuple2 decoded = decoder.decode(document("_id", 1L,
+                "name", "test", "ignored", 2));
+        assertEquals(Long.valueOf(1), decoded.getIdentificationNumber());
+        assertEquals("test", decoded.getName());
+    }
+
+    @Test
+    public void decode_projected() {
+        final ProjectionDecoder<TestClassTuple2> decoder = ProjectionDecoder
+                .compile(mapper, TestClassTuple2.class,
+                        Collections.singleton("name"));
+        final TestClassTuple2 decoded = decoder.decode(document("_id", 1L,
+                "name", "test"));
+        assertNull(decoded.getIdentificationNumber());
+        assertEquals("test", decoded.getName());
+    }
+
+    @Test
+    public void decode_converted() {
+        final ProjectionDecoder<Score> decoder = ProjectionDecoder.compile(
+                mapper, Score.class, null);
+        final Score decoded = decoder.decode(document("candidateId", 7,
+                "score", 0.5, "status", "CLOSED"));
+        assertEquals(7L, decoded.candidateId);
+        assertEquals(0.5, decoded.score, 0);
+        assertEquals(Status.CLOSED, decoded.status);
+    }
+
+    @Test
+    public void decode_mismatch() {
+        final ProjectionDecoder<Score> decoder = ProjectionDecoder.compile(
+                mapper, Score.class, null);
+        assertNull(decoder.decode(document("candidateId", "seven")));
+        assertNull(decoder.decode(document("candidateId", null)));
+        assertNull(decoder.decode(document("status", "UNKNOWN")));
+        assertNull(decoder.decode(document("candidateId", 7L,
+                Mapper.CLASS_NAME_FIELDNAME, "com.example.Subclass")));
+    }
+
+    @Test
+    public void compile_embedded() {
+        // the embedded document of a dotted key is mapped by Morphia
+        assertNull(ProjectionDecoder.compile(mapper, TestClassTuple2.class,
+                new HashSet<String>(Arrays.asList("name", "embedded.name"))));
+        // a projected key without a simple field of its own
+        assertNull(ProjectionDecoder.compile(mapper, TestClassTuple2.class,
+                new HashSet<String>(Arrays.asList("name", "embedded"))));
+    }
+
+    @Test
+    public void compile_unsupported() {
+        // the embedded object is not a simple value
+        assertNull(ProjectionDecoder.compile(mapper, TestClass.class, null));
+        assertNotNull(ProjectionDecoder.compile(mapper, TestClass.class,
+                new HashSet<String>(Arrays.asList("_id", "name", "date"))));
+        assertNull(ProjectionDecoder.compile(mapper, Loaded.class, null));
+    }
+
+}
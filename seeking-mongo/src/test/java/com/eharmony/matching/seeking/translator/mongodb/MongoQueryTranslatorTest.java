@@ -1,18 +1,29 @@
 package com.eharmony.matching.seeking.translator.mongodb;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.Test;
 
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+import com.eharmony.matching.seeking.query.builder.AggregationBuilder;
 import com.eharmony.matching.seeking.query.builder.QueryBuilder;
 import com.eharmony.matching.seeking.query.criterion.Ordering.Order;
+import com.eharmony.matching.seeking.query.criterion.Restrictions;
 import com.eharmony.matching.seeking.query.criterion.expression.NativeExpression;
 import com.eharmony.matching.seeking.query.geometry.Point;
+import com.eharmony.matching.seeking.query.update.Updates;
 import com.eharmony.matching.seeking.test.TestClass;
 import com.eharmony.matching.seeking.translator.PropertyResolver;
 import com.mongodb.BasicDBObject;
@@ -141,12 +152,14 @@ public class MongoQueryTranslatorTest {
 
     @Test
     public void contains() {
-        Set<DBObject> objects = set(values.length);
-        for (Object value : values) {
-            objects.add(o(property, value));
+        // equalities on the same field conflict and stay in the $and
+        Set<DBObject> objects = set(values.length - 1);
+        for (int i = 1; i < values.length; i++) {
+            objects.add(o(property, values[i]));
         }
-        assertEquals(o(MongoOperator.AND, objects), 
-                translator.contains(property, values));
+        DBObject expected = o(property, values[0]);
+        expected.put(MongoOperator.AND.symbol(), objects);
+        assertEquals(expected, translator.contains(property, values));
     }
     
     @Test
@@ -177,10 +190,9 @@ public class MongoQueryTranslatorTest {
     
     @Test
     public void notNull() {
-        assertEquals(o(MongoOperator.AND, set(
-                o(property, o(MongoOperator.EXISTS, 1)),
-                o(property, o(MongoOperator.NOT_EQUAL, null))
-        )), translator.notNull(property));
+        DBObject operators = o(MongoOperator.EXISTS, 1);
+        operators.put(MongoOperator.NOT_EQUAL.symbol(), null);
+        assertEquals(o(property, operators), translator.notNull(property));
     }
     
     @Test
@@ -193,10 +205,9 @@ public class MongoQueryTranslatorTest {
     
     @Test
     public void notEmpty() {
-        assertEquals(o(MongoOperator.AND, set(
-                o(property, o(MongoOperator.EXISTS, 1)),
-                o(property, o(MongoOperator.NOT_EQUAL, ""))
-        )), translator.notEmpty(property));
+        DBObject operators = o(MongoOperator.EXISTS, 1);
+        operators.put(MongoOperator.NOT_EQUAL.symbol(), "");
+        assertEquals(o(property, operators), translator.notEmpty(property));
     }
     
     @Test
@@ -206,6 +217,14 @@ public class MongoQueryTranslatorTest {
         ))), translator.within(property, new Point<Double>(x, y), distance));
     }
     
+    @Test
+    public void near() {
+        DBObject operators = o(MongoOperator.NEAR, list(x, y));
+        operators.put(MongoOperator.MAX_DISTANCE.symbol(), distance);
+        assertEquals(o(property, operators),
+                translator.near(property, new Point<Double>(x, y), distance));
+    }
+    
     @Test
     public void or_one() {
         DBObject o = o(property, value);
@@ -233,10 +252,48 @@ public class MongoQueryTranslatorTest {
         DBObject o1 = o(property, value);
         DBObject o2 = o(property, o(MongoOperator.IN, values));
         DBObject o3 = o(property, o(MongoOperator.LESS_THAN, value));
-        DBObject expected = o(MongoOperator.AND, set(o1, o2, o3));
+        // the operators are combined, the equality conflicts with them
+        DBObject operators = o(MongoOperator.IN, values);
+        operators.put(MongoOperator.LESS_THAN.symbol(), value);
+        DBObject expected = o(property, value);
+        expected.put(MongoOperator.AND.symbol(), set(o(property, operators)));
         DBObject actual = translator.and(o1, o2, o3);
         assertEquals(expected, actual);
     }
+
+    @Test
+    public void and_range_combined() {
+        DBObject o1 = o(property, o(MongoOperator.GREATER_THAN, 1));
+        DBObject o2 = o(property, o(MongoOperator.LESS_THAN_OR_EQUAL, 5));
+        DBObject operators = o(MongoOperator.GREATER_THAN, 1);
+        operators.put(MongoOperator.LESS_THAN_OR_EQUAL.symbol(), 5);
+        assertEquals(o(property, operators), translator.and(o1, o2));
+        // the queries are left untouched
+        assertEquals(o(property, o(MongoOperator.GREATER_THAN, 1)), o1);
+        assertEquals(o(property, o(MongoOperator.LESS_THAN_OR_EQUAL, 5)), o2);
+    }
+
+    @Test
+    public void and_sameOperator_conflicts() {
+        DBObject o1 = o(property, o(MongoOperator.GREATER_THAN, 1));
+        DBObject o2 = o(property, o(MongoOperator.GREATER_THAN, 2));
+        DBObject o3 = o(property, o(MongoOperator.LESS_THAN, 5));
+        DBObject o4 = o(property, o(MongoOperator.GREATER_THAN, 3));
+        DBObject operators = o(MongoOperator.GREATER_THAN, 1);
+        operators.put(MongoOperator.LESS_THAN.symbol(), 5);
+        DBObject expected = o(property, operators);
+        expected.put(MongoOperator.AND.symbol(), set(o2, o4));
+        assertEquals(expected, translator.and(o1, o2, o3, o4));
+    }
+
+    @Test
+    public void and_duplicates_dropped() {
+        DBObject o1 = o(property, value);
+        DBObject o2 = o(property, o(MongoOperator.LESS_THAN, value));
+        assertEquals(o1, translator.and(o1, o(property, value)));
+        assertEquals(o2, translator.and(o2,
+                o(property, o(MongoOperator.LESS_THAN, value))));
+    }
     
     @Test
     public void and_many_differentProperties() {
@@ -265,8 +322,11 @@ public class MongoQueryTranslatorTest {
         DBObject o10 = o("property5", o(MongoOperator.IN, values));
         DBObject and2 = o(MongoOperator.AND, set(o9, o10));
         
-        DBObject expected = merge(o4, o5, o6);
-        expected.put(MongoOperator.AND.symbol(), set(o1, o2, o3, o7, o8, o9, o10));
+        DBObject operators = o(MongoOperator.IN, values);
+        operators.put(MongoOperator.LESS_THAN.symbol(), value);
+        DBObject expected = merge(o1, o4, o5, o6, o7, o9);
+        expected.put(MongoOperator.AND.symbol(),
+                set(o(property, operators), o8, o10));
         
         DBObject actual = translator.and(o1, o2, o3, o4, o5, o6, and1, and2);
         assertEquals(expected, actual);
@@ -326,5 +386,93 @@ public class MongoQueryTranslatorTest {
         assertEquals(expected, translator.translateProjection(QueryBuilder.builderFor(
                 TestClass.class, TestClass.class, properties).build()));
     }
+    
+    @Test
+    public void bind() {
+        DBObject template = translator.and(
+                translator.eq("a", Restrictions.param("p")),
+                translator.in("b", new Object[] { 1, Restrictions.param("q") }),
+                translator.eq("c", value));
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("p", "x");
+        parameters.put("q", 2);
+        DBObject bound = translator.bind(template, parameters);
+        assertEquals("x", bound.get("a"));
+        assertArrayEquals(new Object[] { 1, 2 },
+                (Object[]) ((DBObject) bound.get("b")).get(MongoOperator.IN.symbol()));
+        assertEquals(value, bound.get("c"));
+        // the template is left untouched
+        assertEquals(Restrictions.param("p"), template.get("a"));
+    }
+    
+    @Test
+    public void bind_noParameters() {
+        DBObject template = translator.eq(property, value);
+        assertSame(template, translator.bind(template,
+                Collections.<String, Object> emptyMap()));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void bind_unbound() {
+        translator.bind(translator.eq(property, Restrictions.param("p")),
+                Collections.<String, Object> emptyMap());
+    }
 
+    
+    private final Aggregation<TestClass> aggregation = AggregationBuilder
+            .builderFor(TestClass.class).add(Restrictions.eq(property, value))
+            .groupBy("a", "b.c")
+            .aggregate(Aggregate.count(), Aggregate.avg("d"))
+            .build();
+    
+    @Test
+    public void translateAggregation() {
+        List<DBObject> pipeline = translator.translateAggregation(aggregation);
+        assertEquals(2, pipeline.size());
+        assertEquals(o(MongoOperator.MATCH, o(property, value)), pipeline.get(0));
+        DBObject id = o();
+        id.put("g0", "$a");
+        id.put("g1", "$b.c");
+        DBObject group = o("_id", id);
+        group.put("a0", o(MongoOperator.SUM, 1));
+        group.put("a1", o(MongoOperator.AVG, "$d"));
+        assertEquals(o(MongoOperator.GROUP, group), pipeline.get(1));
+    }
+    
+    @Test
+    public void translateAggregation_ungrouped() {
+        List<DBObject> pipeline = translator.translateAggregation(AggregationBuilder
+                .builderFor(TestClass.class).aggregate(Aggregate.sum("d")).build());
+        assertEquals(1, pipeline.size());
+        DBObject group = o("_id", null);
+        group.put("a0", o(MongoOperator.SUM, "$d"));
+        assertEquals(o(MongoOperator.GROUP, group), pipeline.get(0));
+    }
+    
+    @Test
+    public void translateAggregateResult() {
+        DBObject id = o();
+        id.put("g0", "x");
+        id.put("g1", "y");
+        DBObject document = o("_id", id);
+        document.put("a0", 3);
+        document.put("a1", 2.5);
+        AggregateResult result = translator.translateAggregateResult(aggregation, document);
+        assertEquals("x", result.getGroup("a"));
+        assertEquals("y", result.getGroup("b.c"));
+        assertEquals(3L, result.getValue(Aggregate.count()));
+        assertEquals(2.5, result.getValue(Aggregate.avg("d")));
+    }
+    
+    @Test
+    public void translateUpdates() {
+        DBObject set = o("a", 1);
+        set.put("b.c", "x");
+        DBObject expected = o(MongoOperator.SET, set);
+        expected.put(MongoOperator.INC.symbol(), o("d", 2));
+        expected.put(MongoOperator.UNSET.symbol(), o("e", 1));
+        assertEquals(expected, translator.translateUpdates(new Updates()
+                .set("a", 1).inc("d", 2).set("b.c", "x").unset("e"),
+                TestClass.class));
+    }
 }
@@ -17,14 +17,33 @@
 package com.eharmony.matching.seeking.executor.solr;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrQuery.ORDER;
 import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
 
+import com.eharmony.matching.seeking.executor.AbstractResultStream;
+import com.eharmony.matching.seeking.executor.BatchResults;
+import com.eharmony.matching.seeking.executor.Page;
+import com.eharmony.matching.seeking.executor.PreparedQuery;
+import com.eharmony.matching.seeking.executor.QueryBatch;
 import com.eharmony.matching.seeking.executor.QueryExecutor;
+import com.eharmony.matching.seeking.executor.ResultStream;
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.QueryHints;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+import com.eharmony.matching.seeking.query.criterion.expression.NearExpression;
+import com.eharmony.matching.seeking.query.update.Updates;
 import com.eharmony.matching.seeking.translator.solr.SolrOrdering;
+import com.eharmony.matching.seeking.translator.solr.SolrQueryTemplate;
 import com.eharmony.matching.seeking.translator.solr.SolrQueryTranslator;
 import com.eharmony.matching.seeking.translator.solr.SolrSpatialQuery;
 
@@ -38,14 +57,64 @@ import com.eharmony.matching.seeking.translator.solr.SolrSpatialQuery;
  */
 public class SolrQueryExecutor implements QueryExecutor {
 
+    // rows per request when streaming a query without a fetch size
+    public static final int DEFAULT_FETCH_SIZE = 100;
+    
+    // beans per add request when saving many entities
+    public static final int DEFAULT_SAVE_BATCH_SIZE = 1000;
+    
+    // leave commits to the server configuration
+    public static final int NO_COMMIT_WITHIN = -1;
+    
+    public static final String DEFAULT_UNIQUE_KEY_FIELD = "id";
+    
+    // the pseudo-field of the distance of the results of a near query
+    public static final String DISTANCE_FIELD = "_dist_";
+
     private final SolrQueryTranslator queryTranslator;
     private final SolrServer solrServer;
     private final SolrResultsTransformer transformer = new SolrResultsTransformer();
+    private final int saveBatchSize;
+    private final int commitWithinMs;
+    private final String uniqueKeyField;
     
+    /**
+     * @param solrServer
+     * @param queryTranslator
+     * @param saveBatchSize
+     *            the number of beans sent per request when saving many, and
+     *            of documents per request when updating by query
+     * @param commitWithinMs
+     *            the time within which Solr commits the beans saved in
+     *            batches, or {@link #NO_COMMIT_WITHIN}
+     * @param uniqueKeyField
+     *            the unique key field of the schema, which atomic updates
+     *            address documents by
+     */
     public SolrQueryExecutor(SolrServer solrServer,
-            SolrQueryTranslator queryTranslator) {
+            SolrQueryTranslator queryTranslator, int saveBatchSize,
+            int commitWithinMs, String uniqueKeyField) {
+        if (saveBatchSize < 1) {
+            throw new IllegalArgumentException("save batch size must be positive");
+        }
         this.queryTranslator = queryTranslator;
         this.solrServer = solrServer;
+        this.saveBatchSize = saveBatchSize;
+        this.commitWithinMs = commitWithinMs;
+        this.uniqueKeyField = uniqueKeyField;
+    }
+    
+    public SolrQueryExecutor(SolrServer solrServer,
+            SolrQueryTranslator queryTranslator, int saveBatchSize,
+            int commitWithinMs) {
+        this(solrServer, queryTranslator, saveBatchSize, commitWithinMs,
+                DEFAULT_UNIQUE_KEY_FIELD);
+    }
+    
+    public SolrQueryExecutor(SolrServer solrServer,
+            SolrQueryTranslator queryTranslator) {
+        this(solrServer, queryTranslator, DEFAULT_SAVE_BATCH_SIZE,
+                NO_COMMIT_WITHIN);
     }
     
     protected <T, R> SolrQuery translate(Query<T, R> query) {
@@ -53,14 +122,21 @@ public class SolrQueryExecutor implements QueryExecutor {
         // special geospatial query case
         SolrSpatialQuery spatialQuery = queryTranslator.getSpatialQuery(query);
         String translated = queryTranslator.translate(query);
-        solrQuery.setQuery(translated == null || translated.isEmpty() ? "*:*" : translated);
+        String cache = cacheParam(query.getHints());
+        solrQuery.setQuery((cache.isEmpty() ? "" : "{!" + cache.trim() + "}")
+                + (translated == null || translated.isEmpty() ? "*:*" : translated));
         if (spatialQuery != null) {
             //solrQuery.addFilterQuery("{!func}geodist()"); 
-            solrQuery.addFilterQuery("{!geofilt}");
+            solrQuery.addFilterQuery("{!geofilt" + cache
+                    + costParam(query.getHints()) + "}");
             solrQuery.set("sfield", spatialQuery.getField()); 
             solrQuery.set("pt", spatialQuery.getX() + "," + spatialQuery.getY());
             solrQuery.set("d", spatialQuery.getDistance().toString());
         }
+        NearExpression<?> near = NearExpression.of(query);
+        if (near != null) {
+            solrQuery.addSortField("geodist()", ORDER.asc);
+        }
         for (SolrOrdering ordering : queryTranslator.translateOrder(query).get()) {
             String field = ordering.getField();
             if (spatialQuery != null && field.equals(spatialQuery.getField())) {
@@ -68,24 +144,59 @@ public class SolrQueryExecutor implements QueryExecutor {
             }
             solrQuery.addSortField(field, ordering.getOrder());
         }
-        for (String field : queryTranslator.translateProjection(query)) {
+        List<String> fields = queryTranslator.translateProjection(query);
+        for (String field : fields) {
             solrQuery.addField(field);
         }
-        if (query.getMaxResults() != null) {
-            solrQuery.setRows(query.getMaxResults());
+        if (near != null) {
+            if (fields.isEmpty()) {
+                solrQuery.addField("*");
+            }
+            solrQuery.addField(DISTANCE_FIELD + ":geodist()");
+        }
+        Integer maxResults = maxResults(query);
+        if (maxResults != null) {
+            solrQuery.setRows(maxResults);
         }
         return solrQuery;
     }
     
-    protected <T, R> List<R> fetch(SolrQuery solrQuery, Class<R> returnType) {
+    /*
+     * The maximum results of the query, the limit of its near restriction
+     * if it has one
+     */
+    private static Integer maxResults(Query<?, ?> query) {
+        NearExpression<?> near = NearExpression.of(query);
+        return near != null ? Integer.valueOf(near.getLimit(query)) : query
+                .getMaxResults();
+    }
+    
+    /*
+     * The cache local param of the hints, the cost param only applies to
+     * filter queries and the other hints do not apply to Solr
+     */
+    private static String cacheParam(QueryHints hints) {
+        Boolean cache = hints.get(QueryHints.CACHE, Boolean.class);
+        return cache != null ? " cache=" + cache : "";
+    }
+
+    private static String costParam(QueryHints hints) {
+        Integer cost = hints.get(QueryHints.COST, Integer.class);
+        return cost != null ? " cost=" + cost : "";
+    }
+    
+    protected QueryResponse query(SolrQuery solrQuery) {
         try {
-            return transformer.transform(solrServer.query(solrQuery)
-                    .getResults(), returnType);
+            return solrServer.query(solrQuery);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
     
+    protected <T, R> List<R> fetch(SolrQuery solrQuery, Class<R> returnType) {
+        return transformer.transform(query(solrQuery).getResults(), returnType);
+    }
+    
     @Override
     public <T, R> Iterable<R> find(Query<T, R> query) {
         return fetch(translate(query), query.getReturnType());
@@ -99,6 +210,174 @@ public class SolrQueryExecutor implements QueryExecutor {
         return list.size() > 0 ? list.get(0) : null;
     }
     
+    /**
+     * Count through a request for no rows, which only returns the number of
+     * documents found.
+     */
+    @Override
+    public <T, R> long count(Query<T, R> query) {
+        SolrQuery solrQuery = translate(query);
+        solrQuery.setRows(0);
+        return query(solrQuery).getResults().getNumFound();
+    }
+    
+    @Override
+    public <T, R> boolean exists(Query<T, R> query) {
+        return count(query) > 0;
+    }
+    
+    /**
+     * Solr returns the number of documents found along with the results, the
+     * page costs a single request.
+     */
+    @Override
+    public <T, R> Page<R> findPage(Query<T, R> query) {
+        QueryResponse response = query(translate(query));
+        return new Page<R>(transformer.transform(response.getResults(),
+                query.getReturnType()), response.getResults().getNumFound());
+    }
+    
+    /**
+     * Aggregate through facets and the stats component in a single request
+     * for no documents (see {@link SolrQueryTranslator#translateAggregation(Aggregation)}).
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#aggregate(com.eharmony.matching.seeking.query.aggregate.Aggregation)
+     */
+    @Override
+    public <T> List<AggregateResult> aggregate(Aggregation<T> aggregation) {
+        return queryTranslator.translateAggregateResults(aggregation,
+                query(queryTranslator.translateAggregation(aggregation)));
+    }
+    
+    /**
+     * Lookups on the unique key field are sent as a single request, with as
+     * many rows as values, and split back per query on the value of the
+     * field; the other queries are sent one after the other. Other fields
+     * may be analyzed, which the split would not match.
+     * 
+     * @see com.eharmony.matching.seeking.executor.QueryExecutor#findAll(java.util.List)
+     */
+    @Override
+    public BatchResults findAll(List<? extends Query<?, ?>> queries) {
+        return QueryBatch.findAll(this, queries,
+                Collections.singleton(uniqueKeyField));
+    }
+    
+    /**
+     * Stream the results, requesting them from Solr in batches of the fetch
+     * size of the query so that only one batch is held in memory at a time.
+     * Batches are requested by position: deep scans should page through
+     * {@link com.eharmony.matching.seeking.query.PageToken}s instead.
+     */
+    @Override
+    public <T, R> ResultStream<R> stream(Query<T, R> query) {
+        return new SolrResultStream<R>(translate(query),
+                query.getReturnType(), query.getFetchSize() != null
+                        ? query.getFetchSize() : DEFAULT_FETCH_SIZE,
+                maxResults(query));
+    }
+    
+    private class SolrResultStream<R> extends AbstractResultStream<R> {
+        
+        private final SolrQuery solrQuery;
+        private final Class<R> returnType;
+        private final int fetchSize;
+        private final Integer maxResults;
+        private Iterator<R> batch = Collections.<R> emptyList().iterator();
+        private int start = 0;
+        private boolean last = false;
+        
+        private SolrResultStream(SolrQuery solrQuery, Class<R> returnType,
+                int fetchSize, Integer maxResults) {
+            this.solrQuery = solrQuery;
+            this.returnType = returnType;
+            this.fetchSize = fetchSize;
+            this.maxResults = maxResults;
+        }
+
+        @Override
+        protected boolean hasMore() {
+            while (!batch.hasNext()) {
+                int rows = maxResults != null
+                        ? Math.min(fetchSize, maxResults - start)
+                        : fetchSize;
+                if (last || rows <= 0) {
+                    return false;
+                }
+                solrQuery.setStart(start);
+                solrQuery.setRows(rows);
+                List<R> results = fetch(solrQuery, returnType);
+                start += results.size();
+                last = results.size() < rows;
+                batch = results.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        protected R read() {
+            return batch.next();
+        }
+
+        @Override
+        protected void release() {
+            batch = Collections.<R> emptyList().iterator();
+        }
+        
+    }
+    
+    /**
+     * Translate a parameterized query once. Executing the prepared query only
+     * binds the parameter values into the translated query string.
+     * 
+     * @param query
+     *            a query with
+     *            {@link com.eharmony.matching.seeking.query.criterion.Parameter}
+     *            values
+     * @return the prepared query
+     */
+    public <T, R> PreparedQuery<T, R> prepare(Query<T, R> query) {
+        return new SolrPreparedQuery<T, R>(query);
+    }
+    
+    private class SolrPreparedQuery<T, R> implements PreparedQuery<T, R> {
+        
+        private final Query<T, R> query;
+        private final SolrQuery solrQuery;
+        private final SolrQueryTemplate template;
+        
+        private SolrPreparedQuery(Query<T, R> query) {
+            this.query = query;
+            this.solrQuery = translate(query);
+            this.template = queryTranslator.template(solrQuery.getQuery());
+        }
+
+        @Override
+        public Query<T, R> getQuery() {
+            return query;
+        }
+        
+        private SolrQuery bind(Map<String, ?> parameters) {
+            SolrQuery bound = solrQuery.getCopy();
+            bound.setQuery(template.bind(parameters));
+            return bound;
+        }
+
+        @Override
+        public Iterable<R> find(Map<String, ?> parameters) {
+            return fetch(bind(parameters), query.getReturnType());
+        }
+
+        @Override
+        public R findOne(Map<String, ?> parameters) {
+            SolrQuery bound = bind(parameters);
+            bound.setRows(1);
+            List<R> list = fetch(bound, query.getReturnType());
+            return list.size() > 0 ? list.get(0) : null;
+        }
+        
+    }
+    
     public <T> T save(T entity) {
         try {
             solrServer.addBean(entity);
@@ -108,12 +387,127 @@ public class SolrQueryExecutor implements QueryExecutor {
         return entity;
     }
     
+    /**
+     * Send the entities in requests of the save batch size, to be committed
+     * within the commit within time, if any.
+     */
     public <T> Iterable<T> save(Iterable<T> entities) {
         List<T> saved = new ArrayList<T>();
+        List<T> batch = new ArrayList<T>(saveBatchSize);
         for (T entity : entities) {
-            saved.add(save(entity));
+            batch.add(entity);
+            saved.add(entity);
+            if (batch.size() == saveBatchSize) {
+                addBeans(batch);
+                batch = new ArrayList<T>(saveBatchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            addBeans(batch);
         }
         return saved;
     }
+    
+    private void addBeans(List<?> beans) {
+        try {
+            solrServer.addBeans(beans, commitWithinMs);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * Delete through a delete by query. Geospatial criteria are applied as a
+     * filter, which a delete by query does not take, so the matching
+     * documents are then deleted by unique key instead.
+     */
+    @Override
+    public <T, R> void delete(Query<T, R> query) {
+        try {
+            if (queryTranslator.getSpatialQuery(query) == null) {
+                String translated = queryTranslator.translate(query);
+                solrServer.deleteByQuery(translated == null
+                        || translated.isEmpty() ? "*:*" : translated,
+                        commitWithinMs);
+                return;
+            }
+            SolrQuery solrQuery = keys(query);
+            for (List<Object> keys = keys(solrQuery, null); !keys.isEmpty();
+                    keys = keys(solrQuery, keys)) {
+                List<String> ids = new ArrayList<String>(keys.size());
+                for (Object key : keys) {
+                    ids.add(key.toString());
+                }
+                solrServer.deleteById(ids, commitWithinMs);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * Solr has no update by query: the unique keys of the matching documents
+     * are read in batches of the save batch size, in key order and each batch
+     * after the last key of the previous one, and sent back as atomic
+     * updates. Atomic updates require the fields of the schema to be stored.
+     */
+    @Override
+    public <T, R> void update(Query<T, R> query, Updates updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, Object>> fields = queryTranslator
+                .translateUpdates(updates, query.getEntityClass());
+        SolrQuery solrQuery = keys(query);
+        try {
+            for (List<Object> keys = keys(solrQuery, null); !keys.isEmpty();
+                    keys = keys(solrQuery, keys)) {
+                List<SolrInputDocument> documents = new ArrayList<SolrInputDocument>(
+                        keys.size());
+                for (Object key : keys) {
+                    SolrInputDocument document = new SolrInputDocument();
+                    document.addField(uniqueKeyField, key);
+                    for (Map.Entry<String, Map<String, Object>> field : fields.entrySet()) {
+                        document.addField(field.getKey(), field.getValue());
+                    }
+                    documents.add(document);
+                }
+                solrServer.add(documents, commitWithinMs);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    private <T, R> SolrQuery keys(Query<T, R> query) {
+        SolrQuery solrQuery = translate(query);
+        solrQuery.setFields(uniqueKeyField);
+        solrQuery.setSortField(uniqueKeyField, ORDER.asc);
+        solrQuery.setRows(saveBatchSize);
+        return solrQuery;
+    }
+    
+    /**
+     * @return the next batch of unique keys after the previous batch, if any
+     */
+    private List<Object> keys(SolrQuery solrQuery, List<Object> previous) {
+        if (previous != null && previous.size() < saveBatchSize) {
+            return Collections.emptyList();
+        }
+        SolrQuery page = solrQuery.getCopy();
+        if (previous != null) {
+            page.addFilterQuery(queryTranslator.gt(uniqueKeyField,
+                    previous.get(previous.size() - 1)));
+        }
+        List<Object> keys = new ArrayList<Object>(saveBatchSize);
+        for (SolrDocument document : query(page).getResults()) {
+            keys.add(document.getFieldValue(uniqueKeyField));
+        }
+        return keys;
+    }
 
 }
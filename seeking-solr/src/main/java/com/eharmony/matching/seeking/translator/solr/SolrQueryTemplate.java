@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2012 eHarmony, Inc
+ *  
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.eharmony.matching.seeking.translator.solr;
+
+import java.util.List;
+import java.util.Map;
+
+import com.eharmony.matching.seeking.query.criterion.Parameter;
+import com.google.common.collect.Lists;
+
+/**
+ * A translated Solr query string with slots for parameter values. The query is
+ * split into its literal segments once, binding only formats the parameter
+ * values and concatenates the segments.
+ */
+public class SolrQueryTemplate {
+
+    private final SolrQueryTranslator translator;
+    // literal Strings and Parameters in query order
+    private final List<Object> segments;
+
+    protected SolrQueryTemplate(String query, SolrQueryTranslator translator) {
+        this.translator = translator;
+        this.segments = Lists.newArrayList();
+        String mark = SolrQueryTranslator.PARAMETER_MARK;
+        int start = 0;
+        int open;
+        while ((open = query.indexOf(mark, start)) >= 0) {
+            int close = query.indexOf(mark, open + mark.length());
+            if (close < 0) {
+                break;
+            }
+            if (open > start) {
+                segments.add(query.substring(start, open));
+            }
+            segments.add(new Parameter(query.substring(open + mark.length(), close)));
+            start = close + mark.length();
+        }
+        if (start < query.length()) {
+            segments.add(query.substring(start));
+        }
+    }
+
+    /**
+     * Bind values to the parameters of the query
+     * 
+     * @param parameters
+     *            the values bound to each parameter name
+     * @return the Solr query string
+     * @throws IllegalArgumentException
+     *             if a parameter has no bound value
+     */
+    public String bind(Map<String, ?> parameters) {
+        StringBuilder query = new StringBuilder();
+        for (Object segment : segments) {
+            if (segment instanceof Parameter) {
+                query.append(translator.string(Parameter.resolve(segment,
+                        parameters)));
+            } else {
+                query.append(segment);
+            }
+        }
+        return query.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder query = new StringBuilder();
+        for (Object segment : segments) {
+            query.append(segment);
+        }
+        return query.toString();
+    }
+
+}
@@ -17,23 +17,39 @@
 package com.eharmony.matching.seeking.translator.solr;
 
 import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.FacetField;
+import org.apache.solr.client.solrj.response.FieldStatsInfo;
+import org.apache.solr.client.solrj.response.QueryResponse;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
 import com.eharmony.matching.seeking.query.criterion.Criterion;
 import com.eharmony.matching.seeking.query.criterion.Operator;
 import com.eharmony.matching.seeking.query.criterion.Ordering.Order;
+import com.eharmony.matching.seeking.query.criterion.Parameter;
 import com.eharmony.matching.seeking.query.criterion.expression.Distance2dExpression;
 import com.eharmony.matching.seeking.query.criterion.expression.NativeExpression;
 import com.eharmony.matching.seeking.query.criterion.expression.UnaryExpression;
 import com.eharmony.matching.seeking.query.criterion.junction.Junction;
 import com.eharmony.matching.seeking.query.geometry.Point;
+import com.eharmony.matching.seeking.query.update.Update;
+import com.eharmony.matching.seeking.query.update.Updates;
 import com.eharmony.matching.seeking.translator.AbstractQueryTranslator;
 import com.eharmony.matching.seeking.translator.PropertyResolver;
 import com.eharmony.matching.seeking.translator.QueryTranslator;
@@ -49,6 +65,8 @@ public class SolrQueryTranslator extends
         QueryTranslator<String, SolrOrderings, List<String>> {
         
     public static final String TIMESTAMP_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+    // delimits parameter names in a translated query template
+    protected static final String PARAMETER_MARK = "\0";
     private final DateTimeFormatter dateFormatter = DateTimeFormat.forPattern(TIMESTAMP_FORMAT);
     private final Function<Object, String> toString = new Function<Object, String>() {
         @Override
@@ -67,6 +85,8 @@ public class SolrQueryTranslator extends
             return "[" + Joiner.on(",").join(
                     Lists.transform(Arrays.asList((Object[])o), toString)
             ) + "]";
+        } else if (o instanceof Parameter) {
+            return PARAMETER_MARK + ((Parameter) o).getName() + PARAMETER_MARK;
         } else if (o instanceof String) {
             return "\"" + ((String)o).replace("\"", "\\\"") + "\"";
         } else if (o instanceof Character) {
@@ -79,6 +99,18 @@ public class SolrQueryTranslator extends
         return o.toString();
     }
     
+    /**
+     * Split a query translated from criteria with parameters into a template
+     * that can be bound to many sets of values.
+     * 
+     * @param translated
+     *            the translated query
+     * @return the query template
+     */
+    public SolrQueryTemplate template(String translated) {
+        return new SolrQueryTemplate(translated, this);
+    }
+    
     protected String fq(String fieldName, String value) {
         return fieldName + SolrOperator.EQUAL + value;
     }
@@ -98,8 +130,9 @@ public class SolrQueryTranslator extends
     protected <T, N extends Number & Comparable<N>> String translate(
             Distance2dExpression<N> e, Class<T> entityClass) {
         Operator operator = e.getOperator();
-        if (Operator.WITHIN.equals(operator)) {
-            // skip and capture elsewhere
+        if (Operator.WITHIN.equals(operator) || Operator.NEAR.equals(operator)) {
+            // skip and capture elsewhere, the executor sorts by distance
+            // and limits the results of a near restriction
             return null;
         } else {
             throw unsupported(operator, UnaryExpression.class);
@@ -260,5 +293,179 @@ public class SolrQueryTranslator extends
     public <T, R> List<String> translateProjection(Query<T, R> query) {
         return query.getReturnFields();
     }
+    
+    /**
+     * Translate an aggregation into a request for no documents. The group by
+     * field is faceted and the other aggregates are read from the stats
+     * component, faceted on the same field; counts are the facet counts or
+     * the number of documents found. Solr facets on a single field.
+     * 
+     * @param aggregation
+     * @return the request
+     */
+    public <T> SolrQuery translateAggregation(Aggregation<T> aggregation) {
+        Class<T> entityClass = aggregation.getEntityClass();
+        List<String> groupBy = aggregation.getGroupBy();
+        if (groupBy.size() > 1) {
+            throw new UnsupportedOperationException(
+                    "Cannot group by more than one field: " + groupBy);
+        }
+        SolrQuery solrQuery = new SolrQuery();
+        String translated = translate(aggregation);
+        solrQuery.setQuery(translated == null || translated.isEmpty() ? "*:*" : translated);
+        solrQuery.setRows(0);
+        Distance2dExpression<?> within = findGeospatialCriterion(aggregation.getCriteria());
+        if (within != null) {
+            solrQuery.addFilterQuery("{!geofilt}");
+            solrQuery.set("sfield", getPropertyResolver().resolve(
+                    within.getPropertyName(), entityClass));
+            solrQuery.set("pt", within.getX() + "," + within.getY());
+            solrQuery.set("d", within.getDistance().toString());
+        }
+        String facetField = null;
+        if (!groupBy.isEmpty()) {
+            facetField = getPropertyResolver().resolve(groupBy.get(0), entityClass);
+            solrQuery.addFacetField(facetField);
+            solrQuery.setFacetMinCount(1);
+            solrQuery.setFacetLimit(-1);
+        }
+        Set<String> statsFields = new LinkedHashSet<String>();
+        for (Aggregate aggregate : aggregation.getAggregates()) {
+            if (aggregate.getFunction() != Aggregate.Function.COUNT) {
+                statsFields.add(getPropertyResolver().resolve(
+                        aggregate.getPropertyName(), entityClass));
+            }
+        }
+        for (String field : statsFields) {
+            solrQuery.setGetFieldStatistics(field);
+            if (facetField != null) {
+                solrQuery.addStatsFieldFacets(field, facetField);
+            }
+        }
+        return solrQuery;
+    }
+    
+    /**
+     * Read the response to the request of
+     * {@link #translateAggregation(Aggregation)}. Group values are returned
+     * as Solr renders them in facets, as strings.
+     * 
+     * @param aggregation
+     * @param response
+     * @return the aggregate results
+     */
+    public <T> List<AggregateResult> translateAggregateResults(
+            Aggregation<T> aggregation, QueryResponse response) {
+        List<String> groupBy = aggregation.getGroupBy();
+        Map<String, FieldStatsInfo> stats = response.getFieldStatsInfo();
+        if (groupBy.isEmpty()) {
+            return Collections.singletonList(aggregateResult(aggregation,
+                    Collections.<String, Object> emptyMap(), response
+                            .getResults().getNumFound(), stats));
+        }
+        String groupProperty = groupBy.get(0);
+        String facetField = resolve(aggregation, groupProperty);
+        FacetField facet = response.getFacetField(facetField);
+        List<AggregateResult> results = new ArrayList<AggregateResult>();
+        if (facet == null || facet.getValues() == null) {
+            return results;
+        }
+        // the stats of each field by facet value
+        Map<String, Map<String, FieldStatsInfo>> facetStats = new HashMap<String, Map<String, FieldStatsInfo>>();
+        if (stats != null) {
+            for (Map.Entry<String, FieldStatsInfo> entry : stats.entrySet()) {
+                Map<String, FieldStatsInfo> byValue = new HashMap<String, FieldStatsInfo>();
+                Map<String, List<FieldStatsInfo>> facets = entry.getValue().getFacets();
+                if (facets != null && facets.get(facetField) != null) {
+                    for (FieldStatsInfo info : facets.get(facetField)) {
+                        byValue.put(info.getName(), info);
+                    }
+                }
+                facetStats.put(entry.getKey(), byValue);
+            }
+        }
+        for (FacetField.Count count : facet.getValues()) {
+            Map<String, FieldStatsInfo> groupStats = new HashMap<String, FieldStatsInfo>();
+            for (Map.Entry<String, Map<String, FieldStatsInfo>> entry : facetStats.entrySet()) {
+                groupStats.put(entry.getKey(), entry.getValue().get(count.getName()));
+            }
+            results.add(aggregateResult(aggregation, Collections
+                    .<String, Object> singletonMap(groupProperty, count.getName()),
+                    count.getCount(), groupStats));
+        }
+        return results;
+    }
+    
+    private <T> String resolve(Aggregation<T> aggregation, String propertyName) {
+        return getPropertyResolver().resolve(propertyName,
+                aggregation.getEntityClass());
+    }
+    
+    private <T> AggregateResult aggregateResult(Aggregation<T> aggregation,
+            Map<String, Object> group, long count,
+            Map<String, FieldStatsInfo> stats) {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        for (Aggregate aggregate : aggregation.getAggregates()) {
+            Object value = null;
+            if (aggregate.getFunction() == Aggregate.Function.COUNT) {
+                value = count;
+            } else {
+                FieldStatsInfo info = stats != null ? stats.get(resolve(
+                        aggregation, aggregate.getPropertyName())) : null;
+                value = info != null && info.getCount() != null
+                        && info.getCount() > 0 ? statistic(aggregate, info) : null;
+            }
+            values.put(aggregate.getAlias(), value);
+        }
+        return new AggregateResult(group, values);
+    }
+    
+    private Object statistic(Aggregate aggregate, FieldStatsInfo info) {
+        switch (aggregate.getFunction()) {
+        case SUM:
+            return info.getSum();
+        case MIN:
+            return info.getMin();
+        case MAX:
+            return info.getMax();
+        case AVG:
+            return info.getMean();
+        default:
+            throw new UnsupportedOperationException(aggregate.getFunction()
+                    + " not supported");
+        }
+    }
+    
+    /**
+     * Translate updates into the fields of an atomic update document: each
+     * field maps to its "set" or "inc" modifier, unset fields are set to null.
+     * 
+     * @param updates
+     * @param entityClass
+     * @return the modifier of each field
+     */
+    public Map<String, Map<String, Object>> translateUpdates(Updates updates,
+            Class<?> entityClass) {
+        Map<String, Map<String, Object>> fields = new LinkedHashMap<String, Map<String, Object>>();
+        for (Update update : updates.get()) {
+            String modifier;
+            switch (update.getOperation()) {
+            case SET:
+            case UNSET:
+                modifier = "set";
+                break;
+            case INC:
+                modifier = "inc";
+                break;
+            default:
+                throw new UnsupportedOperationException(update.getOperation()
+                        + " not supported");
+            }
+            fields.put(getPropertyResolver().resolve(update.getPropertyName(),
+                    entityClass), Collections.singletonMap(modifier,
+                    update.getValue()));
+        }
+        return fields;
+    }
 
 }
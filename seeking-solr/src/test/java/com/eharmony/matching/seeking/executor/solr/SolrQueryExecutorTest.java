@@ -1,31 +1,47 @@
 package com.eharmony.matching.seeking.executor.solr;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import com.eharmony.matching.seeking.executor.BatchResults;
+import com.eharmony.matching.seeking.executor.Page;
+import com.eharmony.matching.seeking.executor.ResultStream;
 import com.eharmony.matching.seeking.executor.solr.mock.MockQueryResponse;
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.QueryHints;
 import com.eharmony.matching.seeking.query.builder.QueryBuilder;
 import com.eharmony.matching.seeking.query.criterion.Restrictions;
+import com.eharmony.matching.seeking.query.update.Updates;
 import com.eharmony.matching.seeking.test.TestClass;
 import com.eharmony.matching.seeking.test.TestClassTuple;
 import com.eharmony.matching.seeking.test.TestClassTuple2;
 import com.eharmony.matching.seeking.translator.solr.SolrOrderings;
 import com.eharmony.matching.seeking.translator.solr.SolrQueryTranslator;
+import com.eharmony.matching.seeking.translator.solr.SolrSpatialQuery;
 
 public class SolrQueryExecutorTest {
     
@@ -148,6 +164,158 @@ public class SolrQueryExecutorTest {
         verify(queryTranslator).translate(query);
     }
     
+    @Test
+    public void stream() throws SolrServerException {
+        when(solrServer.query(any(SolrQuery.class))).thenReturn(
+                new MockQueryResponse(tests[0], tests[1], tests[2], tests[3]),
+                new MockQueryResponse(tests[4], tests[5]));
+        
+        ResultStream<TestClass> found = executor.stream(QueryBuilder
+                .builderFor(entityClass).setFetchSize(4).build());
+        for (int i = 0; i < tests.length; i++) {
+            assertEquals(tests[i], found.next());
+        }
+        assertFalse(found.hasNext());
+        verify(solrServer, times(2)).query(any(SolrQuery.class));
+    }
+    
+    @Test
+    public void stream_maxResults() throws SolrServerException {
+        when(solrServer.query(any(SolrQuery.class))).thenReturn(
+                new MockQueryResponse(tests[0], tests[1]),
+                new MockQueryResponse(tests[2]));
+        
+        ResultStream<TestClass> found = executor.stream(QueryBuilder
+                .builderFor(entityClass).setFetchSize(2).setMaxResults(3)
+                .build());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(tests[i], found.next());
+        }
+        assertFalse(found.hasNext());
+        // the second request only asks for the one remaining row
+        ArgumentCaptor<SolrQuery> requested = ArgumentCaptor.forClass(SolrQuery.class);
+        verify(solrServer, times(2)).query(requested.capture());
+        assertEquals(Integer.valueOf(2), requested.getValue().getStart());
+        assertEquals(Integer.valueOf(1), requested.getValue().getRows());
+    }
+    
+    @Test
+    public void find_hints() throws SolrServerException {
+        setResponse(t1);
+        Query<TestClass, TestClass> hinted = QueryBuilder
+                .builderFor(entityClass).add(Restrictions.eq("name", "test"))
+                .addHint(QueryHints.CACHE, false)
+                .addHint(QueryHints.COST, 100)
+                .addHint(QueryHints.INDEX, "ignored").build();
+        when(queryTranslator.getSpatialQuery(hinted)).thenReturn(
+                new SolrSpatialQuery("location", 1, 2, 3));
+        
+        executor.find(hinted);
+        ArgumentCaptor<SolrQuery> requested = ArgumentCaptor.forClass(SolrQuery.class);
+        verify(solrServer).query(requested.capture());
+        assertEquals("{!cache=false}" + queryString, requested.getValue().getQuery());
+        assertEquals("{!geofilt cache=false cost=100}",
+                requested.getValue().getFilterQueries()[0]);
+    }
+    
+    @Test
+    public void find_near() throws SolrServerException {
+        setResponse(t1);
+        Query<TestClass, TestClass> near = QueryBuilder
+                .builderFor(entityClass)
+                .add(Restrictions.near("location", 1, 2, 5, 3))
+                .setMaxResults(10).build();
+        when(queryTranslator.getSpatialQuery(near)).thenReturn(
+                new SolrSpatialQuery("location", 1, 2, 3));
+        
+        executor.find(near);
+        ArgumentCaptor<SolrQuery> requested = ArgumentCaptor.forClass(SolrQuery.class);
+        verify(solrServer).query(requested.capture());
+        assertEquals("geodist() asc", requested.getValue().getSortField());
+        assertEquals(Integer.valueOf(5), requested.getValue().getRows());
+        assertEquals("*," + SolrQueryExecutor.DISTANCE_FIELD + ":geodist()",
+                requested.getValue().getFields());
+    }
+    
+    @Test
+    public void findAll_mergedLookups() throws SolrServerException {
+        setResponse((Object[]) tests);
+        List<Query<TestClass, TestClass>> lookups = new ArrayList<Query<TestClass, TestClass>>();
+        for (TestClass test : tests) {
+            lookups.add(QueryBuilder.builderFor(entityClass)
+                    .add(Restrictions.eq("id", test.getId())).build());
+        }
+        
+        BatchResults results = executor.findAll(lookups);
+        ArgumentCaptor<SolrQuery> requested = ArgumentCaptor.forClass(SolrQuery.class);
+        verify(solrServer).query(requested.capture());
+        // one row per lookup, whatever the default rows of the server
+        assertEquals(Integer.valueOf(tests.length), requested.getValue().getRows());
+        for (int i = 0; i < tests.length; i++) {
+            assertEquals(Arrays.asList(tests[i]), results.get(lookups.get(i)));
+        }
+    }
+    
+    @Test
+    public void count() throws SolrServerException {
+        MockQueryResponse response = new MockQueryResponse();
+        response.getResults().setNumFound(42);
+        when(solrServer.query(any(SolrQuery.class))).thenReturn(response);
+        
+        assertEquals(42, executor.count(query));
+        ArgumentCaptor<SolrQuery> requested = ArgumentCaptor.forClass(SolrQuery.class);
+        verify(solrServer).query(requested.capture());
+        assertEquals(Integer.valueOf(0), requested.getValue().getRows());
+    }
+    
+    @Test
+    public void findPage() throws SolrServerException {
+        MockQueryResponse response = new MockQueryResponse(tests[0], tests[1]);
+        response.getResults().setNumFound(tests.length);
+        when(solrServer.query(any(SolrQuery.class))).thenReturn(response);
+        
+        Page<TestClass> page = executor.findPage(QueryBuilder
+                .builderFor(entityClass).setMaxResults(2).build());
+        assertEquals(Arrays.asList(tests[0], tests[1]), page.getResults());
+        assertEquals(tests.length, page.getTotal());
+        // the total comes with the page
+        verify(solrServer, times(1)).query(any(SolrQuery.class));
+    }
+    
+    @Test
+    public void delete() throws IOException, SolrServerException {
+        executor.delete(query);
+        verify(solrServer).deleteByQuery(queryString,
+                SolrQueryExecutor.NO_COMMIT_WITHIN);
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void update() throws IOException, SolrServerException {
+        SolrQueryExecutor batched = new SolrQueryExecutor(solrServer,
+                queryTranslator, 4, 500);
+        Updates updates = new Updates().inc("number", 1);
+        Map<String, Object> inc = Collections.<String, Object> singletonMap("inc", 1);
+        when(queryTranslator.translateUpdates(updates, entityClass)).thenReturn(
+                Collections.singletonMap("number", inc));
+        when(queryTranslator.gt("id", 4L)).thenReturn("id:{4 TO *]");
+        when(solrServer.query(any(SolrQuery.class))).thenReturn(
+                new MockQueryResponse(tests[0], tests[1], tests[2], tests[3]),
+                new MockQueryResponse(tests[4], tests[5]));
+        
+        batched.update(query, updates);
+        // the second batch of keys starts after the last key of the first
+        ArgumentCaptor<SolrQuery> requested = ArgumentCaptor.forClass(SolrQuery.class);
+        verify(solrServer, times(2)).query(requested.capture());
+        assertEquals("id:{4 TO *]", requested.getValue().getFilterQueries()[0]);
+        ArgumentCaptor<Collection> added = ArgumentCaptor.forClass(Collection.class);
+        verify(solrServer, times(2)).add(added.capture(), eq(500));
+        List<SolrInputDocument> last = (List<SolrInputDocument>) added.getValue();
+        assertEquals(2, last.size());
+        assertEquals(6L, last.get(1).getFieldValue("id"));
+        assertEquals(inc, last.get(1).getFieldValue("number"));
+    }
+    
     @Test
     public void save() {
         TestClass saved = executor.save(t1);
@@ -163,6 +331,15 @@ public class SolrQueryExecutorTest {
         }
     }
     
+    @Test
+    public void save_manyBatched() throws IOException, SolrServerException {
+        SolrQueryExecutor batched = new SolrQueryExecutor(solrServer,
+                queryTranslator, 4, 500);
+        batched.save(Arrays.asList(tests));
+        verify(solrServer).addBeans(Arrays.asList(tests[0], tests[1], tests[2], tests[3]), 500);
+        verify(solrServer).addBeans(Arrays.asList(tests[4], tests[5]), 500);
+    }
+    
     @Test(expected = RuntimeException.class)
     public void save_fail() throws IOException, SolrServerException {
         when(solrServer.addBean(t1)).thenThrow(new SolrException(null, queryString));
@@ -1,21 +1,34 @@
 package com.eharmony.matching.seeking.translator.solr;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.FacetParams;
+import org.apache.solr.common.params.StatsParams;
+import org.apache.solr.common.util.NamedList;
 import org.junit.Test;
 
 import com.eharmony.matching.seeking.query.Query;
+import com.eharmony.matching.seeking.query.aggregate.Aggregate;
+import com.eharmony.matching.seeking.query.aggregate.AggregateResult;
+import com.eharmony.matching.seeking.query.aggregate.Aggregation;
+import com.eharmony.matching.seeking.query.builder.AggregationBuilder;
 import com.eharmony.matching.seeking.query.builder.QueryBuilder;
 import com.eharmony.matching.seeking.query.criterion.Ordering.Order;
 import com.eharmony.matching.seeking.query.criterion.Restrictions;
 import com.eharmony.matching.seeking.query.geometry.Point;
+import com.eharmony.matching.seeking.query.update.Updates;
 import com.eharmony.matching.seeking.test.TestClass;
 import com.eharmony.matching.seeking.translator.PropertyResolver;
 import com.eharmony.matching.seeking.translator.SimplePropertyResolver;
@@ -168,6 +181,18 @@ public class SolrQueryTranslatorTest {
         assertEquals(distance, spatialQuery.getDistance());
     }
     
+    @Test
+    public void spatialQuery_near() {
+        Query<TestClass, TestClass> query = QueryBuilder
+                .builderFor(TestClass.class)
+                .add(Restrictions.eq(property, value))
+                .add(Restrictions.near(property, x, y, 10, distance)).build();
+        assertEquals(translator.eq(property, value), translator.translate(query));
+        SolrSpatialQuery spatialQuery = translator.getSpatialQuery(query);
+        assertEquals(property, spatialQuery.getField());
+        assertEquals(distance, spatialQuery.getDistance());
+    }
+    
     @Test
     public void spatialQuery_nested() {
         Query<TestClass, TestClass> query = QueryBuilder
@@ -320,5 +345,125 @@ public class SolrQueryTranslatorTest {
                 translator.translateProjection(QueryBuilder.builderFor(
                         String.class, String.class, "a", "b", "c").build()));
     }
+    
+    @Test
+    public void template_bind() {
+        String translated = translator.translate(QueryBuilder
+                .builderFor(TestClass.class)
+                .add(Restrictions.eq(property, Restrictions.param("p")))
+                .add(Restrictions.in("other", new Object[] { 1, Restrictions.param("q") }))
+                .build());
+        SolrQueryTemplate template = translator.template(translated);
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("p", value);
+        parameters.put("q", 2);
+        assertEquals(translator.and(translator.eq(property, value),
+                translator.in("other", new Object[] { 1, 2 })),
+                template.bind(parameters));
+        parameters.put("p", "another value");
+        assertEquals(translator.and(translator.eq(property, "another value"),
+                translator.in("other", new Object[] { 1, 2 })),
+                template.bind(parameters));
+    }
+    
+    @Test
+    public void template_noParameters() {
+        String translated = translator.eq(property, value);
+        assertEquals(translated, translator.template(translated).bind(
+                Collections.<String, Object> emptyMap()));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void template_unbound() {
+        translator.template(translator.eq(property, Restrictions.param("p")))
+                .bind(Collections.<String, Object> emptyMap());
+    }
 
+    
+    private final Aggregation<TestClass> aggregation = AggregationBuilder
+            .builderFor(TestClass.class).add(Restrictions.eq(property, value))
+            .groupBy("city")
+            .aggregate(Aggregate.count(), Aggregate.sum("amount"),
+                    Aggregate.max("amount"))
+            .build();
+    
+    @Test
+    public void translateAggregation() {
+        SolrQuery solrQuery = translator.translateAggregation(aggregation);
+        assertEquals(translator.eq(property, value), solrQuery.getQuery());
+        assertEquals(Integer.valueOf(0), solrQuery.getRows());
+        assertArrayEquals(new String[] { "city" }, solrQuery.getFacetFields());
+        // the stats of a field are requested once for all of its aggregates
+        assertArrayEquals(new String[] { "amount" },
+                solrQuery.getParams(StatsParams.STATS_FIELD));
+        assertArrayEquals(new String[] { "city" },
+                solrQuery.getParams("f.amount." + StatsParams.STATS_FACET));
+        assertEquals("-1", solrQuery.get(FacetParams.FACET_LIMIT));
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void translateAggregation_groupByMany() {
+        translator.translateAggregation(AggregationBuilder
+                .builderFor(TestClass.class).groupBy("a", "b").build());
+    }
+    
+    private static NamedList<Object> stats(double min, double max, double sum, long count) {
+        NamedList<Object> stats = new NamedList<Object>();
+        stats.add("min", min);
+        stats.add("max", max);
+        stats.add("sum", sum);
+        stats.add("count", count);
+        return stats;
+    }
+    
+    @Test
+    public void translateAggregateResults() {
+        NamedList<Object> cities = new NamedList<Object>();
+        cities.add("la", 2);
+        cities.add("ny", 1);
+        NamedList<Object> facetFields = new NamedList<Object>();
+        facetFields.add("city", cities);
+        NamedList<Object> facetCounts = new NamedList<Object>();
+        facetCounts.add("facet_fields", facetFields);
+        
+        NamedList<Object> cityStats = new NamedList<Object>();
+        cityStats.add("la", stats(1, 4, 5, 2));
+        cityStats.add("ny", stats(3, 3, 3, 1));
+        NamedList<Object> facets = new NamedList<Object>();
+        facets.add("city", cityStats);
+        NamedList<Object> amount = stats(1, 4, 8, 3);
+        amount.add("facets", facets);
+        NamedList<Object> statsFields = new NamedList<Object>();
+        statsFields.add("amount", amount);
+        NamedList<Object> stats = new NamedList<Object>();
+        stats.add("stats_fields", statsFields);
+        
+        NamedList<Object> body = new NamedList<Object>();
+        body.add("response", new SolrDocumentList());
+        body.add("facet_counts", facetCounts);
+        body.add("stats", stats);
+        
+        List<AggregateResult> results = translator.translateAggregateResults(
+                aggregation, new QueryResponse(body, null));
+        assertEquals(2, results.size());
+        AggregateResult la = results.get(0);
+        assertEquals("la", la.getGroup("city"));
+        assertEquals(2L, la.getValue(Aggregate.count()));
+        assertEquals(5.0, la.getValue(Aggregate.sum("amount")));
+        assertEquals(4.0, la.getValue(Aggregate.max("amount")));
+        AggregateResult ny = results.get(1);
+        assertEquals("ny", ny.getGroup("city"));
+        assertEquals(1L, ny.getValue(Aggregate.count()));
+        assertEquals(3.0, ny.getValue(Aggregate.sum("amount")));
+    }
+    
+    @Test
+    public void translateUpdates() {
+        Map<String, Map<String, Object>> fields = translator.translateUpdates(
+                new Updates().set("a", "x").inc("b", 2).unset("c"), TestClass.class);
+        assertEquals(Arrays.asList("a", "b", "c"), Lists.newArrayList(fields.keySet()));
+        assertEquals(Collections.singletonMap("set", "x"), fields.get("a"));
+        assertEquals(Collections.singletonMap("inc", 2), fields.get("b"));
+        assertEquals(Collections.singletonMap("set", null), fields.get("c"));
+    }
 }